@@ -0,0 +1,22 @@
+import com.google.inject.AbstractModule;
+import repository.ReferenceDataLoader;
+import repository.RepositoryMetrics;
+import utility.CountryRefresher;
+import utility.ThumbnailPipeline;
+import utility.UndoStackReaper;
+
+/**
+ * Guice module picked up automatically by Play from the root package.
+ * Used to bind components that need to run when the application starts.
+ */
+public class Module extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        bind(ReferenceDataLoader.class).asEagerSingleton();
+        bind(CountryRefresher.class).asEagerSingleton();
+        bind(ThumbnailPipeline.class).asEagerSingleton();
+        bind(UndoStackReaper.class).asEagerSingleton();
+        bind(RepositoryMetrics.class).asEagerSingleton();
+    }
+}
@@ -19,13 +19,17 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import static controllers.EventsController.setValues;
 import static java.lang.Integer.parseInt;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static play.mvc.Results.ok;
 import static play.mvc.Results.redirect;
+import static play.mvc.Results.status;
 
 
 /**
@@ -43,6 +47,7 @@ public class AdminController {
     private final TreasureHuntRepository treasureHuntRepository;
     private MessagesApi messagesApi;
     private final HttpExecutionContext httpExecutionContext;
+    private final DatabaseExecutionContext databaseExecutionContext;
     private final TreasureHuntController treasureHuntController;
     private final ArtistController artistController;
     private final Form<TreasureHunt> huntForm;
@@ -66,11 +71,13 @@ public class AdminController {
                            RolesRepository rolesRepository,
                            TreasureHuntRepository treasureHuntRepository, TreasureHuntController treasureHuntController,
                            ArtistController artistController, UndoStackRepository undoStackRepository, ArtistRepository artistRepository,
-                           FormFactory artistProfileFormFactory, GenreRepository genreRepository, EventRepository eventRepository, FormFactory eventFormFactory) {
+                           FormFactory artistProfileFormFactory, GenreRepository genreRepository, EventRepository eventRepository, FormFactory eventFormFactory,
+                           DatabaseExecutionContext databaseExecutionContext) {
         this.profileEditForm = formFactory.form(Profile.class);
         this.profileRepository = profileRepository;
         this.destinationRepository = destinationRepository;
         this.httpExecutionContext = httpExecutionContext;
+        this.databaseExecutionContext = databaseExecutionContext;
         this.messagesApi = messagesApi;
         this.tripRepository = tripRepository;
         this.profileCreateForm = formFactory.form(Profile.class);
@@ -107,21 +114,48 @@ public class AdminController {
         return paginationHelper;
     }
 
+    /**
+     * Gets the page of a table to show. The first page and any page linked with a cursor are found with keyset
+     * pagination and the cursors for the pages either side are set on the paginator. Links without a cursor
+     * still use the offset so old links keep working.
+     * @param offset offset for page
+     * @param cursor token of the page to show, null to use the offset
+     * @param paginationHelper paginator for the page
+     * @param byCursor finds the page for the cursor
+     * @param byOffset finds the page at the offset
+     * @return the items on the page
+     */
+    private <T> List<T> getPage(int offset, String cursor, PaginationHelper paginationHelper,
+                                Supplier<KeysetPage<T>> byCursor, Supplier<List<T>> byOffset) {
+        if (offset == 0 || cursor != null) {
+            KeysetPage<T> page = byCursor.get();
+            paginationHelper.setCursors(page);
+            return page.getItems();
+        }
+        return byOffset.get();
+    }
+
     /**
      * Endpoint for admin to view all user tripsage  - Added boilerplate to allow for a paginated table  - Added routes to access the tab - Updated test db script so test should now pass #implement #test #commits[]
      *
      * @apiNote GET /admin/trips/:offset
      * @param request client http request
      * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return CompletionStage result of admin page
      */
-    public CompletionStage<Result> showTrips(Http.Request request, Integer offset) {
-        return supplyAsync(() -> ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), tripRepository.getPaginateTrip(offset, pageSize), new RoutedObject<Destination>(null, false, false),
-                new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
-                null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
-                new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
-                undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, tripRepository.getNumTrips(), 2), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+    public CompletionStage<Result> showTrips(Http.Request request, Integer offset, String cursor) {
+        return supplyAsync(() -> {
+            PaginationHelper paginationHelper = initialisePaginatior(offset, tripRepository.getCachedNumTrips(), 2);
+            List<Trip> trips = getPage(offset, cursor, paginationHelper,
+                    () -> tripRepository.getPaginateTrip(cursor, pageSize), () -> tripRepository.getPaginateTrip(offset, pageSize));
+            return ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), trips, new RoutedObject<Destination>(null, false, false),
+                    new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
+                    null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
+                    new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
+                    undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), paginationHelper, new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
     public CompletionStage<Result> showEvents(Http.Request request, Integer offset){
@@ -130,7 +164,7 @@ public class AdminController {
                 undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)),
                 artistRepository.getAllVerfiedArtists(), genreRepository.getAllGenres(), eventCreateForm,
                 initialisePaginatior(offset, eventRepository.getNumEvents(), 8),
-                    eventRepository.getPage(offset), new RoutedObject<>(null, false, false), request, messagesApi.preferred(request))));
+                    eventRepository.getPage(offset), new RoutedObject<>(null, false, false), request, messagesApi.preferred(request))), databaseExecutionContext);
     }
 
     /**
@@ -158,15 +192,21 @@ public class AdminController {
      * @apiNote GET /admin/profiles/:offset
      * @param request client http request
      * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return CompletionStage result of admin page
      */
-    public CompletionStage<Result> showProfiles(Http.Request request, Integer offset) {
-        return supplyAsync(() -> ok(admin.render(profileRepository.getPage(offset, pageSize), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
-                new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
-                null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
-                new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
-                undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, profileRepository.getNumProfiles(), 1), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+    public CompletionStage<Result> showProfiles(Http.Request request, Integer offset, String cursor) {
+        return supplyAsync(() -> {
+            PaginationHelper paginationHelper = initialisePaginatior(offset, profileRepository.getCachedNumProfiles(), 1);
+            List<Profile> profiles = getPage(offset, cursor, paginationHelper,
+                    () -> profileRepository.getPage(cursor, pageSize), () -> profileRepository.getPage(offset, pageSize));
+            return ok(admin.render(profiles, new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
+                    new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
+                    null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
+                    new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
+                    undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), paginationHelper, new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
     /**
@@ -183,7 +223,7 @@ public class AdminController {
                 null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
                 new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
                 undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, profileRepository.getNumAdmins(), 0), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, profileRepository.getNumAdmins(), 0), new ArrayList<Events>(), request, messagesApi.preferred(request))), databaseExecutionContext);
     }
 
     /**
@@ -192,15 +232,21 @@ public class AdminController {
      * @apiNote GET /admin/destinations/:offset
      * @param request client http request
      * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return CompletionStage result of admin page
      */
-    public CompletionStage<Result> showDestinations(Http.Request request, Integer offset) {
-        return supplyAsync(() -> ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
-                destinationRepository.getDestinationPage(offset, pageSize), new RoutedObject<Profile>(null, false, false), profileEditForm,
-                null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
-                new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
-                undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, destinationRepository.getNumDestinations(), 3), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+    public CompletionStage<Result> showDestinations(Http.Request request, Integer offset, String cursor) {
+        return supplyAsync(() -> {
+            PaginationHelper paginationHelper = initialisePaginatior(offset, destinationRepository.getCachedNumDestinations(), 3);
+            List<Destination> destinations = getPage(offset, cursor, paginationHelper,
+                    () -> destinationRepository.getDestinationPage(cursor, pageSize), () -> destinationRepository.getDestinationPage(offset, pageSize));
+            return ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
+                    destinations, new RoutedObject<Profile>(null, false, false), profileEditForm,
+                    null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
+                    new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
+                    undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), paginationHelper, new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
     /**
@@ -217,7 +263,7 @@ public class AdminController {
                 null, profileCreateForm, null, destinationRepository.getDestRequestPage(offset, pageSize), new ArrayList<TreasureHunt>(),
                 new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
                 undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, destinationRepository.getNumDestRequests(), 4), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, destinationRepository.getNumDestRequests(), 4), new ArrayList<Events>(), request, messagesApi.preferred(request))), databaseExecutionContext);
     }
 
     /**
@@ -226,15 +272,21 @@ public class AdminController {
      * @apiNote GET /admin/hunts/:offset
      * @param request client http request
      * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return CompletionStage result of admin page
      */
-    public CompletionStage<Result> showHunts(Http.Request request, Integer offset) {
-        return supplyAsync(() -> ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
-                destinationRepository.getAllDestinations(), new RoutedObject<Profile>(null, false, false), profileEditForm,
-                null, profileCreateForm, null, new ArrayList<DestinationChange>(), treasureHuntRepository.getPageHunts(offset, pageSize),
-                new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
-                undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, treasureHuntRepository.getNumHunts(), 5), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+    public CompletionStage<Result> showHunts(Http.Request request, Integer offset, String cursor) {
+        return supplyAsync(() -> {
+            PaginationHelper paginationHelper = initialisePaginatior(offset, treasureHuntRepository.getCachedNumHunts(), 5);
+            List<TreasureHunt> hunts = getPage(offset, cursor, paginationHelper,
+                    () -> treasureHuntRepository.getPageHunts(cursor, pageSize), () -> treasureHuntRepository.getPageHunts(offset, pageSize));
+            return ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
+                    destinationRepository.getAllDestinations(), new RoutedObject<Profile>(null, false, false), profileEditForm,
+                    null, profileCreateForm, null, new ArrayList<DestinationChange>(), hunts,
+                    new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
+                    undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), paginationHelper, new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
     /**
@@ -243,15 +295,21 @@ public class AdminController {
      * @apiNote GET /admin/artists/:offset
      * @param request client http request
      * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return CompletionStage result of admin page
      */
-    public CompletionStage<Result> showArtists(Http.Request request, Integer offset) {
-        return supplyAsync(() -> ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
-                new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
-                null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
-                new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
-                undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), artistRepository.getPageArtists(offset, pageSize, 1),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, artistRepository.getNumArtists(), 6), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+    public CompletionStage<Result> showArtists(Http.Request request, Integer offset, String cursor) {
+        return supplyAsync(() -> {
+            PaginationHelper paginationHelper = initialisePaginatior(offset, artistRepository.getCachedNumArtists(), 6);
+            List<Artist> artists = getPage(offset, cursor, paginationHelper,
+                    () -> artistRepository.getPageArtists(cursor, pageSize, 1), () -> artistRepository.getPageArtists(offset, pageSize, 1));
+            return ok(admin.render(profileRepository.getAllEbeans(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
+                    new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
+                    null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
+                    new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
+                    undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), artists,
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), paginationHelper, new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
     /**
@@ -260,15 +318,21 @@ public class AdminController {
      * @apiNote GET /admin/artists/requests/:offset
      * @param request client http request
      * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return CompletionStage result of admin page
      */
-    public CompletionStage<Result> showArtistRequests(Http.Request request, Integer offset) {
-        return supplyAsync(() -> ok(admin.render(new ArrayList<Profile>(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
-                new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
-                null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
-                new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
-                undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), artistRepository.getPageArtists(offset, pageSize, 0),
-                new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(offset, artistRepository.getNumArtistRequests(), 7), new ArrayList<Events>(), request, messagesApi.preferred(request))));
+    public CompletionStage<Result> showArtistRequests(Http.Request request, Integer offset, String cursor) {
+        return supplyAsync(() -> {
+            PaginationHelper paginationHelper = initialisePaginatior(offset, artistRepository.getNumArtistRequests(), 7);
+            List<Artist> artists = getPage(offset, cursor, paginationHelper,
+                    () -> artistRepository.getPageArtists(cursor, pageSize, 0), () -> artistRepository.getPageArtists(offset, pageSize, 0));
+            return ok(admin.render(new ArrayList<Profile>(), new ArrayList<Profile>(), new ArrayList<Trip>(), new RoutedObject<Destination>(null, false, false),
+                    new ArrayList<Destination>(), new RoutedObject<Profile>(null, false, false), profileEditForm,
+                    null, profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
+                    new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
+                    undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), artists,
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), paginationHelper, new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
 
@@ -302,7 +366,7 @@ public class AdminController {
         }
         undoStackRepository.addToStack(new UndoStack("profile", id, SessionController.getCurrentUserId(request)));
         return profileRepository.setSoftDelete(id, 1).thenApplyAsync(userEmail -> redirect("/admin/profiles/0").flashing("info",
-                "Profile deleted successfully"));
+                "Profile deleted successfully"), httpExecutionContext.current());
     }
 
 
@@ -326,7 +390,7 @@ public class AdminController {
             } else {
                 return redirect("/admin/profiles/0");
             }
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -351,7 +415,7 @@ public class AdminController {
             } else {
                 return redirect("/admin/profiles/0").flashing("info", "User profile not found");
             }
-        });
+        }, databaseExecutionContext);
 
     }
 
@@ -407,16 +471,26 @@ public class AdminController {
         Form<UpdatePasswordForm> passwordFormForm = updatePasswordForm.bindFromRequest(request);
         UpdatePasswordForm updatePasswordForm = passwordFormForm.get();
         return profileRepository.updatePassword(updatePasswordForm.userId, updatePasswordForm.password)
-                .thenApplyAsync(x -> redirect("/admin/profiles/0")
-                        , httpExecutionContext.current());
+                .handleAsync((x, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            return status(Http.Status.SERVICE_UNAVAILABLE, "Too many passwords being changed at once, please try again shortly.")
+                                    .withHeader(Http.HeaderNames.RETRY_AFTER, "1");
+                        }
+                        throw new CompletionException(cause);
+                    }
+                    return redirect("/admin/profiles/0");
+                }, httpExecutionContext.current());
     }
 
 
     /**
-     * Method to allow an admin to create a new user profile
+     * Method to allow an admin to create a new user profile. The password is hashed on the password hashing pool
+     * as the profile is inserted.
      *
      * @param request
-     * @return
+     * @return a redirect to the profiles page, 503 if too many passwords are already waiting to be hashed
      * @apiNote /admin/profile/create
      */
     public CompletionStage<Result> createProfile(Http.Request request) {
@@ -425,8 +499,17 @@ public class AdminController {
         profile.initProfile();
 
         return profileRepository.insert(profile)
-                .thenApplyAsync(email -> redirect("/admin/profiles/0")
-                );
+                .handleAsync((profileId, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            return status(Http.Status.SERVICE_UNAVAILABLE, "Too many profiles being created at once, please try again shortly.")
+                                    .withHeader(Http.HeaderNames.RETRY_AFTER, "1");
+                        }
+                        throw new CompletionException(cause);
+                    }
+                    return redirect("/admin/profiles/0");
+                }, httpExecutionContext.current());
     }
 
 
@@ -443,8 +526,7 @@ public class AdminController {
         return tripRepository.setSoftDelete(tripId, 1).thenApplyAsync(x -> redirect("/admin/trips/0")
                 .flashing(
                         "info",
-                        "Trip: " + tripId + " deleted")
-        );
+                        "Trip: " + tripId + " deleted"), httpExecutionContext.current());
     }
 
 
@@ -464,8 +546,8 @@ public class AdminController {
                     profileCreateForm, null, new ArrayList<DestinationChange>(), new ArrayList<TreasureHunt>(),
                     new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
                     undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
-                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(0, tripRepository.getNumTrips(), 2), new ArrayList<Events>(), request, messagesApi.preferred(request)));
-        });
+                    new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(0, tripRepository.getCachedNumTrips(), 2), new ArrayList<Events>(), request, messagesApi.preferred(request)));
+        }, databaseExecutionContext);
     }
 
 
@@ -533,7 +615,7 @@ public class AdminController {
                                             "Destination: "
                                                     + destId
                                                     + " deleted");
-                        });
+                        }, databaseExecutionContext);
     }
 
 
@@ -557,7 +639,7 @@ public class AdminController {
                     new RoutedObject<TreasureHunt>(null, false, false), Country.getInstance().getAllCountries(),
                     undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
                     new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(0, destinationRepository.getNumDestinations(), 3), new ArrayList<Events>(), request, messagesApi.preferred(request)));
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -576,7 +658,7 @@ public class AdminController {
         destFormString.ifPresent(destination::setTravellerTypesStringDest);
         destination.initTravellerType();
         if (longLatCheck(destination)) {
-            return destinationRepository.update(destination, destId).thenApplyAsync(x -> redirect("/admin/destinations/0").flashing("info", "Destination " + destination.getName() + " was edited successfully."));
+            return destinationRepository.update(destination, destId).thenApplyAsync(x -> redirect("/admin/destinations/0").flashing("info", "Destination " + destination.getName() + " was edited successfully."), httpExecutionContext.current());
         } else {
             return supplyAsync(() -> redirect("/admin/destinations/0").flashing("error", "A destinations longitude (-180 to 180) and latitude (90 to -90) must be valid"));
         }
@@ -603,7 +685,7 @@ public class AdminController {
             Destination destination = destOpt.get();
             destination.initTravellerType();
             destination.setVisible(visibility);
-            return destinationRepository.insert(destination).thenApplyAsync(string -> redirect("/admin/destinations/0").flashing("info", "Destination " + destination.getName() + " added successfully"));
+            return destinationRepository.insert(destination).thenApplyAsync(string -> redirect("/admin/destinations/0").flashing("info", "Destination " + destination.getName() + " added successfully"), httpExecutionContext.current());
         }
         return supplyAsync(() -> redirect("/admin/destinations/0") .flashing("error", "Destination add failed"));
         }
@@ -621,8 +703,7 @@ public class AdminController {
     public CompletionStage<Result> rejectDestinationRequest(Http.Request request, Integer changeId) {
         return destinationRepository.deleteDestinationChange(changeId)
                 .thenApplyAsync(x ->
-                        redirect("/admin/destinations/requests/0").flashing("info", "Destination change request successfully rejected")
-                );
+                        redirect("/admin/destinations/requests/0").flashing("info", "Destination change request successfully rejected"), httpExecutionContext.current());
     }
 
     /**
@@ -635,7 +716,7 @@ public class AdminController {
      */
     public CompletionStage<Result> acceptDestinationRequest(Http.Request request, Integer changeId) {
         return destinationRepository.acceptDestinationChange(changeId)
-                .thenApplyAsync(x -> redirect("/admin/destinations/requests/0").flashing("info", "Destination change successfully accepted"));
+                .thenApplyAsync(x -> redirect("/admin/destinations/requests/0").flashing("info", "Destination change successfully accepted"), httpExecutionContext.current());
     }
 
 
@@ -682,7 +763,7 @@ public class AdminController {
                         treasureHuntRepository.insert(treasureHunt);
                     }
                     return redirect("/admin/hunts/0").flashing("info", "Treasure Hunt has been created.");
-                });
+                }, databaseExecutionContext);
     }
 
 
@@ -708,7 +789,7 @@ public class AdminController {
             }
             treasureHuntRepository.update(treasureHunt, id);
             return redirect("/admin/hunts/0").flashing("info", "Treasure Hunt has been updated.");
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -726,7 +807,7 @@ public class AdminController {
         }
         return eventRepository.update(id, event).thenApplyAsync(x -> {
             return redirect("/admin/events/0").flashing("success", "Event has been updated.");
-        });
+        }, httpExecutionContext.current());
 
     }
 
@@ -747,7 +828,7 @@ public class AdminController {
                     new RoutedObject<TreasureHunt>(hunt, true, false), Country.getInstance().getAllCountries(),
                     undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), new ArrayList<Artist>(),
                     new RoutedObject<Artist>(null, true, false), genreRepository.getAllGenres(), initialisePaginatior(0, treasureHuntRepository.getNumHunts(), 5), new ArrayList<Events>(), request, messagesApi.preferred(request)));
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -766,7 +847,7 @@ public class AdminController {
                 artistRepository.getAllVerfiedArtists(), genreRepository.getAllGenres(), eventCreateForm,
                 initialisePaginatior(0, eventRepository.getNumEvents(), 8),
                 eventRepository.getPage(0), new RoutedObject<>(event, true, false), request, messagesApi.preferred(request)));
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -780,7 +861,7 @@ public class AdminController {
     public CompletionStage<Result> deleteHunt(Http.Request request, Integer id) {
         undoStackRepository.addToStack(new UndoStack("treasure_hunt", id, SessionController.getCurrentUserId(request)));
         return treasureHuntRepository.setSoftDelete(id, 1)
-                .thenApplyAsync(x -> redirect("/admin/hunts/0").flashing("info", "Treasure Hunt: " + id + " was deleted"));
+                .thenApplyAsync(x -> redirect("/admin/hunts/0").flashing("info", "Treasure Hunt: " + id + " was deleted"), httpExecutionContext.current());
     }
 
     /**
@@ -799,7 +880,7 @@ public class AdminController {
                     } else {
                         return redirect("/admin/admins/0").flashing("info", "No changes to undo");
                     }
-                });
+                }, httpExecutionContext.current());
     }
 
 
@@ -813,7 +894,7 @@ public class AdminController {
      */
     public CompletionStage<Result> verifyArtist(Http.Request request, Integer artistId) {
         return artistRepository.setArtistAsVerified(artistId)
-                .thenApplyAsync(x -> redirect("/admin/artists/requests/0").flashing("info", "Artist: " + artistId + " verified"));
+                .thenApplyAsync(x -> redirect("/admin/artists/requests/0").flashing("info", "Artist: " + artistId + " verified"), httpExecutionContext.current());
     }
 
 
@@ -827,7 +908,7 @@ public class AdminController {
      */
     public CompletionStage<Result> declineArtist(Http.Request request, Integer artistId) {
         return artistRepository.deleteArtist(artistId)
-                .thenApplyAsync(x -> redirect("/admin/artists/requests/0").flashing("info", "Artist: " + artistId + " declined"));
+                .thenApplyAsync(x -> redirect("/admin/artists/requests/0").flashing("info", "Artist: " + artistId + " declined"), httpExecutionContext.current());
     }
 
 
@@ -890,12 +971,12 @@ public class AdminController {
                         artistController.saveArtistCountries(artist, artistProfileForm);
                         return null;
 
-                    });
+                    }, databaseExecutionContext);
                     return redirect("/admin/artists/0").flashing("info", "Artist Profile : " + artist.getArtistName() + " created");
                 } else {
                     return redirect("/admin/artists/0").flashing("info", "Artist with the name " + artist.getArtistName() + " already exists!");
                 }
-            });
+            }, databaseExecutionContext);
         }
         return supplyAsync(() -> redirect("/admin/artists/0").flashing("info", "Artist Profile save failed"));
     }
@@ -910,8 +991,7 @@ public class AdminController {
     public CompletionStage<Result> deleteArtist(Http.Request request, Integer artistId) {
         undoStackRepository.addToStack(new UndoStack("artist", artistId, SessionController.getCurrentUserId(request)));
         return artistRepository.setSoftDelete(artistId, 1).thenApplyAsync(x -> redirect("/admin/artists/0")
-                .flashing("info", "Artist: " + artistId + " deleted")
-        );
+                .flashing("info", "Artist: " + artistId + " deleted"), httpExecutionContext.current());
     }
 
     /**
@@ -937,7 +1017,7 @@ public class AdminController {
                     undoStackRepository.getUsersStack(SessionController.getCurrentUserId(request)), artistRepository.getPageArtists(0, pageSize, 1),
                     new RoutedObject<Artist>(artist, true, true), genreRepository.getAllGenres(),
                     initialisePaginatior(0, artistRepository.getNumArtists(), 6), new ArrayList<Events>(), request, messagesApi.preferred(request)));
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -981,7 +1061,7 @@ public class AdminController {
         return supplyAsync(() -> {
             artistRepository.editArtistProfile(id, artist, artistProfileForm, currentUserId);
             return redirect("/admin/artists/0").flashing("info", "Artist " + artist.getArtistName() + " has been updated.");
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -999,6 +1079,6 @@ public class AdminController {
                 eventRepository.setSoftDelete(event, 1);
             });
             return redirect("/admin/events/" + offset);
-        });
+        }, databaseExecutionContext);
     }
 }
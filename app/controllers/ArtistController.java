@@ -7,12 +7,14 @@ import play.data.FormFactory;
 import play.i18n.MessagesApi;
 import play.libs.Files;
 import play.libs.Json;
+import play.libs.concurrent.HttpExecutionContext;
 import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.Security;
 import repository.*;
 import utility.Country;
+import utility.ThumbnailPipeline;
 import views.html.artists;
 import views.html.events;
 import views.html.viewArtist;
@@ -22,6 +24,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import static java.lang.Integer.parseInt;
@@ -46,8 +49,11 @@ public class ArtistController extends Controller {
     private final PersonalPhotoRepository personalPhotoRepository;
     private final PhotoRepository photoRepository;
     private final AttendEventRepository attendEventRepository;
-    private final UndoStackRepository undoStackRepository;
+    private final ThumbnailPipeline thumbnailPipeline;
+    private final DatabaseExecutionContext databaseExecutionContext;
+    private final HttpExecutionContext httpExecutionContext;
     private final long MAX_PHOTO_SIZE = 8000000;
+    private static final int SEARCH_PAGE_SIZE = 8;
 
 
     @Inject
@@ -58,7 +64,9 @@ public class ArtistController extends Controller {
                             DestinationRepository destinationRepository,
                             ArtistProfilePictureRepository artistProfilePictureRepository,
                             PersonalPhotoRepository personalPhotoRepository, PhotoRepository photoRepository,
-                            AttendEventRepository attendEventRepository, UndoStackRepository undoStackRepository){
+                            AttendEventRepository attendEventRepository,
+                            ThumbnailPipeline thumbnailPipeline, DatabaseExecutionContext databaseExecutionContext,
+                            HttpExecutionContext httpExecutionContext){
 
         this.artistForm = artistProfileFormFactory.form(Artist.class);
         this.messagesApi = messagesApi;
@@ -74,7 +82,9 @@ public class ArtistController extends Controller {
         this.photoRepository = photoRepository;
         this.artistPhotoForm = artistProfileFormFactory.form(ArtistPhotoFormData.class);
         this.attendEventRepository = attendEventRepository;
-        this.undoStackRepository = undoStackRepository;
+        this.thumbnailPipeline = thumbnailPipeline;
+        this.databaseExecutionContext = databaseExecutionContext;
+        this.httpExecutionContext = httpExecutionContext;
     }
 
 
@@ -87,18 +97,17 @@ public class ArtistController extends Controller {
      */
     public CompletionStage<Result> searchGenre(Http.Request request, Integer genreId) {
         Integer profId = SessionController.getCurrentUserId(request);
-        EventFormData eventFormSent = new EventFormData();
-        String genreName = genreRepository.getGenre(genreId);
         ArtistFormData formData = new ArtistFormData();
-        List<Artist> artistsList = artistRepository.searchArtist("", genreName, "", 0, 0, profId);
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
             if(profile.isPresent()) {
+                    String genreName = genreRepository.getGenre(genreId);
+                    ArtistSearchResult searchResult = artistRepository.searchArtistPage("", genreName, "", 0, 0, profId, 0, SEARCH_PAGE_SIZE);
                     formData.setGenre(genreName);
-                    return ok(artists.render(searchForm, profile.get(), genreRepository.getAllGenres(), profileRepository.getAllEbeans(), Country.getInstance().getAllCountries(), artistsList, artistRepository.getFollowedArtists(profId), artistRepository.getAllUserArtists(profId), formData, request, messagesApi.preferred(request)));
+                    return ok(artists.render(searchForm, profile.get(), genreRepository.getAllGenres(), profileRepository.getAllEbeans(), Country.getInstance().getAllCountries(), searchResult.getArtists(), artistRepository.getFollowedArtists(profId), artistRepository.getAllUserArtists(profId), formData, initPagination(0, searchResult.getTotal()), request, messagesApi.preferred(request)));
             } else {
             return redirect("/artists");
             }
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -110,16 +119,20 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> show(Http.Request request) {
         Integer profId = SessionController.getCurrentUserId(request);
-        return profileRepository.findById(profId)
-                .thenApplyAsync(profileRec -> profileRec.map(profile -> {
-                    undoStackRepository.clearStackOnAllowed(profileRec.get());
-
-                    return ok(artists.render(searchForm, profile,
-                        genreRepository.getAllGenres(), profileRepository.getAllEbeans(),
-                        Country.getInstance().getAllCountries(),  artistRepository.getPagedArtists(0),
-                        artistRepository.getFollowedArtists(profId), artistRepository.getAllUserArtists(profId), null,
-                        request, messagesApi.preferred(request)));
-                    }).orElseGet(() -> redirect("/profile")));
+        CompletableFuture<Optional<Profile>> profileLoad = profileRepository.findById(profId).toCompletableFuture();
+        CompletableFuture<List<Profile>> profilesLoad = databaseExecutionContext.supply(profileRepository::getAllEbeans);
+        CompletableFuture<List<Artist>> artistsLoad = databaseExecutionContext.supply(() -> artistRepository.getPagedArtists(0));
+        CompletableFuture<List<Artist>> followedLoad = databaseExecutionContext.supply(() -> artistRepository.getFollowedArtists(profId));
+        CompletableFuture<List<Artist>> userArtistsLoad = databaseExecutionContext.supply(() -> artistRepository.getAllUserArtists(profId));
+
+        return CompletableFuture.allOf(profileLoad, profilesLoad, artistsLoad, followedLoad, userArtistsLoad)
+                .thenApplyAsync(loaded -> profileLoad.join().map(profile ->
+                    ok(artists.render(searchForm, profile,
+                        genreRepository.getAllGenres(), profilesLoad.join(),
+                        Country.getInstance().getAllCountries(), artistsLoad.join(),
+                        followedLoad.join(), userArtistsLoad.join(), null,
+                        new PaginationHelper(), request, messagesApi.preferred(request)))
+                    ).orElseGet(() -> redirect("/profile")), httpExecutionContext.current());
 
     }
 
@@ -134,13 +147,29 @@ public class ArtistController extends Controller {
         return ok(node);
     }
 
+    /**
+     * Helper function to set up pagination object for a page of search results
+     *
+     * @param offset current offset
+     * @param maxSize number of artists matching the search
+     * @return PaginationHelper object
+     */
+    private PaginationHelper initPagination(int offset, int maxSize) {
+        PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, maxSize);
+        paginationHelper.alterNext(SEARCH_PAGE_SIZE);
+        paginationHelper.alterPrevious(SEARCH_PAGE_SIZE);
+        paginationHelper.checkButtonsEnabled();
+        return paginationHelper;
+    }
+
     /**
      * Endpoint for searching an artist
      * @param request client request
+     * @param offset number of matching artists to skip
      * @return CompletionStage rendering artist page
      */
     @Security.Authenticated(SecureSession.class)
-    public CompletionStage<Result> search(Http.Request request){
+    public CompletionStage<Result> search(Http.Request request, Integer offset){
         Integer profId = SessionController.getCurrentUserId(request);
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
                     if (profile.isPresent()) {
@@ -165,11 +194,12 @@ public class ArtistController extends Controller {
                         }
 
                         searchForm.fill(formData);
-                        return ok(artists.render(searchForm, profile.get(), genreRepository.getAllGenres(), profileRepository.getAllEbeans(), Country.getInstance().getAllCountries(), artistRepository.searchArtist(formData.name, formData.genre, formData.country, followed, created, profId), artistRepository.getFollowedArtists(profId), artistRepository.getAllUserArtists(profId), formData, request, messagesApi.preferred(request)));
+                        ArtistSearchResult searchResult = artistRepository.searchArtistPage(formData.name, formData.genre, formData.country, followed, created, profId, offset, SEARCH_PAGE_SIZE);
+                        return ok(artists.render(searchForm, profile.get(), genreRepository.getAllGenres(), profileRepository.getAllEbeans(), Country.getInstance().getAllCountries(), searchResult.getArtists(), artistRepository.getFollowedArtists(profId), artistRepository.getAllUserArtists(profId), formData, initPagination(offset, searchResult.getTotal()), request, messagesApi.preferred(request)));
                     } else {
                         return redirect("/artists");
                     }
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -198,32 +228,31 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> showDetailedArtists(Http.Request request, Integer artistId) {
         Integer profId = SessionController.getCurrentUserId(request);
-        Artist artist = artistRepository.getArtistById(artistId);
-
-        Photo artistPicture = getCurrentArtistProfilePhoto(artistId);
-
-        if (artist == null) {
-            return profileRepository.findById (profId).thenApplyAsync(profile -> redirect("/artists"));
-        }
         return profileRepository.findById(profId)
-                .thenApplyAsync(profileRec -> profileRec.map(profile ->
-                {
-                    List<Artist> userArtists = artistRepository.getAllUserArtists(profId);
-                    undoStackRepository.clearStackOnAllowed(profileRec.get());
-                    if (userArtists.contains(artist)) {
-                        return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
-                                Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 0,
-                                new PaginationHelper(), profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
-                                artistRepository.getAllUserArtists(profId), new RoutedObject<Events>(null, false, false), null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
-                    } else {
-                        return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
-                                new ArrayList<String>(), new ArrayList<MusicGenre>(), 0,
-                                new PaginationHelper(), new ArrayList<Profile>(), new ArrayList<Destination>(),
-                                new ArrayList<Artist>(), new RoutedObject<Events>(null, false, false), null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                .thenApplyAsync(profileRec -> {
+                    Artist artist = artistRepository.getArtistById(artistId);
+                    if (artist == null) {
+                        return redirect("/artists");
                     }
+                    Photo artistPicture = getCurrentArtistProfilePhoto(artistId);
+                    return profileRec.map(profile ->
+                    {
+                        List<Artist> userArtists = artistRepository.getAllUserArtists(profId);
+                        if (userArtists.contains(artist)) {
+                            return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
+                                    Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 0,
+                                    new PaginationHelper(), profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
+                                    userArtists, new RoutedObject<Events>(null, false, false), null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                        } else {
+                            return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
+                                    new ArrayList<String>(), new ArrayList<MusicGenre>(), 0,
+                                    new PaginationHelper(), new ArrayList<Profile>(), new ArrayList<Destination>(),
+                                    new ArrayList<Artist>(), new RoutedObject<Events>(null, false, false), null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                        }
 
-                })
-                        .orElseGet(() -> redirect("/profile")));
+                    })
+                            .orElseGet(() -> redirect("/profile"));
+                }, databaseExecutionContext);
     }
 
     /**
@@ -237,33 +266,35 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> showArtistEvents(Http.Request request, Integer id, Integer offset) {
         Integer profId = SessionController.getCurrentUserId(request);
-        Artist artist = artistRepository.getArtistById(id);
-        Photo artistPicture = getCurrentArtistProfilePhoto(id);
-        if (artist == null) {
-            return supplyAsync(() -> redirect("/artists"));
-        }
-        PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, 1, true, true, eventRepository.getNumArtistEvents(id));
-        paginationHelper.alterNext(8);
-        paginationHelper.alterPrevious(8);
-        paginationHelper.checkButtonsEnabled();
         return profileRepository.findById(profId)
-                .thenApplyAsync(profileOpt -> profileOpt.map(profile ->
-                {
-                    List<Artist> userArtists = artistRepository.getAllUserArtists(profId);
-                    if (userArtists.contains(artist)) {
-                        return ok(viewArtist.render(profile, artist, eventRepository.getArtistEventsPage(id, offset), Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 1,
-                                paginationHelper, profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
-                                artistRepository.getAllUserArtists(profId), new RoutedObject<Events>(null, false, false),
-                                null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
-                    } else {
-                        return ok(viewArtist.render(profile, artist, eventRepository.getArtistEventsPage(id, offset), new ArrayList<String>(),
-                                new ArrayList<MusicGenre>(), 1,
-                                paginationHelper, new ArrayList<Profile>(), new ArrayList<Destination>(),
-                                new ArrayList<Artist>(), new RoutedObject<Events>(null, false, false),
-                                null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                .thenApplyAsync(profileOpt -> {
+                    Artist artist = artistRepository.getArtistById(id);
+                    if (artist == null) {
+                        return redirect("/artists");
                     }
-                })
-                        .orElseGet(() -> redirect("/profile")));
+                    Photo artistPicture = getCurrentArtistProfilePhoto(id);
+                    PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, 1, true, true, eventRepository.getNumArtistEvents(id));
+                    paginationHelper.alterNext(8);
+                    paginationHelper.alterPrevious(8);
+                    paginationHelper.checkButtonsEnabled();
+                    return profileOpt.map(profile ->
+                    {
+                        List<Artist> userArtists = artistRepository.getAllUserArtists(profId);
+                        if (userArtists.contains(artist)) {
+                            return ok(viewArtist.render(profile, artist, eventRepository.getArtistEventsPage(id, offset), Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 1,
+                                    paginationHelper, profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
+                                    userArtists, new RoutedObject<Events>(null, false, false),
+                                    null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                        } else {
+                            return ok(viewArtist.render(profile, artist, eventRepository.getArtistEventsPage(id, offset), new ArrayList<String>(),
+                                    new ArrayList<MusicGenre>(), 1,
+                                    paginationHelper, new ArrayList<Profile>(), new ArrayList<Destination>(),
+                                    new ArrayList<Artist>(), new RoutedObject<Events>(null, false, false),
+                                    null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                        }
+                    })
+                            .orElseGet(() -> redirect("/profile"));
+                }, databaseExecutionContext);
     }
 
     /**
@@ -276,30 +307,32 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> showArtistMembers(Http.Request request, Integer id) {
         Integer profId = SessionController.getCurrentUserId(request);
-        Artist artist = artistRepository.getArtistById(id);
-        Photo artistPicture = getCurrentArtistProfilePhoto(id);
-        if (artist == null) {
-            return supplyAsync(() -> redirect("/artists"));
-        }
         return profileRepository.findById(profId)
-                .thenApplyAsync(profileOpt -> profileOpt.map(profile ->
-                {
-                    List<Artist> userArtists = artistRepository.getAllUserArtists(profId);
-                    if (userArtists.contains(artist)) {
-                        return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
-                                Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 2,
-                                new PaginationHelper(), profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
-                                artistRepository.getAllUserArtists(profId), new RoutedObject<Events>(null, false, false),
-                                null, artistPicture, artistRepository.getFollowedArtists(profId),request, messagesApi.preferred(request)));
-                    } else {
-                        return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
-                                new ArrayList<String>(), new ArrayList<MusicGenre>(), 2,
-                                new PaginationHelper(), new ArrayList<Profile>(), new ArrayList<Destination>(),
-                                new ArrayList<Artist>(), new RoutedObject<Events>(null, false, false),
-                                null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                .thenApplyAsync(profileOpt -> {
+                    Artist artist = artistRepository.getArtistById(id);
+                    if (artist == null) {
+                        return redirect("/artists");
                     }
-                })
-                        .orElseGet(() -> redirect("/profile")));
+                    Photo artistPicture = getCurrentArtistProfilePhoto(id);
+                    return profileOpt.map(profile ->
+                    {
+                        List<Artist> userArtists = artistRepository.getAllUserArtists(profId);
+                        if (userArtists.contains(artist)) {
+                            return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
+                                    Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 2,
+                                    new PaginationHelper(), profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
+                                    userArtists, new RoutedObject<Events>(null, false, false),
+                                    null, artistPicture, artistRepository.getFollowedArtists(profId),request, messagesApi.preferred(request)));
+                        } else {
+                            return ok(viewArtist.render(profile, artist, new ArrayList<Events>(),
+                                    new ArrayList<String>(), new ArrayList<MusicGenre>(), 2,
+                                    new PaginationHelper(), new ArrayList<Profile>(), new ArrayList<Destination>(),
+                                    new ArrayList<Artist>(), new RoutedObject<Events>(null, false, false),
+                                    null, artistPicture, artistRepository.getFollowedArtists(profId), request, messagesApi.preferred(request)));
+                        }
+                    })
+                            .orElseGet(() -> redirect("/profile"));
+                }, databaseExecutionContext);
     }
 
 
@@ -361,12 +394,12 @@ public class ArtistController extends Controller {
                         saveArtistCountries(artist, artistProfileForm);
 
                         return null;
-                    });
+                    }, databaseExecutionContext);
                     return redirect("/artists").flashing("info", "Artist Profile : " + artist.getArtistName() + " ready to be approved by admin");
                 } else {
                     return redirect("/artists").flashing("error", "Artist with the name " + artist.getArtistName() + " already exists!");
                 }
-            });
+            }, databaseExecutionContext);
         }
         return supplyAsync(() -> redirect("/artists").flashing("error", "Artist Profile save failed"));
     }
@@ -392,7 +425,7 @@ public class ArtistController extends Controller {
                             artistRepository.addCountrytoArtistCountryTable(artistCountry);
                         }
                         return null;
-                    });
+                    }, databaseExecutionContext);
                 }
             }
         }
@@ -407,7 +440,7 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> deleteArtist(Http.Request request, Integer artistId){
         return artistRepository.deleteArtist(artistId)
-                .thenApplyAsync(x -> redirect("/artists").flashing("info", "Artist was successfully deleted"));
+                .thenApplyAsync(x -> redirect("/artists").flashing("info", "Artist was successfully deleted"), httpExecutionContext.current());
     }
 
 
@@ -420,7 +453,7 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> unfollowArtist(Http.Request request, Integer artistId){
         return artistRepository.unfollowArtist(artistId, SessionController.getCurrentUserId(request))
-                .thenApplyAsync(x -> redirect("/artists").flashing("info", "Unfollowed artist: " + artistRepository.getArtistById(artistId).getArtistName()));
+                .thenApplyAsync(x -> redirect("/artists").flashing("info", "Unfollowed artist: " + artistRepository.getArtistById(artistId).getArtistName()), databaseExecutionContext);
     }
 
     /**
@@ -432,7 +465,7 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> followArtist(Http.Request request, Integer artistId){
         return artistRepository.followArtist(artistId, SessionController.getCurrentUserId(request))
-                .thenApplyAsync(x -> redirect("/artists").flashing("info", "Followed artist: " + artistRepository.getArtistById(artistId).getArtistName()));
+                .thenApplyAsync(x -> redirect("/artists").flashing("info", "Followed artist: " + artistRepository.getArtistById(artistId).getArtistName()), databaseExecutionContext);
     }
 
     /**
@@ -444,7 +477,7 @@ public class ArtistController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> leaveArtist(Http.Request request, int artistId) {
         return artistRepository.removeProfileFromArtist(artistId, SessionController.getCurrentUserId(request))
-                .thenApplyAsync(x -> redirect("/artists"));
+                .thenApplyAsync(x -> redirect("/artists"), httpExecutionContext.current());
     }
 
     /**
@@ -485,7 +518,7 @@ public class ArtistController extends Controller {
                 return supplyAsync(() -> redirect("/artists/" + id).flashing("error", "Invalid Twitter Link provided"));
             }
         }
-        return artistRepository.editArtistProfile(id, artist, artistProfileForm, currentUserId).thenApplyAsync(artId -> redirect("/artists/" + artId).flashing("info", "Artist " + artist.getArtistName() + " has been updated."));
+        return artistRepository.editArtistProfile(id, artist, artistProfileForm, currentUserId).thenApplyAsync(artId -> redirect("/artists/" + artId).flashing("info", "Artist " + artist.getArtistName() + " has been updated."), httpExecutionContext.current());
     }
 
     /**
@@ -512,7 +545,7 @@ public class ArtistController extends Controller {
      */
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Integer> getFollowerCount(int artistId) {
-        return supplyAsync(() -> artistRepository.getNumFollowers(artistId));
+        return supplyAsync(() -> artistRepository.getNumFollowers(artistId), databaseExecutionContext);
     }
 
 
@@ -551,7 +584,7 @@ public class ArtistController extends Controller {
      */
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> removePhoto(Http.Request request, Integer id) {
-        return artistProfilePictureRepository.removeArtistProfilePicture(id).thenApplyAsync(artist -> redirect("/artists/" + artist));
+        return artistProfilePictureRepository.removeArtistProfilePicture(id).thenApplyAsync(artist -> redirect("/artists/" + artist), httpExecutionContext.current());
     }
 
 
@@ -588,8 +621,10 @@ public class ArtistController extends Controller {
         String filepath = System.getProperty("user.dir") + "/photos/personalPhotos/" + fileName;
         tempFile.copyTo(Paths.get(filepath), true);
         Photo photo = new Photo("photos/personalPhotos/" + fileName, contentType, 0, fileName);
-        photoRepository.insert(photo).thenApplyAsync(photoId ->
-                artistProfilePictureRepository.addArtistProfilePicture(new ArtistProfilePhoto(id, photoId)));
+        photoRepository.insert(photo).thenApplyAsync(photoId -> {
+            thumbnailPipeline.submit(photoId);
+            return artistProfilePictureRepository.addArtistProfilePicture(new ArtistProfilePhoto(id, photoId));
+        }, databaseExecutionContext);
 
         return supplyAsync(() -> redirect("/artists/"+ id));
     }
@@ -1,15 +1,20 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import models.*;
 import play.data.Form;
 import play.data.FormFactory;
 import play.i18n.MessagesApi;
+import play.libs.concurrent.HttpExecutionContext;
+import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.Security;
 import repository.*;
 import utility.Country;
+import utility.ThumbnailPipeline;
 import views.html.destinations;
 
 import javax.inject.Inject;
@@ -38,12 +43,15 @@ public class DestinationsController extends Controller {
     private final Form<DestinationRequest> requestForm;
     private final DestinationTravellerTypeRepository destinationTravellerTypeRepository;
     private final TravellerTypeRepository travellerTypeRepository;
-    private final UndoStackRepository undoStackRepository;
+    private final ThumbnailPipeline thumbnailPipeline;
+    private final DatabaseExecutionContext databaseExecutionContext;
+    private final HttpExecutionContext httpExecutionContext;
     private String destShowRoute = "/destinations/show/false/0";
     private final Form<DestinationSearchFormData> searchForm;
     private String searchVal;
 
     private final Integer DESTINATION_PAGE_SIZE = 7;
+    private static final int MAP_MARKER_LIMIT = 500;
 
     /**
      * Constructor for the destination controller class
@@ -58,7 +66,9 @@ public class DestinationsController extends Controller {
                                   ProfileRepository profileRepository, TripDestinationsRepository tripDestinationsRepository,
                                   PersonalPhotoRepository personalPhotoRepository, DestinationPhotoRepository destinationPhotoRepository,
                                   PhotoRepository photoRepository, DestinationTravellerTypeRepository destinationTravellerTypeRepository,
-                                  TravellerTypeRepository travellerTypeRepository, UndoStackRepository undoStackRepository) {
+                                  TravellerTypeRepository travellerTypeRepository,
+                                  ThumbnailPipeline thumbnailPipeline, DatabaseExecutionContext databaseExecutionContext,
+                                  HttpExecutionContext httpExecutionContext) {
         this.form = formFactory.form(Destination.class);
         this.messagesApi = messagesApi;
         this.destinationRepository = destinationRepository;
@@ -70,8 +80,10 @@ public class DestinationsController extends Controller {
         this.destinationTravellerTypeRepository = destinationTravellerTypeRepository;
         this.travellerTypeRepository = travellerTypeRepository;
         this.requestForm = formFactory.form(DestinationRequest.class);
-        this.undoStackRepository = undoStackRepository;
         this.searchForm = formFactory.form(DestinationSearchFormData.class);
+        this.thumbnailPipeline = thumbnailPipeline;
+        this.databaseExecutionContext = databaseExecutionContext;
+        this.httpExecutionContext = httpExecutionContext;
     }
 
 
@@ -97,8 +109,7 @@ public class DestinationsController extends Controller {
                 }
                 destinationsList = destinationRepository.searchDestinations(searchData.name, rowOffset,
                         searchData.isPublic, profId);
-                destinationsList = loadCurrentUserDestinationPhotos(profile.get().getProfileId(), destinationsList);
-                destinationsList = loadWorldDestPhotos(profile.get().getProfileId(), destinationsList);
+                destinationsList = loadDestinationPhotos(profile.get().getProfileId(), destinationsList);
                 destinationsList = loadTravellerTypes(destinationsList);
                 int sizeOfSearchResults = destinationRepository.getNumSearchDestinations(searchData.name,
                         searchData.isPublic, profId);
@@ -114,7 +125,7 @@ public class DestinationsController extends Controller {
             } else {
                 return redirect(destShowRoute);
             }
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -144,7 +155,7 @@ public class DestinationsController extends Controller {
     private PaginationHelper initialisePaginiation(Integer rowOffset, Integer profileId, boolean isPublic) {
         int maxSize;
         if (isPublic) {
-            maxSize = destinationRepository.getNumPublicDestinations();
+            maxSize = destinationRepository.getCachedNumPublicDestinations();
         } else {
             maxSize = destinationRepository.getNumPrivateDestinations(profileId);
         }
@@ -159,21 +170,28 @@ public class DestinationsController extends Controller {
      * @param request - HTTP Request
      * @param isPublic - Whether the target is public destinations
      * @param rowOffset - The row/page offset to use for getting results back
+     * @param cursor - Token of the page of public destinations to show, null to show the page at the offset
      * @return the list of destinations
      */
     @Security.Authenticated(SecureSession.class)
-    public CompletionStage<Result> show(Http.Request request, boolean isPublic, Integer rowOffset) {
+    public CompletionStage<Result> show(Http.Request request, boolean isPublic, Integer rowOffset, String cursor) {
         destinationsList.clear();
         Integer userId = SessionController.getCurrentUserId(request);
         searchVal = "";
         return profileRepository.findById(userId).thenApplyAsync(profile -> {
             if (profile.isPresent()) {
-                undoStackRepository.clearStackOnAllowed(profile.get());
 
                 PaginationHelper paginationHelper = initialisePaginiation(rowOffset, userId, isPublic);
 
                 if (isPublic) {
-                    List<Destination> destListTemp = destinationRepository.getPublicDestinations(rowOffset);
+                    List<Destination> destListTemp;
+                    if (rowOffset == 0 || cursor != null) {
+                        KeysetPage<Destination> page = destinationRepository.getPublicDestinations(cursor);
+                        paginationHelper.setCursors(page);
+                        destListTemp = page.getItems();
+                    } else {
+                        destListTemp = destinationRepository.getPublicDestinations(rowOffset);
+                    }
                     try {
                         destinationsList = destListTemp;
                     } catch (NoSuchElementException e) {
@@ -185,8 +203,7 @@ public class DestinationsController extends Controller {
                     destinationRepository.getFollowedDestinations(userId, rowOffset, limit).ifPresent(follows -> destinationsList.addAll(follows));
                 }
                 destinationRepository.getFollowedDestinationIds(userId, rowOffset).ifPresent(ids -> followedDestinationIds = ids);
-                destinationsList = loadCurrentUserDestinationPhotos(profile.get().getProfileId(), destinationsList);
-                destinationsList = loadWorldDestPhotos(profile.get().getProfileId(), destinationsList);
+                destinationsList = loadDestinationPhotos(profile.get().getProfileId(), destinationsList);
                 destinationsList = loadTravellerTypes(destinationsList);
                 List<Photo> usersPhotos = getUsersPhotos(profile.get().getProfileId());
                 return ok(destinations.render(destinationsList, profile.get(), isPublic, paginationHelper,
@@ -196,7 +213,43 @@ public class DestinationsController extends Controller {
             } else {
                 return redirect(destShowRoute);
             }
-        });
+        }, databaseExecutionContext);
+    }
+
+
+    /**
+     * Endpoint for the destinations map to load the markers inside its viewport, so only what can be seen is
+     * sent. Each destination is sent as a compact array of id, latitude, longitude, visibility, name, type
+     * and country, along with the total number in the viewport in case it is more than were sent.
+     *
+     * @param request - HTTP Request
+     * @param south - southern latitude of the viewport
+     * @param west - western longitude of the viewport
+     * @param north - northern latitude of the viewport
+     * @param east - eastern longitude of the viewport
+     * @return JSON holding the destinations the user can see inside the viewport
+     */
+    @Security.Authenticated(SecureSession.class)
+    public CompletionStage<Result> mapArea(Http.Request request, Double south, Double west, Double north, Double east) {
+        Integer userId = SessionController.getCurrentUserId(request);
+        return supplyAsync(() -> {
+            DestinationAreaResult area = destinationRepository.getDestinationsInArea(south, west, north, east,
+                    userId, MAP_MARKER_LIMIT);
+            ObjectNode node = Json.newObject();
+            node.put("total", area.getTotal());
+            ArrayNode markers = node.putArray("destinations");
+            for (Destination destination : area.getDestinations()) {
+                markers.addArray()
+                        .add(destination.getDestinationId())
+                        .add(destination.getLatitude())
+                        .add(destination.getLongitude())
+                        .add(destination.getVisible())
+                        .add(destination.getName())
+                        .add(destination.getType())
+                        .add(destination.getCountry());
+            }
+            return ok(node);
+        }, databaseExecutionContext);
     }
 
 
@@ -211,7 +264,7 @@ public class DestinationsController extends Controller {
         return supplyAsync(() -> {
             photoRepository.updateVisibility(id);
             return redirect("/destinations/show/false/0").flashing("success", "Visibility updated.");
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -228,8 +281,7 @@ public class DestinationsController extends Controller {
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
             if (profile.isPresent()) {
                 destinationRepository.followDestination(destId, profileId).ifPresent(ids -> followedDestinationIds = ids);
-                destinationsList = loadCurrentUserDestinationPhotos(profileId, destinationsList);
-                destinationsList = loadWorldDestPhotos(profileId, destinationsList);
+                destinationsList = loadDestinationPhotos(profileId, destinationsList);
                 destinationsList = loadTravellerTypes(destinationsList);
                 List<Photo> usersPhotos = getUsersPhotos(profile.get().getProfileId());
                 return ok(destinations.render(destinationsList, profile.get(), isPublic,
@@ -239,7 +291,7 @@ public class DestinationsController extends Controller {
             } else {
                 return redirect(destShowRoute);
             }
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -256,8 +308,7 @@ public class DestinationsController extends Controller {
         Integer profId = SessionController.getCurrentUserId(request);
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
             if (profile.isPresent()) {
-                destinationsList = loadCurrentUserDestinationPhotos(profId, destinationsList);
-                destinationsList = loadWorldDestPhotos(profId, destinationsList);
+                destinationsList = loadDestinationPhotos(profId, destinationsList);
                 destinationsList = loadTravellerTypes(destinationsList);
                 List<Photo> usersPhotos = getUsersPhotos(profile.get().getProfileId());
                 Destination currentDestination = destinationRepository.lookup(destId);
@@ -272,7 +323,7 @@ public class DestinationsController extends Controller {
             } else {
                 return redirect(destShowRoute);
             }
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -305,8 +356,7 @@ public class DestinationsController extends Controller {
                     }
                 }
 
-                destinationsList = loadCurrentUserDestinationPhotos(profileId, destinationsList);
-                destinationsList = loadWorldDestPhotos(profileId, destinationsList);
+                destinationsList = loadDestinationPhotos(profileId, destinationsList);
                 destinationsList = loadTravellerTypes(destinationsList);
                 List<Photo> usersPhotos = getUsersPhotos(profile.get().getProfileId());
                 return ok(destinations.render(destinationsList, profile.get(), isPublic,
@@ -316,56 +366,28 @@ public class DestinationsController extends Controller {
             } else {
                 return redirect(destShowRoute);
             }
-        });
+        }, databaseExecutionContext);
     }
 
     /**
-     * takes in a list of destinations, for each destination loads the photos which are linked to that destination and
-     * owned by the current user into destination.usersPhotos
+     * takes in a list of destinations, for each destination loads the photos linked to it by the current user into
+     * destination.usersPhotos and the photos linked to it by anyone else into destination.worldPhotos
      *
-     * @param destinationsListGot
-     * @return destinationsListGot
-     */
-    private List<Destination> loadCurrentUserDestinationPhotos(int profileId, List<Destination> destinationsListGot) {
-        Optional<List<Photo>> imageList = personalPhotoRepository.getAllProfilePhotos(profileId);
-        if (imageList.isPresent()) {
-            for (Destination destination : destinationsListGot) {
-                List<Photo> destPhotoList = new ArrayList<>();
-                for (Photo photo : imageList.get()) {
-                    if (destinationPhotoRepository.findByProfileIdPhotoIdDestId(profileId, photo.getPhotoId(), destination.getDestinationId()).isPresent()) {
-                        destPhotoList.add(photo);
-                    }
-                }
-                destination.setUsersPhotos(destPhotoList);
-            }
-            return destinationsListGot;
-        }
-        return destinationsListGot;
-    }
-
-
-    /**
-     * takes in a list of destinations, for each destination loads the photos which are linked to that destination but
-     * not from the current user. ie: the world destination photos
-     *
-     * @param profileId,        the id of the current user, will not add their destination photos to the list
+     * @param profileId,        the id of the current user
      * @param destinationsList, a list of the destinations which it will be adding photos to
      * @return destinations list that was passed in
      */
-    private List<Destination> loadWorldDestPhotos(int profileId, List<Destination> destinationsList) {
-        Optional<List<Photo>> optionalImageList = destinationPhotoRepository.getAllDestinationPhotos();
-        if (optionalImageList.isPresent()) {
-            List<Photo> photoList = optionalImageList.get();
-            for (Destination destination : destinationsList) {
-                List<Photo> destPhotoList = new ArrayList<>();
-                for (Photo photo : photoList) {
-                    if (destinationPhotoRepository.isLinkedToDestByOtherUser(profileId, photo.getPhotoId(), destination.getDestinationId())) {
-                        destPhotoList.add(photo);
-                    }
-                }
-                destination.setWorldPhotos(destPhotoList);
-            }
-            return destinationsList;
+    private List<Destination> loadDestinationPhotos(int profileId, List<Destination> destinationsList) {
+        List<Integer> destinationIds = new ArrayList<>();
+        for (Destination destination : destinationsList) {
+            destinationIds.add(destination.getDestinationId());
+        }
+        Map<Integer, DestinationPhotoRepository.DestinationPhotos> photos =
+                destinationPhotoRepository.getPhotosForDestinations(profileId, destinationIds);
+        for (Destination destination : destinationsList) {
+            DestinationPhotoRepository.DestinationPhotos destinationPhotos = photos.get(destination.getDestinationId());
+            destination.setUsersPhotos(destinationPhotos.getOwnPhotos());
+            destination.setWorldPhotos(destinationPhotos.getWorldPhotos());
         }
         return destinationsList;
     }
@@ -433,7 +455,7 @@ public class DestinationsController extends Controller {
                     newPublicDestination(dest);
                 }
                 return redirect(destShowRoute).flashing("success", "Destination: " + dest.getName() + " updated");
-            });
+            }, databaseExecutionContext);
         } else {
             return supplyAsync(() -> redirect(destShowRoute).flashing("failure", "A destinations longitude(-180 to 180) and latitude(90 to -90) must be valid"));
         }
@@ -468,7 +490,7 @@ public class DestinationsController extends Controller {
                     newPublicDestination(destination);
                 }
                 return redirect(destShowRoute).flashing("success", "Destination added successfully");
-            });
+            }, databaseExecutionContext);
         } else {
             return supplyAsync(() -> redirect(destShowRoute).flashing("failure", "A destinations longitude(-180 to 180) and latitude(90 to -90) must be valid"));
         }
@@ -502,7 +524,7 @@ public class DestinationsController extends Controller {
             }
             destinationRepository.delete(id);
             return redirect(destShowRoute).flashing("success", "Destination: " + id + " deleted");
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -543,10 +565,11 @@ public class DestinationsController extends Controller {
         DestinationPhoto destinationPhoto = new DestinationPhoto(userId, photoId, destinationId);
         return destinationPhotoRepository.insert(destinationPhoto).thenApplyAsync(result -> {
             if (result.isPresent()) {
+                thumbnailPipeline.submit(photoId);
                 return redirect(destShowRoute).flashing("success", "Photo was successfully linked to destination");
             }
             return redirect(destShowRoute).flashing("failure", "Photo was unsuccessfully linked to destination");
-        });
+        }, httpExecutionContext.current());
     }
 
     /**
@@ -565,7 +588,7 @@ public class DestinationsController extends Controller {
                 return redirect(destShowRoute).flashing("success", "Photo was successfully unlinked from destination");
             }
             return redirect(destShowRoute).flashing("failure", "Photo was unsuccessfully unlinked from destination");
-        });
+        }, httpExecutionContext.current());
 
     }
 
@@ -588,7 +611,7 @@ public class DestinationsController extends Controller {
                 destinationRepository.travellerTypeChangesTransaction(requestId, 0, toRemove);
             }
             return null;
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -608,7 +631,7 @@ public class DestinationsController extends Controller {
             List<Integer> toRemove = listOfTravellerTypesToTravellerTypeId(changeForm.get().getToRemoveList());
             createChangeRequest(profileId, changeForm.get().getDestinationId(), toAdd, toRemove);
             return redirect("/destinations/show/true/0").flashing("success", "Request sent.");
-        });
+        }, databaseExecutionContext);
     }
 
     /**
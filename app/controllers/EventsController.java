@@ -5,6 +5,7 @@ import play.data.Form;
 import play.data.FormFactory;
 import play.i18n.MessagesApi;
 import play.libs.Files;
+import play.libs.concurrent.HttpExecutionContext;
 import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
@@ -12,18 +13,17 @@ import play.mvc.Security;
 import repository.*;
 import roles.RestrictAnnotation;
 import utility.Country;
+import utility.ThumbnailPipeline;
 import views.html.event;
 import views.html.events;
 import views.html.viewArtist;
 
 import javax.inject.Inject;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import static java.lang.Integer.parseInt;
@@ -46,8 +46,10 @@ public class EventsController extends Controller {
     private final EventPhotoRepository eventPhotoRepository;
     private final EventArtistRepository eventArtistRepository;
     private final PhotoRepository photoRepository;
-    private final UndoStackRepository undoStackRepository;
     private final ArtistProfilePictureRepository artistProfilePictureRepository;
+    private final ThumbnailPipeline thumbnailPipeline;
+    private final DatabaseExecutionContext databaseExecutionContext;
+    private final HttpExecutionContext httpExecutionContext;
     private static SimpleDateFormat dateTimeEntry = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
     private String successEvent = "Successfully added your new event";
     private String errorEventDate = "Error creating event: Start date must be before end date and the start date must not be in the past.";
@@ -63,8 +65,10 @@ public class EventsController extends Controller {
                             ArtistRepository artistRepository, DestinationRepository destinationRepository,
                             FormFactory formFactory, EventRepository eventRepository, AttendEventRepository attendEventRepository,
                             PersonalPhotoRepository personalPhotoRepository, EventPhotoRepository eventPhotoRepository,
-                            PhotoRepository photoRepository, UndoStackRepository undoStackRepository,
-                            ArtistProfilePictureRepository artistProfilePictureRepository, EventArtistRepository eventArtistRepository) {
+                            PhotoRepository photoRepository,
+                            ArtistProfilePictureRepository artistProfilePictureRepository, EventArtistRepository eventArtistRepository,
+                            ThumbnailPipeline thumbnailPipeline, DatabaseExecutionContext databaseExecutionContext,
+                            HttpExecutionContext httpExecutionContext) {
         this.profileRepository = profileRepository;
         this.messagesApi = messagesApi;
         this.genreRepository = genreRepository;
@@ -78,9 +82,11 @@ public class EventsController extends Controller {
         this.personalPhotoRepository = personalPhotoRepository;
         this.eventPhotoRepository = eventPhotoRepository;
         this.photoRepository = photoRepository;
-        this.undoStackRepository = undoStackRepository;
         this.artistProfilePictureRepository = artistProfilePictureRepository;
         this.eventArtistRepository = eventArtistRepository;
+        this.thumbnailPipeline = thumbnailPipeline;
+        this.databaseExecutionContext = databaseExecutionContext;
+        this.httpExecutionContext = httpExecutionContext;
     }
 
     /**
@@ -93,10 +99,11 @@ public class EventsController extends Controller {
         Integer profId = SessionController.getCurrentUserId(request);
         EventFormData eventFormSent = new EventFormData();
         eventFormSent.setGenre(Integer.toString(genreId));
-        List<Events> eventsList = eventRepository.searchEvent(eventFormSent, 0, profId);
         return profileRepository.findById(profId)
                 .thenApplyAsync(profileRec -> profileRec.map(profile -> {
-                    PaginationHelper paginationHelper = new PaginationHelper(0, 0, 0, 0, true, true, eventRepository.getNumEvents());
+                    EventSearchResult searchResult = eventRepository.searchEventFaceted(eventFormSent, 0, profId);
+                    List<Events> eventsList = searchResult.getEvents();
+                    PaginationHelper paginationHelper = new PaginationHelper(0, 0, 0, 0, true, true, searchResult.getTotal());
                     paginationHelper.alterNext(8);
                     paginationHelper.alterPrevious(8);
                     paginationHelper.checkButtonsEnabled();
@@ -105,7 +112,7 @@ public class EventsController extends Controller {
                         destinationRepository.getAllFollowedOrOwnedDestinations(profId), eventsList, eventForm, new RoutedObject<Events>(null, false, false),
                         eventFormDataForm, artistRepository.isArtistAdmin(profId), paginationHelper, eventFormSent, artistRepository.getAllUserArtists(profId),
                         request, messagesApi.preferred(request)));
-                    }).orElseGet(() -> redirect("/")));
+                    }).orElseGet(() -> redirect("/")), databaseExecutionContext);
     }
 
 
@@ -133,21 +140,92 @@ public class EventsController extends Controller {
      * @return
      */
     @Security.Authenticated(SecureSession.class)
+    @Memoized
     public CompletionStage<Result> showEventEdit(Http.Request request, Integer eventId, Integer offset) {
         Integer profId = SessionController.getCurrentUserId(request);
-        return profileRepository.findById(profId)
-                .thenApplyAsync(profileRec -> profileRec.map(profile -> {
+        return databaseExecutionContext.supply(() -> profile(request, profId).map(profile -> {
                     List<Events> eventsList = eventRepository.getPage(offset);
                     Events editEvent = eventRepository.lookup(eventId);
                     RoutedObject<Events> toSend = new RoutedObject<>(editEvent, true, false);
                     return ok(events.render(profile,
-                            Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), artistRepository.getAllVerfiedArtists(),
-                            destinationRepository.getAllFollowedOrOwnedDestinations(profId), eventsList, eventForm, toSend,
-                            eventFormDataForm, artistRepository.isArtistAdmin(profId), initPagination(offset, eventRepository.getNumEvents(), 8), null,
-                            artistRepository.getAllUserArtists(profId), request, messagesApi.preferred(request)));
+                            countries(request), genres(request), verifiedArtists(request),
+                            followedOrOwnedDestinations(request, profId), eventsList, eventForm, toSend,
+                            eventFormDataForm, isArtistAdmin(request, profId), initPagination(offset, eventRepository.getNumEvents(), 8), null,
+                            userArtists(request, profId), request, messagesApi.preferred(request)));
                 }).orElseGet(() -> redirect("/")));
     }
 
+    /**
+     * Gets a profile, only reading it once per request in Memoized actions
+     * @param request the current request
+     * @param profileId id of the profile
+     * @return optional of the profile
+     */
+    private Optional<Profile> profile(Http.Request request, int profileId) {
+        return RequestMemo.of(request).get("ProfileRepository.lookup",
+                () -> profileRepository.lookup(profileId), profileId);
+    }
+
+    /**
+     * Gets every country name, only reading them once per request in Memoized actions
+     * @param request the current request
+     * @return list of country names
+     */
+    private List<String> countries(Http.Request request) {
+        return RequestMemo.of(request).get("Country.getAllCountries", () -> Country.getInstance().getAllCountries());
+    }
+
+    /**
+     * Gets every genre, only reading them once per request in Memoized actions
+     * @param request the current request
+     * @return list of genres
+     */
+    private List<MusicGenre> genres(Http.Request request) {
+        return RequestMemo.of(request).get("GenreRepository.getAllGenres", genreRepository::getAllGenres);
+    }
+
+    /**
+     * Gets every verified artist, only reading them once per request in Memoized actions
+     * @param request the current request
+     * @return list of verified artists
+     */
+    private List<Artist> verifiedArtists(Http.Request request) {
+        return RequestMemo.of(request).get("ArtistRepository.getAllVerfiedArtists", artistRepository::getAllVerfiedArtists);
+    }
+
+    /**
+     * Gets the destinations a profile follows or owns, only reading them once per request in Memoized actions
+     * @param request the current request
+     * @param profileId id of the profile
+     * @return list of destinations
+     */
+    private List<Destination> followedOrOwnedDestinations(Http.Request request, int profileId) {
+        return RequestMemo.of(request).get("DestinationRepository.getAllFollowedOrOwnedDestinations",
+                () -> destinationRepository.getAllFollowedOrOwnedDestinations(profileId), profileId);
+    }
+
+    /**
+     * Checks if a profile is an admin of any artist, only checking once per request in Memoized actions
+     * @param request the current request
+     * @param profileId id of the profile
+     * @return true if the profile is an artist admin
+     */
+    private boolean isArtistAdmin(Http.Request request, int profileId) {
+        return RequestMemo.of(request).get("ArtistRepository.isArtistAdmin",
+                () -> artistRepository.isArtistAdmin(profileId), profileId);
+    }
+
+    /**
+     * Gets the artists a profile is a member of, only reading them once per request in Memoized actions
+     * @param request the current request
+     * @param profileId id of the profile
+     * @return list of the profile's artists
+     */
+    private List<Artist> userArtists(Http.Request request, int profileId) {
+        return RequestMemo.of(request).get("ArtistRepository.getAllUserArtists",
+                () -> artistRepository.getAllUserArtists(profileId), profileId);
+    }
+
     /**
      * Endpoint to show the edit dialog for an event from the artists page
      *
@@ -159,43 +237,68 @@ public class EventsController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> editArtistEvent(Http.Request request, Integer artistId, Integer eventId) {
         Integer profId = SessionController.getCurrentUserId(request);
-        Artist artist = artistRepository.getArtistById(artistId);
-        if (artist == null) {
-            return supplyAsync(() -> redirect("/artists"));
-        }
         return profileRepository.findById(profId)
-                .thenApplyAsync(profileOpt -> profileOpt.map(profile ->
-                        ok(viewArtist.render(profile, artist, eventRepository.getArtistEventsPage(artistId, 0), Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 1,
-                                initPagination(0, eventRepository.getNumArtistEvents(artistId), 8), profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
-                                artistRepository.getAllVerfiedArtists(), new RoutedObject<Events>(eventRepository.lookup(eventId), true, false),
-                                eventEditForm, null, artistRepository.getFollowedArtists(profId),request, messagesApi.preferred(request))))
-                        .orElseGet(() -> redirect("/artists/" + artistId + eventURL)));
+                .thenApplyAsync(profileOpt -> {
+                    Artist artist = artistRepository.getArtistById(artistId);
+                    if (artist == null) {
+                        return redirect("/artists");
+                    }
+                    return profileOpt.map(profile ->
+                            ok(viewArtist.render(profile, artist, eventRepository.getArtistEventsPage(artistId, 0), Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), 1,
+                                    initPagination(0, eventRepository.getNumArtistEvents(artistId), 8), profileRepository.getAllEbeans(), destinationRepository.getAllFollowedOrOwnedDestinations(profId),
+                                    artistRepository.getAllVerfiedArtists(), new RoutedObject<Events>(eventRepository.lookup(eventId), true, false),
+                                    eventEditForm, null, artistRepository.getFollowedArtists(profId),request, messagesApi.preferred(request))))
+                            .orElseGet(() -> redirect("/artists/" + artistId + eventURL));
+                }, databaseExecutionContext);
     }
 
 
     /**
      * Endpoint for landing page for Events
+     * The independent page loads are started together on the database context and the page is rendered
+     * once they have all finished.
      *
      * @param request client requests
+     * @param offset position of the page, used for the page info shown to the user
+     * @param cursor token of the page to show, null to show the page at the offset
      */
     @Security.Authenticated(SecureSession.class)
-    public CompletionStage<Result> show(Http.Request request, Integer offset){
+    public CompletionStage<Result> show(Http.Request request, Integer offset, String cursor){
         Integer profId = SessionController.getCurrentUserId(request);
         eventFormDataForm.fill(new EventFormData());
-        return profileRepository.findById(profId)
-                .thenApplyAsync(profileRec -> profileRec.map(profile -> {
-                    undoStackRepository.clearStackOnAllowed(profileRec.get());
-                    List<Events> eventsList = eventRepository.getPage(offset);
-                    PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, 0, true, true, eventRepository.getNumEvents());
+        boolean keyset = offset == 0 || cursor != null;
+        CompletableFuture<Optional<Profile>> profileLoad = profileRepository.findById(profId).toCompletableFuture();
+        CompletableFuture<KeysetPage<Events>> pageLoad = keyset
+                ? databaseExecutionContext.supply(() -> eventRepository.getPage(cursor))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<List<Events>> offsetPageLoad = keyset
+                ? CompletableFuture.completedFuture(null)
+                : databaseExecutionContext.supply(() -> eventRepository.getPage(offset));
+        CompletableFuture<Integer> countLoad = databaseExecutionContext.supply(eventRepository::getCachedNumEvents);
+        CompletableFuture<List<Artist>> verifiedArtistsLoad = databaseExecutionContext.supply(artistRepository::getAllVerfiedArtists);
+        CompletableFuture<List<Destination>> destinationsLoad = databaseExecutionContext.supply(() ->
+                destinationRepository.getAllFollowedOrOwnedDestinations(profId));
+        CompletableFuture<Boolean> artistAdminLoad = databaseExecutionContext.supply(() -> artistRepository.isArtistAdmin(profId));
+        CompletableFuture<List<Artist>> userArtistsLoad = databaseExecutionContext.supply(() -> artistRepository.getAllUserArtists(profId));
+
+        return CompletableFuture.allOf(profileLoad, pageLoad, offsetPageLoad, countLoad, verifiedArtistsLoad,
+                destinationsLoad, artistAdminLoad, userArtistsLoad)
+                .thenApplyAsync(loaded -> profileLoad.join().map(profile -> {
+                    KeysetPage<Events> page = pageLoad.join();
+                    List<Events> eventsList = page != null ? page.getItems() : offsetPageLoad.join();
+                    PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, 0, true, true, countLoad.join());
                     paginationHelper.alterNext(8);
                     paginationHelper.alterPrevious(8);
                     paginationHelper.checkButtonsEnabled();
+                    if (page != null) {
+                        paginationHelper.setCursors(page);
+                    }
                     return ok(events.render(profile,
-                            Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), artistRepository.getAllVerfiedArtists(),
-                            destinationRepository.getAllFollowedOrOwnedDestinations(profId), eventsList, eventForm, new RoutedObject<Events>(null, false, false),
-                            eventFormDataForm, artistRepository.isArtistAdmin(profId), paginationHelper, null,
-                            artistRepository.getAllUserArtists(profId), request, messagesApi.preferred(request)));
-                }).orElseGet(() -> redirect("/")));
+                            Country.getInstance().getAllCountries(), genreRepository.getAllGenres(), verifiedArtistsLoad.join(),
+                            destinationsLoad.join(), eventsList, eventForm, new RoutedObject<Events>(null, false, false),
+                            eventFormDataForm, artistAdminLoad.join(), paginationHelper, null,
+                            userArtistsLoad.join(), request, messagesApi.preferred(request)));
+                }).orElseGet(() -> redirect("/")), httpExecutionContext.current());
     }
 
 
@@ -262,7 +365,7 @@ public class EventsController extends Controller {
             return supplyAsync(() -> redirect(eventURL).flashing("error", "Error: Start date cannot be after end date."));
         }
 
-        return eventRepository.update(id, event).thenApplyAsync(x -> redirect(eventURL).flashing("info",  event.getEventName() + " has been updated."));
+        return eventRepository.update(id, event).thenApplyAsync(x -> redirect(eventURL).flashing("info",  event.getEventName() + " has been updated."), httpExecutionContext.current());
     }
 
 
@@ -281,7 +384,7 @@ public class EventsController extends Controller {
         if (event.getStartDate().after(event.getEndDate())){
             return supplyAsync(() -> redirect("/artists/" + artistId + eventURL).flashing("error", "Error: Start date cannot be after end date."));
         }
-        return eventRepository.update(eventId, event).thenApplyAsync(x -> redirect("/artists/" + artistId +eventURL).flashing("success", "Event has been updated."));
+        return eventRepository.update(eventId, event).thenApplyAsync(x -> redirect("/artists/" + artistId +eventURL).flashing("success", "Event has been updated."), httpExecutionContext.current());
     }
 
     /**
@@ -301,7 +404,7 @@ public class EventsController extends Controller {
         if (event.getStartDate().after(event.getEndDate())){
             return supplyAsync(() -> redirect("/events/view/" + eventId).flashing("error", "Error: Start date cannot be after end date."));
         }
-        return eventRepository.update(eventId, event).thenApplyAsync(x -> redirect("/events/details/" + eventId).flashing("success", "Event has been updated."));
+        return eventRepository.update(eventId, event).thenApplyAsync(x -> redirect("/events/details/" + eventId).flashing("success", "Event has been updated."), httpExecutionContext.current());
     }
 
 
@@ -330,7 +433,7 @@ public class EventsController extends Controller {
             }
 
             return redirect(adminEventURL).flashing("info", successEvent);
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -365,7 +468,7 @@ public class EventsController extends Controller {
             }
 
             return redirect(url).flashing("info", successEvent);
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -394,7 +497,7 @@ public class EventsController extends Controller {
                 return redirect(eventURL).flashing("error", errorEventDate);
             }
             return redirect(eventURL).flashing("info", successEvent);
-        });
+        }, databaseExecutionContext);
 
 
 
@@ -470,9 +573,10 @@ public class EventsController extends Controller {
                 eventFormData.getHistoric().equals("")) {
                     return redirect(eventURL);
                 }
-                List<Events> eventsList = eventRepository.searchEvent(eventFormData, offset, profId);
+                EventSearchResult searchResult = eventRepository.searchEventFaceted(eventFormData, offset, profId);
+                List<Events> eventsList = searchResult.getEvents();
                 if(!eventsList.isEmpty() || offset > 0){
-                    PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, 0, true, true, eventRepository.getNumEvents());
+                    PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, 0, true, true, searchResult.getTotal());
                     paginationHelper.alterNext(8);
                     paginationHelper.alterPrevious(8);
                     paginationHelper.checkButtonsEnabled();
@@ -487,7 +591,7 @@ public class EventsController extends Controller {
                 }
             }
             return redirect(eventURL).flashing("error", "No events match your search");
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -517,7 +621,7 @@ public class EventsController extends Controller {
      */
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> deleteEvent(Http.Request request, Integer artistId, Integer eventId) {
-        return eventRepository.deleteEvent(eventId).thenApplyAsync(code -> redirect("/artists/" + artistId + eventURL));
+        return eventRepository.deleteEvent(eventId).thenApplyAsync(code -> redirect("/artists/" + artistId + eventURL), httpExecutionContext.current());
     }
 
     /**
@@ -568,7 +672,6 @@ public class EventsController extends Controller {
         return eventRepository.getEvent(id)
                 .thenApplyAsync(optEvent -> {
                     Optional<Profile> profileOpt = Optional.ofNullable(profileRepository.getProfileByProfileId(profId));
-                    undoStackRepository.clearStackOnAllowed(profileOpt.get());
                     Photo coverPhoto = null;
                     Optional<Integer> optionalEventPhotoId = eventPhotoRepository.getEventPhotoId(id);
                     if (optionalEventPhotoId.isPresent()) {
@@ -596,7 +699,7 @@ public class EventsController extends Controller {
                     } else {
                         return redirect("/events/0").flashing("info", "Error retrieving event or profile");
                     }
-                });
+                }, databaseExecutionContext);
     }
 
     /**
@@ -637,7 +740,7 @@ public class EventsController extends Controller {
                     } else {
                         return redirect("/events/0").flashing("info", "Error retrieving event or profile");
                     }
-                });
+                }, databaseExecutionContext);
     }
 
     /**
@@ -693,7 +796,7 @@ public class EventsController extends Controller {
                     } else {
                         return redirect("/events/0").flashing("info", "Error retrieving event or profile");
                     }
-                });
+                }, databaseExecutionContext);
     }
 
     /**
@@ -754,7 +857,7 @@ public class EventsController extends Controller {
                     } else {
                         return redirect("/events/0").flashing("info", "Error retrieving event or profile");
                     }
-                });
+                }, databaseExecutionContext);
     }
 
     /**
@@ -765,7 +868,7 @@ public class EventsController extends Controller {
      * @return redirect to event page
      */
     public CompletionStage<Result> removePhoto(Http.Request request, Integer id) {
-        return eventPhotoRepository.removeEventCoverPhoto(id).thenApplyAsync(eventId -> redirect("/events/details/"+eventId));
+        return eventPhotoRepository.removeEventCoverPhoto(id).thenApplyAsync(eventId -> redirect("/events/details/"+eventId), httpExecutionContext.current());
     }
 
     /**
@@ -776,7 +879,7 @@ public class EventsController extends Controller {
      * @return a redirect to the event page
      */
     public CompletionStage<Result> setCoverPhoto(Http.Request request, Integer eventId, Integer photoId) {
-        return eventPhotoRepository.update(eventId, photoId).thenApplyAsync(theEventId -> redirect("/events/details/"+theEventId));
+        return eventPhotoRepository.update(eventId, photoId).thenApplyAsync(theEventId -> redirect("/events/details/"+theEventId), httpExecutionContext.current());
     }
 
     /**
@@ -809,8 +912,10 @@ public class EventsController extends Controller {
         String filepath = System.getProperty("user.dir") + "/photos/personalPhotos/" + fileName;
         tempFile.copyTo(Paths.get(filepath), true);
         Photo photo = new Photo("photos/personalPhotos/" + fileName, contentType, 0, fileName);
-        photoRepository.insert(photo).thenApplyAsync(photoId ->
-                eventPhotoRepository.insert(new EventPhoto(eventId, photoId)));
+        photoRepository.insert(photo).thenApplyAsync(photoId -> {
+            thumbnailPipeline.submit(photoId);
+            return eventPhotoRepository.insert(new EventPhoto(eventId, photoId));
+        }, databaseExecutionContext);
 
         return supplyAsync(() -> redirect("/events/details/"+eventId));
     }
@@ -818,21 +923,21 @@ public class EventsController extends Controller {
 
     /**
      * Method to serve an image to the frontend. Uses the image path url
+     * @param request the request for the image, used for caching and range headers
      * @param artistId artist id of the image that is to be rendered
      * @return rendered image file to be displayed
      */
     @Security.Authenticated(SecureSession.class)
-    public Result getPhoto(Integer artistId){
-        Photo image = Photo.find.byId(artistProfilePictureRepository.lookup(artistId).getPhotoId());
-        try {
-            File imageFilePath = new File(Objects.requireNonNull(image).getPath());
-            if (imageFilePath.exists()) {
-                return ok(new FileInputStream(imageFilePath)).as(image.getType());
+    public CompletionStage<Result> getPhoto(Http.Request request, Integer artistId){
+        return supplyAsync(() -> {
+            ArtistProfilePhoto picture = artistProfilePictureRepository.lookup(artistId);
+            return picture == null ? Optional.<PhotoRepository.PhotoFile>empty() : photoRepository.lookupFile(picture.getPhotoId());
+        }, databaseExecutionContext).thenApplyAsync(image -> {
+            if (!image.isPresent()) {
+                return redirect(eventURL); //  When there an id of a photo does not exist
             }
-            return notFound(imageFilePath.getAbsoluteFile());
-        } catch(NullPointerException | IOException e) {
-            return redirect(eventURL); //  When there an id of a photo does not exist
-        }
+            return PhotoResults.serve(request, image.get());
+        }, httpExecutionContext.current());
     }
 
 
@@ -10,11 +10,15 @@ import play.mvc.Http;
 import play.mvc.Result;
 import repository.ProfileRepository;
 import utility.Country;
+import utility.PasswordHasher;
 import views.html.login;
 
 import javax.inject.Inject;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 
@@ -29,6 +33,7 @@ public class LoginController extends Controller {
     private MessagesApi messagesApi;
     private final HttpExecutionContext httpExecutionContext;
     private final ProfileRepository profileRepository;
+    private final PasswordHasher passwordHasher;
 
     public static class Login {
         public String email;
@@ -37,59 +42,56 @@ public class LoginController extends Controller {
     }
 
     @Inject
-    public LoginController(FormFactory formFactory, FormFactory profileFormFactory, ProfileRepository profileRepository, HttpExecutionContext httpExecutionContext, MessagesApi messagesApi){
+    public LoginController(FormFactory formFactory, FormFactory profileFormFactory, ProfileRepository profileRepository, HttpExecutionContext httpExecutionContext, MessagesApi messagesApi,
+                           PasswordHasher passwordHasher){
         this.loginForm = formFactory.form(Login.class);
         this.profileForm = profileFormFactory.form(Profile.class);
         this.profileRepository = profileRepository;
+        this.passwordHasher = passwordHasher;
         this.httpExecutionContext = httpExecutionContext;
         this.messagesApi = messagesApi;
     }
 
     /**
-     * Function to authenticate a login
+     * Function to authenticate a login. The credentials are read in one query on the database pool and the
+     * password is checked on the password hashing pool, so neither blocks the request thread.
      * @param request the users login request
-     * @return either login failed  with incorrect info or successful login and go to user  page
+     * @return either login failed  with incorrect info or successful login and go to user  page,
+     * 503 if too many logins are already waiting to be checked
      */
     public CompletionStage<Result> login(Http.Request request){
         Form<Login> currentLoginForm = loginForm.bindFromRequest(request);
         Login login = currentLoginForm.get();
-        if (checkUser(login.email, login.password)){
-            // Validate the login credentials
-            Login loginData = currentLoginForm.get();
-            CompletionStage<Optional<Profile>> profileOptional = profileRepository.lookupEmail(loginData.email);
-            return profileRepository.lookupEmail(loginData.email).thenCombineAsync(profileOptional, (profiles, profile) -> {
-                if (profile.isPresent()) {
-                    Profile currentUser = profile.get();
-                    return redirect(routes.EventsController.show(0)).addingToSession(request, "connected", currentUser.getProfileId().toString());
+        return profileRepository.findCredentials(login.email).thenCompose(credentials -> {
+            if (!credentials.isPresent() || credentials.get().getPasswordHash() == null || login.password == null) {
+                return CompletableFuture.completedFuture(Optional.<ProfileRepository.Credentials>empty());
+            }
+            return passwordHasher.check(login.password, credentials.get().getPasswordHash())
+                    .thenApply(valid -> valid ? credentials : Optional.<ProfileRepository.Credentials>empty());
+        }).handleAsync((credentials, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof RejectedExecutionException) {
+                    return status(SERVICE_UNAVAILABLE, "Too many login attempts at once, please try again shortly.")
+                            .withHeader(RETRY_AFTER, "1");
                 }
+                throw new CompletionException(cause);
+            }
+            if (!credentials.isPresent()) {
+                return redirect("/").flashing("info", "Login details incorrect, please try again.");
+            }
+            if (credentials.get().isDeleted()) {
                 return redirect("/").flashing("warning", "Profile has been deleted!");
-            }, httpExecutionContext.current());
-
-        } else {
-            return supplyAsync(() -> redirect("/").flashing("info", "Login details incorrect, please try again."));
-        }
-    }
-
-
-    /**
-     * Check if user exists
-     * @param email Email of the user to validate login
-     * @param password Password of the user to validate login
-     * @return true for existing user or false if not existing
-     */
-    private boolean checkUser(String email, String password){
-        if (profileRepository.checkProfileExists(email)) {
-            return profileRepository.validate(email, password);
-        } else {
-            return false;
-        }
-
+            }
+            return redirect(routes.EventsController.show(0, null)).addingToSession(request, "connected",
+                    Integer.toString(credentials.get().getProfileId()));
+        }, httpExecutionContext.current());
     }
 
     /**
-     * Save user into the database
+     * Save user into the database. The password is hashed on the password hashing pool as the profile is inserted.
      * @param request users request to create a profile
-     * @return redirect to login
+     * @return redirect to login, 503 if too many passwords are already waiting to be hashed
      */
     public CompletionStage<Result> save(Http.Request request){
         Form<Profile> userForm = profileForm.bindFromRequest(request);
@@ -106,8 +108,17 @@ public class LoginController extends Controller {
                     return supplyAsync(()-> redirect("/").flashing("warning", "Error: Please enter a valid email"));
                 }
 
-                return profileRepository.insert(profile).thenApplyAsync(profileIdOptional ->
-                        redirect(routes.EventsController.show(0)).addingToSession(request, "connected", profileIdOptional.get().toString()));
+                return profileRepository.insert(profile).handleAsync((profileIdOptional, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            return status(SERVICE_UNAVAILABLE, "Too many sign ups at once, please try again shortly.")
+                                    .withHeader(RETRY_AFTER, "1");
+                        }
+                        throw new CompletionException(cause);
+                    }
+                    return redirect(routes.EventsController.show(0, null)).addingToSession(request, "connected", profileIdOptional.get().toString());
+                }, httpExecutionContext.current());
 
             }
         }catch (Exception e){
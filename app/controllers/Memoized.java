@@ -0,0 +1,17 @@
+package controllers;
+
+import play.mvc.With;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Gives an action a RequestMemo, so lookups made through RequestMemo.of(request) are only run once per request
+ */
+@With(MemoizedAction.class)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Memoized {
+}
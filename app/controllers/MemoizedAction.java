@@ -0,0 +1,28 @@
+package controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.mvc.Action;
+import play.mvc.Http;
+import play.mvc.Result;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Runs a Memoized action with a fresh RequestMemo and logs how many lookups it saved once the result is ready
+ */
+public class MemoizedAction extends Action<Memoized> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoizedAction.class);
+
+    @Override
+    public CompletionStage<Result> call(Http.Request request) {
+        RequestMemo memo = new RequestMemo();
+        return delegate.call(request.addAttr(RequestMemo.KEY, memo)).whenComplete((result, error) -> {
+            if (logger.isDebugEnabled()) {
+                logger.debug(request.method() + " " + request.path() + ": " + memo.getSaved() + " of "
+                        + (memo.getSaved() + memo.getLoaded()) + " lookups served from the request memo");
+            }
+        });
+    }
+}
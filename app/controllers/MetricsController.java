@@ -0,0 +1,38 @@
+package controllers;
+
+import com.typesafe.config.Config;
+import play.mvc.Controller;
+import play.mvc.Result;
+import utility.Metrics;
+
+import javax.inject.Inject;
+
+/**
+ * Serves the application metrics for Prometheus to scrape
+ */
+public class MetricsController extends Controller {
+
+    private final Metrics metrics;
+    private final boolean enabled;
+
+    @Inject
+    public MetricsController(Metrics metrics, Config config) {
+        this.metrics = metrics;
+        this.enabled = !config.hasPath("metrics.enabled") || config.getBoolean("metrics.enabled");
+        metrics.counter("soundbound_request_memo_saved_total", "Lookups served from a request memo",
+                RequestMemo::getTotalSaved);
+        metrics.counter("soundbound_request_memo_loaded_total", "Lookups a request memo had to load",
+                RequestMemo::getTotalLoaded);
+    }
+
+    /**
+     * Endpoint method returning every metric in the Prometheus text format
+     * @return the metrics, or not found if they are turned off
+     */
+    public Result metrics() {
+        if (!enabled) {
+            return notFound();
+        }
+        return ok(metrics.render()).as(Metrics.CONTENT_TYPE);
+    }
+}
@@ -0,0 +1,85 @@
+package controllers;
+
+import play.mvc.Http;
+import play.mvc.RangeResults;
+import play.mvc.Result;
+import repository.PhotoRepository;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static play.mvc.Results.notFound;
+import static play.mvc.Results.status;
+
+/**
+ * Builds the responses used to serve photo files. Files are streamed with a Content-Length and byte range
+ * support, and carry an ETag and Last-Modified so browsers can revalidate with a conditional GET instead of
+ * downloading the photo again.
+ */
+final class PhotoResults {
+
+    /** Generated thumbnails are named by photo id and never rewritten, so they can be cached for good */
+    private static final String GENERATED_THUMBNAIL_PREFIX = "photos/thumbnails/photo_";
+    private static final String CACHE_IMMUTABLE = "private, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "private, no-cache";
+
+    private PhotoResults() {
+    }
+
+    /**
+     * Serves a photo file
+     * @param request the request for the photo, used for conditional and range headers
+     * @param photo the photo to serve
+     * @return 200 or 206 with the file, 304 if the browser copy is current, 404 if the file is missing
+     */
+    static Result serve(Http.Request request, PhotoRepository.PhotoFile photo) {
+        File file = new File(photo.getPath());
+        if (!file.isFile()) {
+            return notFound();
+        }
+        long lastModified = file.lastModified();
+        String etag = "\"" + Integer.toHexString(photo.getPath().hashCode()) + "-" + Long.toHexString(lastModified)
+                + "-" + Long.toHexString(file.length()) + "\"";
+        String cacheControl = photo.getPath().startsWith(GENERATED_THUMBNAIL_PREFIX) ? CACHE_IMMUTABLE : CACHE_REVALIDATE;
+        String lastModifiedHeader = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneOffset.UTC));
+
+        if (notModified(request, etag, lastModified)) {
+            return status(Http.Status.NOT_MODIFIED)
+                    .withHeader(Http.HeaderNames.ETAG, etag)
+                    .withHeader(Http.HeaderNames.CACHE_CONTROL, cacheControl);
+        }
+        return RangeResults.ofPath(request, file.toPath())
+                .as(photo.getContentType())
+                .withHeader(Http.HeaderNames.ETAG, etag)
+                .withHeader(Http.HeaderNames.LAST_MODIFIED, lastModifiedHeader)
+                .withHeader(Http.HeaderNames.CACHE_CONTROL, cacheControl);
+    }
+
+    /**
+     * Checks If-None-Match first and only falls back to If-Modified-Since when there is no If-None-Match
+     */
+    private static boolean notModified(Http.Request request, String etag, long lastModified) {
+        if (request.header(Http.HeaderNames.IF_NONE_MATCH).isPresent()) {
+            for (String candidate : request.header(Http.HeaderNames.IF_NONE_MATCH).get().split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return request.header(Http.HeaderNames.IF_MODIFIED_SINCE).map(since -> {
+            try {
+                long sinceSeconds = ZonedDateTime.parse(since, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+                return lastModified / 1000 <= sinceSeconds;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }).orElse(false);
+    }
+}
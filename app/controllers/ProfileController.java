@@ -15,21 +15,16 @@ import play.mvc.Result;
 import play.mvc.Security;
 import repository.*;
 import utility.Country;
-import utility.Thumbnail;
+import utility.ThumbnailPipeline;
 import views.html.profile;
 
-import javax.imageio.ImageIO;
 import javax.inject.Inject;
-import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -44,8 +39,8 @@ public class ProfileController extends Controller implements TypesInterface {
     private final Form<Profile> profileForm;
     private final Form<ImageData> imageForm;
     private MessagesApi messagesApi;
-    private List<Destination> destinationsList = new ArrayList<>();
     private final HttpExecutionContext httpExecutionContext;
+    private final DatabaseExecutionContext databaseExecutionContext;
     private final ProfileRepository profileRepository;
     private final PhotoRepository photoRepository;
     private List<Photo> photoList = new ArrayList<>();
@@ -55,9 +50,9 @@ public class ProfileController extends Controller implements TypesInterface {
     private final TripRepository tripRepository;
     private final String profileEndpoint = "/profile";
     private Boolean countryFlag = true;
-    private final UndoStackRepository undoStackRepository;
     private final ArtistRepository artistRepository;
     private final EventRepository eventRepository;
+    private final ThumbnailPipeline thumbnailPipeline;
 
 
 
@@ -76,8 +71,9 @@ public class ProfileController extends Controller implements TypesInterface {
     public ProfileController(FormFactory profileFormFactory, FormFactory imageFormFactory, MessagesApi messagesApi,
                              PersonalPhotoRepository personalPhotoRepository, HttpExecutionContext httpExecutionContext,
                              ProfileRepository profileRepository, PhotoRepository photoRepository,
-                             TripRepository tripRepository, UndoStackRepository undoStackRepository,
-                             ArtistRepository artistRepository, EventRepository eventRepository)
+                             TripRepository tripRepository,
+                             ArtistRepository artistRepository, EventRepository eventRepository,
+                             ThumbnailPipeline thumbnailPipeline, DatabaseExecutionContext databaseExecutionContext)
         {
             this.profileForm = profileFormFactory.form(Profile.class);
             this.imageForm = imageFormFactory.form(ImageData.class);
@@ -87,9 +83,10 @@ public class ProfileController extends Controller implements TypesInterface {
             this.photoRepository = photoRepository;
             this.personalPhotoRepository = personalPhotoRepository;
             this.tripRepository = tripRepository;
-            this.undoStackRepository = undoStackRepository;
             this.artistRepository = artistRepository;
             this.eventRepository = eventRepository;
+            this.thumbnailPipeline = thumbnailPipeline;
+            this.databaseExecutionContext = databaseExecutionContext;
 
         }
 
@@ -110,7 +107,7 @@ public class ProfileController extends Controller implements TypesInterface {
         try {
             return profileRepository.update(profileNew, profId).thenApplyAsync(x -> redirect(routes.ProfileController.show())
                     .flashing("success", profileNew.getFirstName() + "'s profile edited successfully.")
-                    .addingToSession(request, "connected", profId.toString()));
+                    .addingToSession(request, "connected", profId.toString()), httpExecutionContext.current());
 
         } catch (IllegalArgumentException e) {
             return supplyAsync(() -> redirect(profileEndpoint).flashing("invalid", "email is already taken"));
@@ -159,7 +156,7 @@ public class ProfileController extends Controller implements TypesInterface {
         return supplyAsync(() -> {
             photoRepository.updateVisibility(id);
             return redirect("/profile").flashing("success", "Visibility updated.");
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -209,27 +206,25 @@ public class ProfileController extends Controller implements TypesInterface {
                 return redirect(profileEndpoint).flashing("invalid", " Error! File not saved");
             }
             return redirect(profileEndpoint).flashing("success", fileName + " uploaded");
-        });
+        }, databaseExecutionContext);
     }
 
 
     /**
      * Method to serve an image to the frontend. Uses the image path url
+     * @param request the request for the image, used for caching and range headers
      * @param id image id that is to be rendered
      * @return rendered image file to be displayed
      */
     @Security.Authenticated(SecureSession.class)
-    public Result photoAt(Integer id){
-        Photo image = Photo.find.byId(id);
-        try {
-            File imageFilePath = new File(Objects.requireNonNull(image).getPath());
-            if (imageFilePath.exists()) {
-                return ok(new FileInputStream(imageFilePath)).as(image.getType());
+    public CompletionStage<Result> photoAt(Http.Request request, Integer id){
+        return supplyAsync(() -> id == null ? Optional.<PhotoRepository.PhotoFile>empty() : photoRepository.lookupFile(id),
+                databaseExecutionContext).thenApplyAsync(image -> {
+            if (!image.isPresent()) {
+                return redirect(profileEndpoint); //  When there an id of a photo does not exist
             }
-            return notFound(imageFilePath.getAbsoluteFile());
-        } catch(NullPointerException | IOException e) {
-            return redirect(profileEndpoint); //  When there an id of a photo does not exist
-        }
+            return PhotoResults.serve(request, image.get());
+        }, httpExecutionContext.current());
     }
 
 
@@ -242,50 +237,12 @@ public class ProfileController extends Controller implements TypesInterface {
      */
     @Security.Authenticated(SecureSession.class)
     private CompletionStage<Result> savePhoto(Photo photo, int profileId){
-        return photoRepository.insert(photo).thenApplyAsync(photoId -> personalPhotoRepository.insert(new PersonalPhoto(profileId, photoId))
-        .thenApplyAsync(id -> id)).thenApply(result -> redirect("/profile"));
-    }
-
-    /**
-     * Helper function to split the image path to get the extension required for thumbnail creation
-     * @param url string with the image extension and image/extension
-     * @return extension string with just the extension.
-     */
-    private String photoType(String url){
-        return url.substring(url.lastIndexOf('/') + 1);
-    }
-
-    /**
-     * Creates a thumbnail
-     *
-     * @param photoId id of the image that will get turned into a thumbnail
-     * @param userId id of the user who is creating their new thumbnail
-     */
-    private void createNewThumbnail(int photoId, int userId) {
-        String fileName = "user_" + userId + "_thumbnail";
-        Optional<Photo> photoOpt = photoRepository.getImage(photoId);
-        if(photoOpt.isPresent()) {
-            File photoFile = new File(photoOpt.get().getPath());
-            if (photoFile.exists()) {
-                try {
-                    BufferedImage image = ImageIO.read(photoFile);
-                    Image thumbnail = Thumbnail.getInstance().extract(image);
-                    BufferedImage bufferedImage = new BufferedImage(thumbnail.getWidth(null), thumbnail.getHeight(null), BufferedImage.TYPE_INT_RGB);
-                    Graphics graphics = bufferedImage.getGraphics();
-                    graphics.drawImage(thumbnail, 0, 0, null);
-                    graphics.dispose();
-                    String imgType = photoType(photoOpt.get().getType());
-                    File thumbFile = new File(System.getProperty("user.dir") +"/photos/thumbnails/" + fileName + "." + imgType);
-                    ImageIO.write(bufferedImage, imgType, thumbFile);
-                    photoRepository.insertThumbnail(new Photo("photos/thumbnails/" + fileName, photoOpt.get().getType(), 1, fileName), photoId);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        return photoRepository.insert(photo).thenApplyAsync(photoId -> {
+            thumbnailPipeline.submit(photoId);
+            return personalPhotoRepository.insert(new PersonalPhoto(profileId, photoId));
+        }, databaseExecutionContext).thenApply(result -> redirect("/profile"));
     }
 
-
     /**
      * Set a profile picture to the database
      * @return a redirect to the profile page
@@ -298,10 +255,10 @@ public class ProfileController extends Controller implements TypesInterface {
                 if (photoOpt.isPresent()) {
                     personalPhotoRepository.removeProfilePic(profileId);
                     personalPhotoRepository.setProfilePic(profileId, photoId);
-                    createNewThumbnail(photoId, SessionController.getCurrentUserId(request));
+                    thumbnailPipeline.submit(photoId);
                 }
                 return photoOpt;
-            });
+            }, databaseExecutionContext);
         } catch (NullPointerException e) {
             savePhoto(demoProfilePicture, profileId);
         }
@@ -327,43 +284,50 @@ public class ProfileController extends Controller implements TypesInterface {
 
     /**
      * Show the profile page
+     * The independent page loads are started together on the database context and the page is rendered
+     * once they have all finished.
      * @param request The http request
      * @return a page render of the users profile page
      */
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> show(Http.Request request){
         Integer profId = SessionController.getCurrentUserId(request);
-        return profileRepository.findById(profId).thenApplyAsync(profileRec -> {
-
+        CompletableFuture<Optional<Profile>> profileLoad = profileRepository.findById(profId).toCompletableFuture();
+        CompletableFuture<Optional<Profile>> tripsLoad = profileLoad.thenApplyAsync(profileRec ->
+                profileRec.map(tripRepository::getTenTrips), databaseExecutionContext);
+        CompletableFuture<Optional<List<Photo>>> photosLoad = databaseExecutionContext.supply(() ->
+                personalPhotoRepository.getAllProfilePhotos(profId));
+        CompletableFuture<Optional<Photo>> pictureLoad = databaseExecutionContext.supply(() ->
+                personalPhotoRepository.getProfilePicture(profId));
+        CompletableFuture<Optional<List<Destination>>> destinationsLoad = databaseExecutionContext.supply(() ->
+                profileRepository.getTenDestinations(profId));
+        CompletableFuture<List<Artist>> followedLoad = databaseExecutionContext.supply(() -> artistRepository.getFollowedArtists(profId));
+        CompletableFuture<List<Events>> upcomingLoad = databaseExecutionContext.supply(() -> eventRepository.getNextTenUpComingEvents(profId));
+        CompletableFuture<List<Artist>> userArtistsLoad = databaseExecutionContext.supply(() -> artistRepository.getAllUserArtists(profId));
+
+        return CompletableFuture.allOf(tripsLoad, photosLoad, pictureLoad, destinationsLoad, followedLoad, upcomingLoad, userArtistsLoad)
+                .thenApplyAsync(loaded -> {
+            Optional<Profile> profileRec = tripsLoad.join();
             if (profileRec.isPresent()) {
 
-                undoStackRepository.clearStackOnAllowed(profileRec.get());
-
-                List<Photo> displayImageList = getUserPhotos(request);
+                List<Photo> displayImageList = photosLoad.join().orElseGet(ArrayList::new);
                 Boolean show = showPhotoModal = false;
-                Optional<Photo> image = personalPhotoRepository.getProfilePicture(profId);
-                Photo profilePicture;
-                profilePicture = image.orElse(null);
-                Profile toSend = tripRepository.getTenTrips(profileRec.get());
+                Photo profilePicture = pictureLoad.join().orElse(null);
+                Profile toSend = profileRec.get();
                 TreeMultimap<Long, Integer> tripsMap = toSend.getTrips();
                 List<Integer> tripValues= new ArrayList<>(tripsMap.values());
-                profileRepository.getTenDestinations(toSend.getProfileId()).ifPresent(dests -> destinationsList = dests);
-
-                List<Artist> followedArtistsList = artistRepository.getFollowedArtists(toSend.getProfileId());
-                List<String> outdatedCountries = Country.getInstance().getUserOutdatedCountries(profileRec.get());
-                List<Events> upcomingEvents = eventRepository.getNextTenUpComingEvents(profId);
-
-
+                List<Destination> destinationsList = destinationsLoad.join().orElseGet(ArrayList::new);
+                List<String> outdatedCountries = Country.getInstance().getUserOutdatedCountries(toSend);
 
                 if (!outdatedCountries.isEmpty() && countryFlag) {
                     countryFlag = false;
-                    return redirect("/profile").flashing("changeCountry", profileRec.get().getFirstName() + " you have an outdated country");
+                    return redirect("/profile").flashing("changeCountry", toSend.getFirstName() + " you have an outdated country");
                 }
                 countryFlag = true;
-                return ok(profile.render(toSend, imageForm, displayImageList, show, tripValues, profilePicture, destinationsList, followedArtistsList, Country.getInstance().getAllCountries(), artistRepository.getAllUserArtists(profId), upcomingEvents, request, messagesApi.preferred(request)));
+                return ok(profile.render(toSend, imageForm, displayImageList, show, tripValues, profilePicture, destinationsList, followedLoad.join(), Country.getInstance().getAllCountries(), userArtistsLoad.join(), upcomingLoad.join(), request, messagesApi.preferred(request)));
             }
             return redirect("/");
-        });
+        }, httpExecutionContext.current());
     }
 
     /**
@@ -403,9 +367,9 @@ public class ProfileController extends Controller implements TypesInterface {
 
             return photoRepository.insert(photo).thenApplyAsync(photoId -> {
                 personalPhotoRepository.removeProfilePic(SessionController.getCurrentUserId(request));
-                createNewThumbnail(photoId, SessionController.getCurrentUserId(request));
+                thumbnailPipeline.submit(photoId);
                 return personalPhotoRepository.insert(new PersonalPhoto(SessionController.getCurrentUserId(request), photoId, 1));
-            }).thenApply(id -> redirect("/profile"));
+            }, databaseExecutionContext).thenApply(id -> redirect("/profile"));
     }
 
 
@@ -419,15 +383,16 @@ public class ProfileController extends Controller implements TypesInterface {
      */
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> deletePhoto(Http.Request request, int photoId) {
-        Optional<Photo> photoOptional = photoRepository.getImage(photoId);
-        if (photoOptional.isPresent()) {
-            String filePath = System.getProperty("user.dir") + "/" + photoOptional.get().getPath();
-            File file = new File(filePath);
-            if (file.delete()) {
-                return photoRepository.delete(photoId).thenApplyAsync(x -> redirect(profileEndpoint).flashing("success", "Photo deleted"));
+        return supplyAsync(() -> photoRepository.getImage(photoId), databaseExecutionContext).thenComposeAsync(photoOptional -> {
+            if (photoOptional.isPresent()) {
+                String filePath = System.getProperty("user.dir") + "/" + photoOptional.get().getPath();
+                File file = new File(filePath);
+                if (file.delete()) {
+                    return photoRepository.delete(photoId).thenApplyAsync(x -> redirect(profileEndpoint).flashing("success", "Photo deleted"), httpExecutionContext.current());
+                }
             }
-        }
-        return supplyAsync(() -> redirect(profileEndpoint).flashing("failure", "Photo delete failed"));
+            return CompletableFuture.completedFuture(redirect(profileEndpoint).flashing("failure", "Photo delete failed"));
+        }, httpExecutionContext.current());
     }
 
 
@@ -440,7 +405,7 @@ public class ProfileController extends Controller implements TypesInterface {
         return supplyAsync(() -> {
             profileRepository.setSoftDelete(profileID, 0);
             return null;
-        });
+        }, databaseExecutionContext);
     }
 }
 
@@ -0,0 +1,54 @@
+package controllers;
+
+import com.typesafe.config.Config;
+import play.http.ActionCreator;
+import play.mvc.Action;
+import play.mvc.Http;
+import play.mvc.Result;
+import utility.QueryAccounting;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Records the database work of every action with QueryAccounting, under the route name
+ * "Controller.method". Set as play.http.actionCreator and run before any annotated actions so their
+ * work is counted too.
+ */
+public class QueryAccountingActionCreator implements ActionCreator {
+
+    private final boolean enabled;
+
+    @Inject
+    public QueryAccountingActionCreator(Config config) {
+        this.enabled = !config.hasPath("queryAccounting.enabled") || config.getBoolean("queryAccounting.enabled");
+        if (config.hasPath("queryAccounting.repeatThreshold")) {
+            QueryAccounting.setRepeatThreshold(config.getInt("queryAccounting.repeatThreshold"));
+        }
+    }
+
+    @Override
+    public Action createAction(Http.Request request, Method actionMethod) {
+        String route = actionMethod.getDeclaringClass().getSimpleName() + "." + actionMethod.getName();
+        return new Action.Simple() {
+            @Override
+            public CompletionStage<Result> call(Http.Request req) {
+                if (!enabled) {
+                    return delegate.call(req);
+                }
+                QueryAccounting.Recorder recorder = QueryAccounting.start(route, req.method() + " " + req.path());
+                CompletionStage<Result> result;
+                try {
+                    result = delegate.call(req);
+                } catch (RuntimeException e) {
+                    QueryAccounting.finish(recorder);
+                    throw e;
+                } finally {
+                    QueryAccounting.detach();
+                }
+                return result.whenComplete((done, error) -> QueryAccounting.finish(recorder));
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package controllers;
+
+import play.libs.typedmap.TypedKey;
+import play.mvc.Http;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the results of repository lookups for the length of one request, so a render that needs the same
+ * list in two places only reads it from the database once. Lookups are keyed by the repository method and its
+ * arguments. Actions opt in with the Memoized annotation, for any other request every lookup goes straight
+ * through to the repository.
+ *
+ * Results are held as they are returned, so only use this for lookups whose result is not changed by the caller.
+ */
+public class RequestMemo {
+
+    static final TypedKey<RequestMemo> KEY = TypedKey.create("requestMemo");
+
+    private static final RequestMemo NONE = new RequestMemo(false);
+    private static final Object NULL = new Object();
+
+    private static final AtomicLong totalSaved = new AtomicLong();
+    private static final AtomicLong totalLoaded = new AtomicLong();
+
+    private final boolean enabled;
+    private final Map<List<Object>, Object> results = new ConcurrentHashMap<>();
+    private final AtomicInteger saved = new AtomicInteger();
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    RequestMemo() {
+        this(true);
+    }
+
+    private RequestMemo(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the memo of a request
+     * @param request the current request
+     * @return the memo, or one that remembers nothing if the action is not Memoized
+     */
+    public static RequestMemo of(Http.Request request) {
+        return request.attrs().getOptional(KEY).orElse(NONE);
+    }
+
+    /**
+     * Returns the remembered result of a lookup, running it the first time it is asked for in this request
+     * @param method name of the lookup, eg "ArtistRepository.getAllUserArtists"
+     * @param lookup runs the lookup
+     * @param args the arguments the lookup is run with
+     * @return result of the lookup
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String method, Supplier<T> lookup, Object... args) {
+        if (!enabled) {
+            return lookup.get();
+        }
+        List<Object> key = Arrays.asList(method, Arrays.asList(args));
+        Object result = results.get(key);
+        if (result != null) {
+            saved.incrementAndGet();
+            totalSaved.incrementAndGet();
+            return result == NULL ? null : (T) result;
+        }
+        T value = lookup.get();
+        loaded.incrementAndGet();
+        totalLoaded.incrementAndGet();
+        results.putIfAbsent(key, value == null ? NULL : value);
+        return value;
+    }
+
+    /**
+     * @return number of lookups in this request answered from memory
+     */
+    public int getSaved() {
+        return saved.get();
+    }
+
+    /**
+     * @return number of lookups in this request that went to the repository
+     */
+    public int getLoaded() {
+        return loaded.get();
+    }
+
+    /**
+     * @return number of lookups answered from memory across all requests since startup
+     */
+    public static long getTotalSaved() {
+        return totalSaved.get();
+    }
+
+    /**
+     * @return number of memoized lookups that went to the repository across all requests since startup
+     */
+    public static long getTotalLoaded() {
+        return totalLoaded.get();
+    }
+}
@@ -1,9 +1,11 @@
 package controllers;
 
+import models.KeysetPage;
 import models.PaginationHelper;
 import models.PartnerFormData;
 import models.Photo;
 import models.Profile;
+import models.ProfileSearchResult;
 import play.data.Form;
 import play.data.FormFactory;
 import play.i18n.MessagesApi;
@@ -11,9 +13,9 @@ import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.Security;
+import repository.DatabaseExecutionContext;
 import repository.PersonalPhotoRepository;
 import repository.ProfileRepository;
-import repository.UndoStackRepository;
 import utility.Country;
 import views.html.travellers;
 import views.html.travellersPhotos;
@@ -37,18 +39,18 @@ public class TravellersController extends Controller {
     private MessagesApi messagesApi;
     private final PersonalPhotoRepository personalPhotoRepository;
     private final ProfileRepository profileRepository;
-    private final UndoStackRepository undoStackRepository;
+    private final DatabaseExecutionContext databaseExecutionContext;
     private List<Photo> photoList = new ArrayList<>();
 
     @Inject
      public TravellersController(FormFactory formFactory, MessagesApi messagesApi,
                                  PersonalPhotoRepository personalPhotoRepository, ProfileRepository profileRepository,
-                                 UndoStackRepository undoStackRepository) {
+                                 DatabaseExecutionContext databaseExecutionContext) {
         this.form = formFactory.form(PartnerFormData.class);
         this.messagesApi = messagesApi;
         this.personalPhotoRepository = personalPhotoRepository;
         this.profileRepository = profileRepository;
-        this.undoStackRepository = undoStackRepository;
+        this.databaseExecutionContext = databaseExecutionContext;
     }
 
 
@@ -109,10 +111,10 @@ public class TravellersController extends Controller {
                         break;
                 }
 
-                List<Profile> searchedProfiles = profileRepository.searchProfiles(formData.searchTravellerTypes, lowerDate, upperDate, formData.searchGender, formData.searchNationality, offset);
-                int sizeOfSearchResults = profileRepository.getNumSearchProfiles(formData.searchTravellerTypes, lowerDate, upperDate, formData.searchGender, formData.searchNationality);
+                ProfileSearchResult searchResult = profileRepository.searchProfiles(formData.searchTravellerTypes, lowerDate, upperDate, formData.searchGender, formData.searchNationality, offset);
+                List<Profile> searchedProfiles = searchResult.getProfiles();
 
-                PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, sizeOfSearchResults);
+                PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, searchResult.getTotal());
                 paginationHelper.alterNext(12);
                 paginationHelper.alterPrevious(12);
                 paginationHelper.checkButtonsEnabled();
@@ -121,7 +123,7 @@ public class TravellersController extends Controller {
             } else {
                 return redirect("/travellers");
             }
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -164,31 +166,39 @@ public class TravellersController extends Controller {
             } else {
                 return redirect("/travellers");
             }
-        });
+        }, databaseExecutionContext);
     }
 
 
     /**
-     * This method shows the travellers page on the screen
+     * This method shows the travellers page on the screen. The first page and any page linked with a cursor are
+     * found with keyset pagination, links without a cursor still use the offset so old links keep working.
+     * @param offset pagination offset
+     * @param cursor token of the page to show, null to show the page at the offset
      * @return result of the rendering of the travellers page
      */
     @Security.Authenticated(SecureSession.class)
-    public CompletionStage<Result> show(Http.Request request, Integer offset) {
+    public CompletionStage<Result> show(Http.Request request, Integer offset, String cursor) {
         Integer profId = SessionController.getCurrentUserId(request);
-        PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, profileRepository.getNumProfiles());
-        paginationHelper.alterNext(12);
-        paginationHelper.alterPrevious(12);
-        paginationHelper.checkButtonsEnabled();
-
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
             if (profile.isPresent()) {
-                undoStackRepository.clearStackOnAllowed(profile.get());
+                PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, profileRepository.getCachedNumProfiles());
+                paginationHelper.alterNext(12);
+                paginationHelper.alterPrevious(12);
+                paginationHelper.checkButtonsEnabled();
 
-                List<Profile> profiles = profileRepository.getAllTravellersPaginate(offset);
+                List<Profile> profiles;
+                if (offset == 0 || cursor != null) {
+                    KeysetPage<Profile> page = profileRepository.getAllTravellersPaginate(cursor);
+                    paginationHelper.setCursors(page);
+                    profiles = page.getItems();
+                } else {
+                    profiles = profileRepository.getAllTravellersPaginate(offset);
+                }
                 return ok(travellers.render(form, profiles, photoList, profile.get(), Country.getInstance().getAllCountries(), new PartnerFormData(), paginationHelper, request, messagesApi.preferred(request)));
             } else {
                 return redirect("/profile");
             }
-        });
+        }, databaseExecutionContext);
     }
 }
\ No newline at end of file
@@ -7,13 +7,14 @@ import models.TreasureHunt;
 import play.data.Form;
 import play.data.FormFactory;
 import play.i18n.MessagesApi;
+import play.libs.concurrent.HttpExecutionContext;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.Security;
+import repository.DatabaseExecutionContext;
 import repository.DestinationRepository;
 import repository.ProfileRepository;
 import repository.TreasureHuntRepository;
-import repository.UndoStackRepository;
 import views.html.treasureHunts;
 
 import javax.inject.Inject;
@@ -32,7 +33,8 @@ public class TreasureHuntController {
     private final ProfileRepository profileRepository;
     private final DestinationRepository destinationRepository;
     private final TreasureHuntRepository treasureHuntRepository;
-    private final UndoStackRepository undoStackRepository;
+    private final DatabaseExecutionContext databaseExecutionContext;
+    private final HttpExecutionContext httpExecutionContext;
     private final Form<TreasureHunt> huntForm;
     private String huntShowRoute = "/treasure/0";
 
@@ -43,13 +45,14 @@ public class TreasureHuntController {
     @Inject
     public TreasureHuntController(FormFactory formFactory, MessagesApi messagesApi, ProfileRepository profileRepository,
                                   DestinationRepository destinationRepository, TreasureHuntRepository treasureHuntRepository,
-                                  UndoStackRepository undoStackRepository) {
+                                  DatabaseExecutionContext databaseExecutionContext, HttpExecutionContext httpExecutionContext) {
         this.messagesApi = messagesApi;
         this.profileRepository = profileRepository;
         this.destinationRepository = destinationRepository;
         this.huntForm = formFactory.form(TreasureHunt.class);
         this.treasureHuntRepository = treasureHuntRepository;
-        this.undoStackRepository = undoStackRepository;
+        this.databaseExecutionContext = databaseExecutionContext;
+        this.httpExecutionContext = httpExecutionContext;
     }
 
     /**
@@ -62,19 +65,18 @@ public class TreasureHuntController {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> show(Http.Request request, Integer offset) {
         Integer profId = SessionController.getCurrentUserId(request);
-        PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, treasureHuntRepository.getNumHunts());
-        paginationHelper.alterNext(9);
-        paginationHelper.alterPrevious(9);
-        paginationHelper.checkButtonsEnabled();
-        List<TreasureHunt> availableHunts = treasureHuntRepository.getAllActiveTreasureHunts(offset);
-        List<TreasureHunt> myHunts = treasureHuntRepository.getAllUserTreasureHunts(profId);
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
-            undoStackRepository.clearStackOnAllowed(profile.get());
+            PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, treasureHuntRepository.getNumHunts());
+            paginationHelper.alterNext(9);
+            paginationHelper.alterPrevious(9);
+            paginationHelper.checkButtonsEnabled();
+            List<TreasureHunt> availableHunts = treasureHuntRepository.getAllActiveTreasureHunts(offset);
+            List<TreasureHunt> myHunts = treasureHuntRepository.getAllUserTreasureHunts(profId);
             return profile.map(profile1 -> ok(treasureHunts.render(profile1, availableHunts, myHunts,
                     destinationRepository.getAllFollowedOrOwnedDestinations(profId), huntForm,
                     new RoutedObject<TreasureHunt>(null, false, false),
                     paginationHelper, request, messagesApi.preferred(request)))).orElseGet(() -> redirect("/login"));
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -93,7 +95,7 @@ public class TreasureHuntController {
             return supplyAsync(() -> redirect(huntShowRoute).flashing("error", "Error: Start date cannot be after end date."));
         }
 
-        return treasureHuntRepository.insert(treasureHunt).thenApplyAsync(x -> redirect(huntShowRoute).flashing("success", "Treasure Hunt has been added."));
+        return treasureHuntRepository.insert(treasureHunt).thenApplyAsync(x -> redirect(huntShowRoute).flashing("success", "Treasure Hunt has been added."), httpExecutionContext.current());
     }
 
     /**
@@ -103,7 +105,7 @@ public class TreasureHuntController {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> deleteHunt(Http.Request request, Integer id){
         return treasureHuntRepository.deleteTreasureHunt(id)
-                .thenApplyAsync(x -> redirect(huntShowRoute).flashing("success", "Hunt: " + id + " was deleted"));
+                .thenApplyAsync(x -> redirect(huntShowRoute).flashing("success", "Hunt: " + id + " was deleted"), httpExecutionContext.current());
     }
 
     /**
@@ -153,7 +155,7 @@ public class TreasureHuntController {
             return supplyAsync(() -> redirect(huntShowRoute).flashing("error", "Error: Start date cannot be after end date."));
         }
 
-        return treasureHuntRepository.update(treasureHunt, id).thenApplyAsync(x -> redirect(huntShowRoute).flashing("success", "Treasure Hunt has been updated."));
+        return treasureHuntRepository.update(treasureHunt, id).thenApplyAsync(x -> redirect(huntShowRoute).flashing("success", "Treasure Hunt has been updated."), httpExecutionContext.current());
 
     }
 
@@ -166,13 +168,15 @@ public class TreasureHuntController {
      */
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> showEditTreasureHunt(Http.Request request , Integer id) {
-        TreasureHunt hunt = treasureHuntRepository.lookup(id);
-        huntForm.fill(hunt);
         Integer profId = SessionController.getCurrentUserId(request);
-        List<TreasureHunt> availableHunts = treasureHuntRepository.getAllActiveTreasureHunts(0);
-        List<TreasureHunt> myHunts = treasureHuntRepository.getAllUserTreasureHunts(profId);
-        return profileRepository.findById(profId).thenApplyAsync(profile -> profile.map(profile1 ->
-                ok(treasureHunts.render(profile1, availableHunts, myHunts, destinationRepository.getAllFollowedOrOwnedDestinations(profId), huntForm, new RoutedObject<TreasureHunt>(hunt, true, true), new PaginationHelper(0, 0, 0,true, true, 0), request, messagesApi.preferred(request)))).orElseGet(() -> redirect("/login")));
+        return profileRepository.findById(profId).thenApplyAsync(profile -> {
+            TreasureHunt hunt = treasureHuntRepository.lookup(id);
+            huntForm.fill(hunt);
+            List<TreasureHunt> availableHunts = treasureHuntRepository.getAllActiveTreasureHunts(0);
+            List<TreasureHunt> myHunts = treasureHuntRepository.getAllUserTreasureHunts(profId);
+            return profile.map(profile1 ->
+                ok(treasureHunts.render(profile1, availableHunts, myHunts, destinationRepository.getAllFollowedOrOwnedDestinations(profId), huntForm, new RoutedObject<TreasureHunt>(hunt, true, true), new PaginationHelper(0, 0, 0,true, true, 0), request, messagesApi.preferred(request)))).orElseGet(() -> redirect("/login"));
+        }, databaseExecutionContext);
     }
 
     /**
@@ -5,14 +5,15 @@ import models.*;
 import play.data.Form;
 import play.data.FormFactory;
 import play.i18n.MessagesApi;
+import play.libs.concurrent.HttpExecutionContext;
 import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.Security;
+import repository.DatabaseExecutionContext;
 import repository.DestinationRepository;
 import repository.ProfileRepository;
 import repository.TripRepository;
-import repository.UndoStackRepository;
 import views.html.tripsCard;
 import views.html.tripsCreate;
 import views.html.tripsEdit;
@@ -38,7 +39,8 @@ public class TripsController extends Controller {
     private final TripRepository tripRepository;
     private final ProfileRepository profileRepository;
     private final DestinationRepository destinationRepository;
-    private final UndoStackRepository undoStackRepository;
+    private final DatabaseExecutionContext databaseExecutionContext;
+    private final HttpExecutionContext httpExecutionContext;
     private boolean showEmptyEdit = false;
     private String tripName;
 
@@ -50,7 +52,7 @@ public class TripsController extends Controller {
     @Inject
     public TripsController(FormFactory formFactory, TripRepository tripRepository, MessagesApi messagesApi,
                            ProfileRepository profileRepository, DestinationRepository destinationRepository,
-                           UndoStackRepository undoStackRepository) {
+                           DatabaseExecutionContext databaseExecutionContext, HttpExecutionContext httpExecutionContext) {
         this.form = formFactory.form(Trip.class);
         this.tripRepository = tripRepository;
         this.messagesApi = messagesApi;
@@ -59,8 +61,8 @@ public class TripsController extends Controller {
         this.orderedCurrentDestinations = new TreeMap<>();
         this.profileRepository = profileRepository;
         this.destinationRepository = destinationRepository;
-        this.undoStackRepository = undoStackRepository;
-
+        this.databaseExecutionContext = databaseExecutionContext;
+        this.httpExecutionContext = httpExecutionContext;
     }
 
     /**
@@ -74,8 +76,7 @@ public class TripsController extends Controller {
         tripName = "";
         return profileRepository.findById(profId).thenApplyAsync(profile -> {
             if (profile.isPresent()) {
-                undoStackRepository.clearStackOnAllowed(profile.get());
-                PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, tripRepository.getNumTrips());
+                PaginationHelper paginationHelper = new PaginationHelper(offset, offset, offset, true, true, tripRepository.getCachedNumTrips());
                 paginationHelper.alterNext(9);
                 paginationHelper.alterPrevious(9);
                 paginationHelper.checkButtonsEnabled();
@@ -97,7 +98,7 @@ public class TripsController extends Controller {
         } else {
                 return redirect("/profile");
             }
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -135,7 +136,7 @@ public class TripsController extends Controller {
                 destinationsList = destinationRepository.getAllFollowedOrOwnedDestinations(profile.get().getProfileId());
                 return ok(tripsCreate.render(form, formTrip, getCurrentDestinations(), destinationsList, profile.get(), null, userId, tripName, request, messagesApi.preferred(request)));            }
             return redirect(tripsEndPoint);
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -165,7 +166,7 @@ public class TripsController extends Controller {
                 return ok(tripsEdit.render(tripForm, formTrip, getCurrentDestinations(), destinationsList, profile.get(), id, null, userId, tripName, request, messagesApi.preferred(request)));
             }
             return redirect("/trips/0");
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -349,8 +350,7 @@ public class TripsController extends Controller {
     @Security.Authenticated(SecureSession.class)
     public CompletionStage<Result> delete(Integer tripId) {
         return tripRepository.delete(tripId).thenApplyAsync(v ->
-             redirect(tripsEndPoint)
-        );
+             redirect(tripsEndPoint), httpExecutionContext.current());
     }
 
     /**
@@ -451,7 +451,7 @@ public class TripsController extends Controller {
             } else {
                 return redirect("/trips/0");
             }
-        });
+        }, databaseExecutionContext);
     }
 
     /**
@@ -472,7 +472,7 @@ public class TripsController extends Controller {
             } else {
                 return redirect("/profile");
             }
-        });
+        }, databaseExecutionContext);
     }
 
 
@@ -19,6 +19,10 @@ public class ArtistGenre {
         this.genreId = genreId;
     }
 
+    public int getArtistId() {
+        return artistId;
+    }
+
     public int getGenreId() {
         return genreId;
     }
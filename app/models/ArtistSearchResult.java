@@ -0,0 +1,29 @@
+package models;
+
+import java.util.List;
+
+/**
+ * One page of an artist search along with how many artists matched in total
+ */
+public class ArtistSearchResult {
+
+    private final List<Artist> artists;
+    private final int total;
+
+    /**
+     * @param artists the artists in the page
+     * @param total number of artists matching the search, across every page
+     */
+    public ArtistSearchResult(List<Artist> artists, int total) {
+        this.artists = artists;
+        this.total = total;
+    }
+
+    public List<Artist> getArtists() {
+        return artists;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,30 @@
+package models;
+
+import java.util.List;
+
+/**
+ * The destinations inside a map viewport along with how many there are in total, which is more than the
+ * destinations given when the viewport holds more than the limit asked for
+ */
+public class DestinationAreaResult {
+
+    private final List<Destination> destinations;
+    private final int total;
+
+    /**
+     * @param destinations the destinations given back
+     * @param total number of destinations inside the viewport
+     */
+    public DestinationAreaResult(List<Destination> destinations, int total) {
+        this.destinations = destinations;
+        this.total = total;
+    }
+
+    public List<Destination> getDestinations() {
+        return destinations;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
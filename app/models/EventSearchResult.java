@@ -0,0 +1,43 @@
+package models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of an event search along with how many events matched in total and how those matches break down
+ * by genre, type, artist, destination and age restriction
+ */
+public class EventSearchResult {
+
+    private final List<Events> events;
+    private final int total;
+    private final Map<String, Map<Integer, Integer>> facets;
+
+    /**
+     * @param events the events in the page
+     * @param total number of events matching the search, across every page
+     * @param facets facet name to the number of matching events for each id under it
+     */
+    public EventSearchResult(List<Events> events, int total, Map<String, Map<Integer, Integer>> facets) {
+        this.events = events;
+        this.total = total;
+        this.facets = facets;
+    }
+
+    public List<Events> getEvents() {
+        return events;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @param facet one of genre, type, artist, destination or ageRestriction
+     * @return id to the number of matching events with that id, empty if nothing matched
+     */
+    public Map<Integer, Integer> getFacet(String facet) {
+        return facets.getOrDefault(facet, Collections.emptyMap());
+    }
+}
@@ -0,0 +1,46 @@
+package models;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated list along with the cursor tokens for the pages either side of it
+ *
+ * @param <T> type of the items in the page
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    /**
+     * @param items the items in the page
+     * @param nextCursor token for the next page, null if this is the last page
+     * @param previousCursor token for the previous page, null if this is the first page
+     */
+    public KeysetPage(List<T> items, String nextCursor, String previousCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
@@ -0,0 +1,84 @@
+package models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position in a keyset paginated list. A cursor points either after or before the row with the given
+ * sort key and id, and is passed between requests as an opaque url safe token.
+ */
+public class PageCursor {
+
+    private static final String VERSION = "v1";
+
+    private final long sortKey;
+    private final int id;
+    private final boolean before;
+
+    private PageCursor(long sortKey, int id, boolean before) {
+        this.sortKey = sortKey;
+        this.id = id;
+        this.before = before;
+    }
+
+    /**
+     * Cursor for the page that follows the given row
+     * @param sortKey value of the sort column of the row, dates as epoch millis
+     * @param id database id of the row
+     * @return the cursor
+     */
+    public static PageCursor after(long sortKey, int id) {
+        return new PageCursor(sortKey, id, false);
+    }
+
+    /**
+     * Cursor for the page that comes before the given row
+     * @param sortKey value of the sort column of the row, dates as epoch millis
+     * @param id database id of the row
+     * @return the cursor
+     */
+    public static PageCursor before(long sortKey, int id) {
+        return new PageCursor(sortKey, id, true);
+    }
+
+    /**
+     * Reads a cursor back from a token made by encode
+     * @param token the token, may be null or empty for the first page
+     * @return Optional of the cursor, empty if there is no token or it is not valid
+     */
+    public static Optional<PageCursor> decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 4 || !parts[0].equals(VERSION) || !(parts[1].equals("a") || parts[1].equals("b"))) {
+                return Optional.empty();
+            }
+            return Optional.of(new PageCursor(Long.parseLong(parts[2]), Integer.parseInt(parts[3]), parts[1].equals("b")));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the cursor as an opaque url safe token
+     */
+    public String encode() {
+        String raw = VERSION + ":" + (before ? "b" : "a") + ":" + sortKey + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getSortKey() {
+        return sortKey;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isBefore() {
+        return before;
+    }
+}
@@ -12,6 +12,8 @@ public class PaginationHelper {
     private boolean nextEnabled ;
     private boolean previousEnabled ;
     private int maxSize;
+    private String nextCursor;
+    private String previousCursor;
 
     public PaginationHelper(){
     }
@@ -96,6 +98,26 @@ public class PaginationHelper {
         this.previousEnabled = previousEnabled;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * Takes the next and previous cursors from a keyset page so the front end can link to the pages either side
+     * The buttons are enabled from the page itself rather than from the total count
+     * @param page the page being shown
+     */
+    public void setCursors(KeysetPage<?> page) {
+        nextCursor = page.getNextCursor();
+        previousCursor = page.getPreviousCursor();
+        nextEnabled = page.hasNext();
+        previousEnabled = page.hasPrevious();
+    }
+
     /**
      * Forms an info string to show to the user
      * Has info on what entries are being showed and total number of entries
@@ -3,7 +3,6 @@ package models;
 import com.google.common.collect.TreeMultimap;
 import io.ebean.Finder;
 import io.ebean.Model;
-import org.mindrot.jbcrypt.BCrypt;
 import play.data.format.Formats;
 import play.data.validation.Constraints;
 
@@ -220,13 +219,12 @@ public class Profile extends Model {
     }
 
     /**
-     * Hashes that users password and sets hash to password attribute
-     * @param password password to hash
+     * Sets the plain text password from the signup form. It is hashed on the password hashing pool by
+     * ProfileRepository.insert before it is stored, so binding the form does no hashing on the request thread.
+     * @param password the plain text password
      */
     public void setPassword(String password) {
-        //Hash the password for added security
-         String passwordHash = BCrypt.hashpw(password, "$2a$12$nODuNzk9U7Hrq6DgspSp4.");
-         this.password = passwordHash;
+        this.password = password;
     }
 
     public void setGender(String gender) {
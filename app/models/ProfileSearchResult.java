@@ -0,0 +1,29 @@
+package models;
+
+import java.util.List;
+
+/**
+ * One page of a traveller partner search along with how many profiles matched in total
+ */
+public class ProfileSearchResult {
+
+    private final List<Profile> profiles;
+    private final int total;
+
+    /**
+     * @param profiles the profiles in the page
+     * @param total number of profiles matching the search, across every page
+     */
+    public ProfileSearchResult(List<Profile> profiles, int total) {
+        this.profiles = profiles;
+        this.total = total;
+    }
+
+    public List<Profile> getProfiles() {
+        return profiles;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -22,7 +22,13 @@ public class ArtistRepository {
     private final DatabaseExecutionContext executionContext;
     private final PassportCountryRepository passportCountryRepository;
     private final GenreRepository genreRepository;
+    private final ReferenceDataCache referenceData;
+    private final ArtistSearchIndex searchIndex;
     private static final int PAGE_SIZE = 10;
+    private final CachedCount artistCount;
+
+    private static final KeysetPaginator<Artist> ARTIST_PAGINATOR =
+            new KeysetPaginator<>("artist_id", Artist::getArtistId);
     /**
      * Ebeans injector constructor method for Artist repository.
      *
@@ -37,6 +43,9 @@ public class ArtistRepository {
         this.executionContext = executionContext;
         this.passportCountryRepository = new PassportCountryRepository(ebeanConfig, executionContext);
         this.genreRepository = new GenreRepository(ebeanConfig, executionContext);
+        this.referenceData = ReferenceDataCache.getInstance(ebeanServer);
+        this.searchIndex = ArtistSearchIndex.getInstance(ebeanServer);
+        this.artistCount = CachedCount.getInstance(ebeanServer, "verifiedArtists", this::getNumArtists, 30000);
     }
 
 
@@ -50,12 +59,7 @@ public class ArtistRepository {
                 .where()
                 .eq("soft_delete", 0)
                 .findList());
-        List<Artist> outputList = new ArrayList<>();
-        for( Artist artist : artistList) {
-            artist.setGenre(new ArrayList<>());
-            outputList.add(populateArtistAdmin(artist));
-        }
-        return outputList;
+        return populateArtistsAdmin(artistList);
     }
 
     /**
@@ -90,16 +94,36 @@ public class ArtistRepository {
      * @return List of artists linked to the event
      */
     public List<Artist> getEventArtists(int eventId) {
-        List<EventArtists> eventArtists = ebeanServer.find(EventArtists.class).where().eq("event_id", eventId).findList();
-        List<Artist> artists = new ArrayList<>();
-        Optional<Artist> artist;
-        for (EventArtists eventArtist : eventArtists) {
-            artist = Optional.ofNullable(ebeanServer.find(Artist.class).where().eq("artist_id", eventArtist.getArtistId()).findOne());
-            if(artist.isPresent()) {
-                artists.add(populateArtistAdmin(artist.get()));
+        return getEventArtists(Collections.singletonList(eventId)).get(eventId);
+    }
+
+    /**
+     * Get all artists for a group of events, loading the links with one query and the
+     * artists through the batch loader
+     * @param eventIds ids of the events
+     * @return Map of event id to the list of artists linked to that event
+     */
+    public Map<Integer, List<Artist>> getEventArtists(Collection<Integer> eventIds) {
+        Map<Integer, List<Artist>> eventArtists = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return eventArtists;
+        }
+        List<EventArtists> links = ebeanServer.find(EventArtists.class).where().in("event_id", eventIds).findList();
+        Set<Integer> artistIds = new HashSet<>();
+        for (EventArtists link : links) {
+            artistIds.add(link.getArtistId());
+        }
+        Map<Integer, Artist> artists = getArtistsByIds(artistIds);
+        for (Integer eventId : eventIds) {
+            eventArtists.put(eventId, new ArrayList<>());
+        }
+        for (EventArtists link : links) {
+            Artist artist = artists.get(link.getArtistId());
+            if (artist != null) {
+                eventArtists.get(link.getEventId()).add(artist);
             }
         }
-        return (artists);
+        return eventArtists;
     }
 
 
@@ -115,6 +139,7 @@ public class ArtistRepository {
     public CompletionStage<Integer> insert(Artist artist) {
         return supplyAsync(() -> {
             ebeanServer.insert(artist);
+            artistCount.invalidate();
             return artist.getArtistId();
         }, executionContext);
     }
@@ -141,6 +166,7 @@ public class ArtistRepository {
     public CompletionStage<Integer> insertProfileLink(ArtistProfile artistProfile) {
         return supplyAsync(() -> {
             ebeanServer.insert(artistProfile);
+            refreshSearchIndex(artistProfile.getAPArtistId());
             return artistProfile.getAPArtistId();
         }, executionContext);
     }
@@ -152,13 +178,8 @@ public class ArtistRepository {
      * @return Artist that has had genre and country added
      */
     public Artist populateArtistAdmin(Artist artist) {
-
-        artist = populateArtist(artist);
-        List<Integer> linkIds = ebeanServer.find(ArtistProfile.class).select("profileId").where().eq("artist_id", artist.getArtistId()).findSingleAttributeList();
-        if (!linkIds.isEmpty()) {
-            artist.setAdminsList(ebeanServer.find(Profile.class).where().idIn(linkIds).findList());
-        } else {
-            artist.setAdminsList(new ArrayList<>());
+        if (artist != null) {
+            populateArtistsAdmin(Collections.singletonList(artist));
         }
         return artist;
     }
@@ -169,37 +190,133 @@ public class ArtistRepository {
      * @return Artist that has had genre and country added
      */
     public Artist populateArtist(Artist artist) {
-     Map<Integer, PassportCountry> countries = new HashMap<>();
-     Optional<Map<Integer, PassportCountry>> countryMap = getCountryList(artist.getArtistId());
-     if (countryMap.isPresent()) {
-       countries = countryMap.get();
-     }
+        populateArtists(Collections.singletonList(artist));
+        return artist;
+    }
+
+    /**
+     * Batch loader that returns fully populated artists (including admins) for a collection of artist ids
+     * @param artistIds ids of the artists to load
+     * @return Map of artist id to the populated artist
+     */
+    public Map<Integer, Artist> getArtistsByIds(Collection<Integer> artistIds) {
+        Map<Integer, Artist> artists = new HashMap<>();
+        if (artistIds.isEmpty()) {
+            return artists;
+        }
+        for (Artist artist : populateArtistsAdmin(ebeanServer.find(Artist.class).where().idIn(artistIds).findList())) {
+            artists.put(artist.getArtistId(), artist);
+        }
+        return artists;
+    }
+
+    /**
+     * Method to populate a list of artists with their linking table data and admins.
+     * Admins are loaded with one query for the links and one for the profiles
+     * @param artists Artists to be have added linking table data
+     * @return the same list of artists, now populated
+     */
+    public List<Artist> populateArtistsAdmin(List<Artist> artists) {
+        populateArtists(artists);
+        if (artists.isEmpty()) {
+            return artists;
+        }
+        Map<Integer, Artist> artistMap = toArtistMap(artists);
+        List<ArtistProfile> links = ebeanServer.find(ArtistProfile.class).where().in("artist_id", artistMap.keySet()).findList();
+        Set<Integer> profileIds = new HashSet<>();
+        for (ArtistProfile link : links) {
+            if (link.getAPProfileId() != null) {
+                profileIds.add(link.getAPProfileId());
+            }
+        }
+        Map<Integer, Profile> profiles = new HashMap<>();
+        if (!profileIds.isEmpty()) {
+            profiles = ebeanServer.find(Profile.class).where().idIn(profileIds).findMap();
+        }
+        Map<Integer, List<Profile>> admins = new HashMap<>();
+        for (Integer artistId : artistMap.keySet()) {
+            admins.put(artistId, new ArrayList<>());
+        }
+        for (ArtistProfile link : links) {
+            Profile profile = profiles.get(link.getAPProfileId());
+            if (profile != null) {
+                admins.get(link.getAPArtistId()).add(profile);
+            }
+        }
+        for (Artist artist : artists) {
+            artist.setAdminsList(admins.get(artist.getArtistId()));
+        }
+        return artists;
+    }
+
+    /**
+     * Method to populate a list of artists with all linking table data eg genre, country and follower count.
+     * Each linking table is read with a single IN query for the whole list, and follower counts come
+     * from one GROUP BY query, so the cost does not grow with the number of artists
+     * @param artists Artists to be have added linking table data
+     * @return the same list of artists, now populated
+     */
+    public List<Artist> populateArtists(List<Artist> artists) {
+        if (artists.isEmpty()) {
+            return artists;
+        }
+        Map<Integer, Artist> artistMap = toArtistMap(artists);
+        Set<Integer> artistIds = artistMap.keySet();
+
+        Map<Integer, Map<Integer, PassportCountry>> countries = new HashMap<>();
+        Map<Integer, List<MusicGenre>> genres = new HashMap<>();
+        Map<Integer, Integer> followers = new HashMap<>();
+        for (Integer artistId : artistIds) {
+            countries.put(artistId, new TreeMap<>());
+            genres.put(artistId, new ArrayList<>());
+            followers.put(artistId, 0);
+        }
 
-     artist.setCountry(countries);
-        Optional<List<MusicGenre>> genreList = genreRepository.getArtistGenres(artist.getArtistId());
-        if(genreList.isPresent() && !genreList.get().isEmpty()) {
-            artist.setGenre(genreList.get());
+        List<ArtistCountry> countryLinks = ebeanServer.find(ArtistCountry.class).where().in("artist_id", artistIds).findList();
+        Map<Integer, PassportCountry> passportCountries = referenceData.getPassportCountries().getAll();
+        for (ArtistCountry link : countryLinks) {
+            PassportCountry country = passportCountries.get(link.getCountryId());
+            if (country != null) {
+                countries.get(link.getArtistId()).put(link.getCountryId(), country);
+            }
         }
 
-        artist.setFollowerCount(getNumFollowers(artist.getArtistId()));
+        List<ArtistGenre> genreLinks = ebeanServer.find(ArtistGenre.class).where().in("artist_id", artistIds).findList();
+        Map<Integer, MusicGenre> musicGenres = referenceData.getGenres().getAll();
+        for (ArtistGenre link : genreLinks) {
+            MusicGenre genre = musicGenres.get(link.getGenreId());
+            if (genre != null) {
+                genres.get(link.getArtistId()).add(genre);
+            }
+        }
 
-        return artist;
+        String followerQuery = "SELECT artist_id, COUNT(*) AS followers FROM follow_artist WHERE artist_id IN ("
+                + QueryHelper.placeholders(artistIds.size()) + ") GROUP BY artist_id";
+        SqlQuery sqlQuery = ebeanServer.createSqlQuery(followerQuery);
+        QueryHelper.bindAll(sqlQuery, artistIds, 1);
+        for (SqlRow row : sqlQuery.findList()) {
+            followers.put(row.getInteger("artist_id"), row.getInteger("followers"));
+        }
+
+        for (Artist artist : artists) {
+            artist.setCountry(countries.get(artist.getArtistId()));
+            artist.setGenre(genres.get(artist.getArtistId()));
+            artist.setFollowerCount(followers.get(artist.getArtistId()));
+        }
+        return artists;
     }
+
     /**
-     * Helper function to get country of an artist
-     * @param artistId id of the artist to find country for
-     * @return country if one is present as an Optional
+     * Helper function to key a list of artists by their id
+     * @param artists artists to key
+     * @return Map of artist id to artist
      */
-    private Optional<Map<Integer, PassportCountry>> getCountryList(Integer artistId) {
-        String qry = "Select * from artist_country where artist_id = ?";
-        List<SqlRow> rowList = ebeanServer.createSqlQuery(qry).setParameter(1, artistId).findList();
-        Map<Integer, PassportCountry> country = new TreeMap<>();
-        Optional<PassportCountry> countryName;
-        for (SqlRow aRowList : rowList) {
-            countryName = passportCountryRepository.findById(aRowList.getInteger("country_id"));
-            countryName.ifPresent(passportCountry -> country.put(aRowList.getInteger("country_id"), passportCountry));
+    private Map<Integer, Artist> toArtistMap(List<Artist> artists) {
+        Map<Integer, Artist> artistMap = new LinkedHashMap<>();
+        for (Artist artist : artists) {
+            artistMap.put(artist.getArtistId(), artist);
         }
-        return Optional.of(country);
+        return artistMap;
     }
 
 
@@ -235,8 +352,10 @@ public class ArtistRepository {
     public CompletionStage<Void> setArtistAsVerified(int artistId) {
         return supplyAsync(() -> {
             ebeanServer.update(Artist.class).set("verified", 1).where().eq("artist_id", Integer.toString(artistId)).update();
+            refreshSearchIndex(artistId);
+            artistCount.invalidate();
             return null;
-        });
+        }, executionContext);
     }
 
     /**
@@ -246,16 +365,12 @@ public class ArtistRepository {
      */
     public List<Artist> getPagedArtists(int page) {
 
-        List <Artist> returnArtistList = new ArrayList<>();
         List<Artist> artistList = ebeanServer.find(Artist.class).where()
                 .setFirstRow(page * PAGE_SIZE)
                 .setMaxRows(PAGE_SIZE)
                 .orderBy("artist_name asc")
                 .findPagedList().getList();
-        for(Artist artist : artistList) {
-            returnArtistList.add(populateArtist(artist));
-        }
-        return artistList;
+        return populateArtists(new ArrayList<>(artistList));
     }
 
 
@@ -270,8 +385,10 @@ public class ArtistRepository {
     public CompletionStage<Void> deleteArtist(int artistId) {
         return supplyAsync(() -> {
             ebeanServer.find(Artist.class).where().eq("artist_id", Integer.toString(artistId)).delete();
+            refreshSearchIndex(artistId);
+            artistCount.invalidate();
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -285,8 +402,9 @@ public class ArtistRepository {
     public CompletionStage<Void> addProfileToArtist(int artistId, int profileId) {
         return supplyAsync(() -> {
             ebeanServer.insert(new ArtistProfile(artistId, profileId));
+            refreshSearchIndex(artistId);
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -305,8 +423,9 @@ public class ArtistRepository {
                     .eq("profile_id", profileId)
                     .delete();
             checkToDeleteArtist(artistId);
+            refreshSearchIndex(artistId);
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -319,6 +438,7 @@ public class ArtistRepository {
         List<Integer> admins = ebeanServer.find(ArtistProfile.class).select("profileId").where().eq("artist_id", artistId).findSingleAttributeList();
         if (admins.isEmpty() || admins == null) {
             ebeanServer.find(Artist.class).where().eq("artist_id", artistId).delete();
+            artistCount.invalidate();
         }
     }
 
@@ -382,8 +502,9 @@ public class ArtistRepository {
             query.setParameter(1, profileId);
             query.setParameter(2, artId);
             query.execute();
+            searchIndex.follow(artId, profileId, true);
             return getFollowedArtistIds(profileId);
-        });
+        }, executionContext);
     }
 
     /**
@@ -400,8 +521,9 @@ public class ArtistRepository {
             query.setParameter(1, profileId);
             query.setParameter(2, artId);
             query.execute();
+            searchIndex.follow(artId, profileId, false);
             return getFollowedArtistIds(profileId);
-        });
+        }, executionContext);
     }
 
     /**
@@ -415,31 +537,37 @@ public class ArtistRepository {
     public CompletionStage<Integer> editArtistProfile(Integer artistId, Artist newArtist, Form<Artist> artistForm, Integer currentUserId) {
         return supplyAsync(() -> {
             Transaction txn = ebeanServer.beginTransaction();
-            Artist targetArtist = ebeanServer.find(Artist.class).setId(artistId).findOne();
-            if (targetArtist != null) {
-                targetArtist.setArtistName(newArtist.getArtistName());
-                targetArtist.setBiography(newArtist.getBiography());
-                targetArtist.setMembers(newArtist.getMembers());
-                targetArtist.setFacebookLink(newArtist.getFacebookLink());
-                targetArtist.setSpotifyLink(newArtist.getSpotifyLink());
-                targetArtist.setWebsiteLink(newArtist.getWebsiteLink());
-                targetArtist.setInstagramLink(newArtist.getInstagramLink());
-                targetArtist.setTwitterLink(newArtist.getTwitterLink());
-                targetArtist.update();
-                txn.commit();
-
-                newArtist.setArtistId(artistId);
-                deleteAllSpecifiedEntriesForAnArtist(artistId, "artist_country");
-                deleteAllSpecifiedEntriesForAnArtist(artistId, "artist_genre");
-                deleteAllSpecifiedEntriesForAnArtist(artistId, "artist_profile");
+            boolean updated = false;
+            try {
+                Artist targetArtist = ebeanServer.find(Artist.class).setId(artistId).findOne();
+                if (targetArtist != null) {
+                    targetArtist.setArtistName(newArtist.getArtistName());
+                    targetArtist.setBiography(newArtist.getBiography());
+                    targetArtist.setMembers(newArtist.getMembers());
+                    targetArtist.setFacebookLink(newArtist.getFacebookLink());
+                    targetArtist.setSpotifyLink(newArtist.getSpotifyLink());
+                    targetArtist.setWebsiteLink(newArtist.getWebsiteLink());
+                    targetArtist.setInstagramLink(newArtist.getInstagramLink());
+                    targetArtist.setTwitterLink(newArtist.getTwitterLink());
+                    targetArtist.update();
 
-                saveAdminArtistCountries(newArtist);
-                saveAdminArtistGenres(newArtist, artistForm);
-                saveAdminArtistAdmins(newArtist, artistForm, currentUserId);
+                    newArtist.setArtistId(artistId);
+                    LinkBatch links = new LinkBatch();
+                    saveAdminArtistCountries(newArtist, links);
+                    saveAdminArtistGenres(newArtist, artistForm, links);
+                    saveAdminArtistAdmins(newArtist, artistForm, currentUserId, links);
+                    links.execute(ebeanServer);
+                    updated = true;
+                }
+                txn.commit();
+            } finally {
+                txn.end();
+            }
+            if (updated) {
+                refreshSearchIndex(artistId);
             }
-
             return artistId;
-        });
+        }, executionContext);
     }
 
     /**
@@ -451,79 +579,130 @@ public class ArtistRepository {
      * @return List of artists
      */
     public List<Artist> searchArtist(String name, String genre, String country, int followed, int created, int userId){
-        if(name.equals("") && genre.equals("") && country.equals("") && followed == 0 && created == 0) {
-            return getAllArtists();
+        return searchArtistPage(name, genre, country, followed, created, userId, 0, 100).getArtists();
+    }
+
+    /**
+     * Searches the verified artists using the in memory search index. Only the page of artists found is read
+     * from the database. With no filters at all every artist is paged through, as getAllArtists returns.
+     * @param name part of the artist name, empty for any
+     * @param genre name of a genre of the artist, empty for any
+     * @param country name of a country of the artist, empty for any
+     * @param followed 1 to only find artists the user follows
+     * @param created 1 to only find artists the user is an admin of
+     * @param userId id of the user searching
+     * @param offset number of matching artists to skip
+     * @param pageSize most artists to return
+     * @return the page of artists along with the total number of matches
+     */
+    public ArtistSearchResult searchArtistPage(String name, String genre, String country, int followed, int created,
+                                               int userId, int offset, int pageSize) {
+        if (name.equals("") && genre.equals("") && country.equals("") && followed == 0 && created == 0) {
+            PagedList<Artist> allArtists = ebeanServer.find(Artist.class).where()
+                    .eq("soft_delete", 0)
+                    .orderBy("artist_name asc")
+                    .setFirstRow(offset)
+                    .setMaxRows(pageSize)
+                    .findPagedList();
+            return new ArtistSearchResult(populateArtistsAdmin(new ArrayList<>(allArtists.getList())),
+                    allArtists.getTotalCount());
         }
-        String queryString = "SELECT DISTINCT artist.artist_id, artist.artist_name, artist.biography, artist.facebook_link, artist.instagram_link, artist.spotify_link, artist.twitter_link, artist.website_link, artist.soft_delete FROM artist " +
-                "LEFT OUTER JOIN artist_genre ON artist_genre.artist_id = artist.artist_id " +
-                "LEFT OUTER JOIN music_genre ON music_genre.genre_id = artist_genre.genre_id " +
-                "LEFT OUTER JOIN artist_country ON artist_country.artist_id = artist.artist_id " +
-                "LEFT OUTER JOIN passport_country ON passport_country.passport_country_id = artist_country.country_id " +
-                "LEFT OUTER JOIN artist_profile ON artist.artist_id = artist_profile.artist_id " +
-                "LEFT OUTER JOIN follow_artist ON artist.artist_id = follow_artist.artist_id " +
-                "WHERE artist.verified = 1 ";
-        boolean namePresent = true;
-        boolean genrePresent = false;
-        boolean countryPresent = false;
-        if (!name.equals("")){
-            queryString += "AND artist_name LIKE ? ";
-            namePresent = true;
+        searchIndex.ensureLoaded(() -> loadSearchDocs(null), this::loadFollowers);
+        ArtistSearchIndex.Query query = new ArtistSearchIndex.Query();
+        if (!name.equals("")) {
+            query.name(name);
         }
-        if (!genre.equals("")){
-            queryString += "AND genre = ? ";
+        if (!genre.equals("")) {
+            query.genre(genre);
         }
-        if (!country.equals("")){
-            queryString += "AND passport_name = ? ";
-
+        if (!country.equals("")) {
+            query.country(country);
         }
-
-        if (followed == 1){
-            queryString += "AND follow_artist.profile_id = ? ";
+        if (followed == 1) {
+            query.followedBy(userId);
         }
-
-        if (created == 1){
-            queryString += "AND artist_profile.profile_id = ? ";
+        if (created == 1) {
+            query.adminOf(userId);
         }
-        queryString += "LIMIT 100";
-
-        int numberAdd = 0;
+        ArtistSearchIndex.Result result = searchIndex.search(query, offset, pageSize);
+        List<Artist> artists = new ArrayList<>();
+        if (!result.getArtistIds().isEmpty()) {
+            Map<Integer, Artist> found = toArtistMap(ebeanServer.find(Artist.class).where()
+                    .idIn(result.getArtistIds()).findList());
+            for (Integer artistId : result.getArtistIds()) {
+                if (found.containsKey(artistId)) {
+                    artists.add(found.get(artistId));
+                }
+            }
+        }
+        return new ArtistSearchResult(populateArtists(artists), result.getTotal());
+    }
 
-        SqlQuery sqlQuery = ebeanServer.createSqlQuery(queryString);
-        if (!name.equals("")){
-            sqlQuery.setParameter(numberAdd + 1, "%" + name + "%");
-            numberAdd++;
+    /**
+     * Reads what the search index holds for verified artists which have not been deleted
+     * @param artistIds ids of the artists to read, null for every artist
+     * @return the search index entries
+     */
+    private List<ArtistSearchIndex.Doc> loadSearchDocs(Collection<Integer> artistIds) {
+        if (artistIds != null && artistIds.isEmpty()) {
+            return Collections.emptyList();
         }
-        if (!genre.equals("")){
-            sqlQuery.setParameter(numberAdd + 1,genre);
-            numberAdd++;
+        String artistFilter = artistIds == null ? "" : " AND artist_id IN (" + QueryHelper.placeholders(artistIds.size()) + ")";
+        Map<Integer, ArtistSearchIndex.Doc> docs = new HashMap<>();
+        for (SqlRow row : searchRows("SELECT artist_id, artist_name FROM artist WHERE verified = 1 AND soft_delete = 0"
+                + artistFilter, artistIds)) {
+            docs.put(row.getInteger("artist_id"), new ArtistSearchIndex.Doc(row.getInteger("artist_id"),
+                    row.getString("artist_name")));
         }
-        if (!country.equals("")){
-            sqlQuery.setParameter(numberAdd + 1,country);
-            numberAdd++;
+        for (SqlRow row : searchRows("SELECT artist_id, genre FROM artist_genre JOIN music_genre " +
+                "ON music_genre.genre_id = artist_genre.genre_id WHERE 1 = 1" + artistFilter, artistIds)) {
+            ArtistSearchIndex.Doc doc = docs.get(row.getInteger("artist_id"));
+            if (doc != null) {
+                doc.addGenre(row.getString("genre"));
+            }
         }
-
-        if (followed == 1){
-            sqlQuery.setParameter(numberAdd + 1,userId);
-            numberAdd++;
+        for (SqlRow row : searchRows("SELECT artist_id, passport_name FROM artist_country JOIN passport_country " +
+                "ON passport_country.passport_country_id = artist_country.country_id WHERE 1 = 1" + artistFilter, artistIds)) {
+            ArtistSearchIndex.Doc doc = docs.get(row.getInteger("artist_id"));
+            if (doc != null) {
+                doc.addCountry(row.getString("passport_name"));
+            }
+        }
+        for (SqlRow row : searchRows("SELECT artist_id, profile_id FROM artist_profile WHERE profile_id IS NOT NULL"
+                + artistFilter, artistIds)) {
+            ArtistSearchIndex.Doc doc = docs.get(row.getInteger("artist_id"));
+            if (doc != null) {
+                doc.addAdmin(row.getInteger("profile_id"));
+            }
         }
+        return new ArrayList<>(docs.values());
+    }
 
-        if (created == 1){
-            sqlQuery.setParameter(numberAdd + 1,userId);
+    /**
+     * @return every follow, as artist id to the ids of the profiles following that artist
+     */
+    private Map<Integer, List<Integer>> loadFollowers() {
+        Map<Integer, List<Integer>> followers = new HashMap<>();
+        for (SqlRow row : ebeanServer.createSqlQuery("SELECT artist_id, profile_id FROM follow_artist").findList()) {
+            followers.computeIfAbsent(row.getInteger("artist_id"), key -> new ArrayList<>()).add(row.getInteger("profile_id"));
         }
+        return followers;
+    }
 
-        List<SqlRow> foundRows = sqlQuery.findList();
-        List<Artist> foundArtists = new ArrayList<>();
-        if (!foundRows.isEmpty()){
-            for (SqlRow sqlRow : foundRows){
-                foundArtists.add(populateArtist(new Artist(sqlRow.getInteger("artist_id"), sqlRow.getString("artist_name")
-                        , sqlRow.getString("biography"), sqlRow.getString("facebook_link")
-                        , sqlRow.getString("instagram_link"), sqlRow.getString("spotify_link")
-                        , sqlRow.getString("twitter_link"), sqlRow.getString("website_link")
-                        , sqlRow.getInteger("soft_delete")
-                        , new ArrayList<>())));
-            }
+    private List<SqlRow> searchRows(String sql, Collection<Integer> artistIds) {
+        SqlQuery query = ebeanServer.createSqlQuery(sql);
+        if (artistIds != null) {
+            QueryHelper.bindAll(query, artistIds, 1);
         }
-        return foundArtists;
+        return query.findList();
+    }
+
+    /**
+     * Brings the search index up to date with an artist after it has been written
+     * @param artistId id of the artist
+     */
+    private void refreshSearchIndex(int artistId) {
+        searchIndex.refresh(Collections.singletonList(artistId), this::loadSearchDocs);
     }
 
 
@@ -542,6 +721,8 @@ public class ArtistRepository {
                 if (targetArtist != null) {
                     targetArtist.setSoftDelete(value);
                     targetArtist.update();
+                    refreshSearchIndex(artistId);
+                    artistCount.invalidate();
                     return 1;
                 } else {
                     return 0;
@@ -563,8 +744,8 @@ public class ArtistRepository {
 
          Map<Integer, PassportCountry> passportCountries = new HashMap<>();
          for (ArtistCountry artistCountry: artistCountries) {
-             passportCountries.put(artistCountry.getCountryId(), ebeanServer.find(PassportCountry.class)
-             .where().eq("passport_country_id", artistCountry.getCountryId()).findOne());
+             passportCountries.put(artistCountry.getCountryId(),
+                     referenceData.getPassportCountries().findById(artistCountry.getCountryId()).orElse(null));
          }
          return passportCountries;
     }
@@ -576,91 +757,60 @@ public class ArtistRepository {
     public CompletionStage<Void> addCountrytoArtistCountryTable(ArtistCountry artistCountry){
         return supplyAsync(() -> {
             ebeanServer.insert(artistCountry);
+            refreshSearchIndex(artistCountry.getArtistId());
             return null;
-        });
-    }
-
-    /**
-     * Helper method that takes in a specified artist table  and artist id and deletes all entries for that particular
-     * artist in the given artist table. Used for the admin update artist.
-     *
-     * @param id the id of the artist
-     * @param table the intended artist table that all artist entries are going to be removed from
-     * @return void CompletionStage
-     */
-    private CompletionStage<Void> deleteAllSpecifiedEntriesForAnArtist(int id, String table) {
-        return supplyAsync(() -> {
-            Transaction txn = ebeanServer.beginTransaction();
-            String qry = "DELETE FROM " + table + " WHERE artist_id = ?";
-            try {
-                SqlUpdate query = Ebean.createSqlUpdate(qry);
-                query.setParameter(1, id);
-                query.execute();
-                txn.commit();
-            } finally {
-                txn.end();
-            }
-            return null;
-        });
+        }, executionContext);
     }
 
     /**
-     * Method to save a new artist object with newly set attributes from the edit artist model
+     * Method to add the changes to the countries of an artist from the edit artist model to a batch of links,
+     * creating any countries which do not exist yet
      *
      * @param newArtist the artist object to be edited
+     * @param links batch the changes are added to
      */
-    private void saveAdminArtistCountries(Artist newArtist) {
-        for (String countryName : newArtist.getCountryList()) {
-            Optional<Integer> countryObject = passportCountryRepository.getPassportCountryId(countryName);
-            if (countryObject.isPresent()) {
-                ArtistCountry artistCountry = new ArtistCountry(newArtist.getArtistId(), countryObject.get());
-                addCountrytoArtistCountryTable(artistCountry);
-            } else {
-                PassportCountry passportCountry = new PassportCountry(countryName);
-                passportCountryRepository.insert(passportCountry).thenApplyAsync(id -> {
-                    if (id.isPresent()) {
-                        ArtistCountry artistCountry = new ArtistCountry(newArtist.getArtistId(), id.get());
-                        addCountrytoArtistCountryTable(artistCountry);
-                    }
-                    return null;
-                });
-            }
-        }
+    private void saveAdminArtistCountries(Artist newArtist, LinkBatch links) {
+        links.sync(ebeanServer, "artist_country", "artist_id", newArtist.getArtistId(), "country_id",
+                passportCountryRepository.getOrCreateIds(newArtist.getCountryList()));
     }
 
     /**
-     * Method used to extract selected genres from a form binding and insert it into the artist_genre linking table
-     * for the related artist.
+     * Method used to extract selected genres from a form binding and add the changes to the artist_genre links
+     * of the related artist to a batch.
      * @param newArtist an artist object
      * @param artistProfileForm the form containing all newly input the attributes of an artist
+     * @param links batch the changes are added to
      */
-    private void saveAdminArtistGenres(Artist newArtist, Form<Artist> artistProfileForm) {
+    private void saveAdminArtistGenres(Artist newArtist, Form<Artist> artistProfileForm, LinkBatch links) {
+        List<Integer> genreIds = new ArrayList<>();
         Optional<String> optionalGenres = artistProfileForm.field("genreForm").value();
         if (optionalGenres.isPresent() && !optionalGenres.get().isEmpty()) {
             for (String genre : optionalGenres.get().split(",")) {
-                genreRepository.insertArtistGenre(newArtist.getArtistId(), parseInt(genre));
+                genreIds.add(parseInt(genre));
             }
         }
+        links.sync(ebeanServer, "artist_genre", "artist_id", newArtist.getArtistId(), "genre_id", genreIds);
     }
 
     /**
-     * Method used to extract selected artist profiles (as admins) from a form binding and insert it into the artist_profile linking table
-     * for the related artist.
+     * Method used to extract selected artist profiles (as admins) from a form binding and add the changes to the
+     * artist_profile links of the related artist to a batch. The current user is the admin if none are selected.
      * @param newArtist an artist object
      * @param artistProfileForm the form containing all newly input the attributes of an artist
+     * @param links batch the changes are added to
      */
-    private void saveAdminArtistAdmins(Artist newArtist, Form<Artist> artistProfileForm, Integer currentUserId) {
+    private void saveAdminArtistAdmins(Artist newArtist, Form<Artist> artistProfileForm, Integer currentUserId,
+                                       LinkBatch links) {
+        List<Integer> profileIds = new ArrayList<>();
         Optional<String> optionalProfiles = artistProfileForm.field("adminForm").value();
         if (optionalProfiles.isPresent() && !optionalProfiles.get().isEmpty()) {
-            //Insert ArtistProfiles for new Artist.
             for (String profileIdString : optionalProfiles.get().split(",")) {
-                Integer profileId = parseInt(profileIdString);
-                ArtistProfile artistProfile = new ArtistProfile(newArtist.getArtistId(), profileId);
-                insertProfileLink(artistProfile);
+                profileIds.add(parseInt(profileIdString));
             }
         } else {
-            insertProfileLink(new ArtistProfile(newArtist.getArtistId(), currentUserId));
+            profileIds.add(currentUserId);
         }
+        links.sync(ebeanServer, "artist_profile", "artist_id", newArtist.getArtistId(), "profile_id", profileIds);
     }
 
 
@@ -698,6 +848,16 @@ public class ArtistRepository {
         return ebeanServer.find(Artist.class).where().eq("verified", 1).eq("soft_delete", 0).findCount();
     }
 
+    /**
+     * Method to get the number of valid artist in the system, reusing the last count for up to 30 seconds
+     * Used for pagination where an exact count is not needed
+     *
+     * @return int number of artists
+     */
+    public int getCachedNumArtists() {
+        return artistCount.get();
+    }
+
     /**
      * Method to get one page worth of artists
      *
@@ -709,13 +869,24 @@ public class ArtistRepository {
      * @return List of found artists
      */
     public List<Artist> getPageArtists(Integer offset, int pageSize, int verified) {
-        List<Artist> artists = new ArrayList<>();
         List<Artist> foundArtists = ebeanServer.find(Artist.class).setMaxRows(pageSize).setFirstRow(offset)
-                .where().eq("verified", verified).eq("soft_delete", 0).findList();
-        for (Artist artist : foundArtists) {
-            artists.add(populateArtistAdmin(artist));
-        }
-        return artists;
+                .where().eq("verified", verified).eq("soft_delete", 0).orderBy("artist_id asc").findList();
+        return populateArtistsAdmin(foundArtists);
+    }
+
+    /**
+     * Method to get one page worth of artists using keyset pagination, ordered by artist id
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @param pageSize max amount to find
+     * @param verified the value specifying if the artist has been verified or not
+     * @return the page of artists with the cursors for the pages either side
+     */
+    public KeysetPage<Artist> getPageArtists(String cursor, int pageSize, int verified) {
+        KeysetPage<Artist> page = ARTIST_PAGINATOR.page(ebeanServer.find(Artist.class)
+                .where().eq("verified", verified).eq("soft_delete", 0), cursor, pageSize);
+        populateArtistsAdmin(page.getItems());
+        return page;
     }
 
     /**
@@ -0,0 +1,335 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * In memory search index over the verified artists which have not been deleted. Names are broken into
+ * trigrams so any part of a name can be found without a LIKE scan, and genres, countries, followers and
+ * admins each have a bitset of artist ids so the filters are bitset intersections. Only the ids of the
+ * requested page are handed back, the artists themselves are still read from the database.
+ *
+ * The index is filled on first use. ArtistRepository refreshes an artist whenever it is verified, edited,
+ * soft deleted, restored, deleted or has an admin added or removed, and updates the follower bitsets on
+ * follow and unfollow.
+ */
+final class ArtistSearchIndex extends InMemoryIndex<ArtistSearchIndex.Doc> {
+
+    private static final int GRAM = 3;
+
+    private static final PerServer<ArtistSearchIndex> instances = new PerServer<>(server -> new ArtistSearchIndex());
+
+    private static final Comparator<Doc> BY_NAME = Comparator
+            .comparing((Doc doc) -> doc.lowerName)
+            .thenComparingInt(doc -> doc.artistId);
+
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final NavigableSet<Doc> byName = new TreeSet<>(BY_NAME);
+    private final Map<String, BitSet> grams = new HashMap<>();
+    private final Map<String, BitSet> byGenre = new HashMap<>();
+    private final Map<String, BitSet> byCountry = new HashMap<>();
+    private final Map<Integer, BitSet> byAdmin = new HashMap<>();
+    private final Map<Integer, BitSet> byFollower = new HashMap<>();
+    private final BitSet all = new BitSet();
+
+    private ArtistSearchIndex() {
+    }
+
+    /**
+     * @param ebeanServer the ebean server the artists are read from
+     * @return the index for that server
+     */
+    static ArtistSearchIndex getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    /**
+     * Fills the index if it has not been filled yet
+     * @param loader reads every verified artist which has not been deleted
+     * @param followers reads every follow as artist id to the ids of the profiles following it
+     */
+    void ensureLoaded(Supplier<Collection<Doc>> loader, Supplier<Map<Integer, List<Integer>>> followers) {
+        load(() -> {
+            Collection<Doc> docs = loader.get();
+            Map<Integer, List<Integer>> follows = followers.get();
+            return () -> {
+                for (Doc doc : docs) {
+                    add(doc);
+                }
+                for (Map.Entry<Integer, List<Integer>> artist : follows.entrySet()) {
+                    for (Integer profileId : artist.getValue()) {
+                        byFollower.computeIfAbsent(profileId, key -> new BitSet()).set(artist.getKey());
+                    }
+                }
+            };
+        });
+    }
+
+    /**
+     * Records a profile following or unfollowing an artist
+     * @param artistId id of the artist
+     * @param profileId id of the profile
+     * @param following true if the profile now follows the artist
+     */
+    void follow(int artistId, int profileId, boolean following) {
+        update(() -> {
+            if (following) {
+                byFollower.computeIfAbsent(profileId, key -> new BitSet()).set(artistId);
+            } else {
+                clear(byFollower, profileId, artistId);
+            }
+        });
+    }
+
+    @Override
+    protected void clear() {
+        docs.clear();
+        byName.clear();
+        grams.clear();
+        byGenre.clear();
+        byCountry.clear();
+        byAdmin.clear();
+        byFollower.clear();
+        all.clear();
+    }
+
+    /**
+     * Finds the artists matching a query. Artists whose name starts with the name searched for come first,
+     * then those with it somewhere else in their name, each in name order.
+     * @param query what to match
+     * @param offset number of matching artists to skip
+     * @param limit most artist ids to return
+     * @return one page of ids along with the total number of matches
+     */
+    Result search(Query query, int offset, int limit) {
+        return read(() -> {
+            BitSet matches = match(query);
+            List<Integer> page = new ArrayList<>();
+            int skipped = 0;
+            List<Boolean> passes = query.name == null ? Collections.singletonList(null) : Arrays.asList(true, false);
+            for (Boolean prefix : passes) {
+                for (Doc doc : byName) {
+                    if (page.size() == limit) {
+                        break;
+                    }
+                    if (!matches.get(doc.artistId)
+                            || (prefix != null && doc.lowerName.startsWith(query.name) != prefix)) {
+                        continue;
+                    }
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        page.add(doc.artistId);
+                    }
+                }
+            }
+            return new Result(page, matches.cardinality());
+        });
+    }
+
+    @Override
+    protected int count() {
+        return docs.size();
+    }
+
+    private BitSet match(Query query) {
+        BitSet matches = (BitSet) all.clone();
+        and(matches, byGenre, query.genre);
+        and(matches, byCountry, query.country);
+        and(matches, byFollower, query.followedBy);
+        and(matches, byAdmin, query.adminOf);
+        if (query.name != null) {
+            for (String gram : grams(query.name)) {
+                BitSet posting = grams.get(gram);
+                if (posting == null) {
+                    matches.clear();
+                    break;
+                }
+                matches.and(posting);
+            }
+            // Having every trigram does not mean they are in the right order, so check the name itself
+            for (int artistId = matches.nextSetBit(0); artistId >= 0; artistId = matches.nextSetBit(artistId + 1)) {
+                if (!docs.get(artistId).lowerName.contains(query.name)) {
+                    matches.clear(artistId);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static <K> void and(BitSet matches, Map<K, BitSet> postings, K key) {
+        if (key != null) {
+            BitSet posting = postings.get(key);
+            if (posting == null) {
+                matches.clear();
+            } else {
+                matches.and(posting);
+            }
+        }
+    }
+
+    @Override
+    protected void add(Doc doc) {
+        docs.put(doc.artistId, doc);
+        byName.add(doc);
+        all.set(doc.artistId);
+        for (String gram : grams(doc.lowerName)) {
+            grams.computeIfAbsent(gram, key -> new BitSet()).set(doc.artistId);
+        }
+        for (String genre : doc.genres) {
+            byGenre.computeIfAbsent(genre, key -> new BitSet()).set(doc.artistId);
+        }
+        for (String country : doc.countries) {
+            byCountry.computeIfAbsent(country, key -> new BitSet()).set(doc.artistId);
+        }
+        for (Integer profileId : doc.admins) {
+            byAdmin.computeIfAbsent(profileId, key -> new BitSet()).set(doc.artistId);
+        }
+    }
+
+    /**
+     * Drops an artist. Followers are kept, see follow.
+     */
+    @Override
+    protected void remove(int artistId) {
+        Doc doc = docs.remove(artistId);
+        if (doc == null) {
+            return;
+        }
+        byName.remove(doc);
+        all.clear(artistId);
+        for (String gram : grams(doc.lowerName)) {
+            clear(grams, gram, artistId);
+        }
+        for (String genre : doc.genres) {
+            clear(byGenre, genre, artistId);
+        }
+        for (String country : doc.countries) {
+            clear(byCountry, country, artistId);
+        }
+        for (Integer profileId : doc.admins) {
+            clear(byAdmin, profileId, artistId);
+        }
+    }
+
+    private static <K> void clear(Map<K, BitSet> postings, K key, int artistId) {
+        BitSet posting = postings.get(key);
+        if (posting != null) {
+            posting.clear(artistId);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return every run of three characters in the text, none if the text is shorter than that
+     */
+    private static Set<String> grams(String text) {
+        Set<String> found = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            found.add(text.substring(i, i + GRAM));
+        }
+        return found;
+    }
+
+    private static String normalise(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * What the index holds for one artist
+     */
+    static final class Doc {
+        private final int artistId;
+        private final String lowerName;
+        private final Set<String> genres = new HashSet<>();
+        private final Set<String> countries = new HashSet<>();
+        private final Set<Integer> admins = new HashSet<>();
+
+        Doc(int artistId, String name) {
+            this.artistId = artistId;
+            this.lowerName = name == null ? "" : normalise(name);
+        }
+
+        int getArtistId() {
+            return artistId;
+        }
+
+        void addGenre(String genre) {
+            genres.add(normalise(genre));
+        }
+
+        void addCountry(String country) {
+            countries.add(normalise(country));
+        }
+
+        void addAdmin(int profileId) {
+            admins.add(profileId);
+        }
+    }
+
+    /**
+     * A search, every field left null matches everything
+     */
+    static final class Query {
+        private String name;
+        private String genre;
+        private String country;
+        private Integer followedBy;
+        private Integer adminOf;
+
+        /** Artists with the text anywhere in their name, ignoring case */
+        Query name(String name) {
+            this.name = normalise(name);
+            return this;
+        }
+
+        /** Artists with the genre of the given name */
+        Query genre(String genre) {
+            this.genre = normalise(genre);
+            return this;
+        }
+
+        /** Artists from the country of the given name */
+        Query country(String country) {
+            this.country = normalise(country);
+            return this;
+        }
+
+        /** Artists the given profile follows */
+        Query followedBy(int profileId) {
+            this.followedBy = profileId;
+            return this;
+        }
+
+        /** Artists the given profile is an admin of */
+        Query adminOf(int profileId) {
+            this.adminOf = profileId;
+            return this;
+        }
+    }
+
+    /**
+     * One page of a search
+     */
+    static final class Result {
+        private final List<Integer> artistIds;
+        private final int total;
+
+        private Result(List<Integer> artistIds, int total) {
+            this.artistIds = artistIds;
+            this.total = total;
+        }
+
+        List<Integer> getArtistIds() {
+            return artistIds;
+        }
+
+        int getTotal() {
+            return total;
+        }
+    }
+}
@@ -7,7 +7,7 @@ import models.AttendEvent;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -50,7 +50,7 @@ public class AttendEventRepository {
                     .eq("attend_event_id", Integer.toString(attendEventId))
                     .delete();
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -66,6 +66,27 @@ public class AttendEventRepository {
     }
 
 
+    /**
+     * Method to get the profile ids attending each of a group of events in a single query
+     *
+     * @param eventIds ids of the events
+     * @return Map of event id to the list of attending profile ids
+     */
+    public Map<Integer, List<Integer>> getAttendingUsers(Collection<Integer> eventIds) {
+        Map<Integer, List<Integer>> attendees = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return attendees;
+        }
+        for (Integer eventId : eventIds) {
+            attendees.put(eventId, new ArrayList<>());
+        }
+        for (AttendEvent attendEvent : ebeanServer.find(AttendEvent.class).where().in("event_id", eventIds).findList()) {
+            attendees.get(attendEvent.getEventId()).add(attendEvent.getProfileId());
+        }
+        return attendees;
+    }
+
+
     /**
      * Method to get the ids of all the events a user is attending
      *
@@ -0,0 +1,77 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * A row count that is only recounted once it is older than a given age. Used for the totals shown
+ * next to paginated lists, which do not need to be exact on every request. Repositories invalidate
+ * the count whenever they add or remove a counted row, so the age only matters for rows written
+ * around them.
+ */
+final class CachedCount {
+
+    private static final PerServer<Map<String, CachedCount>> instances =
+            new PerServer<>(server -> new ConcurrentHashMap<>());
+
+    private final IntSupplier counter;
+    private final long maxAgeMillis;
+    private int count;
+    private long countedAt;
+    private boolean counted;
+    private long version;
+
+    private CachedCount(IntSupplier counter, long maxAgeMillis) {
+        this.counter = counter;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Gets the count shared by all repositories using the given ebean server, creating it if needed
+     *
+     * @param ebeanServer the ebean server the rows are counted on
+     * @param name what is counted, eg the table
+     * @param counter runs the count query, only used if the count is created by this call
+     * @param maxAgeMillis how long a count may be reused for
+     * @return the count for that server and name
+     */
+    static CachedCount getInstance(EbeanServer ebeanServer, String name, IntSupplier counter, long maxAgeMillis) {
+        return instances.get(ebeanServer).computeIfAbsent(name, key -> new CachedCount(counter, maxAgeMillis));
+    }
+
+    /**
+     * @return the cached count, recounting first if it is too old
+     */
+    int get() {
+        long now = System.currentTimeMillis();
+        long countVersion;
+        synchronized (this) {
+            if (counted && now - countedAt <= maxAgeMillis) {
+                return count;
+            }
+            countVersion = version;
+        }
+
+        int recounted = counter.getAsInt();
+        synchronized (this) {
+            // A row written while counting may not be in the count, so only keep it if nothing was invalidated
+            if (countVersion == version) {
+                count = recounted;
+                countedAt = now;
+                counted = true;
+            }
+        }
+        return recounted;
+    }
+
+    /**
+     * Forces the next call to get to recount
+     */
+    synchronized void invalidate() {
+        counted = false;
+        version++;
+    }
+}
@@ -3,23 +3,123 @@ package repository;
 import akka.actor.ActorSystem;
 import play.db.ebean.EbeanDynamicEvolutions;
 import play.libs.concurrent.CustomExecutionContext;
+import utility.QueryAccounting;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Custom execution context, so that blocking database operations don't
  * happen on the rendering thread pool.
  *
+ * All blocking repository work runs here, never on the common fork join pool or Play's default dispatcher.
+ * The database.dispatcher is sized to the connection pool, so when every thread is busy new work queues up
+ * rather than waiting on a connection. The queue depth, active count and wait times are kept so a starved
+ * pool shows up in the numbers before it shows up as hung requests. Each task carries the QueryAccounting
+ * request of the thread which submitted it, so its statements count against that request.
+ *
  * @link https://www.playframework.com/documentation/latest/ThreadPools
  */
+@Singleton
 public class DatabaseExecutionContext extends CustomExecutionContext {
 
     //DO NOT REMOVE: Needed for the sbt dist command to build the project correctly
     private final EbeanDynamicEvolutions ebeanDynamicEvolutions;
 
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+
     @Inject
     public DatabaseExecutionContext(ActorSystem actorSystem, EbeanDynamicEvolutions ebeanDynamicEvolutions) {
         super(actorSystem, "database.dispatcher");
         this.ebeanDynamicEvolutions = ebeanDynamicEvolutions;
     }
+
+    /**
+     * Runs blocking database work on this context. Independent loads started this way run at the same time,
+     * at most one per pooled connection as the dispatcher is sized to the connection pool.
+     *
+     * @param work the work to run
+     * @return stage completed with the result of the work
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long queuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            Runnable task = QueryAccounting.propagate(command);
+            super.execute(() -> {
+                long startedAt = System.nanoTime();
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                long waited = startedAt - queuedAt;
+                waitNanos.addAndGet(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+                try {
+                    task.run();
+                } finally {
+                    runNanos.addAndGet(System.nanoTime() - startedAt);
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of tasks waiting for a database thread
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return number of tasks currently running on a database thread
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return number of tasks finished since startup
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return total time started tasks spent waiting for a database thread, in nanoseconds
+     */
+    public long getTotalWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * @return longest time a task has waited for a database thread since startup, in nanoseconds
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * @return total time finished tasks spent running, in nanoseconds
+     */
+    public long getTotalRunNanos() {
+        return runNanos.get();
+    }
 }
@@ -0,0 +1,336 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.*;
+
+/**
+ * In memory spatial index over the destinations which have not been soft deleted. Destinations are put into
+ * a grid of one degree cells, so a bounding box only looks at the cells it covers, and a nearest neighbour
+ * search looks at a growing circle around the point until it holds enough destinations.
+ *
+ * Searches take the id of the profile looking so private destinations are only found by their owner, or null
+ * to find every destination, as wanted when looking for the events or treasure hunts near somewhere.
+ *
+ * The index is filled on first use. DestinationRepository refreshes a destination whenever it is inserted,
+ * updated, soft deleted, restored, deleted or given a new owner.
+ */
+final class DestinationGeoIndex extends InMemoryIndex<DestinationGeoIndex.Point> {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double HALF_CIRCUMFERENCE_KM = Math.PI * EARTH_RADIUS_KM;
+    private static final double KM_PER_DEGREE = HALF_CIRCUMFERENCE_KM / 180;
+    private static final double FIRST_RADIUS_KM = 50;
+
+    private static final PerServer<DestinationGeoIndex> instances = new PerServer<>(server -> new DestinationGeoIndex());
+
+    private final Map<Integer, Point> points = new HashMap<>();
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+
+    private DestinationGeoIndex() {
+    }
+
+    /**
+     * @param ebeanServer the ebean server the destinations are read from
+     * @return the index for that server
+     */
+    static DestinationGeoIndex getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    @Override
+    protected void clear() {
+        points.clear();
+        cells.clear();
+    }
+
+    /**
+     * Finds the destinations inside a bounding box. The box crosses the antimeridian when the west longitude
+     * is greater than the east longitude, as map viewports do.
+     * @param box the area to look in
+     * @param profileId id of the profile looking, null to find private destinations too
+     * @param limit most destination ids to return
+     * @return ids in destination id order along with the total number inside the box
+     */
+    Result within(Box box, Integer profileId, int limit) {
+        return read(() -> {
+            List<Integer> found = new ArrayList<>();
+            for (Point point : candidates(box)) {
+                if (box.contains(point) && point.visibleTo(profileId)) {
+                    found.add(point.destinationId);
+                }
+            }
+            Collections.sort(found);
+            return new Result(found.subList(0, Math.min(limit, found.size())), found.size());
+        });
+    }
+
+    /**
+     * Finds the destinations within a distance of a point
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusKm greatest distance in kilometres
+     * @param profileId id of the profile looking, null to find private destinations too
+     * @return ids ordered nearest first
+     */
+    List<Integer> withinRadius(double latitude, double longitude, double radiusKm, Integer profileId) {
+        return read(() -> {
+            List<Integer> found = new ArrayList<>();
+            for (Neighbour neighbour : neighbours(latitude, longitude, radiusKm, profileId)) {
+                found.add(neighbour.point.destinationId);
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Finds the destinations nearest a point
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param count most destination ids to return
+     * @param profileId id of the profile looking, null to find private destinations too
+     * @return ids ordered nearest first
+     */
+    List<Integer> nearest(double latitude, double longitude, int count, Integer profileId) {
+        return read(() -> {
+            if (count <= 0) {
+                return new ArrayList<>();
+            }
+            List<Neighbour> found;
+            // Every destination within the radius is inside the box searched, so once there are enough
+            // within the radius none outside it can be nearer
+            for (double radiusKm = FIRST_RADIUS_KM; ; radiusKm *= 2) {
+                found = neighbours(latitude, longitude, radiusKm, profileId);
+                if (found.size() >= count || radiusKm >= HALF_CIRCUMFERENCE_KM) {
+                    break;
+                }
+            }
+            List<Integer> ids = new ArrayList<>();
+            for (Neighbour neighbour : found.subList(0, Math.min(count, found.size()))) {
+                ids.add(neighbour.point.destinationId);
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    protected int count() {
+        return points.size();
+    }
+
+    /**
+     * @return the destinations within the distance of the point, nearest first with ties in id order
+     */
+    private List<Neighbour> neighbours(double latitude, double longitude, double radiusKm, Integer profileId) {
+        List<Neighbour> found = new ArrayList<>();
+        for (Point point : candidates(Box.around(latitude, longitude, radiusKm))) {
+            if (!point.visibleTo(profileId)) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, point.latitude, point.longitude);
+            if (distance <= radiusKm) {
+                found.add(new Neighbour(point, distance));
+            }
+        }
+        found.sort(Comparator.comparingDouble((Neighbour neighbour) -> neighbour.distanceKm)
+                .thenComparingInt(neighbour -> neighbour.point.destinationId));
+        return found;
+    }
+
+    /**
+     * @return every destination in the cells the box covers, which may be a little more than the box itself
+     */
+    private List<Point> candidates(Box box) {
+        List<Point> found = new ArrayList<>();
+        int westCell = lngCell(box.west);
+        int eastCell = lngCell(box.east);
+        for (int lat = latCell(box.south); lat <= latCell(box.north); lat++) {
+            if (box.west <= box.east) {
+                addCells(found, lat, westCell, eastCell);
+            } else {
+                addCells(found, lat, westCell, 359);
+                addCells(found, lat, 0, eastCell);
+            }
+        }
+        return found;
+    }
+
+    private void addCells(List<Point> found, int latCell, int fromLngCell, int toLngCell) {
+        for (int lng = fromLngCell; lng <= toLngCell; lng++) {
+            List<Point> cell = cells.get(key(latCell, lng));
+            if (cell != null) {
+                found.addAll(cell);
+            }
+        }
+    }
+
+    @Override
+    protected void add(Point point) {
+        points.put(point.destinationId, point);
+        cells.computeIfAbsent(key(point), key -> new ArrayList<>()).add(point);
+    }
+
+    @Override
+    protected void remove(int destinationId) {
+        Point point = points.remove(destinationId);
+        if (point == null) {
+            return;
+        }
+        List<Point> cell = cells.get(key(point));
+        if (cell != null) {
+            cell.remove(point);
+            if (cell.isEmpty()) {
+                cells.remove(key(point));
+            }
+        }
+    }
+
+    private static long key(Point point) {
+        return key(latCell(point.latitude), lngCell(point.longitude));
+    }
+
+    private static long key(int latCell, int lngCell) {
+        return latCell * 360L + lngCell;
+    }
+
+    /**
+     * @return the row of the cell holding the latitude, 0 to 179 from the south pole
+     */
+    private static int latCell(double latitude) {
+        return Math.min(179, Math.max(0, (int) Math.floor(latitude + 90)));
+    }
+
+    /**
+     * @return the column of the cell holding the longitude, 0 to 359 from the antimeridian
+     */
+    private static int lngCell(double longitude) {
+        return Math.min(359, Math.max(0, (int) Math.floor(longitude + 180)));
+    }
+
+    /**
+     * @return the great circle distance between two points in kilometres
+     */
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double normaliseLongitude(double longitude) {
+        double wrapped = ((longitude + 180) % 360 + 360) % 360 - 180;
+        return wrapped == -180 && longitude > 0 ? 180 : wrapped;
+    }
+
+    /**
+     * What the index holds for one destination
+     */
+    static final class Point {
+        private final int destinationId;
+        private final double latitude;
+        private final double longitude;
+        private final boolean visible;
+        private final int ownerId;
+
+        Point(int destinationId, double latitude, double longitude, boolean visible, int ownerId) {
+            this.destinationId = destinationId;
+            this.latitude = Math.max(-90, Math.min(90, latitude));
+            this.longitude = normaliseLongitude(longitude);
+            this.visible = visible;
+            this.ownerId = ownerId;
+        }
+
+        private boolean visibleTo(Integer profileId) {
+            return profileId == null || visible || ownerId == profileId;
+        }
+    }
+
+    /**
+     * An area between two latitudes and two longitudes
+     */
+    static final class Box {
+        private final double south;
+        private final double west;
+        private final double north;
+        private final double east;
+
+        /**
+         * @param south southern latitude
+         * @param west western longitude, greater than east when the box crosses the antimeridian
+         * @param north northern latitude
+         * @param east eastern longitude
+         */
+        Box(double south, double west, double north, double east) {
+            this.south = Math.max(-90, Math.min(south, north));
+            this.north = Math.min(90, Math.max(south, north));
+            if (east - west >= 360) {
+                this.west = -180;
+                this.east = 180;
+            } else {
+                this.west = normaliseLongitude(west);
+                this.east = normaliseLongitude(east);
+            }
+        }
+
+        /**
+         * @return the smallest box holding every point within the distance of a point
+         */
+        static Box around(double latitude, double longitude, double radiusKm) {
+            double latSpan = radiusKm / KM_PER_DEGREE;
+            double south = latitude - latSpan;
+            double north = latitude + latSpan;
+            if (south <= -90 || north >= 90) {
+                return new Box(south, -180, north, 180);
+            }
+            // Widest longitude the circle reaches, which is away from the centre latitude but never past the box
+            double sin = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(latitude));
+            if (sin >= 1) {
+                return new Box(south, -180, north, 180);
+            }
+            double lngSpan = Math.toDegrees(Math.asin(sin));
+            return new Box(south, longitude - lngSpan, north, longitude + lngSpan);
+        }
+
+        private boolean contains(Point point) {
+            if (point.latitude < south || point.latitude > north) {
+                return false;
+            }
+            if (west <= east) {
+                return point.longitude >= west && point.longitude <= east;
+            }
+            return point.longitude >= west || point.longitude <= east;
+        }
+    }
+
+    private static final class Neighbour {
+        private final Point point;
+        private final double distanceKm;
+
+        private Neighbour(Point point, double distanceKm) {
+            this.point = point;
+            this.distanceKm = distanceKm;
+        }
+    }
+
+    /**
+     * One page of a bounding box search
+     */
+    static final class Result {
+        private final List<Integer> destinationIds;
+        private final int total;
+
+        private Result(List<Integer> destinationIds, int total) {
+            this.destinationIds = destinationIds;
+            this.total = total;
+        }
+
+        List<Integer> getDestinationIds() {
+            return destinationIds;
+        }
+
+        int getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded in memory index of destination id to the photos linked to it and who linked them. Only the link
+ * rows are held, the photo rows themselves are read fresh for each page so a deleted photo or a change of
+ * privacy shows straight away. DestinationPhotoRepository invalidates a destination whenever a link to it
+ * is added or removed.
+ */
+final class DestinationPhotoCache {
+
+    private static final int MAX_ENTRIES = 5000;
+
+    private static final PerServer<DestinationPhotoCache> instances = new PerServer<>(server -> new DestinationPhotoCache());
+
+    private final Map<Integer, List<Link>> links = new LinkedHashMap<Integer, List<Link>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Link>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private long version;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private DestinationPhotoCache() {
+    }
+
+    /**
+     * @param ebeanServer the ebean server the links are read from
+     * @return the cache for that server
+     */
+    static DestinationPhotoCache getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    /**
+     * Gets the links of each of the given destinations, loading the ones which are not cached in one go
+     * @param destinationIds ids of the destinations
+     * @param loader loads the links of the given destinations, must return an entry for every id asked for
+     * @return map of destination id to the links of that destination, in the order they were made
+     */
+    Map<Integer, List<Link>> getAll(Collection<Integer> destinationIds,
+                                    Function<Collection<Integer>, Map<Integer, List<Link>>> loader) {
+        Map<Integer, List<Link>> found = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        long loadVersion;
+        synchronized (this) {
+            for (Integer destinationId : destinationIds) {
+                List<Link> cached = links.get(destinationId);
+                if (cached == null) {
+                    misses.incrementAndGet();
+                    missing.add(destinationId);
+                } else {
+                    hits.incrementAndGet();
+                    found.put(destinationId, cached);
+                }
+            }
+            loadVersion = version;
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        Map<Integer, List<Link>> loaded = loader.apply(missing);
+        synchronized (this) {
+            // A link written while loading may not be in what was read, so only keep it if nothing was invalidated
+            boolean current = loadVersion == version;
+            for (Integer destinationId : missing) {
+                List<Link> destinationLinks = Collections.unmodifiableList(
+                        loaded.getOrDefault(destinationId, Collections.emptyList()));
+                found.put(destinationId, destinationLinks);
+                if (current) {
+                    links.put(destinationId, destinationLinks);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Drops a destination from the cache. Must be called when a photo is linked to or unlinked from it.
+     * @param destinationId id of the destination
+     */
+    synchronized void invalidate(int destinationId) {
+        links.remove(destinationId);
+        version++;
+    }
+
+    /**
+     * Drops every destination from the cache
+     */
+    synchronized void invalidateAll() {
+        links.clear();
+        version++;
+    }
+
+    synchronized int size() {
+        return links.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * A photo linked to a destination and the profile which linked it
+     */
+    static final class Link {
+        private final int profileId;
+        private final int photoId;
+
+        Link(int profileId, int photoId) {
+            this.profileId = profileId;
+            this.photoId = photoId;
+        }
+
+        int getProfileId() {
+            return profileId;
+        }
+
+        int getPhotoId() {
+            return photoId;
+        }
+    }
+}
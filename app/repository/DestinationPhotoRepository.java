@@ -2,6 +2,8 @@ package repository;
 
 import io.ebean.Ebean;
 import io.ebean.EbeanServer;
+import io.ebean.SqlQuery;
+import io.ebean.SqlRow;
 import io.ebean.SqlUpdate;
 import io.ebean.Transaction;
 import models.DestinationPhoto;
@@ -9,9 +11,7 @@ import models.Photo;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -23,12 +23,35 @@ public class DestinationPhotoRepository implements ModelUpdatableRepository<Dest
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
     private final PhotoRepository photoRepository;
+    private final DestinationPhotoCache linkCache;
 
     @Inject
     public DestinationPhotoRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext, PhotoRepository photoRepository){
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
         this.photoRepository = photoRepository;
+        this.linkCache = DestinationPhotoCache.getInstance(ebeanServer);
+    }
+
+    /**
+     * The photos linked to one destination, split by whether the viewing profile linked them
+     */
+    public static final class DestinationPhotos {
+        private final List<Photo> ownPhotos;
+        private final List<Photo> worldPhotos;
+
+        public DestinationPhotos(List<Photo> ownPhotos, List<Photo> worldPhotos) {
+            this.ownPhotos = ownPhotos;
+            this.worldPhotos = worldPhotos;
+        }
+
+        public List<Photo> getOwnPhotos() {
+            return ownPhotos;
+        }
+
+        public List<Photo> getWorldPhotos() {
+            return worldPhotos;
+        }
     }
 
 
@@ -53,6 +76,7 @@ public class DestinationPhotoRepository implements ModelUpdatableRepository<Dest
                     query.setParameter(3, id);
                     query.execute();
                     txn.commit();
+                    linkCache.invalidateAll();
                     value = Optional.of(id);
                 }
             } finally {
@@ -69,12 +93,17 @@ public class DestinationPhotoRepository implements ModelUpdatableRepository<Dest
      */
     public CompletionStage<Optional<Integer>> delete(int id) {
         return supplyAsync(() -> {
+            DestinationPhoto destinationPhoto = ebeanServer.find(DestinationPhoto.class).where()
+                    .eq("destination_photo_id", id).findOne();
             Transaction txn = ebeanServer.beginTransaction();
             String deleteQuery = "delete from destination_photo where destination_photo_id = ?";
             SqlUpdate query = Ebean.createSqlUpdate(deleteQuery);
             query.setParameter(1, id);
             query.execute();
             txn.commit();
+            if (destinationPhoto != null) {
+                linkCache.invalidate(destinationPhoto.getDestinationId());
+            }
             return Optional.of(id);
         }, executionContext);
     }
@@ -89,6 +118,7 @@ public class DestinationPhotoRepository implements ModelUpdatableRepository<Dest
         return supplyAsync(() -> {
             try {
                 ebeanServer.insert(photo);
+                linkCache.invalidate(photo.getDestinationId());
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -103,7 +133,7 @@ public class DestinationPhotoRepository implements ModelUpdatableRepository<Dest
      * @return Optional DestiantionPhoto wrapped in a completion stage
      */
     public CompletionStage<Optional<DestinationPhoto>> findById(int id) {
-        return supplyAsync(() -> Optional.ofNullable(ebeanServer.find(DestinationPhoto.class).where().eq("destination_photo_id", id).findOne()));
+        return supplyAsync(() -> Optional.ofNullable(ebeanServer.find(DestinationPhoto.class).where().eq("destination_photo_id", id).findOne()), executionContext);
     }
 
     public Optional<DestinationPhoto> findByProfileIdPhotoIdDestId(int profileId, int photoId, int destinationId) {
@@ -115,38 +145,74 @@ public class DestinationPhotoRepository implements ModelUpdatableRepository<Dest
     }
 
     /**
-     * Method to find all destination photos
+     * Finds the photos linked to each of the given destinations. Photos linked by the given profile are its own
+     * photos, photos linked by anyone else are world photos. A photo linked by both shows in both lists.
+     * The links come from the destination photo cache and are read in one query for the destinations not
+     * cached yet, then all of the photos are read in one more query.
      *
-     * @return Optional Map holding all destinationPhotos found
+     * @param profileId id of the profile viewing the destinations
+     * @param destinationIds ids of the destinations
+     * @return map of destination id to its photos, with an entry for every id given
      */
-    public Optional<List<Photo>> getAllDestinationPhotos() {
-        List<DestinationPhoto> destPhotos = ebeanServer.find(DestinationPhoto.class).findList();
-        List<Photo> photos = new ArrayList<>();
-        for (DestinationPhoto destPhoto : destPhotos) {
-            photoRepository.getImage(destPhoto.getPhotoId()).ifPresent(photos::add);
+    public Map<Integer, DestinationPhotos> getPhotosForDestinations(int profileId, Collection<Integer> destinationIds) {
+        Map<Integer, DestinationPhotos> result = new HashMap<>();
+        if (destinationIds.isEmpty()) {
+            return result;
         }
-        return Optional.of(photos);
-    }
+        Map<Integer, List<DestinationPhotoCache.Link>> links = linkCache.getAll(destinationIds, this::findLinks);
 
+        Set<Integer> photoIds = new HashSet<>();
+        for (List<DestinationPhotoCache.Link> destinationLinks : links.values()) {
+            for (DestinationPhotoCache.Link link : destinationLinks) {
+                photoIds.add(link.getPhotoId());
+            }
+        }
+        Map<Integer, Photo> photos = new HashMap<>();
+        if (!photoIds.isEmpty()) {
+            for (Photo photo : ebeanServer.find(Photo.class).where().idIn(photoIds).findList()) {
+                photos.put(photo.getPhotoId(), photo);
+            }
+        }
+
+        for (Integer destinationId : destinationIds) {
+            Map<Integer, Photo> ownPhotos = new LinkedHashMap<>();
+            Map<Integer, Photo> worldPhotos = new LinkedHashMap<>();
+            for (DestinationPhotoCache.Link link : links.get(destinationId)) {
+                Photo photo = photos.get(link.getPhotoId());
+                if (photo == null) {
+                    continue;
+                }
+                if (link.getProfileId() == profileId) {
+                    ownPhotos.put(link.getPhotoId(), photo);
+                } else {
+                    worldPhotos.put(link.getPhotoId(), photo);
+                }
+            }
+            result.put(destinationId, new DestinationPhotos(new ArrayList<>(ownPhotos.values()),
+                    new ArrayList<>(worldPhotos.values())));
+        }
+        return result;
+    }
 
     /**
-     * Logic to check if a photo is linked to another destination
-     * @param profileId Id of the profile linked to a photo
-     * @param photoId id of the photo being linked
-     * @param destinationId Id of the destination that the photo and profile is linked to
-     * @return
+     * Reads the photo links of the given destinations from the destination_photo table
+     *
+     * @param destinationIds ids of the destinations
+     * @return map of destination id to its links, with an empty list for destinations without any
      */
-    public boolean isLinkedToDestByOtherUser(int profileId, int photoId, int destinationId) {
-        List<DestinationPhoto>  destPhotoList = ebeanServer.find(DestinationPhoto.class).where()
-                .eq("photo_id", photoId)
-                .eq("destination_id", destinationId)
-                .findList();
-        if (!destPhotoList.isEmpty()) {
-            if (destPhotoList.size() > 1) {
-                return true;
-            }
-            return destPhotoList.get(0).getProfileId() != profileId;
+    private Map<Integer, List<DestinationPhotoCache.Link>> findLinks(Collection<Integer> destinationIds) {
+        Map<Integer, List<DestinationPhotoCache.Link>> links = new HashMap<>();
+        for (Integer destinationId : destinationIds) {
+            links.put(destinationId, new ArrayList<>());
+        }
+        SqlQuery query = ebeanServer.createSqlQuery("SELECT destination_id, profile_id, photo_id FROM destination_photo " +
+                "WHERE destination_id IN (" + QueryHelper.placeholders(destinationIds.size()) + ") " +
+                "ORDER BY destination_photo_id");
+        QueryHelper.bindAll(query, destinationIds, 1);
+        for (SqlRow row : query.findList()) {
+            links.get(row.getInteger("destination_id")).add(
+                    new DestinationPhotoCache.Link(row.getInteger("profile_id"), row.getInteger("photo_id")));
         }
-        return false;
+        return links;
     }
 }
\ No newline at end of file
@@ -24,6 +24,12 @@ public class DestinationRepository {
     private final RolesRepository rolesRepository;
     private final TravellerTypeRepository travellerTypeRepository;
     private final DestinationTravellerTypeRepository destinationTravellerTypeRepository;
+    private final DestinationGeoIndex geoIndex;
+    private final CachedCount destinationCount;
+    private final CachedCount publicDestinationCount;
+
+    private static final KeysetPaginator<Destination> DESTINATION_PAGINATOR =
+            new KeysetPaginator<>("destination_id", Destination::getDestinationId);
 
     /**
      * A Constructor which links to the ebeans database
@@ -40,6 +46,10 @@ public class DestinationRepository {
         this.rolesRepository = roleRepository;
         this.travellerTypeRepository = travellerTypeRepository;
         this.destinationTravellerTypeRepository = destinationTravellerTypeRepository;
+        this.geoIndex = DestinationGeoIndex.getInstance(ebeanServer);
+        this.destinationCount = CachedCount.getInstance(ebeanServer, "destinations", this::getNumDestinations, 30000);
+        this.publicDestinationCount = CachedCount.getInstance(ebeanServer, "publicDestinations",
+                this::getNumPublicDestinations, 30000);
     }
 
     /**
@@ -58,6 +68,29 @@ public class DestinationRepository {
         return destination;
     }
 
+    /**
+     * Returns a group of destinations with their traveller types filled, using one query per table
+     *
+     * @param destIds The IDs of the destinations to return
+     * @return Map of destination id to the found destination
+     */
+    public Map<Integer, Destination> lookupAll(Collection<Integer> destIds) {
+        if (destIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Integer, Destination> destinations = ebeanServer.find(Destination.class).where().idIn(destIds).findMap();
+        for (Destination destination : destinations.values()) {
+            destination.setTravellerTypes(new HashMap<>());
+        }
+        List<DestinationTravellerType> links = ebeanServer.find(DestinationTravellerType.class).where()
+                .in("destination_id", destinations.keySet()).findList();
+        for (DestinationTravellerType link : links) {
+            travellerTypeRepository.findById(link.getTravellerTypeId()).ifPresent(type ->
+                    destinations.get(link.getDestinationId()).getTravellerTypes().put(type.getTravellerTypeId(), type));
+        }
+        return destinations;
+    }
+
     /**
      * Get the users destination list
      *
@@ -85,9 +118,22 @@ public class DestinationRepository {
                 .where()
                 .eq("visible", 1)
                 .eq("soft_delete", 0)
+                .orderBy("destination_id asc")
                 .findList());
     }
 
+    /**
+     * Get a page of the public destinations using keyset pagination, ordered by destination id
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @return the page of public destinations with the cursors for the pages either side
+     */
+    public KeysetPage<Destination> getPublicDestinations(String cursor) {
+        return DESTINATION_PAGINATOR.page(ebeanServer.find(Destination.class).where()
+                .eq("visible", 1)
+                .eq("soft_delete", 0), cursor, 7);
+    }
+
     /**
      * Get the all of the public destinations
      *
@@ -116,6 +162,9 @@ public class DestinationRepository {
                 destinationTravellerTypeRepository
                         .insertDestinationTravellerType(new TravellerType(travellerTypeName), dest.getDestinationId());
             }
+            refreshGeoIndex(dest.getDestinationId());
+            destinationCount.invalidate();
+            publicDestinationCount.invalidate();
 
             return Optional.of(dest.getDestinationId());
         }, executionContext);
@@ -157,6 +206,9 @@ public class DestinationRepository {
                 final Optional<Destination> destinationOptional = Optional.ofNullable(ebeanServer.find(Destination.class)
                         .setId(destID).findOne());
                 destinationOptional.ifPresent(Model::delete);
+                refreshGeoIndex(destID);
+                destinationCount.invalidate();
+                publicDestinationCount.invalidate();
                 return Optional.of(String.format("Destination %s deleted", destinationOptional.map(Destination::getName)));
             } catch (Exception e) {
                 return Optional.empty();
@@ -179,6 +231,9 @@ public class DestinationRepository {
                 if (targetDest != null) {
                     targetDest.setSetSoftDelete(softDelete);
                     targetDest.update();
+                    refreshGeoIndex(destId);
+                    destinationCount.invalidate();
+                    publicDestinationCount.invalidate();
                     return 1;
                 } else {
                     return 0;
@@ -212,16 +267,19 @@ public class DestinationRepository {
                     targetDestination.setVisible(newDestination.getVisible());
                     targetDestination.setTravellerTypes(newDestination.getTravellerTypes());
                     targetDestination.update();
-                    txn.commit();
+                    LinkBatch links = new LinkBatch();
+                    destinationTravellerTypeRepository.updateLinks(links, Id, newDestination.getTravellerTypesList());
+                    links.execute(ebeanServer);
                     value = Optional.of(targetDestination.getDestinationId());
-                    destinationTravellerTypeRepository.removeAll(Id);
-                    for (String travellerTypeName : newDestination.getTravellerTypesList()) {
-                        destinationTravellerTypeRepository.insertDestinationTravellerType(new TravellerType(travellerTypeName), Id);
-                    }
                 }
+                txn.commit();
             } finally {
                 txn.end();
             }
+            if (value.isPresent()) {
+                refreshGeoIndex(Id);
+                publicDestinationCount.invalidate();
+            }
             return value;
         }, executionContext);
     }
@@ -244,6 +302,7 @@ public class DestinationRepository {
                 targetDestination.setProfileId(newDestination.getProfileId());
                 targetDestination.update();
                 txn.commit();
+                refreshGeoIndex(destinationId);
                 value = Optional.of(destinationId);
             }
         } finally {
@@ -445,7 +504,7 @@ public class DestinationRepository {
                 () -> {
                     ebeanServer.find(DestinationChange.class).where().eq("id", changeId).delete();
                     return 1;
-                });
+                }, executionContext);
     }
 
     /**
@@ -468,14 +527,14 @@ public class DestinationRepository {
                                     }
 
                                     return 1;
-                                });
+                                }, executionContext);
                     }
                     return 1;
-                })
+                }, executionContext)
                 .thenApplyAsync(x -> {
                     deleteDestinationChange(changeId);
                     return 1;
-                });
+                }, executionContext);
 
     }
 
@@ -543,7 +602,7 @@ public class DestinationRepository {
                     .eq("travellerTypeId", travellerTypeId)
                     .delete();
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -637,6 +696,105 @@ public class DestinationRepository {
                 .findList());
     }
 
+    /**
+     * Gets the destinations inside a map viewport which the user can see, that is the public destinations and
+     * their own private ones, using the in memory spatial index
+     *
+     * @param south southern latitude of the viewport
+     * @param west western longitude of the viewport, greater than east when it crosses the antimeridian
+     * @param north northern latitude of the viewport
+     * @param east eastern longitude of the viewport
+     * @param profileId id of the user
+     * @param limit most destinations to return
+     * @return the destinations in destination id order along with how many are inside the viewport
+     */
+    public DestinationAreaResult getDestinationsInArea(double south, double west, double north, double east,
+                                                       int profileId, int limit) {
+        geoIndex.ensureLoaded(() -> loadGeoPoints(null));
+        DestinationGeoIndex.Result result = geoIndex.within(new DestinationGeoIndex.Box(south, west, north, east),
+                profileId, limit);
+        return new DestinationAreaResult(findInOrder(result.getDestinationIds()), result.getTotal());
+    }
+
+    /**
+     * Gets the destinations the user can see which are nearest a point, using the in memory spatial index
+     *
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param count most destinations to return
+     * @param profileId id of the user
+     * @return the destinations, nearest first
+     */
+    public List<Destination> getNearestDestinations(double latitude, double longitude, int count, int profileId) {
+        geoIndex.ensureLoaded(() -> loadGeoPoints(null));
+        return findInOrder(geoIndex.nearest(latitude, longitude, count, profileId));
+    }
+
+    /**
+     * Gets the ids of every destination, public or private, within a distance of a point. Used to find the
+     * events and treasure hunts near somewhere.
+     *
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusKm greatest distance in kilometres
+     * @return the destination ids, nearest first
+     */
+    public List<Integer> getDestinationIdsNear(double latitude, double longitude, double radiusKm) {
+        geoIndex.ensureLoaded(() -> loadGeoPoints(null));
+        return geoIndex.withinRadius(latitude, longitude, radiusKm, null);
+    }
+
+    /**
+     * @return the destinations with the given ids, in the same order
+     */
+    private List<Destination> findInOrder(List<Integer> destinationIds) {
+        List<Destination> destinations = new ArrayList<>();
+        if (destinationIds.isEmpty()) {
+            return destinations;
+        }
+        Map<Integer, Destination> found = ebeanServer.find(Destination.class).where().idIn(destinationIds).findMap();
+        for (Integer destinationId : destinationIds) {
+            if (found.containsKey(destinationId)) {
+                destinations.add(found.get(destinationId));
+            }
+        }
+        return destinations;
+    }
+
+    /**
+     * Reads what the spatial index holds for destinations which have not been soft deleted and have a location
+     * @param destinationIds ids of the destinations to read, null for every destination
+     * @return the spatial index entries
+     */
+    private List<DestinationGeoIndex.Point> loadGeoPoints(Collection<Integer> destinationIds) {
+        if (destinationIds != null && destinationIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String selectQuery = "SELECT destination_id, profile_id, latitude, longitude, visible FROM destination " +
+                "WHERE soft_delete = 0 AND latitude IS NOT NULL AND longitude IS NOT NULL";
+        if (destinationIds != null) {
+            selectQuery += " AND destination_id IN (" + QueryHelper.placeholders(destinationIds.size()) + ")";
+        }
+        SqlQuery query = ebeanServer.createSqlQuery(selectQuery);
+        if (destinationIds != null) {
+            QueryHelper.bindAll(query, destinationIds, 1);
+        }
+        List<DestinationGeoIndex.Point> points = new ArrayList<>();
+        for (SqlRow row : query.findList()) {
+            points.add(new DestinationGeoIndex.Point(row.getInteger("destination_id"), row.getDouble("latitude"),
+                    row.getDouble("longitude"), row.getInteger("visible") == 1, row.getInteger("profile_id")));
+        }
+        return points;
+    }
+
+    /**
+     * Brings the spatial index up to date with a destination after it has been written
+     * @param destinationId id of the destination
+     */
+    private void refreshGeoIndex(int destinationId) {
+        geoIndex.refresh(Collections.singletonList(destinationId), this::loadGeoPoints);
+    }
+
     /**
      * Method to get the number of destination requests
      * Used for pagination
@@ -657,6 +815,16 @@ public class DestinationRepository {
         return ebeanServer.find(Destination.class).where().eq("soft_delete", 0).findCount();
     }
 
+    /**
+     * Method to find number of destinations, reusing the last count for up to 30 seconds
+     * Used for pagination where an exact count is not needed
+     *
+     * @return int number of destinations found
+     */
+    public int getCachedNumDestinations() {
+        return destinationCount.get();
+    }
+
 
     /**
      * Method to get number of public destinations
@@ -668,6 +836,16 @@ public class DestinationRepository {
         return ebeanServer.find(Destination.class).where().eq("soft_delete", 0).eq("visible", 1).findCount();
     }
 
+    /**
+     * Method to get number of public destinations, reusing the last count for up to 30 seconds
+     * Used for pagination where an exact count is not needed
+     *
+     * @return number of public destinations
+     */
+    public int getCachedNumPublicDestinations() {
+        return publicDestinationCount.get();
+    }
+
 
     /**
      * Method to get count of all private and followed destinations
@@ -699,9 +877,22 @@ public class DestinationRepository {
                 .setMaxRows(pageSize)
                 .where()
                 .eq("soft_delete", 0)
+                .orderBy("destination_id asc")
                 .findList());
     }
 
+    /**
+     * Get a page of destinations using keyset pagination, ordered by destination id
+     *
+     * @param cursor   token from a previous page, null for the first page
+     * @param pageSize max number of destinations to get
+     * @return the page of destinations with the cursors for the pages either side
+     */
+    public KeysetPage<Destination> getDestinationPage(String cursor, int pageSize) {
+        return DESTINATION_PAGINATOR.page(ebeanServer.find(Destination.class).where()
+                .eq("soft_delete", 0), cursor, pageSize);
+    }
+
     /**
      * Finds a page of destination changes
      *
@@ -715,7 +906,7 @@ public class DestinationRepository {
             DestinationRequest destinationRequest = ebeanServer.find(DestinationRequest.class).setId(destinationChange.getRequestId()).findOne();
             destinationChange.setEmail(ebeanServer.find(Profile.class).where().eq("profile_id", destinationRequest.getProfileId()).findOne().getEmail());
             destinationChange.setDestination(ebeanServer.find(Destination.class).where().eq("destination_id", destinationRequest.getDestinationId()).findOne());
-            destinationChange.setTravellerType(ebeanServer.find(TravellerType.class).where().eq("traveller_type_id", destinationChange.getTravellerTypeId()).findOne());
+            destinationChange.setTravellerType(travellerTypeRepository.getById(destinationChange.getTravellerTypeId()));
         }
         return requests;
     }
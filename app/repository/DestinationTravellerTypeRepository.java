@@ -5,10 +5,7 @@ import models.TravellerType;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
  * Repository class which holds database interaction methods for destination traveller types
@@ -74,20 +71,14 @@ public class DestinationTravellerTypeRepository {
     }
 
     /**
-     * Removes all of the traveller type linking rows corresponding to the sent in destination
+     * Adds the changes needed to link a destination to exactly the given traveller types to a batch, creating
+     * any which do not exist yet. Links which stay the same are left alone.
+     * @param links the batch to add to
      * @param destinationId The given destination ID
+     * @param names names of the traveller types the destination should be linked to
      */
-    void removeAll(Integer destinationId) {
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "DELETE from destination_traveller_type where destination_id " +
-                "= ?";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, destinationId);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
-        }
+    void updateLinks(LinkBatch links, int destinationId, Collection<String> names) {
+        links.sync(ebeanServer, "destination_traveller_type", "destination_id", destinationId, "traveller_type_id",
+                travellerTypeRepository.getOrCreateIds(names));
     }
 }
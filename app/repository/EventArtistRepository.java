@@ -70,7 +70,7 @@ public class EventArtistRepository {
                     .eq("event_id", eventId)
                     .delete();
             return null;
-        });
+        }, executionContext);
     }
 
 
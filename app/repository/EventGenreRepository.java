@@ -71,7 +71,7 @@ public class EventGenreRepository {
                     .eq("event_id", eventId)
                     .delete();
             return eventId;
-        });
+        }, executionContext);
     }
 
 }
@@ -38,7 +38,7 @@ public class EventPhotoRepository {
         return supplyAsync(() -> {
            ebeanServer.find(EventPhoto.class).where().eq("event_id", eventId).delete();
            return eventId;
-        });
+        }, executionContext);
     }
 
 
@@ -63,7 +63,7 @@ public class EventPhotoRepository {
         return supplyAsync(() -> {
            ebeanServer.insert(eventPhoto);
            return 1;
-        });
+        }, executionContext);
     }
 
 
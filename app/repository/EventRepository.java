@@ -6,7 +6,10 @@ import models.*;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
@@ -28,6 +31,11 @@ public class EventRepository {
     private final GenreRepository genreRepository;
     private final DestinationRepository destinationRepository;
     private final AttendEventRepository attendEventRepository;
+    private final CachedCount eventCount;
+    private final EventSearchIndex searchIndex;
+
+    private static final KeysetPaginator<Events> EVENT_PAGINATOR = new KeysetPaginator<>("start_date", "event_id",
+            event -> event.getStartDate().getTime(), Events::getEventId, Timestamp::new);
 
     /**
      * Constructor for the events repository class
@@ -47,6 +55,8 @@ public class EventRepository {
         this.genreRepository = genreRepository;
         this.destinationRepository = destinationRepository;
         this.attendEventRepository = attendEventRepository;
+        this.searchIndex = EventSearchIndex.getInstance(ebeanServer);
+        this.eventCount = CachedCount.getInstance(ebeanServer, "events", this::getNumEvents, 30000);
     }
 
     /**
@@ -56,12 +66,8 @@ public class EventRepository {
      * @return Optional<List<Events>> Events - Optional list of all events in the database
      */
     public Optional<List<Events>> getAll() {
-        List<Events> eventsList = new ArrayList<>();
         List<Events> events = ebeanServer.find(Events.class).where().eq("soft_delete", 0).orderBy().asc("start_date").findList();
-        for (Events event : events){
-            eventsList.add(populateEvent(event));
-        }
-        return Optional.of(eventsList);
+        return Optional.of(populateEvents(events));
     }
 
 
@@ -72,12 +78,21 @@ public class EventRepository {
      * @return Optional List of events found
      */
     public List<Events> getPage(int offset) {
-        List<Events> toReturn = new ArrayList<>();
-        List<Events> events = ebeanServer.find(Events.class).setMaxRows(8).setFirstRow(offset).where().eq("soft_delete", 0).gt("start_date", new Date()).orderBy().asc("start_date").findList();
-        for (Events event : events) {
-            toReturn.add(populateEvent(event));
-        }
-        return toReturn;
+        List<Events> events = ebeanServer.find(Events.class).setMaxRows(8).setFirstRow(offset).where().eq("soft_delete", 0).gt("start_date", new Date()).orderBy("start_date asc, event_id asc").findList();
+        return populateEvents(events);
+    }
+
+    /**
+     * Gets a page of upcoming events using keyset pagination, ordered by start date
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @return the page of populated events with the cursors for the pages either side
+     */
+    public KeysetPage<Events> getPage(String cursor) {
+        KeysetPage<Events> page = EVENT_PAGINATOR.page(ebeanServer.find(Events.class).where()
+                .eq("soft_delete", 0).gt("start_date", new Date()), cursor, 8);
+        populateEvents(page.getItems());
+        return page;
     }
 
     /**
@@ -90,9 +105,7 @@ public class EventRepository {
         List<Integer> ids = ebeanServer.find(EventArtists.class).setMaxRows(8).setFirstRow(offset).where().eq("artist_id", artistId).findIds();
         List<Events> events = new ArrayList<>();
         if (!ids.isEmpty()) {
-            for (Events event : ebeanServer.find(Events.class).where().idIn(ids).gt("start_date", new Date()).orderBy().asc("start_date").findList()) {
-                events.add(populateEvent(event));
-            }
+            events.addAll(populateEvents(ebeanServer.find(Events.class).where().idIn(ids).gt("start_date", new Date()).orderBy().asc("start_date").findList()));
             Collections.sort(events, new Comparator<Events>() {
                 @Override
                 public int compare(Events o1, Events o2) {
@@ -123,6 +136,15 @@ public class EventRepository {
         return ebeanServer.find(Events.class).where().eq("soft_delete", 0).findCount();
     }
 
+    /**
+     * Finds the number of events, reusing the last count for up to 30 seconds
+     * Used for pagination where an exact count is not needed
+     * @return int of number found
+     */
+    public int getCachedNumEvents() {
+        return eventCount.get();
+    }
+
     /**
      * Lookup an event using the id to find the object in the database
      * @param eventId Id of the event to find
@@ -140,40 +162,65 @@ public class EventRepository {
      */
     private Events populateEvent(Events event) {
         if (event != null) {
-            event.setEventGenres(genreRepository.getEventGenres(event.getEventId()));
-            event.setEventTypes(eventTypeRepository.getEventTypeOfEvents(event.getEventId()));
-            event.setEventArtists(artistRepository.getEventArtists(event.getEventId()));
-            event.setDestination(destinationRepository.lookup(event.getDestinationId()));
-            event.setEventAttendees(attendEventRepository.getAttendingUsers(event.getEventId()));
+            populateEvents(Collections.singletonList(event));
         }
         return event;
     }
 
     /**
-     * Inserts an Event object into the database
-     * Uses ebeans to insert and access the database
-     * @param event Event object to be inserted into the database
-     * @return CompletionStage<Integer> Holding the inserted events Id
+     * Method to populate a list of events with the objects from the linking tables.
+     * Each linking table is read once for the whole list rather than once per event, so the number of
+     * queries does not grow with the number of events on the page
+     * @param events Event objects to be populated
+     * @return the same list of events, now populated
      */
-    private CompletionStage<Integer> insertEvent(Events event){
-            return supplyAsync(() -> {
-                ebeanServer.insert(event);
-                return event.getEventId();
-            }, executionContext);
+    private List<Events> populateEvents(List<Events> events) {
+        if (events.isEmpty()) {
+            return events;
+        }
+        Set<Integer> eventIds = new HashSet<>();
+        Set<Integer> destinationIds = new HashSet<>();
+        for (Events event : events) {
+            eventIds.add(event.getEventId());
+            destinationIds.add(event.getDestinationId());
+        }
+        Map<Integer, List<MusicGenre>> genres = genreRepository.getEventGenres(eventIds);
+        Map<Integer, List<String>> types = eventTypeRepository.getEventTypeOfEvents(eventIds);
+        Map<Integer, List<Artist>> artists = artistRepository.getEventArtists(eventIds);
+        Map<Integer, Destination> destinations = destinationRepository.lookupAll(destinationIds);
+        Map<Integer, List<Integer>> attendees = attendEventRepository.getAttendingUsers(eventIds);
+        for (Events event : events) {
+            event.setEventGenres(genres.get(event.getEventId()));
+            event.setEventTypes(types.get(event.getEventId()));
+            event.setEventArtists(artists.get(event.getEventId()));
+            event.setDestination(destinations.get(event.getDestinationId()));
+            event.setEventAttendees(attendees.get(event.getEventId()));
+        }
+        return events;
     }
 
     /**
      * Inserts all linking tables and event for an event object
-     * uses ebeans and accesses other repository's to insert the objects into the database
+     * The event and its links are written in one transaction, with the links sent as one batch per table
      * @param event Event object that has been fully populated and is ready to insert
      * @return CompletionStage<Integer> Holding the inserted events Id
      */
     public CompletionStage<Integer> insert(Events event) {
-        return insertEvent(event).thenApplyAsync(eventId -> {
-                    event.setEventId(eventId);
-                    saveLinkingTables(event);
-                    return eventId;
-                });
+        return supplyAsync(() -> {
+            Transaction txn = ebeanServer.beginTransaction();
+            try {
+                ebeanServer.insert(event);
+                LinkBatch links = new LinkBatch();
+                saveLinkingTables(event, links);
+                links.execute(ebeanServer);
+                txn.commit();
+            } finally {
+                txn.end();
+            }
+            refreshSearchIndex(event.getEventId());
+            eventCount.invalidate();
+            return event.getEventId();
+        }, executionContext);
     }
 
     /**
@@ -186,28 +233,33 @@ public class EventRepository {
 
         return supplyAsync(() -> {
             Transaction txn = ebeanServer.beginTransaction();
-
-            Events targetEvent = ebeanServer.find(Events.class).setId(eventId).findOne();
-
-            if (targetEvent != null) {
-
-                targetEvent.setAgeRestriction(event.getAgeRestriction());
-
-                targetEvent.setDescription(event.getDescription());
-                targetEvent.setDestinationId(event.getDestinationId());
-                targetEvent.setEndDate(event.getEndDate());
-                targetEvent.setStartDate(event.getStartDate());
-                targetEvent.setEventName(event.getEventName());
-                targetEvent.setTicketLink(event.getTicketLink());
-                targetEvent.setTicketPrice(event.getTicketPrice());
-                targetEvent.update();
+            try {
+                Events targetEvent = ebeanServer.find(Events.class).setId(eventId).findOne();
+
+                if (targetEvent != null) {
+
+                    targetEvent.setAgeRestriction(event.getAgeRestriction());
+
+                    targetEvent.setDescription(event.getDescription());
+                    targetEvent.setDestinationId(event.getDestinationId());
+                    targetEvent.setEndDate(event.getEndDate());
+                    targetEvent.setStartDate(event.getStartDate());
+                    targetEvent.setEventName(event.getEventName());
+                    targetEvent.setTicketLink(event.getTicketLink());
+                    targetEvent.setTicketPrice(event.getTicketPrice());
+                    targetEvent.update();
+                    event.setEventId(targetEvent.getEventId());
+                    LinkBatch links = new LinkBatch();
+                    updateLinkingTables(event, links);
+                    links.execute(ebeanServer);
+                }
                 txn.commit();
-                event.setEventId(targetEvent.getEventId());
-                updateLinkingTables(event);
+            } finally {
+                txn.end();
             }
-            txn.end();
-        return eventId;
-    });
+            refreshSearchIndex(eventId);
+            return eventId;
+        }, executionContext);
     }
 
     /**
@@ -215,8 +267,9 @@ public class EventRepository {
      * converts objects into sets
      * performs operations to find the intersection and difference to work out what to delete and insert
      * @param event Event to be updated
+     * @param links batch the changed links are added to
      */
-    private void updateLinkingTables(Events event) {
+    private void updateLinkingTables(Events event, LinkBatch links) {
         EventType eventType = eventTypeRepository.getEventType(event.getEventId());
         Set<Integer> eventGenreSet = eventGenreRepository.getEventGenreList(event.getEventId()).stream().collect(Collectors.toSet());
 
@@ -224,20 +277,21 @@ public class EventRepository {
 
         Integer eventTypeId = eventTypeRepository.getTypeOfEventsIdByName(event.getTypeForm());
 
-        if(eventType.getTypeId() != eventTypeId) {
-            eventTypeRepository.updateEventType(event.getEventId(), eventTypeId);
+        if (eventType == null || eventType.getTypeId() != eventTypeId) {
+            links.unlinkAll("event_type", "event_id", event.getEventId())
+                    .link("event_type", "event_id", event.getEventId(), "type_id", eventTypeId);
         }
 
         if (!event.getGenreForm().equals("")) {
             Set<Integer> newGenreIds = Stream.of(event.getGenreForm().split(","))
                     .map(Integer::parseInt).collect(Collectors.toSet());
-            updateGenre(event, eventGenreSet, newGenreIds);
+            updateGenre(event, eventGenreSet, newGenreIds, links);
         }
 
         if (!event.getArtistForm().equals("")) {
             Set<Integer> newArtistIds = Stream.of(event.getArtistForm().split(","))
                     .map(Integer::parseInt).collect(Collectors.toSet());
-            updateArtist(event, eventArtistsSet, newArtistIds);
+            updateArtist(event, eventArtistsSet, newArtistIds, links);
         }
 
     }
@@ -247,12 +301,14 @@ public class EventRepository {
      * @param event Event object to be updated
      * @param eventArtistsSet Set of event artist ids that is already existing
      * @param newArtistIds Set of event artists ids that has the changes
+     * @param links batch the changes are added to
      */
-    private void updateArtist(Events event, Set<Integer> eventArtistsSet, Set<Integer> newArtistIds) {
-        ebeanServer.find(EventArtists.class).where().in("artist_id", Sets.difference(eventArtistsSet, newArtistIds)).eq("event_id", event.getEventId()).delete();
-
+    private void updateArtist(Events event, Set<Integer> eventArtistsSet, Set<Integer> newArtistIds, LinkBatch links) {
+        for (Integer i : Sets.difference(eventArtistsSet, newArtistIds)) {
+            links.unlink("event_artists", "event_id", event.getEventId(), "artist_id", i);
+        }
         for (Integer i : Sets.difference(newArtistIds, eventArtistsSet)) {
-            ebeanServer.insert(new EventArtists(event.getEventId(), i));
+            links.link("event_artists", "event_id", event.getEventId(), "artist_id", i);
         }
     }
 
@@ -262,11 +318,14 @@ public class EventRepository {
      * @param event Event object to be updated
      * @param eventGenreSet Set of event genres ids that is already existing
      * @param newGenreIds Set of event genres ids that has the changes
+     * @param links batch the changes are added to
      */
-    private void updateGenre(Events event, Set<Integer> eventGenreSet, Set<Integer> newGenreIds) {
-        ebeanServer.find(EventGenres.class).where().in("genre_id", Sets.difference(eventGenreSet, newGenreIds)).eq("event_id", event.getEventId()).delete();
+    private void updateGenre(Events event, Set<Integer> eventGenreSet, Set<Integer> newGenreIds, LinkBatch links) {
+        for (Integer i : Sets.difference(eventGenreSet, newGenreIds)) {
+            links.unlink("event_genres", "event_id", event.getEventId(), "genre_id", i);
+        }
         for (Integer i : Sets.difference(newGenreIds, eventGenreSet)) {
-            ebeanServer.insert(new EventGenres(event.getEventId(), i));
+            links.link("event_genres", "event_id", event.getEventId(), "genre_id", i);
         }
     }
 
@@ -282,189 +341,210 @@ public class EventRepository {
     }
 
     /**
-     * Helper function to save links inside the table so accesses all linking tables when event is stored
+     * Helper function to save links inside the table so accesses all linking tables when event is stored.
      * @param event Event holding forms with updated values
+     * @param links batch the links are added to
      */
-    private void saveLinkingTables(Events event) {
+    private void saveLinkingTables(Events event, LinkBatch links) {
         for (String genreId : event.getGenreForm().split(",")) {
             if(!genreId.equals("")) {  //Genre is not required, so could pass empty string here.
-                eventGenreRepository.insert(new EventGenres(event.getEventId(), Integer.parseInt(genreId)));
+                links.link("event_genres", "event_id", event.getEventId(), "genre_id", Integer.parseInt(genreId));
             }
         }
         for (String type : event.getTypeForm().split(",")) {
-            eventTypeRepository.insert(new EventType(event.getEventId(),eventTypeRepository.getTypeOfEventsIdByName(type)));
+            links.link("event_type", "event_id", event.getEventId(), "type_id",
+                    eventTypeRepository.getTypeOfEventsIdByName(type));
         }
         for (String artistId : event.getArtistForm().split(",")) {
-            eventArtistRepository.insert(new EventArtists(event.getEventId(), Integer.parseInt(artistId)));
+            links.link("event_artists", "event_id", event.getEventId(), "artist_id", Integer.parseInt(artistId));
         }
     }
 
 
     /**
-     * Private method to form the query string from the given data in the eventForm
-     * @param eventFormData eventForm data required to generate the search query
-     * @return query string for the events search
+     * A function to find out is a user is an admin of a particular event. A user is an admin of an event if they are an admin of one
+     * of the artists going to that event.
+     *
+     * @param profId The profile ID of the user.
+     * @param eventId The Id of the event to check
+     * @return True if the profile is an admin, false if they aren't
      */
-    private SqlQuery formSearchQuery(EventFormData eventFormData, int offset, int profileId) {
-        String query = "SELECT DISTINCT events.event_id, events.event_name, events.description, events.destination_id, " +
-                "events.start_date, events.end_date, events.age_restriction FROM events " +
-                "LEFT OUTER JOIN event_genres ON events.event_id = event_genres.event_id " +
-                "LEFT OUTER JOIN event_type ON events.event_id = event_type.event_id " +
-                "LEFT OUTER JOIN event_artists ON events.event_id = event_artists.event_id ";
-
+    public boolean isOwner(int profId, int eventId) {
+        List<ArtistProfile> artistProfile = ebeanServer.find(ArtistProfile.class).where().eq("profile_id", profId).findList();
+        for (int i=0;i<artistProfile.size();i++) {
+            Optional<EventArtists> eventArtists = Optional.ofNullable(ebeanServer.find(EventArtists.class).where().eq("event_id", eventId).eq("artist_id", artistProfile.get(i).getAPArtistId()).findOne());
+            if (eventArtists.isPresent()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        boolean whereAdded = false;
-        boolean likeAdded = false;
-        List<String> args = new ArrayList<>();
-        if(eventFormData.getAttending().equals("on")) {
-            query += "JOIN attend_event ON events.event_id = attend_event.event_id ";
-            query+= "WHERE attend_event.profile_id = ? ";
-            whereAdded = true;
-            args.add(Integer.toString(profileId));
+    /**
+     * Method to search for events in the database
+     *
+     * @param eventFormData data used in search
+     * @return List holding resulting events from search
+     */
+    public List<Events> searchEvent(EventFormData eventFormData, int offset, int profileId) {
+        return searchEventFaceted(eventFormData, offset, profileId).getEvents();
+    }
 
+    /**
+     * Method to search for events using the in memory search index. Only the page of events found is read
+     * from the database.
+     *
+     * @param eventFormData data used in search
+     * @param offset number of matching events to skip
+     * @param profileId id of the user searching, used for the attending and followed artists filters
+     * @return the page of events along with the total number of matches and the facet counts over them
+     */
+    public EventSearchResult searchEventFaceted(EventFormData eventFormData, int offset, int profileId) {
+        searchIndex.ensureLoaded(() -> loadSearchDocs(null));
+        EventSearchIndex.Result result = searchIndex.search(toSearchQuery(eventFormData, profileId), offset, 8);
+        List<Events> events = new ArrayList<>();
+        if (!result.getEventIds().isEmpty()) {
+            Map<Integer, Events> found = new HashMap<>();
+            for (Events event : ebeanServer.find(Events.class).where().idIn(result.getEventIds()).findList()) {
+                found.put(event.getEventId(), event);
+            }
+            for (Integer eventId : result.getEventIds()) {
+                if (found.containsKey(eventId)) {
+                    events.add(found.get(eventId));
+                }
+            }
         }
+        return new EventSearchResult(populateEvents(events), result.getTotal(), result.getFacets());
+    }
+
+    /**
+     * Fills the search index ahead of the first search
+     */
+    void loadSearchIndex() {
+        searchIndex.ensureLoaded(() -> loadSearchDocs(null));
+    }
 
-        if (!eventFormData.getEventName().equals("")){
-            query += "WHERE events.event_name LIKE ? ";
-            likeAdded = true;
-            whereAdded = true;
-            args.add(eventFormData.getEventName());
+    /**
+     * Turns the search form into a query on the search index. The attending and followed artists filters
+     * depend on the user, so the ids they need are read here with one small query each.
+     */
+    private EventSearchIndex.Query toSearchQuery(EventFormData eventFormData, int profileId) {
+        EventSearchIndex.Query query = new EventSearchIndex.Query();
+        if (!eventFormData.getEventName().equals("")) {
+            query.name(eventFormData.getEventName());
         }
         if (!eventFormData.getArtistName().equals("")) {
-            if (whereAdded){
-                query += "AND event_artists.artist_id = ?";
-            } else {
-                query += "WHERE event_artists.artist_id = ?";
-                whereAdded = true;
-            }
-            args.add(eventFormData.getArtistName());
+            query.artist(parseSearchId(eventFormData.getArtistName()));
         }
         if (!eventFormData.getEventType().equals("")) {
-            if (whereAdded){
-                query += "AND event_type.type_id = ?";
-            } else {
-                query += "WHERE event_type.type_id = ?";
-                whereAdded = true;
-            }
-            args.add(eventFormData.getEventType());
+            query.type(parseSearchId(eventFormData.getEventType()));
         }
         if (!eventFormData.getDestinationId().equals("")) {
-            if (whereAdded){
-                query += "AND events.destination_id = ?";
-            } else {
-                query += "WHERE events.destination_id = ?";
-                whereAdded = true;
-            }
-            args.add(eventFormData.getDestinationId());
+            query.destination(parseSearchId(eventFormData.getDestinationId()));
         }
         if (!eventFormData.getAgeRestriction().equals("")) {
-            if(whereAdded){
-                query += "AND events.age_restriction = ?";
-            } else {
-                query += "WHERE events.age_restriction = ?";
-                whereAdded = true;
-            }
-            args.add(eventFormData.getAgeRestriction());
+            query.ageRestriction(parseSearchId(eventFormData.getAgeRestriction()));
         }
         if (!eventFormData.getGenre().equals("")) {
-            if (whereAdded){
-                query += "AND event_genres.genre_id = ?";
-            } else {
-                query += "WHERE event_genres.genre_id = ?";
-                whereAdded = true;
-            }
-            args.add(eventFormData.getGenre());
+            query.genre(parseSearchId(eventFormData.getGenre()));
         }
         if (!eventFormData.getStartDate().equals("")) {
-            if (whereAdded){
-                query += "AND events.start_date <= ? And events.end_date >= ?";
-            } else {
-                query += "WHERE events.start_date <= ? And events.end_date >= ?";
-            }
-            args.add(eventFormData.getStartDate());
-            args.add(eventFormData.getStartDate());
+            query.on(parseSearchDate(eventFormData.getStartDate()));
+        }
+        if (eventFormData.getAttending().equals("on")) {
+            query.within(attendEventRepository.getAttendingEvents(profileId));
         }
         if (eventFormData.getFollowedArtists().equals("1")) {
-            if (whereAdded){
-                query += " AND EXISTS (SELECT follow_artist.artist_id from follow_artist where follow_artist.profile_id = ? and follow_artist.artist_id IN " +
-                        "(SELECT event_artists.artist_id from event_artists where event_artists.event_id = events.event_id AND event_artists.event_id))";
-            } else {
-                query += " WHERE EXISTS (SELECT follow_artist.artist_id from follow_artist where follow_artist.profile_id = ? and follow_artist.artist_id " +
-                        "IN (SELECT event_artists.artist_id from event_artists where event_artists.event_id = events.event_id AND event_artists.event_id))";
-            }
-            args.add(Integer.toString(profileId));
+            query.anyArtist(artistRepository.getFollowedArtistIds(profileId).orElseGet(ArrayList::new));
         }
         if (!eventFormData.getHistoric().equals("1")) {
-            if (whereAdded){
-                query += " AND DATE(events.end_date) > DATE(NOW())";
-            } else {
-                query += " WHERE DATE(events.end_date) > DATE(NOW())";
-            }
+            // Same as DATE(end_date) > DATE(NOW()), the event must still be on tomorrow
+            query.endsAfter(Date.from(LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant()));
         }
+        return query;
+    }
 
-        query += " ORDER BY events.start_date LIMIT 8 OFFSET "+offset;
-        return createSqlQuery(query, args, likeAdded);
+    /**
+     * @return the id, or -1 which matches nothing if the value is not a number
+     */
+    private static int parseSearchId(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     /**
-     * A function to find out is a user is an admin of a particular event. A user is an admin of an event if they are an admin of one
-     * of the artists going to that event.
-     *
-     * @param profId The profile ID of the user.
-     * @param eventId The Id of the event to check
-     * @return True if the profile is an admin, false if they aren't
+     * Reads a date from the search form, either a date or a datetime-local value such as 2019-11-02T18:30
+     * @return the date, or a date before every event if the value can not be read
      */
-    public boolean isOwner(int profId, int eventId) {
-        List<ArtistProfile> artistProfile = ebeanServer.find(ArtistProfile.class).where().eq("profile_id", profId).findList();
-        for (int i=0;i<artistProfile.size();i++) {
-            Optional<EventArtists> eventArtists = Optional.ofNullable(ebeanServer.find(EventArtists.class).where().eq("event_id", eventId).eq("artist_id", artistProfile.get(i).getAPArtistId()).findOne());
-            if (eventArtists.isPresent()) {
-                return true;
-            }
+    private static Date parseSearchDate(String value) {
+        String dateTime = value.trim().replace('T', ' ');
+        if (dateTime.length() == 10) {
+            dateTime += " 00:00:00";
+        } else if (dateTime.length() == 16) {
+            dateTime += ":00";
+        }
+        try {
+            return Timestamp.valueOf(dateTime);
+        } catch (IllegalArgumentException e) {
+            return new Date(Long.MIN_VALUE);
         }
-        return false;
     }
 
     /**
-     * method to turn the given string into an SQL query adding a list of parameters as wildcards
-     * @param query base string query with wild cards
-     * @param args parameters to be added to the wildcards
-     * @return SqlQuery for searching events
+     * Reads what the search index holds for events which have not been deleted
+     * @param eventIds ids of the events to read, null for every event
+     * @return the search index entries
      */
-    private SqlQuery createSqlQuery(String query, List<String> args, Boolean likeAdded){
-        SqlQuery sqlQuery = ebeanServer.createSqlQuery(query);
-        for (int i=0; i < args.size(); i++){
-            if (likeAdded) {
-                sqlQuery.setParameter(i + 1, "%" + args.get(i) + "%");
-                likeAdded = false;
-            } else {
-                sqlQuery.setParameter(i + 1, args.get(i));
+    private List<EventSearchIndex.Doc> loadSearchDocs(Collection<Integer> eventIds) {
+        if (eventIds != null && eventIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String eventFilter = eventIds == null ? "" : " AND event_id IN (" + QueryHelper.placeholders(eventIds.size()) + ")";
+        Map<Integer, EventSearchIndex.Doc> docs = new HashMap<>();
+        for (SqlRow row : searchRows("SELECT event_id, event_name, destination_id, start_date, end_date, age_restriction " +
+                "FROM events WHERE soft_delete = 0" + eventFilter, eventIds)) {
+            docs.put(row.getInteger("event_id"), new EventSearchIndex.Doc(row.getInteger("event_id"),
+                    row.getString("event_name"), row.getInteger("destination_id"), row.getTimestamp("start_date"),
+                    row.getTimestamp("end_date"), row.getInteger("age_restriction")));
+        }
+        for (SqlRow row : searchRows("SELECT event_id, genre_id FROM event_genres WHERE 1 = 1" + eventFilter, eventIds)) {
+            EventSearchIndex.Doc doc = docs.get(row.getInteger("event_id"));
+            if (doc != null) {
+                doc.addGenre(row.getInteger("genre_id"));
             }
         }
-        return sqlQuery;
+        for (SqlRow row : searchRows("SELECT event_id, type_id FROM event_type WHERE 1 = 1" + eventFilter, eventIds)) {
+            EventSearchIndex.Doc doc = docs.get(row.getInteger("event_id"));
+            if (doc != null) {
+                doc.addType(row.getInteger("type_id"));
+            }
+        }
+        for (SqlRow row : searchRows("SELECT event_id, artist_id FROM event_artists WHERE 1 = 1" + eventFilter, eventIds)) {
+            EventSearchIndex.Doc doc = docs.get(row.getInteger("event_id"));
+            if (doc != null) {
+                doc.addArtist(row.getInteger("artist_id"));
+            }
+        }
+        return new ArrayList<>(docs.values());
     }
 
+    private List<SqlRow> searchRows(String sql, Collection<Integer> eventIds) {
+        SqlQuery query = ebeanServer.createSqlQuery(sql);
+        if (eventIds != null) {
+            QueryHelper.bindAll(query, eventIds, 1);
+        }
+        return query.findList();
+    }
 
     /**
-     * Method to search for events in the database
-     *
-     * @param eventFormData data used in search
-     * @return List holding resulting events from search
+     * Brings the search index up to date with an event after it has been written
+     * @param eventId id of the event
      */
-    public List<Events> searchEvent(EventFormData eventFormData, int offset, int profileId) {
-        SqlQuery query = formSearchQuery(eventFormData, offset, profileId);
-        List<SqlRow> sqlRows = query.findList();
-        List<Events> events = new ArrayList<>();
-        if (!sqlRows.isEmpty()){
-            for (SqlRow foundEvent : sqlRows){
-                Events event = populateEvent((new Events(foundEvent.getInteger("event_id"), foundEvent.getString("event_name"),
-                        foundEvent.getString("description"), foundEvent.getInteger("destination_id"),
-                        foundEvent.getDate("start_date"), foundEvent.getDate("end_date"),
-                        foundEvent.getInteger("age_restriction"))));
-                events.add(event);
-            }
-        }
-        return events;
+    private void refreshSearchIndex(int eventId) {
+        searchIndex.refresh(Collections.singletonList(eventId), this::loadSearchDocs);
     }
 
     /**
@@ -474,7 +554,7 @@ public class EventRepository {
      * @return Optional event found
      */
     public CompletionStage<Optional<Events>> getEvent(int id) {
-        return supplyAsync(() -> Optional.ofNullable(populateEvent(ebeanServer.find(Events.class).where().eq("event_id", id).findOne())));
+        return supplyAsync(() -> Optional.ofNullable(populateEvent(ebeanServer.find(Events.class).where().eq("event_id", id).findOne())), executionContext);
     }
 
     /**
@@ -484,6 +564,8 @@ public class EventRepository {
     public void setSoftDelete(Events event, int delete) {
         event.setSoftDelete(delete);
         event.update();
+        refreshSearchIndex(event.getEventId());
+        eventCount.invalidate();
     }
 
 
@@ -497,6 +579,8 @@ public class EventRepository {
             events.setSoftDelete(delete);
             events.update();
         }
+        refreshSearchIndex(event);
+        eventCount.invalidate();
     }
 
 
@@ -509,8 +593,10 @@ public class EventRepository {
     public CompletionStage<Integer> deleteEvent(int eventId) {
         return supplyAsync(() -> {
             ebeanServer.find(Events.class).where().eq("event_id", Integer.toString(eventId)).delete();
+            refreshSearchIndex(eventId);
+            eventCount.invalidate();
             return null;
-        });
+        }, executionContext);
     }
 
     /**
@@ -526,11 +612,34 @@ public class EventRepository {
         } else {
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
             List<Events> events = ebeanServer.find(Events.class).order("startDate").setMaxRows(10).where().gt("start_date", dateFormat.format(new Date())).idIn(eventIds).findList();
-            List<Events> toReturn = new ArrayList<>();
-            for (Events event : events) {
-                toReturn.add(populateEvent(event));
-            }
-            return toReturn;
+            return populateEvents(events);
+        }
+    }
+
+    /**
+     * Gets the events held at destinations within a distance of a point, found through the destination
+     * spatial index
+     *
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusKm greatest distance in kilometres
+     * @param limit most events to return
+     * @return the events, those at the nearest destination first and then by start date
+     */
+    public List<Events> getEventsNear(double latitude, double longitude, double radiusKm, int limit) {
+        List<Integer> destinationIds = destinationRepository.getDestinationIdsNear(latitude, longitude, radiusKm);
+        if (destinationIds.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Integer> rank = new HashMap<>();
+        for (Integer destinationId : destinationIds) {
+            rank.put(destinationId, rank.size());
         }
+        List<Events> events = ebeanServer.find(Events.class).where()
+                .in("destination_id", destinationIds)
+                .eq("soft_delete", 0)
+                .order("startDate").findList();
+        events.sort(Comparator.comparingInt(event -> rank.get(event.getDestinationId())));
+        return populateEvents(new ArrayList<>(events.subList(0, Math.min(limit, events.size()))));
     }
 }
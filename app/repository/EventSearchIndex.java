@@ -0,0 +1,395 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.*;
+
+/**
+ * In memory search index over the events which have not been deleted. Holds a posting list (a bitset of
+ * event ids) per genre, type, artist, destination, age restriction and suffix of a name token, so a search
+ * is a few bitset intersections rather than a join across the linking tables. Only the ids of the requested
+ * page are handed back, the events themselves are still read from the database.
+ *
+ * The index is filled on first use. EventRepository refreshes an event whenever it is inserted, updated,
+ * soft deleted, restored or deleted, so the index only has to be rebuilt after events are written around it,
+ * see ReferenceDataLoader.reload.
+ */
+final class EventSearchIndex extends InMemoryIndex<EventSearchIndex.Doc> {
+
+    static final String GENRE = "genre";
+    static final String TYPE = "type";
+    static final String ARTIST = "artist";
+    static final String DESTINATION = "destination";
+    static final String AGE_RESTRICTION = "ageRestriction";
+
+    private static final PerServer<EventSearchIndex> instances = new PerServer<>(server -> new EventSearchIndex());
+
+    private static final Comparator<Doc> BY_START_DATE = Comparator
+            .comparing((Doc doc) -> doc.startDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(doc -> doc.eventId);
+
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final NavigableSet<Doc> byStartDate = new TreeSet<>(BY_START_DATE);
+    private final Map<String, Map<Integer, BitSet>> postings = new HashMap<>();
+    private final NavigableMap<String, BitSet> suffixes = new TreeMap<>();
+    private final BitSet all = new BitSet();
+
+    private EventSearchIndex() {
+        for (String facet : Arrays.asList(GENRE, TYPE, ARTIST, DESTINATION, AGE_RESTRICTION)) {
+            postings.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * @param ebeanServer the ebean server the events are read from
+     * @return the index for that server
+     */
+    static EventSearchIndex getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    @Override
+    protected void clear() {
+        docs.clear();
+        byStartDate.clear();
+        suffixes.clear();
+        all.clear();
+        for (Map<Integer, BitSet> facet : postings.values()) {
+            facet.clear();
+        }
+    }
+
+    /**
+     * Finds the events matching a query
+     * @param query what to match
+     * @param offset number of matching events to skip, in start date order
+     * @param limit most event ids to return
+     * @return one page of ids along with the total and facet counts over every match
+     */
+    Result search(Query query, int offset, int limit) {
+        return read(() -> {
+            BitSet matches = match(query);
+            List<Integer> page = new ArrayList<>();
+            int skipped = 0;
+            for (Doc doc : byStartDate) {
+                if (page.size() == limit) {
+                    break;
+                }
+                if (matches.get(doc.eventId)) {
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        page.add(doc.eventId);
+                    }
+                }
+            }
+            return new Result(page, matches.cardinality(), countFacets(matches));
+        });
+    }
+
+    @Override
+    protected int count() {
+        return docs.size();
+    }
+
+    private BitSet match(Query query) {
+        BitSet matches = (BitSet) all.clone();
+        and(matches, GENRE, query.genreId);
+        and(matches, TYPE, query.typeId);
+        and(matches, ARTIST, query.artistId);
+        and(matches, DESTINATION, query.destinationId);
+        and(matches, AGE_RESTRICTION, query.ageRestriction);
+        if (query.eventIds != null) {
+            BitSet allowed = new BitSet();
+            query.eventIds.forEach(allowed::set);
+            matches.and(allowed);
+        }
+        if (query.anyArtistIds != null) {
+            BitSet anyArtist = new BitSet();
+            for (Integer artistId : query.anyArtistIds) {
+                BitSet posting = postings.get(ARTIST).get(artistId);
+                if (posting != null) {
+                    anyArtist.or(posting);
+                }
+            }
+            matches.and(anyArtist);
+        }
+        if (query.name != null) {
+            matchName(matches, query.name);
+        }
+        for (int eventId = matches.nextSetBit(0); eventId >= 0; eventId = matches.nextSetBit(eventId + 1)) {
+            Doc doc = docs.get(eventId);
+            if ((query.at != null && !doc.isOn(query.at)) || (query.endsAfter != null && !doc.endsAfter(query.endsAfter))) {
+                matches.clear(eventId);
+            }
+        }
+        return matches;
+    }
+
+    private void and(BitSet matches, String facet, Integer value) {
+        if (value != null) {
+            BitSet posting = postings.get(facet).get(value);
+            if (posting == null) {
+                matches.clear();
+            } else {
+                matches.and(posting);
+            }
+        }
+    }
+
+    /**
+     * Narrows to the events whose name contains the given text. Each word of the text must be part of a token
+     * of the name. A token contains the word when one of its suffixes starts with it, so the suffixes starting
+     * with the word are one range of the sorted suffix map. The names left over are then checked in full, as the
+     * words must also appear together in that order.
+     */
+    private void matchName(BitSet matches, String name) {
+        String text = name.toLowerCase(Locale.ROOT);
+        for (String word : tokenize(text)) {
+            BitSet containing = new BitSet();
+            for (BitSet posting : suffixes.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                containing.or(posting);
+            }
+            matches.and(containing);
+        }
+        for (int eventId = matches.nextSetBit(0); eventId >= 0; eventId = matches.nextSetBit(eventId + 1)) {
+            if (!docs.get(eventId).lowerName.contains(text)) {
+                matches.clear(eventId);
+            }
+        }
+    }
+
+    private Map<String, Map<Integer, Integer>> countFacets(BitSet matches) {
+        Map<String, Map<Integer, Integer>> facets = new HashMap<>();
+        for (String facet : postings.keySet()) {
+            facets.put(facet, new HashMap<>());
+        }
+        for (int eventId = matches.nextSetBit(0); eventId >= 0; eventId = matches.nextSetBit(eventId + 1)) {
+            Doc doc = docs.get(eventId);
+            for (Map.Entry<String, Set<Integer>> facet : doc.facetValues().entrySet()) {
+                Map<Integer, Integer> counts = facets.get(facet.getKey());
+                for (Integer value : facet.getValue()) {
+                    counts.merge(value, 1, Integer::sum);
+                }
+            }
+        }
+        return facets;
+    }
+
+    @Override
+    protected void add(Doc doc) {
+        docs.put(doc.eventId, doc);
+        byStartDate.add(doc);
+        all.set(doc.eventId);
+        for (Map.Entry<String, Set<Integer>> facet : doc.facetValues().entrySet()) {
+            for (Integer value : facet.getValue()) {
+                postings.get(facet.getKey()).computeIfAbsent(value, key -> new BitSet()).set(doc.eventId);
+            }
+        }
+        for (String suffix : suffixes(doc.lowerName)) {
+            suffixes.computeIfAbsent(suffix, key -> new BitSet()).set(doc.eventId);
+        }
+    }
+
+    @Override
+    protected void remove(int eventId) {
+        Doc doc = docs.remove(eventId);
+        if (doc == null) {
+            return;
+        }
+        byStartDate.remove(doc);
+        all.clear(eventId);
+        for (Map.Entry<String, Set<Integer>> facet : doc.facetValues().entrySet()) {
+            Map<Integer, BitSet> facetPostings = postings.get(facet.getKey());
+            for (Integer value : facet.getValue()) {
+                clear(facetPostings, value, eventId);
+            }
+        }
+        for (String suffix : suffixes(doc.lowerName)) {
+            clear(suffixes, suffix, eventId);
+        }
+    }
+
+    private static <K> void clear(Map<K, BitSet> postingLists, K key, int eventId) {
+        BitSet posting = postingLists.get(key);
+        if (posting != null) {
+            posting.clear(eventId);
+            if (posting.isEmpty()) {
+                postingLists.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return every suffix of every token of the text
+     */
+    private static Set<String> suffixes(String text) {
+        Set<String> found = new HashSet<>();
+        for (String token : tokenize(text)) {
+            for (int i = 0; i < token.length(); i++) {
+                found.add(token.substring(i));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * What the index holds for one event
+     */
+    static final class Doc {
+        private final int eventId;
+        private final String lowerName;
+        private final Date startDate;
+        private final Date endDate;
+        private final Map<String, Set<Integer>> facetValues = new HashMap<>();
+
+        Doc(int eventId, String name, int destinationId, Date startDate, Date endDate, Integer ageRestriction) {
+            this.eventId = eventId;
+            this.lowerName = name == null ? "" : name.toLowerCase(Locale.ROOT);
+            this.startDate = startDate;
+            this.endDate = endDate;
+            facetValues.put(DESTINATION, Collections.singleton(destinationId));
+            facetValues.put(AGE_RESTRICTION, ageRestriction == null ? Collections.emptySet()
+                    : Collections.singleton(ageRestriction));
+            facetValues.put(GENRE, new HashSet<>());
+            facetValues.put(TYPE, new HashSet<>());
+            facetValues.put(ARTIST, new HashSet<>());
+        }
+
+        int getEventId() {
+            return eventId;
+        }
+
+        void addGenre(int genreId) {
+            facetValues.get(GENRE).add(genreId);
+        }
+
+        void addType(int typeId) {
+            facetValues.get(TYPE).add(typeId);
+        }
+
+        void addArtist(int artistId) {
+            facetValues.get(ARTIST).add(artistId);
+        }
+
+        private Map<String, Set<Integer>> facetValues() {
+            return facetValues;
+        }
+
+        private boolean isOn(Date at) {
+            return startDate != null && endDate != null && !startDate.after(at) && !endDate.before(at);
+        }
+
+        private boolean endsAfter(Date date) {
+            return endDate != null && !endDate.before(date);
+        }
+    }
+
+    /**
+     * A search, every field left null matches everything
+     */
+    static final class Query {
+        private String name;
+        private Integer genreId;
+        private Integer typeId;
+        private Integer artistId;
+        private Integer destinationId;
+        private Integer ageRestriction;
+        private Date at;
+        private Date endsAfter;
+        private Collection<Integer> eventIds;
+        private Collection<Integer> anyArtistIds;
+
+        /** Events whose name contains the text, ignoring case */
+        Query name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        Query genre(Integer genreId) {
+            this.genreId = genreId;
+            return this;
+        }
+
+        Query type(Integer typeId) {
+            this.typeId = typeId;
+            return this;
+        }
+
+        Query artist(Integer artistId) {
+            this.artistId = artistId;
+            return this;
+        }
+
+        Query destination(Integer destinationId) {
+            this.destinationId = destinationId;
+            return this;
+        }
+
+        Query ageRestriction(Integer ageRestriction) {
+            this.ageRestriction = ageRestriction;
+            return this;
+        }
+
+        /** Events which have started by the given time and not yet finished */
+        Query on(Date at) {
+            this.at = at;
+            return this;
+        }
+
+        /** Events which finish at or after the given time */
+        Query endsAfter(Date endsAfter) {
+            this.endsAfter = endsAfter;
+            return this;
+        }
+
+        /** Only events in the given collection */
+        Query within(Collection<Integer> eventIds) {
+            this.eventIds = eventIds;
+            return this;
+        }
+
+        /** Events with at least one of the given artists */
+        Query anyArtist(Collection<Integer> artistIds) {
+            this.anyArtistIds = artistIds;
+            return this;
+        }
+    }
+
+    /**
+     * One page of a search
+     */
+    static final class Result {
+        private final List<Integer> eventIds;
+        private final int total;
+        private final Map<String, Map<Integer, Integer>> facets;
+
+        private Result(List<Integer> eventIds, int total, Map<String, Map<Integer, Integer>> facets) {
+            this.eventIds = eventIds;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        List<Integer> getEventIds() {
+            return eventIds;
+        }
+
+        int getTotal() {
+            return total;
+        }
+
+        Map<String, Map<Integer, Integer>> getFacets() {
+            return facets;
+        }
+    }
+}
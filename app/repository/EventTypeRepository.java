@@ -4,13 +4,10 @@ import io.ebean.Ebean;
 import io.ebean.EbeanServer;
 import models.EventGenres;
 import models.EventType;
-import models.TypeOfEvents;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -19,11 +16,13 @@ public class EventTypeRepository {
 
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
+    private final ReferenceDataCache referenceData;
 
     @Inject
     public EventTypeRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext){
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.referenceData = ReferenceDataCache.getInstance(ebeanServer);
     }
 
     /**
@@ -79,7 +78,7 @@ public class EventTypeRepository {
                     .eq("event_id", eventId)
                     .delete();
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -89,7 +88,7 @@ public class EventTypeRepository {
      * @return the found id
      */
     public Integer getTypeOfEventsIdByName(String typeName){
-        return (ebeanServer.find(TypeOfEvents.class).where().eq("type_name", typeName).findOne().getTypeId());
+        return referenceData.getEventTypes().findIdByName(typeName).orElse(null);
     }
 
     /**
@@ -100,16 +99,36 @@ public class EventTypeRepository {
     public List<String> getEventTypeOfEvents(int eventId) {
         List<EventType> eventTypes = ebeanServer.find(EventType.class).where().eq("event_id", eventId).findList();
         List<String> types = new ArrayList<>();
-        Optional<TypeOfEvents> type;
         for (EventType eventType : eventTypes) {
-            type = Optional.ofNullable(ebeanServer.find(TypeOfEvents.class).where().eq("type_id", eventType.getTypeId()).findOne());
-            if(type.isPresent()) {
-                types.add(type.get().getTypeName());
-            }
+            referenceData.getEventTypes().findById(eventType.getTypeId()).ifPresent(types::add);
         }
         return (types);
     }
 
+    /**
+     * Get the type names for a group of events using one query for the links and one for the types
+     * @param eventIds ids of the events
+     * @return Map of event id to the list of type names linked to that event
+     */
+    public Map<Integer, List<String>> getEventTypeOfEvents(Collection<Integer> eventIds) {
+        Map<Integer, List<String>> eventTypes = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return eventTypes;
+        }
+        List<EventType> links = ebeanServer.find(EventType.class).where().in("event_id", eventIds).findList();
+        Map<Integer, String> types = referenceData.getEventTypes().getAll();
+        for (Integer eventId : eventIds) {
+            eventTypes.put(eventId, new ArrayList<>());
+        }
+        for (EventType link : links) {
+            String type = types.get(link.getTypeId());
+            if (type != null) {
+                eventTypes.get(link.getEventId()).add(type);
+            }
+        }
+        return eventTypes;
+    }
+
     /**
      * EventType Delete
      * Method to delete an EventType object from the database by a given id
@@ -123,6 +142,6 @@ public class EventTypeRepository {
                     .eq("event_id", eventId)
                     .delete();
             return null;
-        });
+        }, executionContext);
     }
 }
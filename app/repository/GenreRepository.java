@@ -8,9 +8,7 @@ import models.MusicGenre;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -22,6 +20,7 @@ public class GenreRepository {
 
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
+    private final ReferenceDataCache referenceData;
 
 
     /**
@@ -34,6 +33,7 @@ public class GenreRepository {
     public GenreRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext) {
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.referenceData = ReferenceDataCache.getInstance(ebeanServer);
     }
 
 
@@ -43,7 +43,7 @@ public class GenreRepository {
      * @return A list of all retrieved MusicGenre objects
      */
     public List<MusicGenre> getAllGenres() {
-        return ebeanServer.find(MusicGenre.class).findList();
+        return new ArrayList<>(referenceData.getGenres().getAll().values());
     }
 
 
@@ -56,10 +56,8 @@ public class GenreRepository {
     public Optional<List<MusicGenre>> getArtistGenres(int artistId) {
         List<ArtistGenre> artistGenres = ebeanServer.find(ArtistGenre.class).where().eq("artist_id", artistId).findList();
         List<MusicGenre> genres = new ArrayList<>();
-        Optional<MusicGenre> musicGenre;
         for (ArtistGenre genre : artistGenres) {
-            musicGenre = Optional.ofNullable(ebeanServer.find(MusicGenre.class).where().eq("genre_id", genre.getGenreId()).findOne());
-            musicGenre.ifPresent(genres::add);
+            referenceData.getGenres().findById(genre.getGenreId()).ifPresent(genres::add);
         }
         return Optional.of(genres);
     }
@@ -105,7 +103,7 @@ public class GenreRepository {
      * @return the found id
      */
     public Integer getGenreIdByName(String genreName){
-        return (ebeanServer.find(MusicGenre.class).where().eq("genre", genreName).findOne().getGenreId());
+        return referenceData.getGenres().findIdByName(genreName).orElse(null);
     }
 
     /**
@@ -116,14 +114,36 @@ public class GenreRepository {
     public List<MusicGenre> getEventGenres(int eventId) {
         List<EventGenres> eventGenres = ebeanServer.find(EventGenres.class).where().eq("event_id", eventId).findList();
         List<MusicGenre> genres = new ArrayList<>();
-        Optional<MusicGenre> musicGenre;
         for (EventGenres genre : eventGenres) {
-            musicGenre = Optional.ofNullable(ebeanServer.find(MusicGenre.class).where().eq("genre_id", genre.getGenreId()).findOne());
-            musicGenre.ifPresent(genres::add);
+            referenceData.getGenres().findById(genre.getGenreId()).ifPresent(genres::add);
         }
         return (genres);
     }
 
+    /**
+     * Method to retrieve the genres for a group of events using one query for the links and one for the genres
+     * @param eventIds ids of the events to retrieve genres for
+     * @return Map of event id to the list of music genres linked to that event
+     */
+    public Map<Integer, List<MusicGenre>> getEventGenres(Collection<Integer> eventIds) {
+        Map<Integer, List<MusicGenre>> eventGenres = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return eventGenres;
+        }
+        List<EventGenres> links = ebeanServer.find(EventGenres.class).where().in("event_id", eventIds).findList();
+        Map<Integer, MusicGenre> genres = referenceData.getGenres().getAll();
+        for (Integer eventId : eventIds) {
+            eventGenres.put(eventId, new ArrayList<>());
+        }
+        for (EventGenres link : links) {
+            MusicGenre genre = genres.get(link.getGenreId());
+            if (genre != null) {
+                eventGenres.get(link.getEventId()).add(genre);
+            }
+        }
+        return eventGenres;
+    }
+
 
     /**
      * Method to return a genre by giving it the id of the genre
@@ -131,6 +151,6 @@ public class GenreRepository {
      * @return Genre String of the genre
      */
     public String getGenre(Integer genreId) {
-        return (ebeanServer.find(MusicGenre.class).where().eq("genre_id", genreId).findOne().getGenre());
+        return referenceData.getGenres().findById(genreId).map(MusicGenre::getGenre).orElse(null);
     }
 }
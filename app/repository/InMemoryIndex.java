@@ -0,0 +1,191 @@
+package repository;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * What the in memory indexes over a table have in common. An index is filled on first use, then kept up to date
+ * by its repository refreshing each row it writes, and dropped with invalidateAll after rows are written around
+ * the repository. Searches run under a read lock and changes under a write lock.
+ *
+ * Rows are read from the database without holding the lock, so searches carry on against what the index already
+ * holds while a fill or refresh waits on the database, and only block for the moment the rows read are swapped in.
+ * Every change counts up a version. If the version has moved on by the time the rows read are swapped in, they
+ * may be older than a change made meanwhile, so they are read again. After a few tries they are read while
+ * holding the lock, so a steady stream of changes can not keep the index from being filled.
+ *
+ * @param <D> what the index holds for one row
+ */
+abstract class InMemoryIndex<D> {
+
+    private static final int READ_ATTEMPTS = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+    private boolean loaded;
+
+    /**
+     * Fills the index if it has not been filled yet
+     * @param loader reads every row the index should hold
+     */
+    void ensureLoaded(Supplier<? extends Collection<D>> loader) {
+        load(() -> {
+            Collection<D> docs = loader.get();
+            return () -> {
+                for (D doc : docs) {
+                    add(doc);
+                }
+            };
+        });
+    }
+
+    /**
+     * Replaces what the index holds for the given rows
+     * @param ids ids of the rows which have changed
+     * @param loader reads the given rows, leaving out any the index should no longer hold
+     */
+    void refresh(Collection<Integer> ids, Function<Collection<Integer>, ? extends Collection<D>> loader) {
+        long readVersion = version.incrementAndGet();
+        for (int attempt = 1; ; attempt++) {
+            if (!isLoaded()) {
+                return;
+            }
+            Collection<? extends D> docs = loader.apply(ids);
+            lock.writeLock().lock();
+            try {
+                if (!loaded) {
+                    return;
+                }
+                if (version.get() != readVersion) {
+                    if (attempt < READ_ATTEMPTS) {
+                        readVersion = version.get();
+                        continue;
+                    }
+                    docs = loader.apply(ids);
+                }
+                for (Integer id : ids) {
+                    remove(id);
+                }
+                for (D doc : docs) {
+                    add(doc);
+                }
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Drops everything so the index is filled again on the next search
+     */
+    void invalidateAll() {
+        version.incrementAndGet();
+        lock.writeLock().lock();
+        try {
+            clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of rows the index holds
+     */
+    int size() {
+        return read(this::count);
+    }
+
+    /**
+     * Fills the index if it has not been filled yet
+     * @param reader reads the rows, without the lock held, and returns what adds them to the index
+     */
+    protected final void load(Supplier<Runnable> reader) {
+        for (int attempt = 1; ; attempt++) {
+            long readVersion;
+            lock.readLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+                readVersion = version.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+            Runnable fill = reader.get();
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+                if (version.get() != readVersion) {
+                    if (attempt < READ_ATTEMPTS) {
+                        continue;
+                    }
+                    fill = reader.get();
+                }
+                clear();
+                fill.run();
+                loaded = true;
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs a change to the index which needs nothing from the database, skipped if the index has not been
+     * filled as it will be read in full anyway
+     * @param change the change
+     */
+    protected final void update(Runnable change) {
+        version.incrementAndGet();
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param search reads the index
+     * @return what the search returned
+     */
+    protected final <T> T read(Supplier<T> search) {
+        lock.readLock().lock();
+        try {
+            return search.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected abstract void add(D doc);
+
+    protected abstract void remove(int id);
+
+    /**
+     * Drops everything the index holds
+     */
+    protected abstract void clear();
+
+    protected abstract int count();
+}
@@ -0,0 +1,106 @@
+package repository;
+
+import io.ebean.ExpressionList;
+import models.KeysetPage;
+import models.PageCursor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Applies keyset (seek) pagination to an ebean query. Rows are ordered by a sort column then by id, and a
+ * page is found by seeking past the last row of the previous page instead of using an offset, so every
+ * page costs the same as the first one.
+ *
+ * @param <T> the model type being paged
+ */
+final class KeysetPaginator<T> {
+
+    private final String sortColumn;
+    private final String idColumn;
+    private final Function<T, Long> sortKeyOf;
+    private final Function<T, Integer> idOf;
+    private final Function<Long, Object> toSortValue;
+
+    /**
+     * Paginator for lists sorted by a column other than the id, with the id breaking ties
+     *
+     * @param sortColumn the column sorted on
+     * @param idColumn the id column of the table
+     * @param sortKeyOf gets the sort key of a row as a long, dates as epoch millis
+     * @param idOf gets the id of a row
+     * @param toSortValue converts a sort key back into the value bound against the sort column
+     */
+    KeysetPaginator(String sortColumn, String idColumn, Function<T, Long> sortKeyOf, Function<T, Integer> idOf,
+                    Function<Long, Object> toSortValue) {
+        this.sortColumn = sortColumn;
+        this.idColumn = idColumn;
+        this.sortKeyOf = sortKeyOf;
+        this.idOf = idOf;
+        this.toSortValue = toSortValue;
+    }
+
+    /**
+     * Paginator for lists sorted by id only
+     *
+     * @param idColumn the id column of the table
+     * @param idOf gets the id of a row
+     */
+    KeysetPaginator(String idColumn, Function<T, Integer> idOf) {
+        this(idColumn, idColumn, row -> idOf.apply(row).longValue(), idOf, Long::intValue);
+    }
+
+    /**
+     * Finds one page of rows
+     *
+     * @param where the query with any filters already applied
+     * @param cursorToken token of the page to find, null or invalid for the first page
+     * @param pageSize max number of rows in the page
+     * @return the page along with the tokens for the pages either side of it
+     */
+    KeysetPage<T> page(ExpressionList<T> where, String cursorToken, int pageSize) {
+        PageCursor cursor = PageCursor.decode(cursorToken).orElse(null);
+        boolean backwards = cursor != null && cursor.isBefore();
+        String direction = backwards ? "desc" : "asc";
+
+        if (cursor != null) {
+            String comparison = backwards ? "<" : ">";
+            if (sortColumn.equals(idColumn)) {
+                where.raw(idColumn + " " + comparison + " ?", cursor.getId());
+            } else {
+                Object sortValue = toSortValue.apply(cursor.getSortKey());
+                where.raw("(" + sortColumn + " " + comparison + " ? OR (" + sortColumn + " = ? AND "
+                        + idColumn + " " + comparison + " ?))", sortValue, sortValue, cursor.getId());
+            }
+        }
+        String order = sortColumn.equals(idColumn) ? idColumn + " " + direction
+                : sortColumn + " " + direction + ", " + idColumn + " " + direction;
+        List<T> rows = new ArrayList<>(where.orderBy(order).setMaxRows(pageSize + 1).findList());
+
+        boolean more = rows.size() > pageSize;
+        if (more) {
+            rows.remove(rows.size() - 1);
+        }
+        if (backwards) {
+            Collections.reverse(rows);
+        }
+        boolean hasNext = backwards || more;
+        boolean hasPrevious = backwards ? more : cursor != null;
+
+        String next = null;
+        String previous = null;
+        if (!rows.isEmpty()) {
+            T last = rows.get(rows.size() - 1);
+            T first = rows.get(0);
+            if (hasNext) {
+                next = PageCursor.after(sortKeyOf.apply(last), idOf.apply(last)).encode();
+            }
+            if (hasPrevious) {
+                previous = PageCursor.before(sortKeyOf.apply(first), idOf.apply(first)).encode();
+            }
+        }
+        return new KeysetPage<>(rows, next, previous);
+    }
+}
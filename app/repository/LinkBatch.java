@@ -0,0 +1,142 @@
+package repository;
+
+import com.google.common.collect.Sets;
+import io.ebean.EbeanServer;
+import io.ebean.SqlRow;
+import io.ebean.SqlUpdate;
+
+import java.util.*;
+
+/**
+ * Collects the linking table rows written by one save, such as the genres, types and artists of an event, so
+ * they go to the database as one JDBC batch per statement instead of one round trip per row. Every linking
+ * table holds a pair of ids, the parent first then the row linked to it.
+ *
+ * execute runs in the transaction active on the calling thread, so the links are committed or rolled back
+ * together with the parent row.
+ */
+final class LinkBatch {
+
+    private final Map<String, List<Object[]>> deletes = new LinkedHashMap<>();
+    private final Map<String, List<Object[]>> inserts = new LinkedHashMap<>();
+
+    /**
+     * Removes every link of a parent
+     * @param table the linking table, eg "artist_genre"
+     * @param parentColumn column holding the parent id, eg "artist_id"
+     * @param parentId id of the parent
+     * @return this batch
+     */
+    LinkBatch unlinkAll(String table, String parentColumn, int parentId) {
+        add(deletes, "DELETE FROM " + table + " WHERE " + parentColumn + " = ?", parentId);
+        return this;
+    }
+
+    /**
+     * Removes one link
+     * @param table the linking table, eg "artist_genre"
+     * @param parentColumn column holding the parent id, eg "artist_id"
+     * @param parentId id of the parent
+     * @param childColumn column holding the linked id, eg "genre_id"
+     * @param childId the linked id
+     * @return this batch
+     */
+    LinkBatch unlink(String table, String parentColumn, int parentId, String childColumn, int childId) {
+        add(deletes, "DELETE FROM " + table + " WHERE " + parentColumn + " = ? AND " + childColumn + " = ?",
+                parentId, childId);
+        return this;
+    }
+
+    /**
+     * Adds one link
+     * @param table the linking table, eg "artist_genre"
+     * @param parentColumn column holding the parent id, eg "artist_id"
+     * @param parentId id of the parent
+     * @param childColumn column holding the linked id, eg "genre_id"
+     * @param childId the linked id
+     * @return this batch
+     */
+    LinkBatch link(String table, String parentColumn, int parentId, String childColumn, int childId) {
+        add(inserts, "INSERT INTO " + table + " (" + parentColumn + ", " + childColumn + ") VALUES (?, ?)",
+                parentId, childId);
+        return this;
+    }
+
+    /**
+     * Adds a link to each of the given ids, skipping repeats
+     * @return this batch
+     */
+    LinkBatch linkAll(String table, String parentColumn, int parentId, String childColumn,
+                      Collection<Integer> childIds) {
+        for (Integer childId : new LinkedHashSet<>(childIds)) {
+            link(table, parentColumn, parentId, childColumn, childId);
+        }
+        return this;
+    }
+
+    /**
+     * Brings the links of a parent in line with the given ids, adding only the links which are missing and
+     * removing only the ones no longer wanted, so saving unchanged links writes nothing. The current links are
+     * read with one query.
+     * @param ebeanServer the server to read the current links from
+     * @param table the linking table, eg "artist_genre"
+     * @param parentColumn column holding the parent id, eg "artist_id"
+     * @param parentId id of the parent
+     * @param childColumn column holding the linked id, eg "genre_id"
+     * @param childIds every id the parent should be linked to
+     * @return this batch
+     */
+    LinkBatch sync(EbeanServer ebeanServer, String table, String parentColumn, int parentId, String childColumn,
+                   Collection<Integer> childIds) {
+        Set<Integer> current = new HashSet<>();
+        for (SqlRow row : ebeanServer.createSqlQuery("SELECT " + childColumn + " FROM " + table + " WHERE "
+                + parentColumn + " = ?").setParameter(1, parentId).findList()) {
+            Integer childId = row.getInteger(childColumn);
+            if (childId != null) {
+                current.add(childId);
+            }
+        }
+        Set<Integer> wanted = new LinkedHashSet<>(childIds);
+        for (Integer childId : Sets.difference(current, wanted)) {
+            unlink(table, parentColumn, parentId, childColumn, childId);
+        }
+        for (Integer childId : Sets.difference(wanted, current)) {
+            link(table, parentColumn, parentId, childColumn, childId);
+        }
+        return this;
+    }
+
+    /**
+     * @return true if there is nothing to write
+     */
+    boolean isEmpty() {
+        return deletes.isEmpty() && inserts.isEmpty();
+    }
+
+    /**
+     * Writes the removals then the new links, one batch for each statement, and empties the batch
+     * @param ebeanServer the server to write to, the transaction active on this thread is used
+     */
+    void execute(EbeanServer ebeanServer) {
+        run(ebeanServer, deletes);
+        run(ebeanServer, inserts);
+    }
+
+    private static void add(Map<String, List<Object[]>> statements, String sql, Object... parameters) {
+        statements.computeIfAbsent(sql, key -> new ArrayList<>()).add(parameters);
+    }
+
+    private static void run(EbeanServer ebeanServer, Map<String, List<Object[]>> statements) {
+        for (Map.Entry<String, List<Object[]>> statement : statements.entrySet()) {
+            SqlUpdate update = ebeanServer.createSqlUpdate(statement.getKey());
+            for (Object[] parameters : statement.getValue()) {
+                for (int i = 0; i < parameters.length; i++) {
+                    update.setParameter(i + 1, parameters[i]);
+                }
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+        statements.clear();
+    }
+}
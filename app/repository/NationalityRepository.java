@@ -2,14 +2,13 @@ package repository;
 
 import io.ebean.Ebean;
 import io.ebean.EbeanServer;
+import io.ebean.SqlQuery;
 import io.ebean.SqlRow;
 import models.Nationality;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -85,6 +84,41 @@ public class NationalityRepository {
         return Optional.ofNullable(nationalityId);
     }
 
+    /**
+     * Gets the ids of nationalities by name with one query, inserting any which do not exist yet in the
+     * transaction active on this thread
+     * @param nationalities names of the nationalities
+     * @return the ids in the order of the names, without repeats
+     */
+    List<Integer> getOrCreateIds(Collection<String> nationalities) {
+        Set<String> names = new LinkedHashSet<>(nationalities);
+        List<Integer> ids = new ArrayList<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        SqlQuery query = ebeanServer.createSqlQuery("select nationality_id, nationality_name from nationality " +
+                "where nationality_name in (" + QueryHelper.placeholders(names.size()) + ")");
+        QueryHelper.bindAll(query, names, 1);
+        // Names are matched ignoring case, as the database does
+        Map<String, Integer> found = new HashMap<>();
+        for (SqlRow row : query.findList()) {
+            found.put(row.getString("nationality_name").toLowerCase(Locale.ROOT), row.getInteger("nationality_id"));
+        }
+        for (String name : names) {
+            Integer id = found.get(name.toLowerCase(Locale.ROOT));
+            if (id == null) {
+                Nationality nationality = new Nationality(name);
+                ebeanServer.insert(nationality);
+                id = nationality.getNationalityId();
+                found.put(name.toLowerCase(Locale.ROOT), id);
+            }
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
     /**
      * Method to retrieve all Nationalities from the database
      *
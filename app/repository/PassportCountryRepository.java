@@ -6,10 +6,7 @@ import models.PassportCountry;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -22,11 +19,13 @@ public class PassportCountryRepository {
 
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
+    private final ReferenceDataCache referenceData;
 
     @Inject
     public PassportCountryRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext) {
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.referenceData = ReferenceDataCache.getInstance(ebeanServer);
     }
 
     /**
@@ -47,6 +46,7 @@ public class PassportCountryRepository {
                     query.setParameter(2, id);
                     query.execute();
                     transaction.commit();
+                    referenceData.getPassportCountries().invalidate();
                     value = Optional.of(passport.getPassportId());
                 }
             } finally {
@@ -67,6 +67,7 @@ public class PassportCountryRepository {
         return supplyAsync(() -> {
             try {
                 PassportCountry.find.deleteById(Integer.toString(id));
+                referenceData.getPassportCountries().invalidate();
                 return Optional.of(1);
             } catch (Exception e) {
                 return Optional.empty();
@@ -82,10 +83,10 @@ public class PassportCountryRepository {
     public CompletionStage<Optional<Integer>> insert(PassportCountry passport) {
         return supplyAsync(() -> {
             ebeanServer.insert(passport);
-
+            referenceData.getPassportCountries().invalidate();
 
             return Optional.of(passport.getPassportId());
-        });
+        }, executionContext);
     }
 
     /**
@@ -94,7 +95,7 @@ public class PassportCountryRepository {
      * @return CompletionStage holding an Optional of the PassportCountry if found
      */
     public Optional<PassportCountry> findById(int id) {
-            return Optional.ofNullable(ebeanServer.find(PassportCountry.class).where().eq("passport_country_id", id).findOne());
+        return referenceData.getPassportCountries().findById(id);
     }
 
     /**
@@ -103,13 +104,29 @@ public class PassportCountryRepository {
      * @return An optional holding the country id if found else empty
      */
     public Optional<Integer> getPassportCountryId(String country) {
-        String sql = ("select passport_country_id from passport_country where passport_name = ?");
-        List<SqlRow> rowList = ebeanServer.createSqlQuery(sql).setParameter(1, country).findList();
-        if (rowList.isEmpty()) {
-            return Optional.empty();
-        } else {
-            return Optional.of(rowList.get(0).getInteger("passport_country_id"));
+        return referenceData.getPassportCountries().findIdByName(country);
+    }
+
+    /**
+     * Gets the ids of passport countries by name, inserting any which do not exist yet in the transaction
+     * active on this thread
+     * @param countries names of the countries
+     * @return the ids in the order of the names, without repeats
+     */
+    List<Integer> getOrCreateIds(Collection<String> countries) {
+        List<Integer> ids = new ArrayList<>();
+        for (String country : new LinkedHashSet<>(countries)) {
+            Optional<Integer> id = referenceData.getPassportCountries().findIdByName(country);
+            if (id.isPresent()) {
+                ids.add(id.get());
+            } else {
+                PassportCountry passportCountry = new PassportCountry(country);
+                ebeanServer.insert(passportCountry);
+                referenceData.getPassportCountries().invalidateAfterCommit(ebeanServer);
+                ids.add(passportCountry.getPassportId());
+            }
         }
+        return ids;
     }
 
     /**
@@ -119,7 +136,7 @@ public class PassportCountryRepository {
      * @return CompletionStage holding an Optional of the a passport Map keyed by the database id
      */
     public CompletionStage<Optional<Map<Integer, PassportCountry>>> getAll() {
-        return supplyAsync(() -> Optional.of(ebeanServer.find(PassportCountry.class).findMap()), executionContext);
+        return supplyAsync(() -> Optional.of(new HashMap<>(referenceData.getPassportCountries().getAll())), executionContext);
     }
 
 
@@ -132,10 +149,8 @@ public class PassportCountryRepository {
     public Optional<List<PassportCountry>> getArtistCountries(int artistId) {
         List<ArtistCountry> artistCountries = ebeanServer.find(ArtistCountry.class).where().eq("artist_id", artistId).findList();
         List<PassportCountry> countries = new ArrayList<>();
-        Optional<PassportCountry> passportCountries;
         for (ArtistCountry country : artistCountries) {
-            passportCountries = Optional.ofNullable(ebeanServer.find(PassportCountry.class).where().eq("passport_country_id", country.getCountryId()).findOne());
-            passportCountries.ifPresent(countries::add);
+            referenceData.getPassportCountries().findById(country.getCountryId()).ifPresent(countries::add);
         }
         return Optional.of(countries);
     }
@@ -0,0 +1,39 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds one value per ebean server, for the caches and indexes every repository instance using that server
+ * must share. Repositories are not singletons and some are created with new inside other repositories, so they
+ * look their shared state up here by server instead of having it injected. Servers are held weakly, so the
+ * state of a stopped application, such as one started by a test, goes with it.
+ *
+ * @param <T> the type of value held for each server
+ */
+final class PerServer<T> {
+
+    private final Map<EbeanServer, T> values = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Function<EbeanServer, T> factory;
+
+    /**
+     * @param factory creates the value for a server the first time it is asked for
+     */
+    PerServer(Function<EbeanServer, T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @param ebeanServer the ebean server
+     * @return the value for that server, created if this is the first time it is asked for
+     */
+    T get(EbeanServer ebeanServer) {
+        synchronized (values) {
+            return values.computeIfAbsent(ebeanServer, factory);
+        }
+    }
+}
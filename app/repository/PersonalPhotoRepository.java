@@ -110,6 +110,7 @@ public class PersonalPhotoRepository implements ModelUpdatableRepository<Persona
                         .createSqlUpdate("DELETE FROM photo WHERE photo_id = ?")
                         .setParameter(1, thumbId)
                         .execute();
+                PhotoFileCache.getInstance(ebeanServer).invalidate(thumbId);
             }
         }
     }
@@ -165,7 +166,7 @@ public class PersonalPhotoRepository implements ModelUpdatableRepository<Persona
      * @return Optional PersonalPhoto wrapped in a completion stage
      */
     public CompletionStage<Optional<PersonalPhoto>> findById(int id) {
-        return supplyAsync(() -> Optional.ofNullable(ebeanServer.find(PersonalPhoto.class).where().eq("personal_photo_id", id).findOne()));
+        return supplyAsync(() -> Optional.ofNullable(ebeanServer.find(PersonalPhoto.class).where().eq("personal_photo_id", id).findOne()), executionContext);
     }
 
     /**
@@ -175,7 +176,7 @@ public class PersonalPhotoRepository implements ModelUpdatableRepository<Persona
      * @return Optional PersonalPhoto wrapped in a completion stage
      */
     public CompletionStage<Optional<PersonalPhoto>> findByPhotoId(int id) {
-        return supplyAsync(() -> Optional.ofNullable(ebeanServer.find(PersonalPhoto.class).where().eq("photo_id", id).findOne()));
+        return supplyAsync(() -> Optional.ofNullable(ebeanServer.find(PersonalPhoto.class).where().eq("photo_id", id).findOne()), executionContext);
     }
 
     /**
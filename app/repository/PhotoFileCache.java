@@ -0,0 +1,77 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in memory map of photo id to file path and content type. Every avatar and thumbnail on a page
+ * is a separate request for a photo, and the path of a photo very rarely changes once it is saved, so the
+ * lookup is kept here instead of hitting the photo table each time. The least recently used entries are
+ * dropped once the cache is full.
+ */
+final class PhotoFileCache {
+
+    private static final int MAX_ENTRIES = 10000;
+
+    private static final PerServer<PhotoFileCache> instances = new PerServer<>(server -> new PhotoFileCache());
+
+    private final Map<Integer, PhotoRepository.PhotoFile> files = new LinkedHashMap<Integer, PhotoRepository.PhotoFile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PhotoRepository.PhotoFile> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private PhotoFileCache() {
+    }
+
+    /**
+     * @param ebeanServer the ebean server the photos are read from
+     * @return the cache for that server
+     */
+    static PhotoFileCache getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    /**
+     * @param photoId id of the photo
+     * @return the cached file, null if the photo is not cached
+     */
+    synchronized PhotoRepository.PhotoFile get(int photoId) {
+        PhotoRepository.PhotoFile file = files.get(photoId);
+        if (file == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return file;
+    }
+
+    synchronized void put(int photoId, PhotoRepository.PhotoFile file) {
+        files.put(photoId, file);
+    }
+
+    /**
+     * Drops a photo from the cache. Must be called when a photo row is deleted or its path changes.
+     * @param photoId id of the photo
+     */
+    synchronized void invalidate(int photoId) {
+        files.remove(photoId);
+    }
+
+    synchronized int size() {
+        return files.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+}
@@ -5,6 +5,8 @@ import models.Photo;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 
@@ -18,11 +20,34 @@ public class PhotoRepository {
 
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
+    private final PhotoFileCache fileCache;
 
     @Inject
     public PhotoRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext){
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.fileCache = PhotoFileCache.getInstance(ebeanServer);
+    }
+
+    /**
+     * Where a photo is stored and what type it is, all that is needed to serve it
+     */
+    public static final class PhotoFile {
+        private final String path;
+        private final String contentType;
+
+        public PhotoFile(String path, String contentType) {
+            this.path = path;
+            this.contentType = contentType;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
     }
 
     /**
@@ -52,7 +77,56 @@ public class PhotoRepository {
             query.setParameter(2, thumbId);
             query.execute();
             return true;
-        });
+        }, executionContext);
+    }
+
+    /**
+     * Inserts a thumbnail photo and links it to its photo in one transaction.
+     * Blocking, used by the thumbnail pipeline which runs on its own worker threads.
+     *
+     * @param thumbnail Photo object for the thumbnail file
+     * @param photoId id of the photo the thumbnail was made from
+     */
+    public void linkThumbnail(Photo thumbnail, int photoId) {
+        try (Transaction txn = ebeanServer.beginTransaction()) {
+            ebeanServer.insert(thumbnail);
+            ebeanServer.createSqlUpdate("INSERT INTO thumbnail_link (photo_id, thumbnail_id) VALUES (?, ?)")
+                    .setParameter(1, photoId)
+                    .setParameter(2, thumbnail.getPhotoId())
+                    .execute();
+            txn.commit();
+        }
+    }
+
+    /**
+     * Checks if a photo already has a thumbnail linked to it
+     *
+     * @param photoId id of the photo
+     * @return true if there is a thumbnail for the photo
+     */
+    public boolean hasThumbnail(int photoId) {
+        return ebeanServer.createSqlQuery("SELECT thumbnail_id FROM thumbnail_link WHERE photo_id = ?")
+                .setParameter(1, photoId)
+                .setMaxRows(1)
+                .findOne() != null;
+    }
+
+    /**
+     * Finds the photos that are not thumbnails themselves and have no thumbnail yet
+     * Used to resume thumbnail generation after a restart
+     *
+     * @return ids of the photos, oldest first
+     */
+    public List<Integer> getPhotosWithoutThumbnails() {
+        String qry = "SELECT photo_id FROM photo " +
+                "WHERE photo_id NOT IN (SELECT photo_id FROM thumbnail_link) " +
+                "AND photo_id NOT IN (SELECT thumbnail_id FROM thumbnail_link) " +
+                "ORDER BY photo_id";
+        List<Integer> ids = new ArrayList<>();
+        for (SqlRow row : ebeanServer.createSqlQuery(qry).findList()) {
+            ids.add(row.getInteger("photo_id"));
+        }
+        return ids;
     }
 
     /**
@@ -120,6 +194,26 @@ public class PhotoRepository {
         return Optional.ofNullable(photo);
     }
 
+    /**
+     * Finds the file of a photo, served from the photo file cache after the first lookup
+     * @param id of the required image
+     * @return Optional of the photo file, empty if there is no photo with that id
+     */
+    public Optional<PhotoFile> lookupFile(int id) {
+        PhotoFile file = fileCache.get(id);
+        if (file == null) {
+            SqlRow row = ebeanServer.createSqlQuery("SELECT path, content_type FROM photo WHERE photo_id = ?")
+                    .setParameter(1, id)
+                    .findOne();
+            if (row == null || row.getString("path") == null) {
+                return Optional.empty();
+            }
+            file = new PhotoFile(row.getString("path"), row.getString("content_type"));
+            fileCache.put(id, file);
+        }
+        return Optional.of(file);
+    }
+
     /**
      * Method to delete a photo from the database using a passed photoId
      *
@@ -128,6 +222,7 @@ public class PhotoRepository {
     public CompletionStage<Integer> delete(int id) {
          return supplyAsync(() -> {
             Photo.find.deleteById(id);
+            fileCache.invalidate(id);
             return 1;
          }, executionContext);
     }
@@ -166,7 +261,7 @@ public class PhotoRepository {
                 return Optional.of(thumbId);
             }
             return Optional.empty();
-        });
+        }, executionContext);
     }
 
 
@@ -184,6 +279,7 @@ public class PhotoRepository {
             query.setParameter(3, photo.getPhotoId());
             query.execute();
             txn.commit();
+            fileCache.invalidate(photo.getPhotoId());
             return null;
         }, executionContext);
     }
@@ -204,7 +300,7 @@ public class PhotoRepository {
               return row.getString("content_type");
           }
           return "failed";
-        });
+        }, executionContext);
     }
 
     /**
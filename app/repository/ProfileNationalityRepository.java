@@ -5,10 +5,7 @@ import models.Nationality;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
  * This class provides database access functionality for handling profile nationalities
@@ -27,36 +24,13 @@ public class ProfileNationalityRepository {
     }
 
     /**
-     * Inserts a nationality into the profile passport country linking table
-     * @param nationality The nationality to add
-     * @return
+     * Adds links from a profile to nationalities by name to a batch, creating any nationalities which do not exist yet
+     * @param links the batch to add to
+     * @param profileId The given user ID
+     * @param names names of the nationalities
      */
-    Optional<Integer> insertProfileNationality(Nationality nationality, Integer profileId) {
-        Integer idOpt;
-        try {
-            idOpt = nationalityRepository.getNationalityId(nationality.getNationalityName()).get();
-        } catch(Exception e) {
-            idOpt = null;
-        }
-        Integer nationalityId;
-        if (idOpt == null) {
-            nationalityId = nationalityRepository.insert(nationality).get();
-        } else {
-            nationalityId = idOpt;
-        }
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "INSERT into profile_nationality (profile, nationality) " +
-                "VALUES (?, ?)";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, profileId);
-            query.setParameter(2, nationalityId);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
-        }
-        return Optional.of(nationalityId);
+    void addLinks(LinkBatch links, int profileId, Collection<String> names) {
+        links.linkAll("profile_nationality", "profile", profileId, "nationality", nationalityRepository.getOrCreateIds(names));
     }
 
     /**
@@ -75,20 +49,38 @@ public class ProfileNationalityRepository {
     }
 
     /**
-     * Removes all of the nationality linking rows corresponding to the sent in user
-     * @param profileId The given user ID
+     * Gets the nationalities for a group of users in a single joined query
+     * @param profileIds The given user IDs
+     * @return Map of user ID to that users nationalities
      */
-    void removeAll(Integer profileId) {
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "DELETE from profile_nationality where profile " +
-                "= ?";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, profileId);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
+    Map<Integer, Map<Integer, Nationality>> getList(Collection<Integer> profileIds) {
+        Map<Integer, Map<Integer, Nationality>> nationalities = new HashMap<>();
+        if (profileIds.isEmpty()) {
+            return nationalities;
+        }
+        for (Integer profileId : profileIds) {
+            nationalities.put(profileId, new TreeMap<>());
         }
+        String qry = "Select profile_nationality.profile, nationality.nationality_id, nationality.nationality_name " +
+                "from profile_nationality JOIN nationality ON profile_nationality.nationality = nationality.nationality_id " +
+                "where profile_nationality.profile IN (" + QueryHelper.placeholders(profileIds.size()) + ")";
+        SqlQuery query = ebeanServer.createSqlQuery(qry);
+        QueryHelper.bindAll(query, profileIds, 1);
+        for (SqlRow row : query.findList()) {
+            int nationalityId = row.getInteger("nationality_id");
+            nationalities.get(row.getInteger("profile")).put(nationalityId, new Nationality(nationalityId, row.getString("nationality_name")));
+        }
+        return nationalities;
+    }
+
+    /**
+     * Adds the changes needed to link a profile to exactly the given nationality names to a batch, creating any
+     * which do not exist yet. Links which stay the same are left alone.
+     * @param links the batch to add to
+     * @param profileId The given user ID
+     * @param names names the profile should be linked to
+     */
+    void updateLinks(LinkBatch links, int profileId, Collection<String> names) {
+        links.sync(ebeanServer, "profile_nationality", "profile", profileId, "nationality", nationalityRepository.getOrCreateIds(names));
     }
 }
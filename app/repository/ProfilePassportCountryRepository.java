@@ -5,10 +5,7 @@ import models.PassportCountry;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
  * This class provides database access methods for profile passport countries
@@ -27,41 +24,13 @@ public class ProfilePassportCountryRepository {
     }
 
     /**
-     * Inserts a passport into the profile passport country linking table
-     * @param passport The passport to add
-     * @return
-     */
-    public void insertProfilePassportCountry(PassportCountry passport, Integer profileId) {
-        Optional<Integer> idOpt = passportCountryRepository.getPassportCountryId(passport.getPassportName());
-        if (!idOpt.isPresent()) {
-            passportCountryRepository.insert(passport).thenApplyAsync(id -> {
-                id.ifPresent(integer -> insertPassportCountry(profileId, integer));
-                return null;
-            });
-        } else {
-            insertPassportCountry(profileId, idOpt.get());
-        }
-    }
-
-
-    /**
-     * Helper method to perform insert of profile passport country
-     * @param profileId profile id
-     * @param id passport country id
+     * Adds links from a profile to passport countries by name to a batch, creating any passport countries which do not exist yet
+     * @param links the batch to add to
+     * @param profileId The given user ID
+     * @param names names of the passport countries
      */
-    private void insertPassportCountry(int profileId, int  id) {
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "INSERT into profile_passport_country (profile, passport_country) " +
-                "VALUES (?, ?)";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, profileId);
-            query.setParameter(2, id);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
-        }
+    void addLinks(LinkBatch links, int profileId, Collection<String> names) {
+        links.linkAll("profile_passport_country", "profile", profileId, "passport_country", passportCountryRepository.getOrCreateIds(names));
     }
 
     /**
@@ -80,20 +49,39 @@ public class ProfilePassportCountryRepository {
     }
 
     /**
-     * Removes all of the passport country linking rows corresponding to the sent in user
-     * @param profileId The given user ID
+     * Gets the passport countries for a group of users in a single joined query
+     * @param profileIds The given user IDs
+     * @return Map of user ID to that users passport countries
      */
-    void removeAll(Integer profileId) {
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "DELETE from profile_passport_country where profile " +
-                "= ?";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, profileId);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
+    Map<Integer, Map<Integer, PassportCountry>> getList(Collection<Integer> profileIds) {
+        Map<Integer, Map<Integer, PassportCountry>> passports = new HashMap<>();
+        if (profileIds.isEmpty()) {
+            return passports;
+        }
+        for (Integer profileId : profileIds) {
+            passports.put(profileId, new TreeMap<>());
         }
+        String qry = "Select profile_passport_country.profile, passport_country.passport_country_id, passport_country.passport_name " +
+                "from profile_passport_country JOIN passport_country ON " +
+                "profile_passport_country.passport_country = passport_country.passport_country_id " +
+                "where profile_passport_country.profile IN (" + QueryHelper.placeholders(profileIds.size()) + ")";
+        SqlQuery query = ebeanServer.createSqlQuery(qry);
+        QueryHelper.bindAll(query, profileIds, 1);
+        for (SqlRow row : query.findList()) {
+            int countryId = row.getInteger("passport_country_id");
+            passports.get(row.getInteger("profile")).put(countryId, new PassportCountry(countryId, row.getString("passport_name")));
+        }
+        return passports;
+    }
+
+    /**
+     * Adds the changes needed to link a profile to exactly the given passport country names to a batch, creating any
+     * which do not exist yet. Links which stay the same are left alone.
+     * @param links the batch to add to
+     * @param profileId The given user ID
+     * @param names names the profile should be linked to
+     */
+    void updateLinks(LinkBatch links, int profileId, Collection<String> names) {
+        links.sync(ebeanServer, "profile_passport_country", "profile", profileId, "passport_country", passportCountryRepository.getOrCreateIds(names));
     }
 }
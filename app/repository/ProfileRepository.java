@@ -2,12 +2,13 @@ package repository;
 
 import io.ebean.*;
 import models.*;
-import org.mindrot.jbcrypt.BCrypt;
 import play.db.ebean.EbeanConfig;
+import utility.PasswordHasher;
 
 import javax.inject.Inject;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import static java.lang.Integer.parseInt;
@@ -25,47 +26,71 @@ public class ProfileRepository {
     private final ProfileNationalityRepository profileNationalityRepository;
     private final ProfileTravellerTypeRepository profileTravellerTypeRepository;
     private final RolesRepository rolesRepository;
+    private final PasswordHasher passwordHasher;
+    private final TravellerSearchIndex searchIndex;
+    private final CachedCount profileCount;
+
+    private static final KeysetPaginator<Profile> PROFILE_PAGINATOR =
+            new KeysetPaginator<>("profile_id", Profile::getProfileId);
 
     @Inject
-    public ProfileRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext) {
+    public ProfileRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext,
+                             PasswordHasher passwordHasher) {
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.passwordHasher = passwordHasher;
         this.profilePassportCountryRepository = new ProfilePassportCountryRepository(ebeanConfig, executionContext);
         this.profileNationalityRepository = new ProfileNationalityRepository(ebeanConfig, executionContext);
         this.profileTravellerTypeRepository = new ProfileTravellerTypeRepository(ebeanConfig, executionContext);
         this.rolesRepository = new RolesRepository(ebeanConfig, executionContext);
+        this.searchIndex = TravellerSearchIndex.getInstance(ebeanServer);
+        this.profileCount = CachedCount.getInstance(ebeanServer, "profiles", this::getNumProfiles, 30000);
     }
 
     /**
-     * Method for login to check if there is a traveller account under the supplied email
-     *
-     * @param email String of the logged in users email
-     * @return boolean if profile exists or not
+     * What is needed to check a login, read without loading the rest of the profile
      */
-    public boolean checkProfileExists(String email) {
-        String selectQuery = "Select * from profile WHERE email = ?";
-        SqlRow row = ebeanServer.createSqlQuery(selectQuery).setParameter(1, email).findOne();
-        return row != null;
+    public static final class Credentials {
+        private final int profileId;
+        private final String passwordHash;
+        private final boolean deleted;
+
+        public Credentials(int profileId, String passwordHash, boolean deleted) {
+            this.profileId = profileId;
+            this.passwordHash = passwordHash;
+            this.deleted = deleted;
+        }
+
+        public int getProfileId() {
+            return profileId;
+        }
+
+        public String getPasswordHash() {
+            return passwordHash;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
     }
 
     /**
-     * Method to validate if the given email and password match an account in the database
+     * Method for login to find the credentials of the account under the supplied email in one query
      *
-     * @param email    users email input
-     * @param password users password input
-     * @return
+     * @param email String of the users email
+     * @return the credentials, empty if there is no account with that email
      */
-    public boolean validate(String email, String password) {
-        String selectQuery = "SELECT * FROM profile WHERE email = ?";
-        List<SqlRow> rows = ebeanServer.createSqlQuery(selectQuery)
-                .setParameter(1, email)
-                .findList();
-        for (SqlRow row: rows) {
-            if (BCrypt.checkpw(password, row.getString("password"))) {
-                return true;
+    public CompletionStage<Optional<Credentials>> findCredentials(String email) {
+        return supplyAsync(() -> {
+            String selectQuery = "SELECT profile_id, password, soft_delete FROM profile WHERE email = ?";
+            SqlRow row = ebeanServer.createSqlQuery(selectQuery).setParameter(1, email).findOne();
+            if (row == null) {
+                return Optional.<Credentials>empty();
             }
-        }
-        return false;
+            Integer softDelete = row.getInteger("soft_delete");
+            return Optional.of(new Credentials(row.getInteger("profile_id"), row.getString("password"),
+                    softDelete != null && softDelete != 0));
+        }, executionContext);
     }
 
 
@@ -78,15 +103,7 @@ public class ProfileRepository {
         String selectQuery = "SELECT * FROM profile WHERE soft_delete = 0;";
 
         List<SqlRow> rows = ebeanServer.createSqlQuery(selectQuery).findList();
-        List<Profile> allProfiles = new ArrayList<>();
-
-        for (SqlRow row : rows) {
-
-            allProfiles.add(profileFromRow(row));
-
-        }
-
-        return allProfiles;
+        return profilesFromRows(rows);
 
     }
 
@@ -119,16 +136,20 @@ public class ProfileRepository {
         List<SqlRow> rows = ebeanServer.createSqlQuery(selectQuery)
                 .setParameter(1, offset)
                 .findList();
-        List<Profile> allProfiles = new ArrayList<>();
+        return profilesFromRows(rows);
 
-        for (SqlRow row : rows) {
-
-            allProfiles.add(profileFromRow(row));
-
-        }
-
-        return allProfiles;
+    }
 
+    /**
+     * Gets a page of profiles for the travellers page using keyset pagination, ordered by profile id.
+     *
+     * All profiles roles will also be filled.
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @return the page of profiles with the cursors for the pages either side
+     */
+    public KeysetPage<Profile> getAllTravellersPaginate(String cursor) {
+        return getPage(cursor, 12);
     }
 
     /**
@@ -138,14 +159,9 @@ public class ProfileRepository {
      * @return Profile class of the user
      */
     public Profile getProfileById(String email) {
-        Profile profile = ebeanServer.find(Profile.class).where().like("email", email).findOne();
-
-        profile.setNationalities(profileNationalityRepository.getList(profile.getProfileId()).get());
-        profile.setPassports(profilePassportCountryRepository.getList(profile.getProfileId()).get());
-        profile.setTravellerTypes(profileTravellerTypeRepository.getList(profile.getProfileId()).get());
-        profile.setRoles(rolesRepository.getProfileRoles(profile.getProfileId()).get());
+        Profile profile = ebeanServer.find(Profile.class).where().eq("email", email).findOne();
 
-        return profile;
+        return populateProfile(profile);
     }
 
     /**
@@ -159,12 +175,7 @@ public class ProfileRepository {
                 .where().eq("soft_delete", "0").and()
                 .like("profile_id", userId.toString()).findOne();
 
-        profile.setNationalities(profileNationalityRepository.getList(profile.getProfileId()).get());
-        profile.setPassports(profilePassportCountryRepository.getList(profile.getProfileId()).get());
-        profile.setTravellerTypes(profileTravellerTypeRepository.getList(profile.getProfileId()).get());
-        profile.setRoles(rolesRepository.getProfileRoles(profile.getProfileId()).get());
-
-        return profile;
+        return populateProfile(profile);
     }
 
     /**
@@ -194,172 +205,166 @@ public class ProfileRepository {
     }
 
     /**
-     * Database access method to query the database for profiles that match the given search parameters
+     * Searches the profiles which have not been soft deleted for travel partners using the in memory search
+     * index. The page and the total number of matches come from the same pass over the index, and only the
+     * page of profiles found is read from the database.
      *
-     * @param travellerType Traveller type to search for
-     * @param lowerAge Lower limit for age of profile
-     * @param upperAge Upper limit for age of profile
-     * @param gender Gender of profile
-     * @param nationality nationality of profile
-     * @return List of profiles that match query parameters
-     */
-    public List<Profile> searchProfiles(String travellerType, Date lowerAge, Date upperAge, String gender, String nationality, int offset) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String queryString = "SELECT profile_traveller_type.profile FROM profile_traveller_type " +
-                "JOIN profile_nationality ON profile_nationality.profile = profile_traveller_type.profile " +
-                "JOIN nationality ON profile_nationality.nationality = nationality_id " +
-                "JOIN traveller_type ON profile_traveller_type.traveller_type = traveller_type_id";
-        boolean whereAdded = false;
+     * @param travellerType Traveller type to search for, empty for any
+     * @param lowerAge Profiles must be born before this date, the date for the youngest age
+     * @param upperAge Profiles must be born after this date, the date for the oldest age
+     * @param gender Gender of profile, empty for any
+     * @param nationality nationality of profile, empty for any
+     * @param offset number of matching profiles to skip
+     * @return a page of at most 12 profiles, oldest first, along with the total number of matches
+     */
+    public ProfileSearchResult searchProfiles(String travellerType, Date lowerAge, Date upperAge, String gender,
+                                              String nationality, int offset) {
+        searchIndex.ensureLoaded(() -> loadSearchDocs(null));
+        TravellerSearchIndex.Query query = new TravellerSearchIndex.Query()
+                .bornAfter(toLocalDate(upperAge))
+                .bornBefore(toLocalDate(lowerAge));
         if (!travellerType.equals("")) {
-            queryString += " WHERE traveller_type_name = ?";
-            whereAdded = true;
+            query.travellerType(travellerType);
         }
         if (!nationality.equals("")) {
-            if (!whereAdded) {
-                queryString += " WHERE nationality_name = ?";
-            } else {
-                queryString += " AND nationality_name = ?";
+            query.nationality(nationality);
+        }
+        if (!gender.equals("")) {
+            query.gender(gender);
+        }
+        TravellerSearchIndex.Result result = searchIndex.search(query, offset, 12);
+        List<Profile> profiles = new ArrayList<>();
+        if (!result.getProfileIds().isEmpty()) {
+            String selectQuery = "SELECT * FROM profile WHERE profile_id IN ("
+                    + QueryHelper.placeholders(result.getProfileIds().size()) + ")";
+            Map<Integer, Profile> found = new HashMap<>();
+            for (Profile profile : profilesFromRows(searchRows(selectQuery, result.getProfileIds()))) {
+                found.put(profile.getProfileId(), profile);
+            }
+            for (Integer profileId : result.getProfileIds()) {
+                if (found.containsKey(profileId)) {
+                    profiles.add(found.get(profileId));
+                }
             }
-
         }
-        queryString += " LIMIT 100";
-
-        SqlQuery query = ebeanServer.createSqlQuery(queryString);
+        return new ProfileSearchResult(profiles, result.getTotal());
+    }
 
-        if (!travellerType.equals("")) {
-            query.setParameter(1, travellerType);
+    /**
+     * Reads what the search index holds for profiles which have not been soft deleted
+     * @param profileIds ids of the profiles to read, null for every profile
+     * @return the search index entries
+     */
+    private List<TravellerSearchIndex.Doc> loadSearchDocs(Collection<Integer> profileIds) {
+        if (profileIds != null && profileIds.isEmpty()) {
+            return Collections.emptyList();
         }
-        if (!nationality.equals("")) {
-            if (!whereAdded) {
-                query.setParameter(1, nationality);
-            } else {
-                query.setParameter(2, nationality);
+        String idList = profileIds == null ? null : "(" + QueryHelper.placeholders(profileIds.size()) + ")";
+        String profileFilter = idList == null ? "" : " AND profile IN " + idList;
+        Map<Integer, TravellerSearchIndex.Doc> docs = new HashMap<>();
+        for (SqlRow row : searchRows("SELECT profile_id, birth_date, gender FROM profile WHERE soft_delete = 0"
+                + (idList == null ? "" : " AND profile_id IN " + idList), profileIds)) {
+            docs.put(row.getInteger("profile_id"), new TravellerSearchIndex.Doc(row.getInteger("profile_id"),
+                    toLocalDate(row.getDate("birth_date")), row.getString("gender")));
+        }
+        for (SqlRow row : searchRows("SELECT profile, traveller_type_name FROM profile_traveller_type JOIN traveller_type " +
+                "ON traveller_type.traveller_type_id = profile_traveller_type.traveller_type WHERE 1 = 1" + profileFilter, profileIds)) {
+            TravellerSearchIndex.Doc doc = docs.get(row.getInteger("profile"));
+            if (doc != null) {
+                doc.addTravellerType(row.getString("traveller_type_name"));
             }
         }
-
-
-        List<SqlRow> foundRows = query.findList();
-        List<Integer> foundIds = new ArrayList<>();
-        List<Profile> foundProfiles = new ArrayList<>();
-        if (!foundRows.isEmpty()) {
-            for (SqlRow row : foundRows) {
-                foundIds.add(row.getInteger("profile"));
+        for (SqlRow row : searchRows("SELECT profile, nationality_name FROM profile_nationality JOIN nationality " +
+                "ON nationality.nationality_id = profile_nationality.nationality WHERE 1 = 1" + profileFilter, profileIds)) {
+            TravellerSearchIndex.Doc doc = docs.get(row.getInteger("profile"));
+            if (doc != null) {
+                doc.addNationality(row.getString("nationality_name"));
             }
-            foundProfiles = ebeanServer.find(Profile.class).where()
-                    .idIn(foundIds)
-                    .contains("gender", gender)
-                    .gt("birth_date", dateFormat.format(upperAge))
-                    .lt("birth_date", dateFormat.format(lowerAge))
-                    .setMaxRows(12)
-                    .setFirstRow(offset)
-                    .findList();
-            for (Profile profile : foundProfiles) {
-                Optional<Map<Integer, PassportCountry>> optionalIntegerPassportCountryMap = profilePassportCountryRepository.getList(profile.getProfileId());
-                optionalIntegerPassportCountryMap.ifPresent(profile::setPassports);
-                Optional<Map<Integer, Nationality>> optionalNationalityMap = profileNationalityRepository.getList(profile.getProfileId());
-                optionalNationalityMap.ifPresent(profile::setNationalities);
-                Optional<Map<Integer, TravellerType>> optionalTravellerTypeMap = profileTravellerTypeRepository.getList(profile.getProfileId());
-                optionalTravellerTypeMap.ifPresent(profile::setTravellerTypes);
+        }
+        return new ArrayList<>(docs.values());
+    }
 
-            }
+    private List<SqlRow> searchRows(String sql, Collection<Integer> profileIds) {
+        SqlQuery query = ebeanServer.createSqlQuery(sql);
+        if (profileIds != null) {
+            QueryHelper.bindAll(query, profileIds, 1);
         }
+        return query.findList();
+    }
 
-        return foundProfiles;
+    /**
+     * Brings the search index up to date with a profile after it has been written
+     * @param profileId id of the profile
+     */
+    private void refreshSearchIndex(int profileId) {
+        searchIndex.refresh(Collections.singletonList(profileId), this::loadSearchDocs);
     }
 
     /**
-     * Method to get the size of the profile search result
-     * Used for the max value in the travellers search pagination
-     *
-     * @param travellerType Traveller type to search for
-     * @param lowerAge Lower limit for age of profile
-     * @param upperAge Upper limit for age of profile
-     * @param gender Gender of profile
-     * @param nationality nationality of profile
-     * @return int containing the size of the found profiles based on the search
-     */
-    public int getNumSearchProfiles(String travellerType, Date lowerAge, Date upperAge, String gender, String nationality){
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String queryString = "SELECT profile_traveller_type.profile FROM profile_traveller_type " +
-                "JOIN profile_nationality ON profile_nationality.profile = profile_traveller_type.profile " +
-                "JOIN nationality ON profile_nationality.nationality = nationality_id " +
-                "JOIN traveller_type ON profile_traveller_type.traveller_type = traveller_type_id";
-        boolean whereAdded = false;
-        if (!travellerType.equals("")) {
-            queryString += " WHERE traveller_type_name = ?";
-            whereAdded = true;
-        }
-        if (!nationality.equals("")) {
-            if (!whereAdded) {
-                queryString += " WHERE nationality_name = ?";
-            } else {
-                queryString += " AND nationality_name = ?";
-            }
+     * @return the day of the date in the server time zone, the same day the date would be written to SQL as
+     */
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : new java.sql.Date(date.getTime()).toLocalDate();
+    }
 
-        }
-        SqlQuery query = ebeanServer.createSqlQuery(queryString);
 
-        if (!travellerType.equals("")) {
-            query.setParameter(1, travellerType);
-        }
-        if (!nationality.equals("")) {
-            if (!whereAdded) {
-                query.setParameter(1, nationality);
-            } else {
-                query.setParameter(2, nationality);
-            }
+    /**
+     * Create profile instances from the rows of an SQL query result. The linking table data for all of the
+     * profiles is loaded with one query per linking table rather than once per profile.
+     *
+     * @param rows The SQL query result rows
+     * @return A list of profiles made based on data from the rows, in row order
+     */
+    private List<Profile> profilesFromRows(List<SqlRow> rows) {
+        List<Profile> profiles = new ArrayList<>();
+        for (SqlRow row : rows) {
+            profiles.add(new Profile(row.getInteger("profile_id"), row.getString("first_name"),
+                    row.getString("middle_name"), row.getString("last_name"), row.getString("email"),
+                    row.getDate("birth_date"), new TreeMap<>(), row.getString("gender"),
+                    row.getDate("time_created"), new TreeMap<>(), new TreeMap<>(), new ArrayList<>()));
         }
-        List<SqlRow> foundRows = query.findList();
-        List<Integer> foundIds = new ArrayList<>();
+        return populateProfiles(profiles);
+    }
 
-        int numProfiles = 0;
-        if (!foundRows.isEmpty()) {
-            for (SqlRow row : foundRows) {
-                foundIds.add(row.getInteger("profile"));
-            }
-            numProfiles = ebeanServer.find(Profile.class).where()
-                    .idIn(foundIds)
-                    .contains("gender", gender)
-                    .gt("birth_date", dateFormat.format(upperAge))
-                    .lt("birth_date", dateFormat.format(lowerAge))
-                    .findCount();
+    /**
+     * Fills the passport countries, nationalities, traveller types and roles of a single profile
+     *
+     * @param profile The profile to fill, may be null
+     * @return The same profile, now filled
+     */
+    private Profile populateProfile(Profile profile) {
+        if (profile != null) {
+            populateProfiles(Collections.singletonList(profile));
         }
-        return numProfiles;
+        return profile;
     }
 
-
     /**
-     * Create a profile instance from data of an SQL Row result
+     * Fills the passport countries, nationalities, traveller types and roles of a list of profiles
+     * using a single grouped query for each linking table.
      *
-     * @param row The SQL query result as a row
-     * @return A profile made based on data from row
-     */
-    private Profile profileFromRow(SqlRow row) {
-        Integer profileId = row.getInteger("profile_id");
-        Map<Integer, PassportCountry> passportCountries = new HashMap<>();
-        Map<Integer, Nationality> nationalities = new HashMap<>();
-        Map<Integer, TravellerType> travellerTypes = new HashMap<>();
-        List<String> roles = new ArrayList<>();
-        Optional<Map<Integer, PassportCountry>> optionalIntegerPassportCountryMap = profilePassportCountryRepository.getList(profileId);
-        if (optionalIntegerPassportCountryMap.isPresent()) {
-            passportCountries = optionalIntegerPassportCountryMap.get();
-        }
-        Optional<Map<Integer, Nationality>> optionalNationalityMap = profileNationalityRepository.getList(profileId);
-        if (optionalNationalityMap.isPresent()) {
-            nationalities = optionalNationalityMap.get();
+     * @param profiles The profiles to fill
+     * @return The same list of profiles, now filled
+     */
+    public List<Profile> populateProfiles(List<Profile> profiles) {
+        if (profiles.isEmpty()) {
+            return profiles;
         }
-        Optional<Map<Integer, TravellerType>> optionalTravellerTypeMap = profileTravellerTypeRepository.getList(profileId);
-        if (optionalTravellerTypeMap.isPresent()) {
-            travellerTypes = optionalTravellerTypeMap.get();
+        Set<Integer> profileIds = new LinkedHashSet<>();
+        for (Profile profile : profiles) {
+            profileIds.add(profile.getProfileId());
         }
-        Optional<List<String>> optionalRoles = rolesRepository.getProfileRoles(profileId);
-        if (optionalRoles.isPresent()) {
-            roles = optionalRoles.get();
+        Map<Integer, Map<Integer, PassportCountry>> passports = profilePassportCountryRepository.getList(profileIds);
+        Map<Integer, Map<Integer, Nationality>> nationalities = profileNationalityRepository.getList(profileIds);
+        Map<Integer, Map<Integer, TravellerType>> travellerTypes = profileTravellerTypeRepository.getList(profileIds);
+        Map<Integer, List<String>> roles = rolesRepository.getProfileRoles(profileIds);
+        for (Profile profile : profiles) {
+            profile.setPassports(passports.get(profile.getProfileId()));
+            profile.setNationalities(nationalities.get(profile.getProfileId()));
+            profile.setTravellerTypes(travellerTypes.get(profile.getProfileId()));
+            profile.setRoles(roles.get(profile.getProfileId()));
         }
-        return new Profile(profileId, row.getString("first_name"),
-                row.getString("middle_name"), row.getString("last_name"), row.getString("email"),
-                row.getDate("birth_date"), passportCountries, row.getString("gender"),
-                row.getDate("time_created"), nationalities, travellerTypes, roles);
+        return profiles;
     }
 
     /**
@@ -369,14 +374,19 @@ public class ProfileRepository {
      * @return CompletionStage holding an optional of the profile found
      */
     public CompletionStage<Optional<Profile>> findById(int profileId) {
-        return supplyAsync(() -> {
-            Profile profile = ebeanServer.find(Profile.class).setId(profileId).findOne();
-            profile.setNationalities(profileNationalityRepository.getList(profile.getProfileId()).get());
-            profile.setPassports(profilePassportCountryRepository.getList(profile.getProfileId()).get());
-            profile.setTravellerTypes(profileTravellerTypeRepository.getList(profile.getProfileId()).get());
-            profile.setRoles(rolesRepository.getProfileRoles(profile.getProfileId()).get());
-            return Optional.of(profile);
-        });
+        return supplyAsync(() -> lookup(profileId), executionContext);
+    }
+
+    /**
+     * Finds a profile using a given profile id on the calling thread, for code already running on the
+     * database context
+     *
+     * @param profileId the id of the profile to find
+     * @return optional of the profile found
+     */
+    public Optional<Profile> lookup(int profileId) {
+        Profile profile = ebeanServer.find(Profile.class).setId(profileId).findOne();
+        return Optional.ofNullable(populateProfile(profile));
     }
 
     /**
@@ -391,7 +401,7 @@ public class ProfileRepository {
             List<SqlRow> rowList = ebeanServer.createSqlQuery(qry).setParameter(1, email).findList();
             Profile profile = null;
             if (!rowList.isEmpty() && !rowList.get(0).isEmpty()) {
-                profile = profileFromRow(rowList.get(0));
+                profile = profilesFromRows(rowList.subList(0, 1)).get(0);
             }
             return Optional.ofNullable(profile);
         }, executionContext);
@@ -399,13 +409,17 @@ public class ProfileRepository {
 
 
     /**
-     * Inserts a profile into the ebean database server
+     * Inserts a profile into the ebean database server. Its plain text password is hashed on the password
+     * hashing pool first.
      *
      * @param profile Profile object to insert into the database
-     * @return the image id
+     * @return the profile id, empty if the insert failed. Completes with a RejectedExecutionException
+     * if the password hashing pool is too busy
      */
     public CompletionStage<Optional<Integer>> insert(Profile profile) {
-        return supplyAsync(() -> {
+        CompletionStage<String> passwordHash = profile.getPassword() == null
+                ? CompletableFuture.completedFuture(null) : passwordHasher.hash(profile.getPassword());
+        return passwordHash.thenApplyAsync(password -> {
             profile.setTimeCreated(new Date());
             Transaction txn = ebeanServer.beginTransaction();
             String qry = "INSERT INTO profile (first_name, middle_name, last_name, email, " +
@@ -418,24 +432,23 @@ public class ProfileRepository {
                 query.setParameter(2, profile.getMiddleName());
                 query.setParameter(3, profile.getLastName());
                 query.setParameter(4, profile.getEmail());
-                query.setParameter(5, profile.getPassword());
+                query.setParameter(5, password);
                 query.setParameter(6, profile.getBirthDate());
                 query.setParameter(7, profile.getGender());
                 query.setGetGeneratedKeys(true); // Need to set the ID of the generated key
                 query.execute();
-                txn.commit();
                 value = parseInt(query.getGeneratedKey().toString()); // Id of the newly created profile
-                for (String passportName : profile.getPassportsList()) {
-                    profilePassportCountryRepository.insertProfilePassportCountry(new PassportCountry(passportName), value);
-                }
-                for (String nationalityName : profile.getNationalityList()) {
-                    profileNationalityRepository.insertProfileNationality(new Nationality(nationalityName), value);
-                }
-                for (String travellerTypeName : profile.getTravellerTypesList()) {
-                    profileTravellerTypeRepository.insertProfileTravellerType(new TravellerType(travellerTypeName), value);
-                }
+                LinkBatch links = new LinkBatch();
+                profilePassportCountryRepository.addLinks(links, value, profile.getPassportsList());
+                profileNationalityRepository.addLinks(links, value, profile.getNationalityList());
+                profileTravellerTypeRepository.addLinks(links, value, profile.getTravellerTypesList());
+                links.execute(ebeanServer);
+                txn.commit();
+                refreshSearchIndex(value);
+                profileCount.invalidate();
             } catch (Exception e) {
                 System.err.println("Search This: " + e);
+                value = null;
             } finally {
                 txn.end();
             }
@@ -475,22 +488,13 @@ public class ProfileRepository {
                             query.setParameter(6, newProfile.getGender());
                             query.setParameter(7, userId);
                             query.execute();
+                            LinkBatch links = new LinkBatch();
+                            profilePassportCountryRepository.updateLinks(links, userId, newProfile.getPassportsList());
+                            profileNationalityRepository.updateLinks(links, userId, newProfile.getNationalityList());
+                            profileTravellerTypeRepository.updateLinks(links, userId, newProfile.getTravellerTypesList());
+                            links.execute(ebeanServer);
                             txn.commit();
-                            profileNationalityRepository.removeAll(userId);
-                            profilePassportCountryRepository.removeAll(userId);
-                            profileTravellerTypeRepository.removeAll(userId);
-                            for (String passportName : newProfile.getPassportsList()) {
-                                profilePassportCountryRepository.insertProfilePassportCountry(
-                                        new PassportCountry(0, passportName), userId);
-                            }
-                            for (String nationalityName : newProfile.getNationalityList()) {
-                                profileNationalityRepository.insertProfileNationality(
-                                        new Nationality(0, nationalityName), userId);
-                            }
-                            for (String travellerTypeName : newProfile.getTravellerTypesList()) {
-                                profileTravellerTypeRepository.insertProfileTravellerType(
-                                        new TravellerType(0, travellerTypeName), userId);
-                            }
+                            refreshSearchIndex(userId);
                             value = Optional.of(userId);
                         }
                     } finally {
@@ -501,10 +505,17 @@ public class ProfileRepository {
                 executionContext);
     }
 
+    /**
+     * Hashes a new password on the password hashing pool then stores it against a profile
+     *
+     * @param profileId id of the profile to update
+     * @param newPassword the plain text password
+     * @return the profile id, empty if there is no such profile. Completes with a RejectedExecutionException
+     * if the password hashing pool is too busy
+     */
     public CompletionStage<Optional<Integer>> updatePassword(Integer profileId, String newPassword) {
-        return supplyAsync(
-                () -> {
-                    String password = BCrypt.hashpw(newPassword, "$2a$12$nODuNzk9U7Hrq6DgspSp4.");
+        return passwordHasher.hash(newPassword).thenApplyAsync(
+                password -> {
                     Transaction txn = ebeanServer.beginTransaction();
                     String updateQuery =
                             "UPDATE profile SET password = ? WHERE profile_id = ?";
@@ -541,6 +552,8 @@ public class ProfileRepository {
             query.setParameter(1, profileId);
             query.execute();
             txn.commit();
+            refreshSearchIndex(profileId);
+            profileCount.invalidate();
             return Optional.of(0);
         }, executionContext);
     }
@@ -560,6 +573,8 @@ public class ProfileRepository {
                 if (targetProfile != null) {
                     targetProfile.setSetSoftDelete(value);
                     targetProfile.update();
+                    refreshSearchIndex(profileId);
+                    profileCount.invalidate();
                     return 1;
                 } else {
                     return 0;
@@ -676,6 +691,15 @@ public class ProfileRepository {
         return ebeanServer.find(Profile.class).where().eq("soft_delete", 0).findCount();
     }
 
+    /**
+     * Finds the number of profiles, reusing the last count for up to 30 seconds
+     * Used for pagination where an exact count is not needed
+     * @return int of number found
+     */
+    public int getCachedNumProfiles() {
+        return profileCount.get();
+    }
+
     /**
      * Method for edit profile-email to check if there is a traveller account under the supplied email that already
      * exists (not the same user)
@@ -725,12 +749,22 @@ public class ProfileRepository {
      * @return List of found profiles
      */
     public List<Profile> getPage(Integer offset, Integer limit) {
-        String selectQuery = "SELECT * FROM profile WHERE soft_delete = 0 LIMIT ? OFFSET ?;";
+        String selectQuery = "SELECT * FROM profile WHERE soft_delete = 0 ORDER BY profile_id ASC LIMIT ? OFFSET ?;";
         List<SqlRow> rows = ebeanServer.createSqlQuery(selectQuery).setParameter(1, limit).setParameter(2, offset).findList();
-        List<Profile> profiles = new ArrayList<>();
-        for (SqlRow row : rows) {
-            profiles.add(profileFromRow(row));
-        }
-        return profiles;
+        return profilesFromRows(rows);
+    }
+
+    /**
+     * Method to get a page of profiles to display using keyset pagination, ordered by profile id
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @param limit number of profiles to find
+     * @return the page of profiles with the cursors for the pages either side
+     */
+    public KeysetPage<Profile> getPage(String cursor, Integer limit) {
+        KeysetPage<Profile> page = PROFILE_PAGINATOR.page(ebeanServer.find(Profile.class).where()
+                .eq("soft_delete", 0), cursor, limit);
+        populateProfiles(page.getItems());
+        return page;
     }
 }
@@ -5,10 +5,7 @@ import models.TravellerType;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
  * Database access class for the profile_traveller_type database table
@@ -27,36 +24,13 @@ public class ProfileTravellerTypeRepository {
     }
 
     /**
-     * Inserts a nationality into the profile passport country linking table
-     * @param travellerType The nationality to add
-     * @return
+     * Adds links from a profile to traveller types by name to a batch, creating any traveller types which do not exist yet
+     * @param links the batch to add to
+     * @param profileId The given user ID
+     * @param names names of the traveller types
      */
-    Optional<Integer> insertProfileTravellerType(TravellerType travellerType, Integer profileId) {
-        Integer idOpt;
-        try {
-            idOpt = travellerTypeRepository.getTravellerTypeId(travellerType.getTravellerTypeName()).get();
-        } catch(Exception e) {
-            idOpt = null;
-        }
-        Integer travellerId;
-        if (idOpt == null) {
-            travellerId = travellerTypeRepository.insert(travellerType).get();
-        } else {
-            travellerId = idOpt;
-        }
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "INSERT into profile_traveller_type (profile, traveller_type) " +
-                "VALUES (?, ?)";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, profileId);
-            query.setParameter(2, travellerId);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
-        }
-        return Optional.of(travellerId);
+    void addLinks(LinkBatch links, int profileId, Collection<String> names) {
+        links.linkAll("profile_traveller_type", "profile", profileId, "traveller_type", travellerTypeRepository.getOrCreateIds(names));
     }
 
     /**
@@ -76,20 +50,38 @@ public class ProfileTravellerTypeRepository {
     }
 
     /**
-     * Removes all of the traveller type linking rows corresponding to the sent in user
-     * @param profileId The given user ID
+     * Gets the traveller types for a group of users in a single joined query
+     * @param profileIds The given user IDs
+     * @return Map of user ID to that users traveller types
      */
-    void removeAll(Integer profileId) {
-        Transaction txn = ebeanServer.beginTransaction();
-        String qry = "DELETE from profile_traveller_type where profile " +
-                "= ?";
-        try {
-            SqlUpdate query = Ebean.createSqlUpdate(qry);
-            query.setParameter(1, profileId);
-            query.execute();
-            txn.commit();
-        } finally {
-            txn.end();
+    Map<Integer, Map<Integer, TravellerType>> getList(Collection<Integer> profileIds) {
+        Map<Integer, Map<Integer, TravellerType>> travellerTypes = new HashMap<>();
+        if (profileIds.isEmpty()) {
+            return travellerTypes;
+        }
+        for (Integer profileId : profileIds) {
+            travellerTypes.put(profileId, new TreeMap<>());
         }
+        String qry = "Select profile_traveller_type.profile, traveller_type.traveller_type_id, traveller_type.traveller_type_name " +
+                "from profile_traveller_type JOIN traveller_type ON profile_traveller_type.traveller_type = traveller_type.traveller_type_id " +
+                "where profile_traveller_type.profile IN (" + QueryHelper.placeholders(profileIds.size()) + ")";
+        SqlQuery query = ebeanServer.createSqlQuery(qry);
+        QueryHelper.bindAll(query, profileIds, 1);
+        for (SqlRow row : query.findList()) {
+            int typeId = row.getInteger("traveller_type_id");
+            travellerTypes.get(row.getInteger("profile")).put(typeId, new TravellerType(typeId, row.getString("traveller_type_name")));
+        }
+        return travellerTypes;
+    }
+
+    /**
+     * Adds the changes needed to link a profile to exactly the given traveller type names to a batch, creating any
+     * which do not exist yet. Links which stay the same are left alone.
+     * @param links the batch to add to
+     * @param profileId The given user ID
+     * @param names names the profile should be linked to
+     */
+    void updateLinks(LinkBatch links, int profileId, Collection<String> names) {
+        links.sync(ebeanServer, "profile_traveller_type", "profile", profileId, "traveller_type", travellerTypeRepository.getOrCreateIds(names));
     }
 }
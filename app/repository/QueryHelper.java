@@ -0,0 +1,55 @@
+package repository;
+
+import io.ebean.SqlQuery;
+import io.ebean.SqlUpdate;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Helper methods shared by repositories that build raw SQL with IN lists
+ */
+final class QueryHelper {
+
+    private QueryHelper() {
+    }
+
+    /**
+     * Builds a comma separated list of positional parameters for an IN clause
+     * @param count number of parameters
+     * @return String such as "?, ?, ?"
+     */
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Binds each of the given values to consecutive positional parameters
+     * @param query query to bind the values to
+     * @param values values to bind, in iteration order
+     * @param startPosition position of the first parameter to bind
+     * @return the position after the last bound parameter
+     */
+    static int bindAll(SqlQuery query, Collection<?> values, int startPosition) {
+        int position = startPosition;
+        for (Object value : values) {
+            query.setParameter(position++, value);
+        }
+        return position;
+    }
+
+    /**
+     * Binds each of the given values to consecutive positional parameters
+     * @param update statement to bind the values to
+     * @param values values to bind, in iteration order
+     * @param startPosition position of the first parameter to bind
+     * @return the position after the last bound parameter
+     */
+    static int bindAll(SqlUpdate update, Collection<?> values, int startPosition) {
+        int position = startPosition;
+        for (Object value : values) {
+            update.setParameter(position++, value);
+        }
+        return position;
+    }
+}
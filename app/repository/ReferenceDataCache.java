@@ -0,0 +1,288 @@
+package repository;
+
+import io.ebean.EbeanServer;
+import io.ebean.SqlRow;
+import io.ebean.Transaction;
+import io.ebean.TransactionCallbackAdapter;
+import models.MusicGenre;
+import models.PassportCountry;
+import models.TravellerType;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In memory copy of the reference data tables (music genres, passport countries, traveller types, roles
+ * and types of events). These tables are read on almost every page render but very rarely written to, so
+ * each one is held as an id to value map plus a name to id map. Repositories that write to one of the
+ * tables invalidate it and the next read reloads it from the database.
+ *
+ * One cache is kept per ebean server, see PerServer.
+ */
+public final class ReferenceDataCache {
+
+    private static final PerServer<ReferenceDataCache> instances = new PerServer<>(ReferenceDataCache::new);
+
+    private final CacheTable<MusicGenre> genres;
+    private final CacheTable<PassportCountry> passportCountries;
+    private final CacheTable<TravellerType> travellerTypes;
+    private final CacheTable<String> roles;
+    private final CacheTable<String> eventTypes;
+
+    private ReferenceDataCache(EbeanServer ebeanServer) {
+        genres = new CacheTable<>("music_genre",
+                () -> byId(ebeanServer.find(MusicGenre.class).orderBy("genre_id").findList(), MusicGenre::getGenreId),
+                MusicGenre::getGenre);
+        passportCountries = new CacheTable<>("passport_country",
+                () -> byId(ebeanServer.find(PassportCountry.class).orderBy("passport_country_id").findList(),
+                        PassportCountry::getPassportId),
+                PassportCountry::getPassportName);
+        travellerTypes = new CacheTable<>("traveller_type",
+                () -> byId(ebeanServer.find(TravellerType.class).orderBy("traveller_type_id").findList(),
+                        TravellerType::getTravellerTypeId),
+                TravellerType::getTravellerTypeName);
+        roles = new CacheTable<>("roles",
+                () -> namesById(ebeanServer, "SELECT role_id, role_name FROM roles", "role_id", "role_name"),
+                Function.identity());
+        eventTypes = new CacheTable<>("type_of_events",
+                () -> namesById(ebeanServer, "SELECT type_id, type_name FROM type_of_events", "type_id", "type_name"),
+                Function.identity());
+    }
+
+    /**
+     * Gets the cache shared by all repositories using the given ebean server, creating it if needed
+     *
+     * @param ebeanServer the ebean server the reference data is read from
+     * @return the cache for that server
+     */
+    public static ReferenceDataCache getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    /**
+     * Loads every reference table. Called at startup so the first page render does not pay for the loads.
+     */
+    public void loadAll() {
+        for (CacheTable<?> table : getTables()) {
+            table.load();
+        }
+    }
+
+    /**
+     * Drops every cached table, the next read of each table will reload it
+     */
+    public void invalidateAll() {
+        for (CacheTable<?> table : getTables()) {
+            table.invalidate();
+        }
+    }
+
+    /**
+     * @return the cached tables, used for reporting hit and miss counts
+     */
+    public List<CacheTable<?>> getTables() {
+        return Arrays.asList(genres, passportCountries, travellerTypes, roles, eventTypes);
+    }
+
+    public CacheTable<MusicGenre> getGenres() {
+        return genres;
+    }
+
+    public CacheTable<PassportCountry> getPassportCountries() {
+        return passportCountries;
+    }
+
+    public CacheTable<TravellerType> getTravellerTypes() {
+        return travellerTypes;
+    }
+
+    /**
+     * @return the roles table, values are the role names
+     */
+    public CacheTable<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * @return the type_of_events table, values are the type names
+     */
+    public CacheTable<String> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Keys a list of model objects by their database id, keeping the list order
+     */
+    private static <V> Map<Integer, V> byId(List<V> rows, Function<V, Integer> idOf) {
+        Map<Integer, V> byId = new LinkedHashMap<>();
+        for (V row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        return byId;
+    }
+
+    /**
+     * Reads a two column id/name table into a sorted map
+     */
+    private static Map<Integer, String> namesById(EbeanServer ebeanServer, String sql, String idColumn, String nameColumn) {
+        Map<Integer, String> names = new TreeMap<>();
+        for (SqlRow row : ebeanServer.createSqlQuery(sql).findList()) {
+            names.put(row.getInteger(idColumn), row.getString(nameColumn));
+        }
+        return names;
+    }
+
+
+    /**
+     * A single cached reference table. Reads go against an immutable snapshot which is swapped out as a whole
+     * on reload, so readers never need to lock.
+     *
+     * @param <V> the type of value held for each row
+     */
+    public static final class CacheTable<V> {
+
+        private final String name;
+        private final Supplier<Map<Integer, V>> loader;
+        private final Function<V, String> nameOf;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private volatile Snapshot<V> snapshot;
+
+        /**
+         * @param name the table name, used when reporting
+         * @param loader reads the whole table keyed by database id
+         * @param nameOf gets the unique name of a row
+         */
+        private CacheTable(String name, Supplier<Map<Integer, V>> loader, Function<V, String> nameOf) {
+            this.name = name;
+            this.loader = loader;
+            this.nameOf = nameOf;
+        }
+
+        /**
+         * Reloads the table from the database
+         */
+        public synchronized void load() {
+            Map<Integer, V> byId = loader.get();
+            Map<String, Integer> idByName = new HashMap<>();
+            for (Map.Entry<Integer, V> entry : byId.entrySet()) {
+                idByName.put(nameOf.apply(entry.getValue()), entry.getKey());
+            }
+            snapshot = new Snapshot<>(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(idByName));
+        }
+
+        /**
+         * Drops the cached copy of the table. Must be called after any write to the underlying table.
+         */
+        public synchronized void invalidate() {
+            snapshot = null;
+        }
+
+        /**
+         * Drops the cached copy once the transaction active on this thread commits, or straight away if there
+         * is none, so a reload run before the commit can not hide a row written in that transaction
+         *
+         * @param ebeanServer the server the transaction belongs to
+         */
+        void invalidateAfterCommit(EbeanServer ebeanServer) {
+            Transaction txn = ebeanServer.currentTransaction();
+            if (txn == null) {
+                invalidate();
+                return;
+            }
+            txn.register(new TransactionCallbackAdapter() {
+                @Override
+                public void postCommit() {
+                    invalidate();
+                }
+            });
+        }
+
+        /**
+         * Finds a row by its database id
+         *
+         * @param id the database id of the row
+         * @return Optional of the row, empty if there is no row with that id
+         */
+        public Optional<V> findById(Integer id) {
+            return Optional.ofNullable(current().byId.get(id));
+        }
+
+        /**
+         * Finds the id of a row by its name
+         *
+         * @param rowName the name of the row, eg the genre or role name
+         * @return Optional of the row id, empty if there is no row with that name
+         */
+        public Optional<Integer> findIdByName(String rowName) {
+            return Optional.ofNullable(current().idByName.get(rowName));
+        }
+
+        /**
+         * @return read only map of every row keyed by database id, in id order
+         */
+        public Map<Integer, V> getAll() {
+            return current().byId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of reads served from the cached copy
+         */
+        public long getHits() {
+            return hits.get();
+        }
+
+        /**
+         * @return number of reads that had to load the table from the database
+         */
+        public long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * @return number of rows held, 0 if the table is not loaded. Does not count as a read or load the table.
+         */
+        public int size() {
+            Snapshot<V> current = snapshot;
+            return current == null ? 0 : current.byId.size();
+        }
+
+        private Snapshot<V> current() {
+            Snapshot<V> current = snapshot;
+            if (current != null) {
+                hits.incrementAndGet();
+                return current;
+            }
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    misses.incrementAndGet();
+                    load();
+                    current = snapshot;
+                } else {
+                    hits.incrementAndGet();
+                }
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Immutable view of one load of a table
+     */
+    private static final class Snapshot<V> {
+        private final Map<Integer, V> byId;
+        private final Map<String, Integer> idByName;
+
+        private Snapshot(Map<Integer, V> byId, Map<String, Integer> idByName) {
+            this.byId = byId;
+            this.idByName = idByName;
+        }
+    }
+}
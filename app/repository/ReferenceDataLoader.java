@@ -0,0 +1,63 @@
+package repository;
+
+import io.ebean.Ebean;
+import io.ebean.EbeanServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.api.db.evolutions.ApplicationEvolutions;
+import play.db.ebean.EbeanConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.persistence.PersistenceException;
+
+/**
+ * Fills the reference data cache and the event search index when the application starts. Bound as an eager
+ * singleton in Module. Depends on the evolutions so the tables are created and seeded before they are read.
+ */
+@Singleton
+public class ReferenceDataLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataLoader.class);
+
+    private final EbeanServer ebeanServer;
+    private final EventRepository eventRepository;
+
+    @Inject
+    public ReferenceDataLoader(EbeanConfig ebeanConfig, ApplicationEvolutions evolutions, EventRepository eventRepository) {
+        this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
+        this.eventRepository = eventRepository;
+        load();
+    }
+
+    /**
+     * Drops the reference data cache and every in memory search index, then fills them again. For use after
+     * rows have been written without going through the repositories, eg the synthetic benchmark dataset,
+     * as the repositories only keep the indexes up to date with their own writes.
+     */
+    public void reload() {
+        ReferenceDataCache.getInstance(ebeanServer).invalidateAll();
+        EventSearchIndex.getInstance(ebeanServer).invalidateAll();
+        ArtistSearchIndex.getInstance(ebeanServer).invalidateAll();
+        TravellerSearchIndex.getInstance(ebeanServer).invalidateAll();
+        DestinationGeoIndex.getInstance(ebeanServer).invalidateAll();
+        load();
+    }
+
+    private void load() {
+        ReferenceDataCache cache = ReferenceDataCache.getInstance(ebeanServer);
+        try {
+            cache.loadAll();
+        } catch (PersistenceException e) {
+            // Not fatal, each table is loaded again on its first read
+            cache.invalidateAll();
+            logger.warn("Could not preload reference data", e);
+        }
+        try {
+            eventRepository.loadSearchIndex();
+        } catch (PersistenceException e) {
+            // Not fatal, the index is filled on the first search instead
+            logger.warn("Could not preload the event search index", e);
+        }
+    }
+}
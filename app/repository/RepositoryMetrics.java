@@ -0,0 +1,41 @@
+package repository;
+
+import io.ebean.Ebean;
+import io.ebean.EbeanServer;
+import play.db.ebean.EbeanConfig;
+import utility.Metrics;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Registers the hit and miss counts of the repository caches and the sizes of the search indexes with
+ * Metrics, as those are only visible inside this package. Bound as an eager singleton in Module.
+ */
+@Singleton
+public class RepositoryMetrics {
+
+    @Inject
+    public RepositoryMetrics(EbeanConfig ebeanConfig, Metrics metrics) {
+        EbeanServer ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
+
+        for (ReferenceDataCache.CacheTable<?> table : ReferenceDataCache.getInstance(ebeanServer).getTables()) {
+            metrics.registerCache(table.getName(), table::getHits, table::getMisses, table::size);
+        }
+        PhotoFileCache photoFiles = PhotoFileCache.getInstance(ebeanServer);
+        metrics.registerCache("photo_file", photoFiles::getHits, photoFiles::getMisses, photoFiles::size);
+        DestinationPhotoCache destinationPhotos = DestinationPhotoCache.getInstance(ebeanServer);
+        metrics.registerCache("destination_photo", destinationPhotos::getHits, destinationPhotos::getMisses,
+                destinationPhotos::size);
+
+        String help = "Documents held by an in memory search index";
+        metrics.gauge("soundbound_search_index_documents", help, "index", "events",
+                EventSearchIndex.getInstance(ebeanServer)::size);
+        metrics.gauge("soundbound_search_index_documents", help, "index", "artists",
+                ArtistSearchIndex.getInstance(ebeanServer)::size);
+        metrics.gauge("soundbound_search_index_documents", help, "index", "travellers",
+                TravellerSearchIndex.getInstance(ebeanServer)::size);
+        metrics.gauge("soundbound_search_index_documents", help, "index", "destinations",
+                DestinationGeoIndex.getInstance(ebeanServer)::size);
+    }
+}
@@ -4,9 +4,7 @@ import io.ebean.*;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 
 /**
@@ -19,12 +17,14 @@ public class RolesRepository {
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext context;
     private final EbeanConfig config;
+    private final ReferenceDataCache referenceData;
 
     @Inject
     public RolesRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext context) {
         this.config = ebeanConfig;
         this.context = context;
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
+        this.referenceData = ReferenceDataCache.getInstance(ebeanServer);
     }
 
     /**
@@ -34,12 +34,7 @@ public class RolesRepository {
      * @return An optional string type of the role's name
      */
     private Optional<String> getRoleById(Integer roleId) {
-        String query = "SELECT role_name FROM roles WHERE role_id = ?";
-        SqlRow rowList = ebeanServer.createSqlQuery(query).setParameter(1, roleId).findOne();
-        String role = rowList.getString("role_name");
-
-
-        return Optional.ofNullable(role);
+        return referenceData.getRoles().findById(roleId);
     }
 
     /**
@@ -76,6 +71,34 @@ public class RolesRepository {
     }
 
 
+    /**
+     * Gets the role names for a group of profiles in a single joined query
+     *
+     * @param profileIds The IDs of the profiles to retrieve roles for
+     * @return Map of profile ID to the list of that profiles role names
+     */
+    public Map<Integer, List<String>> getProfileRoles(Collection<Integer> profileIds) {
+        Map<Integer, List<String>> roles = new HashMap<>();
+        if (profileIds.isEmpty()) {
+            return roles;
+        }
+        for (Integer profileId : profileIds) {
+            roles.put(profileId, new ArrayList<>());
+        }
+        String sql = "SELECT profile_roles.profile_id, roles.role_name FROM profile_roles " +
+                "JOIN roles ON profile_roles.role_id = roles.role_id " +
+                "WHERE profile_roles.profile_id IN (" + QueryHelper.placeholders(profileIds.size()) + ")";
+        SqlQuery query = ebeanServer.createSqlQuery(sql);
+        QueryHelper.bindAll(query, profileIds, 1);
+        for (SqlRow row : query.findList()) {
+            if (row.getString("role_name") != null) {
+                roles.get(row.getInteger("profile_id")).add(row.getString("role_name"));
+            }
+        }
+        return roles;
+    }
+
+
     /**
      * Retrieves the ID of a role based on its name
      *
@@ -83,14 +106,7 @@ public class RolesRepository {
      * @return The role ID if a matching role name exists on database
      */
     private Optional<Integer> getRoleFromName(String roleName) {
-        Integer roleId = null;
-        String query = "SELECT * FROM roles WHERE role_name = ?";
-        SqlRow row = ebeanServer.createSqlQuery(query).setParameter(1, roleName).findOne();
-        if (row != null) {
-            roleId = row.getInteger("role_id");
-        }
-
-        return Optional.ofNullable(roleId);
+        return referenceData.getRoles().findIdByName(roleName);
     }
 
     /**
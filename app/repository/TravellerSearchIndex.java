@@ -0,0 +1,257 @@
+package repository;
+
+import io.ebean.EbeanServer;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In memory index over the profiles which have not been soft deleted, used by the travellers partner search.
+ * Traveller types, nationalities and genders each have a bitset of profile ids so the filters are bitset
+ * intersections, and the profiles are kept sorted by birth date so an age range is a walk over one part of
+ * that column. The page and the total number of matches come out of the same walk.
+ *
+ * The index is filled on first use. ProfileRepository refreshes a profile whenever it is inserted, updated,
+ * soft deleted, restored or deleted.
+ */
+final class TravellerSearchIndex extends InMemoryIndex<TravellerSearchIndex.Doc> {
+
+    private static final PerServer<TravellerSearchIndex> instances = new PerServer<>(server -> new TravellerSearchIndex());
+
+    private static final Comparator<Doc> BY_BIRTH_DATE = Comparator
+            .comparing((Doc doc) -> doc.birthDate)
+            .thenComparingInt(doc -> doc.profileId);
+
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final NavigableSet<Doc> byBirthDate = new TreeSet<>(BY_BIRTH_DATE);
+    private final Map<String, BitSet> byTravellerType = new HashMap<>();
+    private final Map<String, BitSet> byNationality = new HashMap<>();
+    private final Map<String, BitSet> byGender = new HashMap<>();
+    private final BitSet all = new BitSet();
+
+    private TravellerSearchIndex() {
+    }
+
+    /**
+     * @param ebeanServer the ebean server the profiles are read from
+     * @return the index for that server
+     */
+    static TravellerSearchIndex getInstance(EbeanServer ebeanServer) {
+        return instances.get(ebeanServer);
+    }
+
+    @Override
+    protected void clear() {
+        docs.clear();
+        byBirthDate.clear();
+        byTravellerType.clear();
+        byNationality.clear();
+        byGender.clear();
+        all.clear();
+    }
+
+    /**
+     * Finds the profiles matching a query, oldest first with ties in profile id order so pages never overlap
+     * @param query what to match
+     * @param offset number of matching profiles to skip
+     * @param limit most profile ids to return
+     * @return one page of ids along with the total number of matches
+     */
+    Result search(Query query, int offset, int limit) {
+        return read(() -> {
+            BitSet matches = (BitSet) all.clone();
+            and(matches, byTravellerType, query.travellerType);
+            and(matches, byNationality, query.nationality);
+            and(matches, byGender, query.gender);
+
+            NavigableSet<Doc> range = byBirthDate;
+            if (query.bornAfter != null && query.bornBefore != null) {
+                if (!query.bornAfter.isBefore(query.bornBefore)) {
+                    return new Result(Collections.emptyList(), 0);
+                }
+                range = byBirthDate.subSet(bound(query.bornAfter, Integer.MAX_VALUE), false,
+                        bound(query.bornBefore, Integer.MIN_VALUE), false);
+            } else if (query.bornAfter != null) {
+                range = byBirthDate.tailSet(bound(query.bornAfter, Integer.MAX_VALUE), false);
+            } else if (query.bornBefore != null) {
+                range = byBirthDate.headSet(bound(query.bornBefore, Integer.MIN_VALUE), false);
+            }
+
+            List<Integer> page = new ArrayList<>();
+            int total = 0;
+            for (Doc doc : range) {
+                if (!matches.get(doc.profileId)) {
+                    continue;
+                }
+                if (total >= offset && page.size() < limit) {
+                    page.add(doc.profileId);
+                }
+                total++;
+            }
+            return new Result(page, total);
+        });
+    }
+
+    @Override
+    protected int count() {
+        return docs.size();
+    }
+
+    /**
+     * @return a key which sorts either side of every profile born on the given day
+     */
+    private static Doc bound(LocalDate birthDate, int profileId) {
+        return new Doc(profileId, birthDate, null);
+    }
+
+    private static void and(BitSet matches, Map<String, BitSet> postings, String key) {
+        if (key != null) {
+            BitSet posting = postings.get(key);
+            if (posting == null) {
+                matches.clear();
+            } else {
+                matches.and(posting);
+            }
+        }
+    }
+
+    @Override
+    protected void add(Doc doc) {
+        docs.put(doc.profileId, doc);
+        byBirthDate.add(doc);
+        all.set(doc.profileId);
+        for (String travellerType : doc.travellerTypes) {
+            byTravellerType.computeIfAbsent(travellerType, key -> new BitSet()).set(doc.profileId);
+        }
+        for (String nationality : doc.nationalities) {
+            byNationality.computeIfAbsent(nationality, key -> new BitSet()).set(doc.profileId);
+        }
+        if (doc.gender != null) {
+            byGender.computeIfAbsent(doc.gender, key -> new BitSet()).set(doc.profileId);
+        }
+    }
+
+    @Override
+    protected void remove(int profileId) {
+        Doc doc = docs.remove(profileId);
+        if (doc == null) {
+            return;
+        }
+        byBirthDate.remove(doc);
+        all.clear(profileId);
+        for (String travellerType : doc.travellerTypes) {
+            clear(byTravellerType, travellerType, profileId);
+        }
+        for (String nationality : doc.nationalities) {
+            clear(byNationality, nationality, profileId);
+        }
+        if (doc.gender != null) {
+            clear(byGender, doc.gender, profileId);
+        }
+    }
+
+    private static void clear(Map<String, BitSet> postings, String key, int profileId) {
+        BitSet posting = postings.get(key);
+        if (posting != null) {
+            posting.clear(profileId);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static String normalise(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * What the index holds for one profile
+     */
+    static final class Doc {
+        private final int profileId;
+        private final LocalDate birthDate;
+        private final String gender;
+        private final Set<String> travellerTypes = new HashSet<>();
+        private final Set<String> nationalities = new HashSet<>();
+
+        Doc(int profileId, LocalDate birthDate, String gender) {
+            this.profileId = profileId;
+            this.birthDate = birthDate == null ? LocalDate.MIN : birthDate;
+            this.gender = gender == null ? null : normalise(gender);
+        }
+
+        int getProfileId() {
+            return profileId;
+        }
+
+        void addTravellerType(String travellerType) {
+            travellerTypes.add(normalise(travellerType));
+        }
+
+        void addNationality(String nationality) {
+            nationalities.add(normalise(nationality));
+        }
+    }
+
+    /**
+     * A search, every field left null matches everything
+     */
+    static final class Query {
+        private String travellerType;
+        private String nationality;
+        private String gender;
+        private LocalDate bornAfter;
+        private LocalDate bornBefore;
+
+        /** Profiles with the traveller type of the given name */
+        Query travellerType(String travellerType) {
+            this.travellerType = normalise(travellerType);
+            return this;
+        }
+
+        /** Profiles with the nationality of the given name */
+        Query nationality(String nationality) {
+            this.nationality = normalise(nationality);
+            return this;
+        }
+
+        /** Profiles of the given gender, ignoring case */
+        Query gender(String gender) {
+            this.gender = normalise(gender);
+            return this;
+        }
+
+        /** Profiles born after the given day, not on it */
+        Query bornAfter(LocalDate date) {
+            this.bornAfter = date;
+            return this;
+        }
+
+        /** Profiles born before the given day, not on it */
+        Query bornBefore(LocalDate date) {
+            this.bornBefore = date;
+            return this;
+        }
+    }
+
+    /**
+     * One page of a search
+     */
+    static final class Result {
+        private final List<Integer> profileIds;
+        private final int total;
+
+        private Result(List<Integer> profileIds, int total) {
+            this.profileIds = profileIds;
+            this.total = total;
+        }
+
+        List<Integer> getProfileIds() {
+            return profileIds;
+        }
+
+        int getTotal() {
+            return total;
+        }
+    }
+}
@@ -3,14 +3,11 @@ package repository;
 import io.ebean.Ebean;
 import io.ebean.EbeanServer;
 import io.ebean.Model;
-import io.ebean.SqlRow;
 import models.TravellerType;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -23,11 +20,13 @@ public class TravellerTypeRepository {
 
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
+    private final ReferenceDataCache referenceData;
 
     @Inject
     public TravellerTypeRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext) {
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.referenceData = ReferenceDataCache.getInstance(ebeanServer);
     }
 
     /**
@@ -40,6 +39,7 @@ public class TravellerTypeRepository {
             try {
                 final Optional<TravellerType> travellerTypesOptional = Optional.ofNullable(ebeanServer.find(TravellerType.class).setId(id).findOne());
                 travellerTypesOptional.ifPresent(Model::delete);
+                referenceData.getTravellerTypes().invalidate();
                 return travellerTypesOptional.map(TravellerType::getTravellerTypeId);
             } catch (Exception e) {
                 return Optional.empty();
@@ -54,6 +54,7 @@ public class TravellerTypeRepository {
      */
     public Optional<Integer> insert(TravellerType travellerTypes) {
         ebeanServer.insert(travellerTypes);
+        referenceData.getTravellerTypes().invalidate();
         return Optional.of(travellerTypes.getTravellerTypeId());
     }
 
@@ -63,7 +64,7 @@ public class TravellerTypeRepository {
      * @return Optional completion stage holding the object of type T found using the given id.
      */
     public Optional<TravellerType> findById(int id) {
-        return Optional.ofNullable(ebeanServer.find(TravellerType.class).where().eq("traveller_type_id", id).findOne());
+        return referenceData.getTravellerTypes().findById(id);
     }
 
     /**
@@ -72,15 +73,29 @@ public class TravellerTypeRepository {
      * @return
      */
     public Optional<Integer> getTravellerTypeId(String traveller) {
-        String sql = ("select traveller_type_id from traveller_type where traveller_type_name = ?");
-        List<SqlRow> rowList = ebeanServer.createSqlQuery(sql).setParameter(1, traveller).findList();
-        Integer travellerId;
-        try {
-            travellerId = rowList.get(0).getInteger("traveller_type_id");
-        } catch(Exception e) {
-            travellerId = null;
+        return referenceData.getTravellerTypes().findIdByName(traveller);
+    }
+
+    /**
+     * Gets the ids of traveller types by name, inserting any which do not exist yet in the transaction active
+     * on this thread
+     * @param travellerTypes names of the traveller types
+     * @return the ids in the order of the names, without repeats
+     */
+    List<Integer> getOrCreateIds(Collection<String> travellerTypes) {
+        List<Integer> ids = new ArrayList<>();
+        for (String name : new LinkedHashSet<>(travellerTypes)) {
+            Optional<Integer> id = referenceData.getTravellerTypes().findIdByName(name);
+            if (id.isPresent()) {
+                ids.add(id.get());
+            } else {
+                TravellerType travellerType = new TravellerType(name);
+                ebeanServer.insert(travellerType);
+                referenceData.getTravellerTypes().invalidateAfterCommit(ebeanServer);
+                ids.add(travellerType.getTravellerTypeId());
+            }
         }
-        return Optional.ofNullable(travellerId);
+        return ids;
     }
 
 
@@ -90,11 +105,11 @@ public class TravellerTypeRepository {
      * @return CompletionStage holding an Optional of the a TravellerTypes Map keyed by the database id
      */
     public Optional<Map<Integer, TravellerType>> getAll() {
-        return Optional.of(ebeanServer.find(TravellerType.class).findMap());
+        return Optional.of(new HashMap<>(referenceData.getTravellerTypes().getAll()));
     }
 
     public TravellerType getById(int id) {
-        return ebeanServer.find(TravellerType.class).where().eq("traveller_type_id", id).findOne();
+        return referenceData.getTravellerTypes().findById(id).orElse(null);
     }
 
 }
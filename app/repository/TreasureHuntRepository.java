@@ -4,14 +4,13 @@ import io.ebean.Ebean;
 import io.ebean.EbeanServer;
 import io.ebean.Transaction;
 import models.Destination;
+import models.KeysetPage;
 import models.TreasureHunt;
 import org.joda.time.DateTime;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -24,11 +23,19 @@ public class TreasureHuntRepository {
 
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
+    private final DestinationRepository destinationRepository;
+    private final CachedCount huntCount;
+
+    private static final KeysetPaginator<TreasureHunt> HUNT_PAGINATOR =
+            new KeysetPaginator<>("treasure_hunt_id", TreasureHunt::getTreasureHuntId);
 
     @Inject
-    public TreasureHuntRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext) {
+    public TreasureHuntRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext,
+                                  DestinationRepository destinationRepository) {
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
+        this.destinationRepository = destinationRepository;
+        this.huntCount = CachedCount.getInstance(ebeanServer, "hunts", this::getNumHunts, 30000);
     }
 
     /**
@@ -40,6 +47,7 @@ public class TreasureHuntRepository {
     public CompletionStage<Integer> insert(TreasureHunt treasureHunt){
         return supplyAsync(() -> {
             ebeanServer.insert(treasureHunt);
+            huntCount.invalidate();
             return treasureHunt.getTreasureHuntId();
         }, executionContext);
     }
@@ -84,6 +92,35 @@ public class TreasureHuntRepository {
     }
 
 
+    /**
+     * Method to find the treasure hunts at destinations within a distance of a point, found through the
+     * destination spatial index
+     *
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusKm greatest distance in kilometres
+     * @return the treasure hunts, those at the nearest destination first
+     */
+    public List<TreasureHunt> getTreasureHuntsNear(double latitude, double longitude, double radiusKm) {
+        List<Integer> destinationIds = destinationRepository.getDestinationIdsNear(latitude, longitude, radiusKm);
+        if (destinationIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Integer> rank = new HashMap<>();
+        for (Integer destinationId : destinationIds) {
+            rank.put(destinationId, rank.size());
+        }
+        List<TreasureHunt> hunts = ebeanServer.find(TreasureHunt.class)
+                .where()
+                .in("destination_id", destinationIds)
+                .eq("soft_delete", 0)
+                .order("treasure_hunt_id")
+                .findList();
+        hunts.sort(Comparator.comparingInt(hunt -> rank.get(hunt.getTreasureHuntDestinationId())));
+        return hunts;
+    }
+
+
     /**
      * Updates a TreasureHunt object in the database by taking in an id of an already existing treasurehunt and a new edited treasure hunt
      * @param treasureHunt New treasure hunt with edited changes
@@ -141,8 +178,9 @@ public class TreasureHuntRepository {
     public CompletionStage<Integer> deleteTreasureHunt(int treasureHuntId){
         return supplyAsync(() -> {
             ebeanServer.find(TreasureHunt.class).where().eq("treasureHuntId", treasureHuntId).delete();
+            huntCount.invalidate();
             return 1;
-        });
+        }, executionContext);
     }
 
     /**
@@ -159,6 +197,7 @@ public class TreasureHuntRepository {
                 if (targetHunt != null) {
                     targetHunt.setSetSoftDelete(softDelete);
                     targetHunt.update();
+                    huntCount.invalidate();
                     return 1;
                 } else {
                     return 0;
@@ -179,6 +218,16 @@ public class TreasureHuntRepository {
         return ebeanServer.find(TreasureHunt.class).where().eq("soft_delete", 0).findCount();
     }
 
+    /**
+     * Method to get number of hunts in the system, reusing the last count for up to 30 seconds
+     * used for pagination where an exact count is not needed
+     *
+     * @return int number of hunts found
+     */
+    public int getCachedNumHunts() {
+        return huntCount.get();
+    }
+
     /**
      * Method to get one page worth of treasure hunts
      *
@@ -192,6 +241,18 @@ public class TreasureHuntRepository {
                 .setFirstRow(offset)
                 .where()
                 .eq("soft_delete", 0)
+                .orderBy("treasure_hunt_id asc")
                 .findList();
     }
+
+    /**
+     * Method to get one page worth of treasure hunts using keyset pagination, ordered by hunt id
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @param pageSize max amount to find
+     * @return the page of hunts with the cursors for the pages either side
+     */
+    public KeysetPage<TreasureHunt> getPageHunts(String cursor, int pageSize) {
+        return HUNT_PAGINATOR.page(ebeanServer.find(TreasureHunt.class).where().eq("soft_delete", 0), cursor, pageSize);
+    }
 }
@@ -4,18 +4,15 @@ import com.google.common.collect.TreeMultimap;
 import io.ebean.Ebean;
 import io.ebean.EbeanServer;
 import io.ebean.Model;
-import io.ebean.SqlRow;
 import models.Destination;
+import models.KeysetPage;
 import models.Profile;
 import models.Trip;
 import models.TripDestination;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -29,12 +26,16 @@ public class TripRepository {
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
     private final DestinationRepository destinationRepository;
+    private final CachedCount tripCount;
+
+    private static final KeysetPaginator<Trip> TRIP_PAGINATOR = new KeysetPaginator<>("trip_id", Trip::getTripId);
 
     @Inject
     public TripRepository(EbeanConfig ebeanConfig, DatabaseExecutionContext executionContext, DestinationRepository destinationRepository) {
         this.ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
         this.executionContext = executionContext;
         this.destinationRepository = destinationRepository;
+        this.tripCount = CachedCount.getInstance(ebeanServer, "trips", this::getNumTrips, 30000);
     }
 
 
@@ -53,6 +54,7 @@ public class TripRepository {
                 }
             ebeanServer.insert(tripDestination);
         }
+        tripCount.invalidate();
     }
 
 
@@ -78,6 +80,7 @@ public class TripRepository {
             try {
                 final Optional<Trip> tripOptional = Optional.ofNullable(ebeanServer.find(Trip.class).setId(tripID).findOne());
                 tripOptional.ifPresent(Model::delete);
+                tripCount.invalidate();
                 return tripOptional.map(Trip::getId);
             } catch (Exception e) {
                 return Optional.empty();
@@ -98,6 +101,7 @@ public class TripRepository {
                 if (targetTrip != null) {
                     targetTrip.setSoftDelete(softDelete);
                     targetTrip.update();
+                    tripCount.invalidate();
                     return 1;
                 } else {
                     return 0;
@@ -127,23 +131,7 @@ public class TripRepository {
     private Profile populateTrips(Profile profile, List<Trip> result) {
         TreeMultimap<Long, Integer> trips = TreeMultimap.create();
         TreeMap <Integer, Trip> tripMap = new TreeMap<>();
-        for (Trip trip : result) {
-            ArrayList<TripDestination> tripDestinations = new ArrayList<>();
-            // Getting the tripDestinations out of the database for each trip returned
-            List<TripDestination> tripDests = TripDestination.find.query()
-                    .where()
-                    .eq("trip_id", trip.getId())
-                    .findList();
-            for (TripDestination tripDest : tripDests) {
-                // Getting the destinations for each tripDestination
-                List<Destination> destinations = Destination.find.query()
-                        .where()
-                        .eq("destination_id", tripDest.getDestinationId())
-                        .findList();
-                tripDest.setDestination(destinations.get(0));
-                tripDestinations.add(tripDest);
-            }
-            trip.setDestinations(tripDestinations);
+        for (Trip trip : populateTripDestinations(result)) {
             trips.put(trip.getFirstDate(), trip.getId());
             tripMap.put(trip.getId(), trip);
         }
@@ -153,36 +141,82 @@ public class TripRepository {
     }
 
     /**
-     * code to return trip from id
-     * @param tripId Id of the trip to be selected
-     * @return Trip object taken from the database
+     * Fills the destinations of each of the given trips, both as the destination list and as the
+     * map ordered by dest_order. Uses one query for the trip destinations of all the trips and
+     * one query for the destinations they reference.
+     *
+     * @param trips Trips to fill
+     * @return the same list of trips, now filled
      */
-    public Trip getTrip(int tripId) {
-        // Getting the trips out of the database
-        List<Trip> result = Trip.find.query().where()
-                .eq("trip_id", tripId)
-                .eq("soft_delete",0)
-                .findList();
-
-        Trip trip = result.get(0);
+    private List<Trip> populateTripDestinations(List<Trip> trips) {
+        if (trips.isEmpty()) {
+            return trips;
+        }
+        Map<Integer, ArrayList<TripDestination>> destinationLists = new HashMap<>();
+        Map<Integer, TreeMap<Integer, TripDestination>> orderedDestinations = new HashMap<>();
+        for (Trip trip : trips) {
+            destinationLists.put(trip.getId(), new ArrayList<>());
+            orderedDestinations.put(trip.getId(), new TreeMap<>());
+        }
 
-        TreeMap<Integer, TripDestination> orderedDestiantions = new TreeMap<>();
         List<TripDestination> tripDests = TripDestination.find.query()
                 .where()
-                .eq("trip_id", tripId)
+                .in("trip_id", destinationLists.keySet())
+                .orderBy("tripId, destOrder, tripDestinationId")
                 .findList();
+        Set<Integer> destinationIds = new HashSet<>();
+        for (TripDestination tripDest : tripDests) {
+            destinationIds.add(tripDest.getDestinationId());
+        }
+        Map<Integer, Destination> destinations = new HashMap<>();
+        if (!destinationIds.isEmpty()) {
+            destinations = ebeanServer.find(Destination.class).where().idIn(destinationIds).findMap();
+        }
 
         for (TripDestination tripDest : tripDests) {
-            // Getting the destinations for each tripDestination
-            List<Destination> destinations = Destination.find.query()
-                    .where()
-                    .eq("destination_id", tripDest.getDestinationId())
-                    .findList();
-            tripDest.setDestination(destinations.get(0));
-            orderedDestiantions.put(tripDest.getDestOrder(), tripDest);
+            tripDest.setDestination(destinations.get(tripDest.getDestinationId()));
+            destinationLists.get(tripDest.getTripId()).add(tripDest);
+            orderedDestinations.get(tripDest.getTripId()).put(tripDest.getDestOrder(), tripDest);
+        }
+        for (Trip trip : trips) {
+            trip.setDestinations(destinationLists.get(trip.getId()));
+            trip.setOrderedDestinations(orderedDestinations.get(trip.getId()));
+        }
+        return trips;
+    }
+
+    /**
+     * Loads the trips with the given ids along with their destinations, three queries in total
+     * regardless of the number of trips or legs. Soft deleted trips are left out.
+     *
+     * @param tripIds Ids of the trips to load
+     * @return List of the trips found, in the order of the given ids
+     */
+    public List<Trip> getTrips(List<Integer> tripIds) {
+        if (tripIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Trip> found = ebeanServer.find(Trip.class).where()
+                .idIn(tripIds)
+                .eq("soft_delete", 0)
+                .findMap();
+        List<Trip> trips = new ArrayList<>();
+        for (Integer tripId : tripIds) {
+            Trip trip = found.get(tripId);
+            if (trip != null) {
+                trips.add(trip);
+            }
         }
-        trip.setOrderedDestinations(orderedDestiantions);
-        return trip;
+        return populateTripDestinations(trips);
+    }
+
+    /**
+     * code to return trip from id
+     * @param tripId Id of the trip to be selected
+     * @return Trip object taken from the database
+     */
+    public Trip getTrip(int tripId) {
+        return getTrips(Collections.singletonList(tripId)).get(0);
     }
 
     /**
@@ -191,14 +225,8 @@ public class TripRepository {
      * @return List of all trips
      */
     public List<Trip> getAll() {
-        String selectQuery = "SELECT * FROM trip WHERE soft_delete = 0;";
-        List<SqlRow> rows = ebeanServer.createSqlQuery(selectQuery).findList();
-        List<Trip> allTrips = new ArrayList<>();
-        for (SqlRow row : rows) {
-            allTrips.add(getTrip(row.getInteger("trip_id")));
-
-        }
-        return allTrips;
+        List<Trip> allTrips = ebeanServer.find(Trip.class).where().eq("soft_delete", 0).findList();
+        return populateTripDestinations(allTrips);
     }
 
     /**
@@ -210,12 +238,23 @@ public class TripRepository {
      * @return List of trips found
      */
     public List<Trip> getPaginateTrip(int offset, int amount) {
-        List<Trip> trips = new ArrayList<>();
-        List<Integer> tripIds = ebeanServer.find(Trip.class).setMaxRows(amount).setFirstRow(offset).where().eq("soft_delete", 0).findIds();
-        for (int id : tripIds) {
-            trips.add(getTrip(id));
-        }
-        return trips;
+        List<Trip> trips = ebeanServer.find(Trip.class).setMaxRows(amount).setFirstRow(offset).where().eq("soft_delete", 0)
+                .orderBy("trip_id asc").findList();
+        return populateTripDestinations(trips);
+    }
+
+    /**
+     * Gets a page of the trips using keyset pagination, ordered by trip id
+     * used for pagination on the admin page
+     *
+     * @param cursor token from a previous page, null for the first page
+     * @param amount amount of trips to get
+     * @return the page of trips with the cursors for the pages either side
+     */
+    public KeysetPage<Trip> getPaginateTrip(String cursor, int amount) {
+        KeysetPage<Trip> page = TRIP_PAGINATOR.page(ebeanServer.find(Trip.class).where().eq("soft_delete", 0), cursor, amount);
+        populateTripDestinations(page.getItems());
+        return page;
     }
 
     /**
@@ -240,4 +279,13 @@ public class TripRepository {
     public int getNumTrips() {
         return ebeanServer.find(Trip.class).where().eq("soft_delete", 0).findCount();
     }
+
+    /**
+     * Finds the number of trips in the database, reusing the last count for up to 30 seconds
+     * Used for pagination where an exact count is not needed
+     * @return int of number found
+     */
+    public int getCachedNumTrips() {
+        return tripCount.get();
+    }
 }
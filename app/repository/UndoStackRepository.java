@@ -2,15 +2,15 @@ package repository;
 
 import io.ebean.Ebean;
 import io.ebean.EbeanServer;
-import models.Profile;
+import io.ebean.SqlUpdate;
 import models.UndoStack;
-import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import play.db.ebean.EbeanConfig;
 
 import javax.inject.Inject;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.List;
+import javax.persistence.PersistenceException;
+import java.util.*;
 import java.util.concurrent.CompletionStage;
 
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -20,6 +20,15 @@ import static java.util.concurrent.CompletableFuture.supplyAsync;
  */
 public class UndoStackRepository {
 
+    private static final Logger logger = LoggerFactory.getLogger(UndoStackRepository.class);
+
+    /**
+     * Item types whose objects are hard deleted once they leave the stack. Each type is also the name of its
+     * table, which has an id column named after it and a soft_delete column. Events are only soft deleted.
+     */
+    private static final Set<String> HARD_DELETED_TYPES = new HashSet<>(
+            Arrays.asList("profile", "trip", "destination", "treasure_hunt", "artist"));
+
     private final EbeanServer ebeanServer;
     private final DatabaseExecutionContext executionContext;
     private final ProfileRepository profileRepository;
@@ -81,18 +90,32 @@ public class UndoStackRepository {
      */
     public CompletionStage<Void> clearStack(int userId) {
         return supplyAsync(() -> {
-            clearOutdatedRecords();
-            List<UndoStack> undoStackList = getUsersStack(userId);
+            processStackItems(getUsersStack(userId));
+            return null;
+        }, executionContext);
+    }
 
-            for (UndoStack undoStack: undoStackList) {
-                processStackItem(undoStack);
-            }
-            ebeanServer.find(UndoStack.class)
+    /**
+     * Hard deletes everything that has been on the stack since before the cutoff and removes it from the stack.
+     * Items are read oldest first in batches so a large backlog is never loaded at once.
+     * @param cutoff items created before this time are processed
+     * @param batchSize most items to read and delete at a time
+     * @return number of items processed
+     */
+    public int purgeExpired(Date cutoff, int batchSize) {
+        int processed = 0;
+        List<UndoStack> expired;
+        do {
+            expired = ebeanServer.find(UndoStack.class)
                     .where()
-                    .eq("profile_id", userId)
-                    .delete();
-            return null;
-        });
+                    .lt("time_created", cutoff)
+                    .orderBy("time_created")
+                    .setMaxRows(batchSize)
+                    .findList();
+            processStackItems(expired);
+            processed += expired.size();
+        } while (expired.size() == batchSize);
+        return processed;
     }
 
 
@@ -110,7 +133,7 @@ public class UndoStackRepository {
                     .delete();
 
             return null;
-        });
+        }, executionContext);
     }
 
 
@@ -168,72 +191,59 @@ public class UndoStackRepository {
 
 
     /**
-     * Method to check if the stack can be cleared
-     * The conditions are: profile is admin/global admin AND stack is empty
-     * @param profile - Profile wanting to clear stack
-     * @return boolean - True if the profile can execute the operation to clear stack, false otherwise
-     */
-    public boolean canClearStack(Profile profile) {
-        return (!getUsersStack(profile.getProfileId()).isEmpty());
-    }
-
-
-    /**
-     * Clear the stack if the user has permission and stack is clear
-     * @param profile - Profile wanting to clear stack
+     * Hard deletes the objects of the given stack items then removes the items from the stack.
+     * Objects of the same type are deleted with one statement, and only if they are still soft deleted so an
+     * undo that happens at the same time is never lost.
+     *
+     * @param items the items to process
      */
-    public void clearStackOnAllowed(Profile profile) {
-        if ((profile.getRoles().contains("admin") || profile.getRoles().contains("global_admin"))) {
-            if (canClearStack(profile)) {
-                clearStack(profile.getProfileId());
+    private void processStackItems(List<UndoStack> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<String, List<Integer>> objectIdsByType = new HashMap<>();
+        List<Integer> entryIds = new ArrayList<>();
+        for (UndoStack item : items) {
+            entryIds.add(item.getEntryId());
+            objectIdsByType.computeIfAbsent(item.getItem_type(), type -> new ArrayList<>()).add(item.getObjectId());
+        }
+        for (Map.Entry<String, List<Integer>> type : objectIdsByType.entrySet()) {
+            if (HARD_DELETED_TYPES.contains(type.getKey())) {
+                hardDelete(type.getKey(), type.getValue());
             }
         }
+        SqlUpdate removeItems = ebeanServer.createSqlUpdate("DELETE FROM undo_stack WHERE entry_id IN (" +
+                QueryHelper.placeholders(entryIds.size()) + ")");
+        QueryHelper.bindAll(removeItems, entryIds, 1);
+        removeItems.execute();
     }
 
     /**
-     * Checks for any commands in the stack that are over a day old
-     * Any commands that are found are executed and removed from the stack
+     * Deletes the given soft deleted rows from a table in one statement. If that fails, for example because one
+     * of the rows is still referenced, each row is deleted on its own so the rest are not held back.
      *
+     * @param table name of the table, its id column is the table name followed by _id
+     * @param ids ids of the rows to delete
      */
-    private void clearOutdatedRecords() {
-        String dateString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new DateTime().minusDays(1).toDate());
-        List<UndoStack> outdatedCommands = ebeanServer.find(UndoStack.class)
-                .where()
-                .lt("time_created", dateString)
-                .findList();
-
-        for (UndoStack i : outdatedCommands) {
-            ebeanServer.delete(i);
-            processStackItem(i);
+    private void hardDelete(String table, List<Integer> ids) {
+        try {
+            deleteSoftDeleted(table, ids);
+        } catch (PersistenceException e) {
+            for (Integer id : ids) {
+                try {
+                    deleteSoftDeleted(table, Collections.singletonList(id));
+                } catch (PersistenceException rowException) {
+                    logger.warn("Could not hard delete " + table + " " + id, rowException);
+                }
+            }
         }
     }
 
-
-    /**
-     * Helper function to process and item off the undo stack
-     *
-     * @param command the command to be processed
-     */
-    private void processStackItem(UndoStack command) {
-        switch (command.getItem_type()) {
-            case "profile":
-                profileRepository.delete(command.getObjectId());
-                break;
-            case "trip":
-                tripRepository.delete(command.getObjectId());
-                break;
-            case "destination":
-                destinationRepository.delete(command.getObjectId());
-                break;
-            case "treasure_hunt":
-                treasureHuntRepository.deleteTreasureHunt(command.getObjectId());
-                break;
-            case "artist":
-                artistRepository.deleteArtist(command.getObjectId());
-                break;
-            default:
-                break;
-        }
+    private void deleteSoftDeleted(String table, List<Integer> ids) {
+        SqlUpdate delete = ebeanServer.createSqlUpdate("DELETE FROM " + table + " WHERE soft_delete = 1 AND " +
+                table + "_id IN (" + QueryHelper.placeholders(ids.size()) + ")");
+        QueryHelper.bindAll(delete, ids, 1);
+        delete.execute();
     }
 
 }
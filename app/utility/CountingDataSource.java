@@ -0,0 +1,185 @@
+package utility;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Wraps the data source of the ebean server so every statement run on its connections, and every row read
+ * from their result sets, is reported to QueryAccounting. Installed by QueryAccountingConfigProvider.
+ */
+final class CountingDataSource implements DataSource {
+
+    private final DataSource delegate;
+
+    CountingDataSource(DataSource delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = delegate.getConnection();
+        return wrap(Connection.class, connection, new ConnectionHandler(connection));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = delegate.getConnection(username, password);
+        return wrap(Connection.class, connection, new ConnectionHandler(connection));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(this) ? type.cast(this) : delegate.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || delegate.isWrapperFor(type);
+    }
+
+    /**
+     * @return a proxy implementing the given interface which hands every call to the handler, or null if there
+     * is no target
+     */
+    private static <T> T wrap(Class<T> type, Object target, InvocationHandler handler) {
+        if (target == null) {
+            return null;
+        }
+        return type.cast(Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements a connection creates, remembering their SQL
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = CountingDataSource.invoke(connection, method, args);
+            String name = method.getName();
+            if (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrap(method.getReturnType(), result, new StatementHandler(result, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times each execute of a statement and wraps the result sets it hands back. While QueryAccounting is
+     * capturing, the values bound to a prepared statement are kept too.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Object statement;
+        private final String sql;
+        private final SortedMap<Integer, Object> parameters = new TreeMap<>();
+
+        private StatementHandler(Object statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                List<Object> bound = QueryAccounting.isCapturing() ? new ArrayList<>(parameters.values()) : null;
+                long startedAt = System.nanoTime();
+                try {
+                    return wrapResultSet(CountingDataSource.invoke(statement, method, args));
+                } finally {
+                    QueryAccounting.statement(executed, bound, System.nanoTime() - startedAt);
+                }
+            }
+            if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && QueryAccounting.isCapturing()) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            }
+            if (name.equals("getResultSet") || name.equals("getGeneratedKeys")) {
+                return wrapResultSet(CountingDataSource.invoke(statement, method, args));
+            }
+            return CountingDataSource.invoke(statement, method, args);
+        }
+
+        private static Object wrapResultSet(Object result) {
+            if (result instanceof ResultSet) {
+                return wrap(ResultSet.class, result, new ResultSetHandler((ResultSet) result));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Counts the rows read from a result set
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+
+        private ResultSetHandler(ResultSet resultSet) {
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = CountingDataSource.invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                QueryAccounting.row();
+            }
+            return result;
+        }
+    }
+}
@@ -4,25 +4,28 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import models.Profile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Catalogue of the world's countries, used for the country dropdowns and to find outdated passports and
+ * nationalities. The catalogue is read from countries.json on the classpath when first used and is held
+ * in memory, so no lookup does any network or disk IO. It can be replaced at runtime from another
+ * CountrySource, see CountryRefresher.
+ */
 public class Country {
 
+    private static final String BUNDLED_RESOURCE = "countries.json";
+
     private static Country INSTANCE;
 
-    private String baseURL = "https://restcountries.eu/rest/v2/";
+    private volatile Catalogue catalogue;
 
     /**
      * static method to create instance of Country class
      */
-    public static Country getInstance()
+    public static synchronized Country getInstance()
     {
         if (INSTANCE == null)
             INSTANCE = new Country();
@@ -30,95 +33,82 @@ public class Country {
         return INSTANCE;
     }
 
-    private Country(){}
+    private Country() {
+        try {
+            catalogue = Catalogue.fromJson(bundledSource().fetch());
+        } catch (IOException exception) {
+            catalogue = Catalogue.fromJson(new ObjectMapper().createArrayNode());
+        }
+    }
 
 
     /**
-     * Get the response from a URL as a string
-     * @param requestURL - The request url
-     * @return response - String response from url
-     * @throws IOException
+     * Source which reads the catalogue shipped with the application
+     * @return CountrySource for the bundled countries.json
      */
-    private String getResponseFromRequest(URL requestURL) throws IOException {
-        String response = "";
-        HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
-        connection.setRequestMethod("GET");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-        response = reader.lines().collect(Collectors.joining());
-
-
-        return response;
+    public static CountrySource bundledSource() {
+        return () -> {
+            try (InputStream stream = Country.class.getClassLoader().getResourceAsStream(BUNDLED_RESOURCE)) {
+                if (stream == null) {
+                    throw new IOException(BUNDLED_RESOURCE + " not found on the classpath");
+                }
+                return new ObjectMapper().readTree(stream);
+            }
+        };
     }
 
 
     /**
-     * Get the response values of a given request for a given field
-     * @param request - The request url as a string
-     * @param targetField - The field to retrieve values for
-     * @return A list of JsonNode objects holding the values found
-     * @throws IOException
+     * Replace the catalogue with the countries read from the given source.
+     * The current catalogue is kept if the source fails or returns no countries.
+     * @param source - The source to read from
+     * @return true if the catalogue was replaced
      */
-    private List<JsonNode> getResponseValues(String request, String targetField) throws IOException {
-        URL url = new URL(request);
-        String response = getResponseFromRequest(url);
-        ObjectMapper mapper = new ObjectMapper();
-
-
-        return mapper.readTree(response).findValues(targetField);
+    public boolean refresh(CountrySource source) {
+        Catalogue fresh;
+        try {
+            fresh = Catalogue.fromJson(source.fetch());
+        } catch (IOException exception) {
+            return false;
+        }
+        if (fresh.names.isEmpty()) {
+            return false;
+        }
+        catalogue = fresh;
+        return true;
     }
 
 
     /**
-     * Get a list of all countries from the RESTCountries api
+     * Get a list of all countries
      *
-     * @return countries - List of all country names
+     * @return countries - Read only list of all country names, in catalogue order
      */
     public List<String> getAllCountries() {
-        List<String> countries = new ArrayList<>();
-        try {
-            List<JsonNode> valuesNode = getResponseValues(baseURL+"all?fields=name;", "name");
-            for (JsonNode node : valuesNode) {
-                countries.add(node.asText());   //Ensure countries are populated as text entry!
-            }
-        } catch (IOException exception) {
-            return countries;
-        }
-
-        return countries;
+        return catalogue.names;
     }
 
 
     /**
      * Get a country's name from its ISO code
-     * @param code - the ISO code
-     * @return name - Name of the country
+     * @param code - the ISO 3166 alpha-2 or alpha-3 code, in any case
+     * @return name - Name of the country, empty if the code is unknown
      */
     public String getCountryNameByCode(String code) {
-        String name = "";
-        try {
-            JsonNode valuesNode = getResponseValues(baseURL + "alpha/" + code, "name").get(0);
-            name = valuesNode.asText();
-        } catch (IOException exception) {
-            return name;
+        if (code == null) {
+            return "";
         }
-
-
-        return name;
+        return catalogue.namesByCode.getOrDefault(code.toUpperCase(Locale.ROOT), "");
     }
 
 
     /**
      * Check if a country exists
-     * @param name - Name of country to check
+     * @param name - Name of country to check, in any case
      * @return boolean - True if exists, false otherwise
      */
     public boolean checkExists(String name) {
-        try {
-            List<JsonNode> node = getResponseValues(baseURL + "name/" + name, "name");
-            return !node.get(0).asText().equals("404");
-        } catch (IOException exception) {
-            return false;
-        }
+        return name != null && catalogue.lowerCaseNames.contains(name.toLowerCase(Locale.ROOT));
     }
 
 
@@ -135,14 +125,14 @@ public class Country {
 
         if (!countryList.isEmpty() && countryList.get(0).length() > 0){
             for (String passport : countryList) {
-                if (!Country.getInstance().checkExists(passport)) {
+                if (!checkExists(passport)) {
                     outdatedCountries.add(passport);
                 }
             }
         }
 
         for (String nationality : nationalityList) {
-            if (!Country.getInstance().checkExists(nationality)) {
+            if (!checkExists(nationality)) {
                 outdatedCountries.add(nationality);
             }
         }
@@ -151,4 +141,47 @@ public class Country {
         return  outdatedCountries;
     }
 
+
+    /**
+     * One immutable load of the catalogue, swapped out as a whole on refresh
+     */
+    private static final class Catalogue {
+
+        private final List<String> names;
+        private final Set<String> lowerCaseNames;
+        private final Map<String, String> namesByCode;
+
+        private Catalogue(List<String> names, Set<String> lowerCaseNames, Map<String, String> namesByCode) {
+            this.names = names;
+            this.lowerCaseNames = lowerCaseNames;
+            this.namesByCode = namesByCode;
+        }
+
+        /**
+         * Build a catalogue from a RESTCountries style JSON array
+         * @param countries - JSON array of country objects
+         * @return the catalogue
+         */
+        private static Catalogue fromJson(JsonNode countries) {
+            List<String> names = new ArrayList<>();
+            Set<String> lowerCaseNames = new HashSet<>();
+            Map<String, String> namesByCode = new HashMap<>();
+            for (JsonNode country : countries) {
+                String name = country.path("name").asText("");
+                if (name.isEmpty()) {
+                    continue;
+                }
+                names.add(name);
+                lowerCaseNames.add(name.toLowerCase(Locale.ROOT));
+                for (String field : Arrays.asList("alpha2Code", "alpha3Code")) {
+                    String code = country.path(field).asText("");
+                    if (!code.isEmpty()) {
+                        namesByCode.put(code.toUpperCase(Locale.ROOT), name);
+                    }
+                }
+            }
+            return new Catalogue(Collections.unmodifiableList(names), lowerCaseNames, namesByCode);
+        }
+    }
+
 }
@@ -0,0 +1,42 @@
+package utility;
+
+import com.typesafe.config.Config;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optionally refreshes the country catalogue in the background from a remote source.
+ * Disabled by default, see the countries block in application.conf. Bound as an eager singleton in Module.
+ */
+@Singleton
+public class CountryRefresher {
+
+    private final ScheduledExecutorService scheduler;
+
+    @Inject
+    public CountryRefresher(Config config, ApplicationLifecycle lifecycle) {
+        if (!config.hasPath("countries.refresh.enabled") || !config.getBoolean("countries.refresh.enabled")) {
+            scheduler = null;
+            return;
+        }
+        CountrySource source = new RestCountriesSource(config.getString("countries.refresh.url"));
+        long interval = config.getDuration("countries.refresh.interval", TimeUnit.MINUTES);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "country-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> Country.getInstance().refresh(source), 0, interval, TimeUnit.MINUTES);
+        lifecycle.addStopHook(() -> {
+            scheduler.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+}
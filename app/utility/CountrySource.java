@@ -0,0 +1,20 @@
+package utility;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+/**
+ * A source the country catalogue can be loaded or refreshed from.
+ * Implementations return a JSON array in the RESTCountries format, where each element has at least
+ * the fields name, alpha2Code and alpha3Code.
+ */
+public interface CountrySource {
+
+    /**
+     * Reads the full list of countries from the source
+     * @return JSON array of country objects
+     * @throws IOException if the source could not be read
+     */
+    JsonNode fetch() throws IOException;
+}
@@ -0,0 +1,415 @@
+package utility;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.db.Database;
+import repository.DatabaseExecutionContext;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Holds the numbers served on /metrics in the Prometheus text format. Route latencies are recorded by
+ * controllers.RouteMetricsFilter into fixed bucket histograms, which only add to atomic counters so recording
+ * takes no lock and allocates nothing. Everything else is read when the page is rendered: the connection pool,
+ * the database dispatcher, the background pools, query accounting and the JVM are registered here, and caches
+ * register their hit and miss counts with registerCache, see repository.RepositoryMetrics.
+ */
+@Singleton
+public class Metrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    private static final double[] LATENCY_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, RouteLatency> routes = new ConcurrentHashMap<>();
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    @Inject
+    public Metrics(Database database, DatabaseExecutionContext executionContext, ThumbnailPipeline thumbnailPipeline,
+                   PasswordHasher passwordHasher, UndoStackReaper undoStackReaper) {
+        registerPool(database.getDataSource());
+
+        gauge("soundbound_db_dispatcher_queue_depth", "Tasks waiting for a database thread",
+                executionContext::getQueueDepth);
+        gauge("soundbound_db_dispatcher_active", "Tasks running on a database thread", executionContext::getActiveCount);
+        counter("soundbound_db_dispatcher_completed_total", "Tasks finished on the database dispatcher",
+                executionContext::getCompletedCount);
+        counter("soundbound_db_dispatcher_wait_seconds_total", "Time tasks spent waiting for a database thread",
+                () -> executionContext.getTotalWaitNanos() / NANOS_PER_SECOND);
+        gauge("soundbound_db_dispatcher_max_wait_seconds", "Longest time a task has waited for a database thread",
+                () -> executionContext.getMaxWaitNanos() / NANOS_PER_SECOND);
+        counter("soundbound_db_dispatcher_run_seconds_total", "Time tasks spent running on the database dispatcher",
+                () -> executionContext.getTotalRunNanos() / NANOS_PER_SECOND);
+
+        registerPool("thumbnails", thumbnailPipeline::getQueueDepth, thumbnailPipeline::getActiveCount,
+                thumbnailPipeline::getCompletedCount, thumbnailPipeline::getRejectedCount);
+        counter("soundbound_pool_failed_total", "Tasks which threw on a background pool", "pool", "thumbnails",
+                thumbnailPipeline::getFailedCount);
+        registerPool("password_hashing", passwordHasher::getQueueDepth, passwordHasher::getActiveCount,
+                passwordHasher::getCompletedCount, passwordHasher::getRejectedCount);
+        counter("soundbound_pool_wait_seconds_total", "Time tasks spent queued on a background pool",
+                "pool", "password_hashing", () -> passwordHasher.getTotalWaitNanos() / NANOS_PER_SECOND);
+        counter("soundbound_pool_run_seconds_total", "Time tasks spent running on a background pool",
+                "pool", "password_hashing", () -> passwordHasher.getTotalHashNanos() / NANOS_PER_SECOND);
+
+        counter("soundbound_undo_reaper_runs_total", "Runs of the undo stack reaper", undoStackReaper::getRunCount);
+        counter("soundbound_undo_reaper_processed_total", "Undo stack items hard deleted by the reaper",
+                undoStackReaper::getProcessedCount);
+        counter("soundbound_undo_reaper_failures_total", "Undo stack items the reaper failed to delete",
+                undoStackReaper::getFailureCount);
+        gauge("soundbound_undo_reaper_last_processed", "Items processed by the last reaper run",
+                undoStackReaper::getLastProcessed);
+        gauge("soundbound_undo_reaper_last_duration_seconds", "Time the last reaper run took",
+                () -> undoStackReaper.getLastDurationMillis() / 1000.0);
+
+        registerQueryAccounting();
+        registerJvm();
+    }
+
+    /**
+     * Gets the latency histogram of a route, creating it if needed. Callers should keep hold of it rather than
+     * looking it up for every request.
+     * @param route name of the route, eg "TravellersController.show"
+     * @return the histogram of that route
+     */
+    public RouteLatency routeLatency(String route) {
+        RouteLatency latency = routes.get(route);
+        return latency != null ? latency : routes.computeIfAbsent(route, RouteLatency::new);
+    }
+
+    /**
+     * Registers the hit and miss counts of a cache
+     * @param cache name of the cache, eg "photo_file"
+     * @param hits reads the number of lookups served from the cache
+     * @param misses reads the number of lookups which had to go to the database
+     * @param size reads the number of entries held, null if the cache does not keep a count
+     */
+    public void registerCache(String cache, LongSupplier hits, LongSupplier misses, LongSupplier size) {
+        counter("soundbound_cache_hits_total", "Lookups served from a cache", "cache", cache, hits);
+        counter("soundbound_cache_misses_total", "Lookups a cache had to load", "cache", cache, misses);
+        if (size != null) {
+            gauge("soundbound_cache_size", "Entries held by a cache", "cache", cache, size);
+        }
+    }
+
+    public void gauge(String name, String help, LongSupplier value) {
+        gauge(name, help, null, null, value);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value) {
+        sample(name, help, "gauge", null, null, value);
+    }
+
+    public void gauge(String name, String help, String label, String labelValue, LongSupplier value) {
+        sample(name, help, "gauge", label, labelValue, value::getAsLong);
+    }
+
+    public void counter(String name, String help, LongSupplier value) {
+        counter(name, help, null, null, value);
+    }
+
+    public void counter(String name, String help, DoubleSupplier value) {
+        sample(name, help, "counter", null, null, value);
+    }
+
+    public void counter(String name, String help, String label, String labelValue, LongSupplier value) {
+        sample(name, help, "counter", label, labelValue, value::getAsLong);
+    }
+
+    public void counter(String name, String help, String label, String labelValue, DoubleSupplier value) {
+        sample(name, help, "counter", label, labelValue, value);
+    }
+
+    /**
+     * Registers a metric whose label values are only known when it is read
+     * @param name name of the metric
+     * @param help description of the metric
+     * @param type "gauge" or "counter"
+     * @param label name of the label
+     * @param values reads label value to value
+     */
+    public synchronized void family(String name, String help, String type, String label,
+                                    Supplier<Map<String, ? extends Number>> values) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        family.label = label;
+        family.dynamic = values;
+    }
+
+    /**
+     * @return every metric in the Prometheus text format
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(8192);
+        List<Family> registered;
+        synchronized (this) {
+            registered = new ArrayList<>(families.values());
+        }
+        for (Family family : registered) {
+            family.render(out);
+        }
+        renderLatencies(out);
+        return out.toString();
+    }
+
+    private synchronized void sample(String name, String help, String type, String label, String labelValue,
+                                     DoubleSupplier value) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        family.samples.put(label == null ? "" : label + "=\"" + escape(labelValue) + "\"", value);
+    }
+
+    private void registerPool(DataSource dataSource) {
+        HikariDataSource hikari = null;
+        try {
+            if (dataSource instanceof HikariDataSource) {
+                hikari = (HikariDataSource) dataSource;
+            } else if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                hikari = dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not find the connection pool, its metrics will not be served", e);
+        }
+        if (hikari == null) {
+            return;
+        }
+        HikariDataSource pool = hikari;
+        gauge("soundbound_db_pool_connections", "Connections in the pool by state", "state", "active",
+                () -> poolStat(pool, HikariPoolMXBean::getActiveConnections));
+        gauge("soundbound_db_pool_connections", "Connections in the pool by state", "state", "idle",
+                () -> poolStat(pool, HikariPoolMXBean::getIdleConnections));
+        gauge("soundbound_db_pool_connections", "Connections in the pool by state", "state", "total",
+                () -> poolStat(pool, HikariPoolMXBean::getTotalConnections));
+        gauge("soundbound_db_pool_pending_threads", "Threads waiting for a connection",
+                () -> poolStat(pool, HikariPoolMXBean::getThreadsAwaitingConnection));
+        gauge("soundbound_db_pool_max_connections", "Most connections the pool will open",
+                pool::getMaximumPoolSize);
+    }
+
+    private static long poolStat(HikariDataSource pool, ToIntFunction<HikariPoolMXBean> stat) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        return bean == null ? 0 : stat.applyAsInt(bean);
+    }
+
+    private void registerPool(String pool, LongSupplier queueDepth, LongSupplier active, LongSupplier completed,
+                              LongSupplier rejected) {
+        gauge("soundbound_pool_queue_depth", "Tasks waiting on a background pool", "pool", pool, queueDepth);
+        gauge("soundbound_pool_active", "Tasks running on a background pool", "pool", pool, active);
+        counter("soundbound_pool_completed_total", "Tasks finished on a background pool", "pool", pool, completed);
+        counter("soundbound_pool_rejected_total", "Tasks turned away by a full background pool", "pool", pool,
+                rejected);
+    }
+
+    private void registerQueryAccounting() {
+        counter("soundbound_sql_statements_total", "SQL statements run", QueryAccounting::getTotalStatements);
+        counter("soundbound_sql_rows_total", "Rows read by SQL statements", QueryAccounting::getTotalRows);
+        counter("soundbound_sql_seconds_total", "Time spent running SQL statements",
+                () -> QueryAccounting.getTotalNanos() / NANOS_PER_SECOND);
+        counter("soundbound_sql_unattributed_statements_total", "SQL statements run outside of a recorded request",
+                QueryAccounting::getUnattributedStatements);
+        counter("soundbound_sql_suspected_n_plus_one_total", "Statement shapes flagged as a suspected N+1",
+                QueryAccounting::getSuspectedNPlusOne);
+        routeFamily("soundbound_route_sql_statements_total", "SQL statements run by each route", "counter",
+                QueryAccounting.RouteStats::getStatements);
+        routeFamily("soundbound_route_sql_rows_total", "Rows read by each route", "counter",
+                QueryAccounting.RouteStats::getRows);
+        family("soundbound_route_sql_seconds_total", "Time each route spent running SQL statements", "counter",
+                "route", () -> routeValues(stats -> stats.getNanos() / NANOS_PER_SECOND));
+        routeFamily("soundbound_route_sql_suspected_n_plus_one_total", "Suspected N+1 shapes flagged on each route",
+                "counter", QueryAccounting.RouteStats::getSuspectedNPlusOne);
+        routeFamily("soundbound_route_sql_max_statements", "Most statements one request of each route has run",
+                "gauge", QueryAccounting.RouteStats::getMaxStatements);
+    }
+
+    private void routeFamily(String name, String help, String type,
+                             ToLongFunction<QueryAccounting.RouteStats> value) {
+        family(name, help, type, "route", () -> routeValues(value::applyAsLong));
+    }
+
+    private static Map<String, Number> routeValues(Function<QueryAccounting.RouteStats, Number> value) {
+        Map<String, Number> values = new TreeMap<>();
+        for (QueryAccounting.RouteStats stats : QueryAccounting.getRouteStats().values()) {
+            values.put(stats.getRoute(), value.apply(stats));
+        }
+        return values;
+    }
+
+    private void registerJvm() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm_memory_bytes_used", "Memory in use", "area", "heap", () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("jvm_memory_bytes_used", "Memory in use", "area", "nonheap",
+                () -> memory.getNonHeapMemoryUsage().getUsed());
+        gauge("jvm_memory_bytes_committed", "Memory committed by the JVM", "area", "heap",
+                () -> memory.getHeapMemoryUsage().getCommitted());
+        gauge("jvm_memory_bytes_committed", "Memory committed by the JVM", "area", "nonheap",
+                () -> memory.getNonHeapMemoryUsage().getCommitted());
+        gauge("jvm_memory_bytes_max", "Most memory the heap may use", "area", "heap",
+                () -> memory.getHeapMemoryUsage().getMax());
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            counter("jvm_gc_collections_total", "Garbage collections run", "gc", gc.getName(),
+                    gc::getCollectionCount);
+            counter("jvm_gc_collection_seconds_total", "Time spent in garbage collection", "gc", gc.getName(),
+                    () -> gc.getCollectionTime() / 1000.0);
+        }
+        gauge("jvm_threads_current", "Live threads", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private void renderLatencies(StringBuilder out) {
+        List<RouteLatency> latencies = new ArrayList<>(routes.values());
+        latencies.sort(Comparator.comparing(RouteLatency::getRoute));
+        out.append("# HELP http_request_duration_seconds Time taken to serve each route\n");
+        out.append("# TYPE http_request_duration_seconds histogram\n");
+        for (RouteLatency latency : latencies) {
+            latency.renderHistogram(out);
+        }
+        out.append("# HELP http_request_errors_total Requests to each route which failed or returned a 5xx\n");
+        out.append("# TYPE http_request_errors_total counter\n");
+        for (RouteLatency latency : latencies) {
+            out.append("http_request_errors_total{route=\"").append(escape(latency.route)).append("\"} ")
+                    .append(latency.errors.sum()).append('\n');
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * One metric and its samples, one for each set of label values
+     */
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, DoubleSupplier> samples = new LinkedHashMap<>();
+        private String label;
+        private Supplier<Map<String, ? extends Number>> dynamic;
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        private void render(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<String, DoubleSupplier> sample : samples.entrySet()) {
+                double value;
+                try {
+                    value = sample.getValue().getAsDouble();
+                } catch (RuntimeException e) {
+                    logger.debug("Could not read " + name, e);
+                    continue;
+                }
+                out.append(name);
+                if (!sample.getKey().isEmpty()) {
+                    out.append('{').append(sample.getKey()).append('}');
+                }
+                out.append(' ').append(format(value)).append('\n');
+            }
+            if (dynamic != null) {
+                for (Map.Entry<String, ? extends Number> sample : dynamic.get().entrySet()) {
+                    out.append(name).append('{').append(label).append("=\"").append(escape(sample.getKey()))
+                            .append("\"} ").append(format(sample.getValue().doubleValue())).append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Latency histogram of one route. Each request adds to one bucket, the sum and possibly the error count,
+     * all of which are atomic, so recording never blocks or allocates.
+     */
+    public static final class RouteLatency {
+        private static final long[] BUCKET_NANOS = new long[LATENCY_BUCKETS.length];
+
+        static {
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                BUCKET_NANOS[i] = (long) (LATENCY_BUCKETS[i] * NANOS_PER_SECOND);
+            }
+        }
+
+        private final String route;
+        private final AtomicLongArray buckets = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private RouteLatency(String route) {
+            this.route = route;
+        }
+
+        /**
+         * @param nanos time taken to serve the request
+         * @param failed true if the request failed or returned a server error
+         */
+        public void record(long nanos, boolean failed) {
+            int bucket = 0;
+            while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            sumNanos.add(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        /**
+         * @return number of requests recorded
+         */
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        private void renderHistogram(StringBuilder out) {
+            String labels = "route=\"" + escape(route) + "\"";
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                cumulative += buckets.get(i);
+                String le = i < LATENCY_BUCKETS.length ? Double.toString(LATENCY_BUCKETS[i]) : "+Inf";
+                out.append("http_request_duration_seconds_bucket{").append(labels).append(",le=\"").append(le)
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("http_request_duration_seconds_sum{").append(labels).append("} ")
+                    .append(sumNanos.sum() / NANOS_PER_SECOND).append('\n');
+            out.append("http_request_duration_seconds_count{").append(labels).append("} ").append(cumulative)
+                    .append('\n');
+        }
+    }
+}
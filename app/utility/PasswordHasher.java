@@ -0,0 +1,132 @@
+package utility;
+
+import com.typesafe.config.Config;
+import org.mindrot.jbcrypt.BCrypt;
+import play.inject.ApplicationLifecycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt hashing and checking on its own pool, sized to the number of cores by default, so a burst of
+ * logins can not take over the threads that render pages. The pool has a bounded queue, see the
+ * passwordHashing block in application.conf. Once the queue is full new work fails straight away with a
+ * RejectedExecutionException, which callers turn into a 503 so the client can try again later.
+ */
+@Singleton
+public class PasswordHasher {
+
+    private static final String SALT = "$2a$12$nODuNzk9U7Hrq6DgspSp4.";
+
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+
+    @Inject
+    public PasswordHasher(Config config, ApplicationLifecycle lifecycle) {
+        int workerCount = config.hasPath("passwordHashing.workers") ? config.getInt("passwordHashing.workers")
+                : Runtime.getRuntime().availableProcessors();
+        int queueSize = config.hasPath("passwordHashing.queueSize") ? config.getInt("passwordHashing.queueSize") : 64;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        lifecycle.addStopHook(() -> {
+            workers.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Hashes a password for storing in the profile table
+     * @param password - The plain text password
+     * @return the hash, completes with a RejectedExecutionException if the pool is too busy
+     */
+    public CompletionStage<String> hash(String password) {
+        return run(() -> BCrypt.hashpw(password, SALT));
+    }
+
+    /**
+     * Checks a password against a stored hash
+     * @param password - The plain text password
+     * @param hash - The hash stored in the profile table
+     * @return true if they match, completes with a RejectedExecutionException if the pool is too busy
+     */
+    public CompletionStage<Boolean> check(String password, String hash) {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    /**
+     * @return number of hashes and checks waiting in the queue
+     */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return number of hashes and checks currently running
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * @return number of hashes and checks finished since startup
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return number of hashes and checks turned away because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return total time finished hashes and checks spent waiting in the queue, in nanoseconds
+     */
+    public long getTotalWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * @return total time finished hashes and checks spent running, in nanoseconds
+     */
+    public long getTotalHashNanos() {
+        return hashNanos.get();
+    }
+
+    private <T> CompletionStage<T> run(Supplier<T> work) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    long finishedAt = System.nanoTime();
+                    waitNanos.addAndGet(startedAt - queuedAt);
+                    hashNanos.addAndGet(finishedAt - startedAt);
+                    completed.incrementAndGet();
+                }
+            }, workers);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            CompletableFuture<T> busy = new CompletableFuture<>();
+            busy.completeExceptionally(e);
+            return busy;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the SQL statements, rows and time spent in the database for each request and each route. Every
+ * connection the ebean server hands out is wrapped by CountingDataSource, which reports each statement here.
+ *
+ * A request is recorded while its action runs, see controllers.QueryAccountingActionCreator, and the
+ * DatabaseExecutionContext carries it along with every task it runs, so repository work done there counts
+ * against the request that asked for it. Statements run on any other thread, such as a continuation left on
+ * the common pool, only count towards the totals. Those run by CompletableFuture's default async executor are
+ * also counted on their own, as no database work should be left there.
+ *
+ * When the same statement shape, the SQL with its literals and IN lists taken out, runs more than the repeat
+ * threshold in one request it is flagged as a suspected N+1 along with the repository method that ran it.
+ */
+public final class QueryAccounting {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryAccounting.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_SHAPES = 500;
+    private static final int MAX_CACHED_SHAPES = 2000;
+
+    private static final ThreadLocal<Recorder> current = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> defaultExecutorThread =
+            ThreadLocal.withInitial(QueryAccounting::onDefaultExecutor);
+    private static final Map<String, String> shapeCache = new ConcurrentHashMap<>();
+    private static final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private static final List<Consumer<Recorder>> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong totalStatements = new AtomicLong();
+    private static final AtomicLong totalRows = new AtomicLong();
+    private static final AtomicLong totalNanos = new AtomicLong();
+    private static final AtomicLong unattributedStatements = new AtomicLong();
+    private static final AtomicLong defaultExecutorStatements = new AtomicLong();
+    private static final AtomicLong suspectedNPlusOne = new AtomicLong();
+    private static volatile int repeatThreshold = 5;
+
+    private QueryAccounting() {
+    }
+
+    /**
+     * @param threshold number of times a statement shape may run in one request before it is flagged
+     */
+    public static void setRepeatThreshold(int threshold) {
+        repeatThreshold = Math.max(2, threshold);
+    }
+
+    /**
+     * Starts recording a request on the current thread
+     * @param route name of the route, eg "ArtistController.show"
+     * @param description what to call the request in the log, eg "GET /artists"
+     * @return the recorder, pass it to finish once the request is done
+     */
+    public static Recorder start(String route, String description) {
+        Recorder recorder = new Recorder(route, description, false);
+        current.set(recorder);
+        return recorder;
+    }
+
+    /**
+     * Stops recording on the current thread. The request itself may still have work running elsewhere.
+     */
+    public static void detach() {
+        current.remove();
+    }
+
+    /**
+     * Adds a finished request to its route, logs it and hands it to the listeners
+     * @param recorder the recorder of the request
+     */
+    public static void finish(Recorder recorder) {
+        RouteStats stats = routes.computeIfAbsent(recorder.route, RouteStats::new);
+        List<Suspect> suspects = recorder.getSuspects();
+        stats.add(recorder, suspects.size());
+        suspectedNPlusOne.addAndGet(suspects.size());
+        if (!suspects.isEmpty()) {
+            StringBuilder message = new StringBuilder(recorder.summary()).append(", suspected N+1:");
+            for (Suspect suspect : suspects) {
+                message.append(" [").append(suspect.getCount()).append(" x ").append(suspect.getShape())
+                        .append(" from ").append(suspect.getCaller()).append("]");
+            }
+            logger.warn(message.toString());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(recorder.summary());
+        }
+        for (Consumer<Recorder> listener : listeners) {
+            listener.accept(recorder);
+        }
+    }
+
+    /**
+     * Wraps a task so it records against the request of the thread which created it, if there is one
+     * @param task the task
+     * @return the task to run in its place
+     */
+    public static Runnable propagate(Runnable task) {
+        Recorder recorder = current.get();
+        if (recorder == null) {
+            return task;
+        }
+        return () -> {
+            Recorder previous = current.get();
+            current.set(recorder);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    current.remove();
+                } else {
+                    current.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs some work as its own request on the current thread, for tests and background jobs
+     * @param route name to record the work under
+     * @param work the work
+     * @return the recorder holding what the work did
+     */
+    public static Recorder record(String route, Runnable work) {
+        return run(new Recorder(route, route, false), work);
+    }
+
+    /**
+     * Runs some work like record, also keeping the text and bound values of every statement it runs, so a
+     * test can look at exactly what a repository method sends, eg to EXPLAIN it
+     * @param route name to record the work under
+     * @param work the work
+     * @return the recorder holding what the work did, see Recorder.getCaptured
+     */
+    public static Recorder capture(String route, Runnable work) {
+        return run(new Recorder(route, route, true), work);
+    }
+
+    private static Recorder run(Recorder recorder, Runnable work) {
+        Recorder previous = current.get();
+        current.set(recorder);
+        try {
+            work.run();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * @param listener called with every request once it is finished
+     */
+    public static void addListener(Consumer<Recorder> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener added before
+     */
+    public static void removeListener(Consumer<Recorder> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true if the statements run on the current thread are being captured, so CountingDataSource
+     * should pass on the values bound to them
+     */
+    static boolean isCapturing() {
+        Recorder recorder = current.get();
+        return recorder != null && recorder.captured != null;
+    }
+
+    /**
+     * Called by CountingDataSource once a statement has run
+     * @param parameters values bound to the statement in order, null unless isCapturing
+     */
+    static void statement(String sql, List<Object> parameters, long nanos) {
+        totalStatements.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        Recorder recorder = current.get();
+        if (recorder == null) {
+            unattributedStatements.incrementAndGet();
+            if (defaultExecutorThread.get()) {
+                defaultExecutorStatements.incrementAndGet();
+            }
+        } else {
+            recorder.statement(sql, parameters, nanos);
+        }
+    }
+
+    /**
+     * Called by CountingDataSource for every row read
+     */
+    static void row() {
+        totalRows.incrementAndGet();
+        Recorder recorder = current.get();
+        if (recorder != null) {
+            recorder.rows.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the SQL with literals replaced by ? and IN lists cut down to one parameter, so statements which
+     * only differ in their values have the same shape. Shapes are cached by SQL, as the repositories send the
+     * same few hundred prepared statements over and over.
+     */
+    static String shape(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = shapeCache.get(sql);
+        if (shape == null) {
+            shape = toShape(sql);
+            if (shapeCache.size() < MAX_CACHED_SHAPES) {
+                shapeCache.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    private static String toShape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return true if the current thread is running a task of CompletableFuture's default async executor. That is
+     * the common pool, or with a single CPU a new thread started for each task. This does not change over the life
+     * of a thread, so it is worked out once per thread, see defaultExecutorThread, and the stack is only walked
+     * the first time a thread outside any fork join pool runs an unattributed statement.
+     */
+    private static boolean onDefaultExecutor() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread) {
+            return ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool();
+        }
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        int frame = stack.length - 1;
+        while (frame >= 0 && stack[frame].getClassName().equals(Thread.class.getName())) {
+            frame--;
+        }
+        return frame >= 0 && frame < stack.length - 1
+                && stack[frame].getClassName().startsWith(CompletableFuture.class.getName() + "$");
+    }
+
+    /**
+     * @return the first repository method on the current stack, which is what ran the statement
+     */
+    private static String caller() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith("repository.") && !className.startsWith("repository.DatabaseExecutionContext")) {
+                return className.substring("repository.".length()).replaceAll("\\$.*", "")
+                        + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+
+    public static long getTotalStatements() {
+        return totalStatements.get();
+    }
+
+    public static long getTotalRows() {
+        return totalRows.get();
+    }
+
+    public static long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * @return number of statements run outside of any recorded request
+     */
+    public static long getUnattributedStatements() {
+        return unattributedStatements.get();
+    }
+
+    /**
+     * @return number of statements run by CompletableFuture's default async executor, which should stay at zero as
+     * all blocking work belongs on the DatabaseExecutionContext
+     */
+    public static long getDefaultExecutorStatements() {
+        return defaultExecutorStatements.get();
+    }
+
+    /**
+     * @return number of suspected N+1 statement shapes flagged across all requests
+     */
+    public static long getSuspectedNPlusOne() {
+        return suspectedNPlusOne.get();
+    }
+
+    /**
+     * @return the totals for each route which has been requested, keyed by route name
+     */
+    public static Map<String, RouteStats> getRouteStats() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * What one request has done in the database so far
+     */
+    public static final class Recorder {
+        private final String route;
+        private final String description;
+        private final long startedAt = System.nanoTime();
+        private final AtomicInteger statements = new AtomicInteger();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+        private final List<Statement> captured;
+
+        private Recorder(String route, String description, boolean capture) {
+            this.route = route;
+            this.description = description;
+            this.captured = capture ? new CopyOnWriteArrayList<>() : null;
+        }
+
+        private void statement(String sql, List<Object> parameters, long statementNanos) {
+            statements.incrementAndGet();
+            nanos.addAndGet(statementNanos);
+            if (captured != null && sql != null) {
+                captured.add(new Statement(sql, parameters == null ? Collections.emptyList() : parameters));
+            }
+            String key = shape(sql);
+            Shape shape = shapes.get(key);
+            if (shape == null) {
+                if (shapes.size() >= MAX_SHAPES) {
+                    return;
+                }
+                shape = shapes.computeIfAbsent(key, Shape::new);
+            }
+            if (shape.count.incrementAndGet() == repeatThreshold) {
+                shape.caller = caller();
+            }
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        public int getStatements() {
+            return statements.get();
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getNanos() {
+            return nanos.get();
+        }
+
+        /**
+         * @return the statement shapes which ran at least the repeat threshold, most often first
+         */
+        public List<Suspect> getSuspects() {
+            List<Suspect> suspects = new ArrayList<>();
+            for (Shape shape : shapes.values()) {
+                if (shape.count.get() >= repeatThreshold) {
+                    suspects.add(new Suspect(shape.sql, shape.count.get(), shape.caller));
+                }
+            }
+            suspects.sort(Comparator.comparingInt(Suspect::getCount).reversed());
+            return suspects;
+        }
+
+        /**
+         * @return every statement run, in order, if the work was run through capture, otherwise empty
+         */
+        public List<Statement> getCaptured() {
+            return captured == null ? Collections.emptyList() : Collections.unmodifiableList(captured);
+        }
+
+        private String summary() {
+            return description + " (" + route + "): " + statements.get() + " statements, " + rows.get()
+                    + " rows, " + TimeUnit.NANOSECONDS.toMillis(nanos.get()) + "ms in the database, "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + "ms in total";
+        }
+    }
+
+    private static final class Shape {
+        private final String sql;
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile String caller = "unknown";
+
+        private Shape(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * A statement run by captured work, along with the values bound to it
+     */
+    public static final class Statement {
+        private final String sql;
+        private final List<Object> parameters;
+
+        private Statement(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return the bound values in parameter order, null for a parameter set to SQL NULL
+         */
+        public List<Object> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * A statement shape run too many times in one request
+     */
+    public static final class Suspect {
+        private final String shape;
+        private final int count;
+        private final String caller;
+
+        private Suspect(String shape, int count, String caller) {
+            this.shape = shape;
+            this.count = count;
+            this.caller = caller;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the repository method which ran the statement, eg "EventRepository.populateEvent:170"
+         */
+        public String getCaller() {
+            return caller;
+        }
+    }
+
+    /**
+     * Totals for every request of one route
+     */
+    public static final class RouteStats {
+        private final String route;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong statements = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong suspects = new AtomicLong();
+        private final AtomicInteger maxStatements = new AtomicInteger();
+
+        private RouteStats(String route) {
+            this.route = route;
+        }
+
+        private void add(Recorder recorder, int suspectCount) {
+            requests.incrementAndGet();
+            statements.addAndGet(recorder.getStatements());
+            rows.addAndGet(recorder.getRows());
+            nanos.addAndGet(recorder.getNanos());
+            suspects.addAndGet(suspectCount);
+            maxStatements.accumulateAndGet(recorder.getStatements(), Math::max);
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getStatements() {
+            return statements.get();
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getNanos() {
+            return nanos.get();
+        }
+
+        public long getSuspectedNPlusOne() {
+            return suspects.get();
+        }
+
+        /**
+         * @return most statements any one request of the route has run
+         */
+        public int getMaxStatements() {
+            return maxStatements.get();
+        }
+    }
+}
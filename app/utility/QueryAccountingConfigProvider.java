@@ -0,0 +1,19 @@
+package utility;
+
+import io.ebean.config.ServerConfig;
+import io.ebean.config.ServerConfigProvider;
+
+/**
+ * Puts CountingDataSource in front of the data source of the default ebean server, so QueryAccounting sees
+ * every statement whichever repository runs it. Ebean finds this through
+ * conf/META-INF/services/io.ebean.config.ServerConfigProvider before it creates the server.
+ */
+public class QueryAccountingConfigProvider implements ServerConfigProvider {
+
+    @Override
+    public void apply(ServerConfig serverConfig) {
+        if (serverConfig.getDataSource() != null && !(serverConfig.getDataSource() instanceof CountingDataSource)) {
+            serverConfig.setDataSource(new CountingDataSource(serverConfig.getDataSource()));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package utility;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Country source that reads the country list from a RESTCountries style api.
+ * Only used by the background refresh, never while rendering a page.
+ */
+public class RestCountriesSource implements CountrySource {
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final String baseURL;
+
+    /**
+     * @param baseURL - The api base url, eg https://restcountries.eu/rest/v2/
+     */
+    public RestCountriesSource(String baseURL) {
+        this.baseURL = baseURL.endsWith("/") ? baseURL : baseURL + "/";
+    }
+
+
+    /**
+     * Get all countries from the api with only the fields the catalogue uses
+     * @return JSON array of countries
+     * @throws IOException if the request fails
+     */
+    @Override
+    public JsonNode fetch() throws IOException {
+        URL url = new URL(baseURL + "all?fields=name;alpha2Code;alpha3Code");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        try (InputStream stream = connection.getInputStream()) {
+            return new ObjectMapper().readTree(stream);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
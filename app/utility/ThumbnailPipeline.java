@@ -0,0 +1,227 @@
+package utility;
+
+import com.typesafe.config.Config;
+import models.Photo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.api.db.evolutions.ApplicationEvolutions;
+import play.inject.ApplicationLifecycle;
+import repository.PhotoRepository;
+
+import javax.imageio.ImageIO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates thumbnails in the background so uploads do not wait on image decoding and scaling.
+ * Photos are queued by id on a bounded queue served by a small worker pool, see the thumbnails block
+ * in application.conf. When the queue is full the photo is skipped and picked up again by the sweep
+ * on the next start.
+ *
+ * Every step checks what already exists before doing any work, so a photo can be queued any number of
+ * times and a sweep can be re-run after a restart without duplicating files or database rows.
+ * Bound as an eager singleton in Module.
+ */
+@Singleton
+public class ThumbnailPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailPipeline.class);
+    private static final String THUMBNAIL_DIRECTORY = "photos/thumbnails/";
+
+    private final PhotoRepository photoRepository;
+    private final ThreadPoolExecutor workers;
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Inject
+    public ThumbnailPipeline(PhotoRepository photoRepository, Config config, ApplicationLifecycle lifecycle,
+                             ApplicationEvolutions evolutions) {
+        this.photoRepository = photoRepository;
+        int workerCount = config.hasPath("thumbnails.workers") ? config.getInt("thumbnails.workers") : 2;
+        int queueSize = config.hasPath("thumbnails.queueSize") ? config.getInt("thumbnails.queueSize") : 100;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        lifecycle.addStopHook(() -> {
+            workers.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        if (config.hasPath("thumbnails.resumeOnStart") && config.getBoolean("thumbnails.resumeOnStart")) {
+            try {
+                workers.execute(this::resume);
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Queues a photo to have its thumbnails generated. Does nothing if the photo is already queued.
+     * @param photoId - Id of the photo
+     * @return false if the queue was full and the photo was not queued
+     */
+    public boolean submit(int photoId) {
+        if (!queued.add(photoId)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> process(photoId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(photoId);
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Path of a generated thumbnail, relative to the application directory
+     * @param photoId - Id of the photo the thumbnail is made from
+     * @param size - The size of the thumbnail
+     * @param format - The image format, eg jpeg or png
+     * @return the path
+     */
+    public static String thumbnailPath(int photoId, Thumbnail.Size size, String format) {
+        return THUMBNAIL_DIRECTORY + "photo_" + photoId + "_" + size.name().toLowerCase(Locale.ROOT) + "." + format;
+    }
+
+    /**
+     * @return number of photos waiting in the queue
+     */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return number of photos currently being processed
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * @return number of photos processed since startup
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return number of photos that could not be processed since startup
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of photos turned away because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Queues every photo which does not have a thumbnail yet, stopping once the queue is full
+     */
+    private void resume() {
+        for (Integer photoId : photoRepository.getPhotosWithoutThumbnails()) {
+            if (!submit(photoId)) {
+                logger.info("Thumbnail queue full, remaining photos will be picked up on the next start");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes any missing thumbnail sizes for a photo then links the small one to it in the database.
+     * The photo is only decoded if at least one size is missing.
+     */
+    private void process(int photoId) {
+        try {
+            Optional<Photo> photoOpt = photoRepository.getImage(photoId);
+            if (!photoOpt.isPresent()) {
+                return;
+            }
+            Photo photo = photoOpt.get();
+            File source = new File(photo.getPath());
+            String format = formatOf(photo.getType());
+            if (!source.exists() || format == null) {
+                return;
+            }
+
+            BufferedImage image = null;
+            for (Thumbnail.Size size : Thumbnail.Size.values()) {
+                File target = new File(System.getProperty("user.dir"), thumbnailPath(photoId, size, format));
+                if (target.exists()) {
+                    continue;
+                }
+                if (image == null) {
+                    image = Thumbnail.getInstance().read(source, Thumbnail.Size.LARGE.getEdge());
+                }
+                int imageType = format.equals("jpeg") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+                write(Thumbnail.getInstance().resize(image, size, imageType), format, target);
+            }
+
+            if (!photoRepository.hasThumbnail(photoId)) {
+                String name = "photo_" + photoId + "_thumbnail";
+                photoRepository.linkThumbnail(new Photo(thumbnailPath(photoId, Thumbnail.Size.SMALL, format),
+                        photo.getType(), 1, name), photoId);
+            }
+            completed.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            logger.warn("Could not create thumbnails for photo " + photoId, e);
+        } finally {
+            queued.remove(photoId);
+        }
+    }
+
+    /**
+     * Writes to a temporary file first so a crash part way through never leaves a partial thumbnail behind
+     */
+    private static void write(BufferedImage image, String format, File target) throws IOException {
+        File directory = target.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        File temporary = new File(directory, target.getName() + ".tmp");
+        if (!ImageIO.write(image, format, temporary)) {
+            throw new IOException("No image writer for " + format);
+        }
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets the image format from a content type such as image/jpeg
+     * @return the format, null if the content type is not an image type thumbnails are made for
+     */
+    private static String formatOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String format = contentType.substring(contentType.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        if (format.equals("jpg")) {
+            format = "jpeg";
+        }
+        return format.equals("jpeg") || format.equals("png") || format.equals("gif") ? format : null;
+    }
+}
@@ -0,0 +1,122 @@
+package utility;
+
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.api.db.evolutions.ApplicationEvolutions;
+import play.inject.ApplicationLifecycle;
+import repository.UndoStackRepository;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hard deletes whatever admins have left on the undo stack for longer than the expiry, on a schedule in the
+ * background so page renders never do any undo bookkeeping. Disabled unless enabled in the undoStack.reaper
+ * block in application.conf. Bound as an eager singleton in Module.
+ */
+@Singleton
+public class UndoStackReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(UndoStackReaper.class);
+
+    private final UndoStackRepository undoStackRepository;
+    private final long expiryMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile int lastProcessed;
+    private volatile long lastDurationMillis;
+
+    @Inject
+    public UndoStackReaper(UndoStackRepository undoStackRepository, Config config, ApplicationLifecycle lifecycle,
+                           ApplicationEvolutions evolutions) {
+        this.undoStackRepository = undoStackRepository;
+        this.expiryMillis = config.hasPath("undoStack.reaper.expiry")
+                ? config.getDuration("undoStack.reaper.expiry", TimeUnit.MILLISECONDS) : TimeUnit.DAYS.toMillis(1);
+        this.batchSize = config.hasPath("undoStack.reaper.batchSize") ? config.getInt("undoStack.reaper.batchSize") : 500;
+        if (!config.hasPath("undoStack.reaper.enabled") || !config.getBoolean("undoStack.reaper.enabled")) {
+            scheduler = null;
+            return;
+        }
+        long interval = config.getDuration("undoStack.reaper.interval", TimeUnit.SECONDS);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "undo-stack-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.SECONDS);
+        lifecycle.addStopHook(() -> {
+            scheduler.shutdownNow();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Processes every expired item on the undo stack. Called on the schedule, can also be called directly.
+     * @return number of items processed
+     */
+    public int reap() {
+        long start = System.currentTimeMillis();
+        try {
+            int count = undoStackRepository.purgeExpired(new Date(start - expiryMillis), batchSize);
+            lastProcessed = count;
+            processed.addAndGet(count);
+            if (count > 0) {
+                logger.info("Undo stack reaper processed " + count + " items in " + (System.currentTimeMillis() - start) + "ms");
+            }
+            return count;
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("Undo stack reaper failed", e);
+            return 0;
+        } finally {
+            lastDurationMillis = System.currentTimeMillis() - start;
+            runs.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of times the reaper has run since startup
+     */
+    public long getRunCount() {
+        return runs.get();
+    }
+
+    /**
+     * @return number of items processed since startup
+     */
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * @return number of runs that failed since startup
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return number of items processed by the last run
+     */
+    public int getLastProcessed() {
+        return lastProcessed;
+    }
+
+    /**
+     * @return how long the last run took, in milliseconds
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+}
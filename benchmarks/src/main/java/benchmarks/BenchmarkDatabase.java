@@ -0,0 +1,273 @@
+package benchmarks;
+
+import com.typesafe.config.ConfigFactory;
+import play.Application;
+import play.Mode;
+import play.db.Database;
+import play.inject.guice.GuiceApplicationBuilder;
+import repository.ReferenceDataLoader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Starts the application against an in memory H2 database for the benchmarks. The schema and reference data
+ * come from the evolutions in conf/evolutions/default, the same as the tests, and a synthetic dataset of the
+ * requested size is then added on top with JDBC batches.
+ *
+ * Queries are counted by H2 itself through its query statistics, so the counts cover every statement the
+ * repositories run, whichever api they use.
+ */
+class BenchmarkDatabase {
+
+    private static final int BATCH_SIZE = 500;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private final Application application;
+    private final Database database;
+    private final Random random = new Random(302);
+
+    /**
+     * Starts the application, running the evolutions
+     */
+    BenchmarkDatabase() {
+        application = new GuiceApplicationBuilder()
+                .in(Mode.TEST)
+                .withConfigLoader(environment -> ConfigFactory.load("test.conf"))
+                .configure("db.default.url", "jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1")
+                .configure("play.evolutions.db.default.autoApply", true)
+                .build();
+        database = application.injector().instanceOf(Database.class);
+    }
+
+    /**
+     * @param type the class to get
+     * @return an instance from the application injector, eg a repository
+     */
+    <T> T instanceOf(Class<T> type) {
+        return application.injector().instanceOf(type);
+    }
+
+    /**
+     * Adds the synthetic dataset. Every profile has a nationality and a traveller type, every artist a genre,
+     * every event an artist, a genre and a destination, and every trip three destinations. The reference data
+     * cache and search indexes filled when the application started are then rebuilt to take in the new rows.
+     */
+    void seed(int profiles, int artists, int events, int destinations, int trips) throws SQLException {
+        try (Connection connection = database.getConnection()) {
+            connection.setAutoCommit(false);
+            List<Integer> genres = ids(connection, "SELECT genre_id FROM music_genre");
+            List<Integer> travellerTypes = ids(connection, "SELECT traveller_type_id FROM traveller_type");
+            List<Integer> eventTypes = ids(connection, "SELECT type_id FROM type_of_events");
+            List<Integer> nationalities = seedNationalities(connection);
+
+            int firstProfile = nextId(connection, "profile", "profile_id");
+            try (PreparedStatement profile = connection.prepareStatement("INSERT INTO profile (profile_id, first_name, " +
+                    "last_name, email, password, birth_date, gender) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement nationality = connection.prepareStatement(
+                         "INSERT INTO profile_nationality (profile, nationality) VALUES (?, ?)");
+                 PreparedStatement travellerType = connection.prepareStatement(
+                         "INSERT INTO profile_traveller_type (profile, traveller_type) VALUES (?, ?)")) {
+                for (int i = 0; i < profiles; i++) {
+                    int id = firstProfile + i;
+                    profile.setInt(1, id);
+                    profile.setString(2, "Bench" + i);
+                    profile.setString(3, "Traveller");
+                    profile.setString(4, "bench" + i + "@soundbound.com");
+                    profile.setString(5, "not a real hash");
+                    profile.setDate(6, new java.sql.Date(System.currentTimeMillis() - (18 + random.nextInt(50)) * 365 * DAY));
+                    profile.setString(7, random.nextBoolean() ? "Male" : "Female");
+                    profile.addBatch();
+                    nationality.setInt(1, id);
+                    nationality.setInt(2, pick(nationalities));
+                    nationality.addBatch();
+                    travellerType.setInt(1, id);
+                    travellerType.setInt(2, pick(travellerTypes));
+                    travellerType.addBatch();
+                    flushEvery(i, profile, nationality, travellerType);
+                }
+                flush(profile, nationality, travellerType);
+            }
+
+            int firstDestination = nextId(connection, "destination", "destination_id");
+            try (PreparedStatement destination = connection.prepareStatement("INSERT INTO destination (destination_id, " +
+                    "profile_id, name, type, country, district, latitude, longitude, visible) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < destinations; i++) {
+                    destination.setInt(1, firstDestination + i);
+                    destination.setInt(2, firstProfile + random.nextInt(Math.max(1, profiles)));
+                    destination.setString(3, "Bench Destination " + i);
+                    destination.setString(4, "Town");
+                    destination.setString(5, "New Zealand");
+                    destination.setString(6, "District " + (i % 50));
+                    destination.setDouble(7, -90 + random.nextDouble() * 180);
+                    destination.setDouble(8, -180 + random.nextDouble() * 360);
+                    destination.setInt(9, random.nextInt(4) == 0 ? 0 : 1);
+                    destination.addBatch();
+                    flushEvery(i, destination);
+                }
+                flush(destination);
+            }
+
+            int firstArtist = nextId(connection, "artist", "artist_id");
+            try (PreparedStatement artist = connection.prepareStatement("INSERT INTO artist (artist_id, artist_name, " +
+                    "biography, members, verified) VALUES (?, ?, ?, ?, 1)");
+                 PreparedStatement genre = connection.prepareStatement(
+                         "INSERT INTO artist_genre (artist_id, genre_id) VALUES (?, ?)")) {
+                for (int i = 0; i < artists; i++) {
+                    artist.setInt(1, firstArtist + i);
+                    artist.setString(2, "Bench Artist " + i);
+                    artist.setString(3, "Synthetic artist used by the benchmarks");
+                    artist.setString(4, "Bench");
+                    artist.addBatch();
+                    genre.setInt(1, firstArtist + i);
+                    genre.setInt(2, pick(genres));
+                    genre.addBatch();
+                    flushEvery(i, artist, genre);
+                }
+                flush(artist, genre);
+            }
+
+            int firstEvent = nextId(connection, "events", "event_id");
+            try (PreparedStatement event = connection.prepareStatement("INSERT INTO events (event_id, event_name, " +
+                    "description, destination_id, start_date, end_date, age_restriction) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement eventArtist = connection.prepareStatement(
+                         "INSERT INTO event_artists (artist_id, event_id) VALUES (?, ?)");
+                 PreparedStatement eventGenre = connection.prepareStatement(
+                         "INSERT INTO event_genres (event_id, genre_id) VALUES (?, ?)");
+                 PreparedStatement eventType = connection.prepareStatement(
+                         "INSERT INTO event_type (event_id, type_id) VALUES (?, ?)")) {
+                for (int i = 0; i < events; i++) {
+                    int id = firstEvent + i;
+                    long start = System.currentTimeMillis() + (1 + random.nextInt(365)) * DAY;
+                    event.setInt(1, id);
+                    event.setString(2, "Bench Event " + i);
+                    event.setString(3, "Synthetic event used by the benchmarks");
+                    event.setInt(4, firstDestination + random.nextInt(Math.max(1, destinations)));
+                    event.setTimestamp(5, new Timestamp(start));
+                    event.setTimestamp(6, new Timestamp(start + DAY));
+                    event.setInt(7, random.nextInt(2) * 18);
+                    event.addBatch();
+                    eventArtist.setInt(1, firstArtist + random.nextInt(Math.max(1, artists)));
+                    eventArtist.setInt(2, id);
+                    eventArtist.addBatch();
+                    eventGenre.setInt(1, id);
+                    eventGenre.setInt(2, pick(genres));
+                    eventGenre.addBatch();
+                    eventType.setInt(1, id);
+                    eventType.setInt(2, pick(eventTypes));
+                    eventType.addBatch();
+                    flushEvery(i, event, eventArtist, eventGenre, eventType);
+                }
+                flush(event, eventArtist, eventGenre, eventType);
+            }
+
+            int firstTrip = nextId(connection, "trip", "trip_id");
+            try (PreparedStatement trip = connection.prepareStatement(
+                    "INSERT INTO trip (trip_id, name, profile_id) VALUES (?, ?, ?)");
+                 PreparedStatement tripDestination = connection.prepareStatement("INSERT INTO trip_destination " +
+                         "(trip_id, destination_id, arrival, departure, dest_order) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < trips; i++) {
+                    int id = firstTrip + i;
+                    trip.setInt(1, id);
+                    trip.setString(2, "Bench Trip " + i);
+                    trip.setInt(3, firstProfile + random.nextInt(Math.max(1, profiles)));
+                    trip.addBatch();
+                    for (int order = 1; order <= 3; order++) {
+                        tripDestination.setInt(1, id);
+                        tripDestination.setInt(2, firstDestination + random.nextInt(Math.max(1, destinations)));
+                        tripDestination.setDate(3, null);
+                        tripDestination.setDate(4, null);
+                        tripDestination.setInt(5, order);
+                        tripDestination.addBatch();
+                    }
+                    flushEvery(i, trip, tripDestination);
+                }
+                flush(trip, tripDestination);
+            }
+            connection.commit();
+        }
+        instanceOf(ReferenceDataLoader.class).reload();
+    }
+
+    /**
+     * Clears the query statistics kept by H2 and starts counting again
+     */
+    void resetQueryCount() throws SQLException {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SET QUERY_STATISTICS FALSE");
+            statement.execute("SET QUERY_STATISTICS_MAX_ENTRIES 10000");
+            statement.execute("SET QUERY_STATISTICS TRUE");
+        }
+    }
+
+    /**
+     * @return number of statements run since the last reset, not counting the statistics query itself
+     */
+    long queryCount() throws SQLException {
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT SUM(EXECUTION_COUNT) FROM INFORMATION_SCHEMA.QUERY_STATISTICS " +
+                     "WHERE SQL_STATEMENT NOT LIKE '%QUERY_STATISTICS%'")) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Stops the application, dropping the in memory database
+     */
+    void stop() {
+        play.api.Play.stop(application.asScala());
+    }
+
+    private List<Integer> seedNationalities(Connection connection) throws SQLException {
+        try (PreparedStatement nationality = connection.prepareStatement(
+                "INSERT INTO nationality (nationality_name) VALUES (?)")) {
+            for (int i = 0; i < 20; i++) {
+                nationality.setString(1, "Benchland " + i);
+                nationality.addBatch();
+            }
+            nationality.executeBatch();
+        }
+        return ids(connection, "SELECT nationality_id FROM nationality");
+    }
+
+    private static List<Integer> ids(Connection connection, String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            while (result.next()) {
+                ids.add(result.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private static int nextId(Connection connection, String table, String idColumn) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(" + idColumn + "), 0) + 1 FROM " + table)) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    private int pick(List<Integer> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static void flushEvery(int row, PreparedStatement... statements) throws SQLException {
+        if ((row + 1) % BATCH_SIZE == 0) {
+            flush(statements);
+        }
+    }
+
+    private static void flush(PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package benchmarks;
+
+import models.Artist;
+import models.Destination;
+import models.EventFormData;
+import models.Events;
+import models.ProfileSearchResult;
+import models.Trip;
+import org.openjdk.jmh.annotations.*;
+import repository.ArtistRepository;
+import repository.DestinationRepository;
+import repository.EventRepository;
+import repository.ProfileRepository;
+import repository.TripRepository;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks for the repository calls behind the busiest pages. Each benchmark reports throughput and
+ * sampled latency percentiles, and the number of SQL statements per call is printed after every iteration.
+ *
+ * The dataset size can be set from the command line, eg
+ * sbt "benchmarks/jmh:run -p profiles=10000 -p events=20000 RepositoryBenchmarks"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RepositoryBenchmarks {
+
+    @Param({"1000"})
+    public int profiles;
+
+    @Param({"200"})
+    public int artists;
+
+    @Param({"2000"})
+    public int events;
+
+    @Param({"500"})
+    public int destinations;
+
+    @Param({"1000"})
+    public int trips;
+
+    private BenchmarkDatabase database;
+    private EventRepository eventRepository;
+    private ArtistRepository artistRepository;
+    private ProfileRepository profileRepository;
+    private TripRepository tripRepository;
+    private DestinationRepository destinationRepository;
+    private EventFormData eventSearch;
+    private Date youngest;
+    private Date oldest;
+    private final AtomicLong calls = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.seed(profiles, artists, events, destinations, trips);
+        eventRepository = database.instanceOf(EventRepository.class);
+        artistRepository = database.instanceOf(ArtistRepository.class);
+        profileRepository = database.instanceOf(ProfileRepository.class);
+        tripRepository = database.instanceOf(TripRepository.class);
+        destinationRepository = database.instanceOf(DestinationRepository.class);
+        eventSearch = new EventFormData();
+        eventSearch.setEventName("Bench Event 1");
+        // The upcoming only filter uses the MySQL DATE function which H2 does not have
+        eventSearch.setHistoric("1");
+        youngest = new Date();
+        oldest = new Date(youngest.getTime() - TimeUnit.DAYS.toMillis(100 * 365));
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() throws SQLException {
+        calls.set(0);
+        database.resetQueryCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportQueries() throws SQLException {
+        long count = calls.get();
+        if (count > 0) {
+            System.out.printf("%nqueries per call: %.2f (%d calls)%n", (double) database.queryCount() / count, count);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        database.stop();
+    }
+
+    /**
+     * @return a page offset part way through the dataset, so deep pages are measured as well as the first
+     */
+    private int offset(int rows, int pageSize) {
+        long call = calls.incrementAndGet();
+        return (int) (call * pageSize % Math.max(pageSize, rows - pageSize));
+    }
+
+    @Benchmark
+    public List<Events> eventPage() {
+        return eventRepository.getPage(offset(events, 8));
+    }
+
+    @Benchmark
+    public List<Events> eventSearch() {
+        calls.incrementAndGet();
+        return eventRepository.searchEvent(eventSearch, 0, 1);
+    }
+
+    @Benchmark
+    public List<Artist> artistSearch() {
+        calls.incrementAndGet();
+        return artistRepository.searchArtist("Bench Artist 1", "", "", 0, 0, 1);
+    }
+
+    @Benchmark
+    public List<Artist> artistPage() {
+        return artistRepository.getPageArtists(offset(artists, 6), 6, 1);
+    }
+
+    @Benchmark
+    public ProfileSearchResult profileSearch() {
+        calls.incrementAndGet();
+        return profileRepository.searchProfiles("Backpacker", youngest, oldest, "", "", 0);
+    }
+
+    @Benchmark
+    public List<Trip> tripPage() {
+        return tripRepository.getPaginateTrip(offset(trips, 10), 10);
+    }
+
+    @Benchmark
+    public List<Destination> destinationSearch() {
+        calls.incrementAndGet();
+        return destinationRepository.searchDestinations("Bench Destination 1%", 0, true, 1);
+    }
+}
@@ -0,0 +1,58 @@
+# --- !Ups
+
+-- Upcoming events and their keyset pages: soft_delete = 0 AND start_date > ? ORDER BY start_date, event_id
+create index events_soft_delete_start_date_index on events (soft_delete, start_date, event_id);
+
+-- Events at a set of destinations: destination_id IN (...) AND soft_delete = 0
+create index events_destination_soft_delete_index on events (destination_id, soft_delete);
+
+-- Artist pages and counts: verified = ? AND soft_delete = 0 ORDER BY artist_id
+create index artist_verified_soft_delete_index on artist (verified, soft_delete, artist_id);
+
+-- Public destination pages and counts: visible = 1 AND soft_delete = 0 ORDER BY destination_id
+create index destination_visible_soft_delete_index on destination (visible, soft_delete, destination_id);
+
+-- Destinations of a profile: profile_id = ? AND soft_delete = 0, sometimes with visible = 1
+create index destination_profile_soft_delete_index on destination (profile_id, soft_delete, visible);
+
+-- Traveller pages and counts: soft_delete = 0 ORDER BY profile_id
+create index profile_soft_delete_index on profile (soft_delete, profile_id);
+
+-- Artists a profile follows, and follow and unfollow: profile_id = ? AND artist_id = ?
+create index follow_artist_profile_artist_index on follow_artist (profile_id, artist_id);
+
+-- Destinations a profile follows: profile_id = ? joined on destination_id
+create index follow_destination_profile_destination_index on follow_destination (profile_id, destination_id);
+
+-- Attendees of an event and whether a profile attends it: event_id = ? AND profile_id = ?
+create index attend_event_event_profile_index on attend_event (event_id, profile_id);
+
+-- Undo stack reaper: time_created < ? ORDER BY time_created
+create index undo_stack_time_created_index on undo_stack (time_created);
+
+-- Undo stack of a profile and removing an item from it: profile_id = ? AND object_id = ?
+create index undo_stack_profile_object_index on undo_stack (profile_id, object_id);
+
+# --- !Downs
+
+alter table undo_stack drop index undo_stack_profile_object_index;
+
+alter table undo_stack drop index undo_stack_time_created_index;
+
+alter table attend_event drop index attend_event_event_profile_index;
+
+alter table follow_destination drop index follow_destination_profile_destination_index;
+
+alter table follow_artist drop index follow_artist_profile_artist_index;
+
+alter table profile drop index profile_soft_delete_index;
+
+alter table destination drop index destination_profile_soft_delete_index;
+
+alter table destination drop index destination_visible_soft_delete_index;
+
+alter table artist drop index artist_verified_soft_delete_index;
+
+alter table events drop index events_destination_soft_delete_index;
+
+alter table events drop index events_soft_delete_start_date_index;
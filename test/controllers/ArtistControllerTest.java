@@ -8,6 +8,7 @@ import org.junit.Test;
 import play.api.libs.Files;
 import play.api.mvc.MultipartFormData;
 import play.mvc.Http;
+import play.mvc.Result;
 import play.test.Helpers;
 import akka.stream.javadsl.*;
 import repository.ArtistProfilePictureRepository;
@@ -20,6 +21,8 @@ import java.util.Map;
 import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static play.mvc.Http.Status.OK;
+import static play.test.Helpers.GET;
 import static play.libs.Files.singletonTemporaryFileCreator;
 
 public class ArtistControllerTest {
@@ -49,5 +52,20 @@ public class ArtistControllerTest {
                 });
     }
 
+    /**
+     * Testing the artists page does not run a statement for each row shown
+     */
+    @Test
+    public void showArtistsWithinQueryBudget() {
+        Http.RequestBuilder request = Helpers.fakeRequest()
+                .method(GET)
+                .uri("/artists")
+                .session("connected", "1");
+
+        Result result = QueryBudget.route(request, 25);
+
+        assertEquals(OK, result.status());
+    }
+
 
 }
@@ -39,4 +39,19 @@ public class EventsControllerTest {
 
         assertEquals(OK, result.status());
     }
+
+    /**
+     * Testing the events page does not run a statement for each row shown
+     */
+    @Test
+    public void showEventsWithinQueryBudget() {
+        Http.RequestBuilder request = Helpers.fakeRequest()
+                .method(GET)
+                .uri("/events/0")
+                .session("connected", "1");
+
+        Result result = QueryBudget.route(request, 25);
+
+        assertEquals(OK, result.status());
+    }
 }
\ No newline at end of file
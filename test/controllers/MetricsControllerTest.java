@@ -0,0 +1,33 @@
+package controllers;
+
+import org.junit.Test;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.test.Helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static play.mvc.Http.Status.OK;
+import static play.test.Helpers.GET;
+
+public class MetricsControllerTest {
+
+    /**
+     * Testing the GET /metrics endpoint serves the Prometheus text format, including the latency of a request
+     * routed before it
+     */
+    @Test
+    public void showMetricsEndPoint() {
+        Helpers.route(TestApplication.getApplication(), Helpers.fakeRequest().method(GET).uri("/login"));
+
+        Http.RequestBuilder request = Helpers.fakeRequest()
+                .method(GET)
+                .uri("/metrics");
+        Result result = Helpers.route(TestApplication.getApplication(), request);
+
+        assertEquals(OK, result.status());
+        assertEquals("text/plain", result.contentType().orElse(""));
+        assertTrue(Helpers.contentAsString(result)
+                .contains("http_request_duration_seconds_count{route=\"LoginController.show\"}"));
+    }
+}
@@ -2,9 +2,14 @@ package controllers;
 
 import models.Photo;
 import org.junit.Test;
+import play.mvc.Http;
+import play.mvc.Result;
+import repository.DatabaseExecutionContext;
+import repository.PhotoRepository;
 
 import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 
 public class PhotoControllerTest {
@@ -21,7 +26,26 @@ public class PhotoControllerTest {
                 fail();
             }
             return true;
-        });
+        }, TestApplication.getApplication().injector().instanceOf(DatabaseExecutionContext.class));
 
     }
+
+    @Test
+    public void lookupFileAfterDelete() {
+        Photo testPhoto = new Photo("photos/personalPhotos/lookup.png", "image/png", 0, "lookup.png");
+        int photoId = TestApplication.getPhotoRepository().insert(testPhoto).toCompletableFuture().join();
+        assertEquals("photos/personalPhotos/lookup.png", TestApplication.getPhotoRepository().lookupFile(photoId).get().getPath());
+        assertEquals("image/png", TestApplication.getPhotoRepository().lookupFile(photoId).get().getContentType());
+
+        TestApplication.getPhotoRepository().delete(photoId).toCompletableFuture().join();
+        assertFalse(TestApplication.getPhotoRepository().lookupFile(photoId).isPresent());
+    }
+
+    @Test
+    public void serveMissingFileIsPlainNotFound() {
+        Result result = PhotoResults.serve(new Http.RequestBuilder().build(),
+                new PhotoRepository.PhotoFile("photos/personalPhotos/missing.png", "image/png"));
+        assertEquals(404, result.status());
+        assertFalse(result.body().contentLength().isPresent() && result.body().contentLength().get() > 0);
+    }
 }
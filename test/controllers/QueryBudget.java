@@ -0,0 +1,66 @@
+package controllers;
+
+import org.junit.Assert;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.test.Helpers;
+import utility.QueryAccounting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Test helper which routes a request and fails if its action ran more SQL statements than it is allowed, eg
+ * QueryBudget.route(request, 10) to keep a page from growing an N+1. It also fails if a statement ran on
+ * CompletableFuture's default async executor while the request was served, as that work is not counted against
+ * the request and would slip past the budget.
+ */
+public class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Routes a request through the test application and checks the statements its action ran
+     * @param request the request to route
+     * @param budget most statements the action may run
+     * @return the result of the request
+     */
+    public static Result route(Http.RequestBuilder request, int budget) {
+        Http.Request built = request.build();
+        String description = built.method() + " " + built.path();
+        List<QueryAccounting.Recorder> recorded = new ArrayList<>();
+        Consumer<QueryAccounting.Recorder> listener = recorder -> {
+            synchronized (recorded) {
+                recorded.add(recorder);
+            }
+        };
+        QueryAccounting.addListener(listener);
+        long defaultExecutorBefore = QueryAccounting.getDefaultExecutorStatements();
+        Result result;
+        try {
+            result = Helpers.route(TestApplication.getApplication(), request);
+        } finally {
+            QueryAccounting.removeListener(listener);
+        }
+        Assert.assertEquals(description + " ran statements on the default async executor, outside of its budget", 0,
+                QueryAccounting.getDefaultExecutorStatements() - defaultExecutorBefore);
+        synchronized (recorded) {
+            Assert.assertFalse("No request was recorded for " + description, recorded.isEmpty());
+            for (QueryAccounting.Recorder recorder : recorded) {
+                if (recorder.getStatements() > budget) {
+                    StringBuilder message = new StringBuilder(description).append(" (").append(recorder.getRoute())
+                            .append(") ran ").append(recorder.getStatements()).append(" statements, its budget is ")
+                            .append(budget);
+                    for (QueryAccounting.Suspect suspect : recorder.getSuspects()) {
+                        message.append("\n  ").append(suspect.getCount()).append(" x ").append(suspect.getShape())
+                                .append(" from ").append(suspect.getCaller());
+                    }
+                    Assert.fail(message.toString());
+                }
+            }
+        }
+        return result;
+    }
+}
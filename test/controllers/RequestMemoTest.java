@@ -0,0 +1,75 @@
+package controllers;
+
+import org.junit.Test;
+import play.mvc.Action;
+import play.mvc.Http;
+import play.mvc.Result;
+import play.test.Helpers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestMemoTest {
+
+    @Test
+    public void repeatedLookupIsServedFromMemory() {
+        RequestMemo memo = new RequestMemo();
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals(Integer.valueOf(1), memo.get("lookup", calls::incrementAndGet, 7));
+        assertEquals(Integer.valueOf(1), memo.get("lookup", calls::incrementAndGet, 7));
+        assertEquals(Integer.valueOf(2), memo.get("lookup", calls::incrementAndGet, 8));
+        assertEquals(2, calls.get());
+        assertEquals(1, memo.getSaved());
+        assertEquals(2, memo.getLoaded());
+    }
+
+    @Test
+    public void nullResultIsRemembered() {
+        RequestMemo memo = new RequestMemo();
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertNull(memo.get("lookup", () -> {
+                calls.incrementAndGet();
+                return null;
+            }));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void requestWithoutMemoAlwaysLooksUp() {
+        RequestMemo memo = RequestMemo.of(Helpers.fakeRequest().build());
+        AtomicInteger calls = new AtomicInteger();
+        memo.get("lookup", calls::incrementAndGet);
+        memo.get("lookup", calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void memoizedActionSharesOneMemoAcrossTheRequest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<RequestMemo> used = new AtomicReference<>();
+        MemoizedAction action = new MemoizedAction();
+        action.delegate = new Action.Simple() {
+            @Override
+            public CompletionStage<Result> call(Http.Request request) {
+                RequestMemo memo = RequestMemo.of(request);
+                used.set(memo);
+                memo.get("lookup", calls::incrementAndGet, 1);
+                assertSame(memo, RequestMemo.of(request));
+                RequestMemo.of(request).get("lookup", calls::incrementAndGet, 1);
+                return CompletableFuture.completedFuture(ok());
+            }
+        };
+        action.call(Helpers.fakeRequest().build()).toCompletableFuture().get();
+        assertEquals(1, calls.get());
+        assertEquals(1, used.get().getSaved());
+        assertEquals(1, used.get().getLoaded());
+    }
+}
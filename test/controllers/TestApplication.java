@@ -26,6 +26,7 @@ public class TestApplication {
     private static GenreRepository genreRepository;
     private static EventRepository eventRepository;
     private static ArtistProfilePictureRepository artistProfilePictureRepository;
+    private static DestinationPhotoRepository destinationPhotoRepository;
 
     /**
      * Static method to get an instance of the test application
@@ -205,4 +206,16 @@ public class TestApplication {
         return artistProfilePictureRepository;
     }
 
+    /**
+     * Creates an instance of the DestinationPhotoRepository
+     * @return DestinationPhotoRepository instance
+     */
+    public static DestinationPhotoRepository getDestinationPhotoRepository() {
+        checkApplication();
+        if (destinationPhotoRepository == null) {
+            destinationPhotoRepository = application.injector().instanceOf(DestinationPhotoRepository.class);
+        }
+        return destinationPhotoRepository;
+    }
+
 }
@@ -39,4 +39,19 @@ public class TravellersControllerTest {
 
         assertEquals(OK, result.status());
     }
+
+    /**
+     * Testing the travellers page does not run a statement for each traveller shown
+     */
+    @Test
+    public void showTravellersWithinQueryBudget() {
+        Http.RequestBuilder request = Helpers.fakeRequest()
+                .method(GET)
+                .uri("/travellers/0")
+                .session("connected", "1");
+
+        Result result = QueryBudget.route(request, 25);
+
+        assertEquals(OK, result.status());
+    }
 }
\ No newline at end of file
@@ -41,6 +41,21 @@ public class TripsControllerTest {
         assertEquals(OK, result.status());
     }
 
+    /**
+     * Testing the trips page does not run a statement for each row shown
+     */
+    @Test
+    public void showTripsWithinQueryBudget() {
+        Http.RequestBuilder request = Helpers.fakeRequest()
+                .method(GET)
+                .uri("/trips/0")
+                .session("connected", "1");
+
+        Result result = QueryBudget.route(request, 15);
+
+        assertEquals(OK, result.status());
+    }
+
 
 
 
@@ -11,6 +11,7 @@ import org.junit.Assert;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.test.Helpers;
+import utility.UndoStackReaper;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -83,7 +84,7 @@ public class AdminUndoSteps {
     @Then("^the profile (\\d+) is no longer in the delete stack$")
     public void theProfileIsNoLongerInTheDeleteStack(int id) throws Throwable {
         // Write code here that turns the phrase above into concrete actions
-        assertFalse(TestApplication.getUndoStackRepository().canClearStack(TestApplication.getProfileRepository().getProfileByProfileId(2)));
+        assertTrue(TestApplication.getUndoStackRepository().getUsersStack(2).isEmpty());
 
     }
 
@@ -112,7 +113,7 @@ public class AdminUndoSteps {
     @And("^the treasure hunt is removed from the delete stack$")
     public void theTreasureHuntIsRemovedFromTheDeleteStack() throws Throwable {
         // Write code here that turns the phrase above into concrete actions
-        assertFalse(TestApplication.getUndoStackRepository().canClearStack(TestApplication.getProfileRepository().getProfileByProfileId(2)));
+        assertTrue(TestApplication.getUndoStackRepository().getUsersStack(2).isEmpty());
     }
 
     @And("^user (\\d+) has a destination with id (\\d+)$")
@@ -179,17 +180,14 @@ public class AdminUndoSteps {
     public void commandStackItemIsMoreThanOneDayOld(int arg0) throws Throwable {
         Date date = new SimpleDateFormat("yyyy-MM-dd").parse("2018-09-04");
 
-        TestApplication.getUndoStackRepository().addToStack(new UndoStack(4, "destination", 7, 11, date));
+        TestApplication.getUndoStackRepository().addToStack(new UndoStack(4, "destination", 7, 11, date))
+                .toCompletableFuture().join();
 
     }
 
-    @When("^the admin leaves the admin page$")
-    public void theAdminLeavesTheAdminPage() throws Throwable {
-        Http.RequestBuilder request = Helpers.fakeRequest()
-                .method("GET")
-                .uri("/profile")
-                .session("connected", "11");
-        Helpers.route(TestApplication.getApplication(), request);
+    @When("^the undo stack reaper runs$")
+    public void theUndoStackReaperRuns() throws Throwable {
+        TestApplication.getApplication().injector().instanceOf(UndoStackReaper.class).reap();
     }
 
     @Then("^command (\\d+) should no longer be in the database$")
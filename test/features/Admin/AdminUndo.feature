@@ -10,7 +10,7 @@ Feature: Undo Delete
   Scenario: Outdated command is removed and executed from undo stack
     Given the admin is on the admin page as another admin
     And command stack item 4 is more than one day old
-    When the admin leaves the admin page
+    When the undo stack reaper runs
     Then command 4 should no longer be in the database
     And related destination 7 should be removed from the database
 
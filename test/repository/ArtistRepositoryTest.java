@@ -2,6 +2,7 @@ package repository;
 
 import controllers.TestApplication;
 import models.Artist;
+import models.ArtistSearchResult;
 import org.junit.Test;
 
 import java.util.List;
@@ -78,4 +79,38 @@ public class ArtistRepositoryTest  {
         List<Artist> artists = TestApplication.getArtistRepository().searchArtist("Je","Indie","New Zealand", 1, 0, 1);
         assertEquals(1, artists.size());
     }
+
+    @Test
+    public void searchArtistsMatchesInsideName() {
+        List<Artist> artists = TestApplication.getArtistRepository().searchArtist("LOTH","","", 0, 0, 1);
+        assertEquals(1, artists.size());
+        assertEquals("The Sloths", artists.get(0).getArtistName());
+    }
+
+    @Test
+    public void searchArtistPagePagesThroughMatches() {
+        ArtistRepository repository = TestApplication.getArtistRepository();
+        ArtistSearchResult firstPage = repository.searchArtistPage("", "", "", 0, 0, 1, 0, 2);
+        ArtistSearchResult rest = repository.searchArtistPage("", "", "", 0, 0, 1, 2, 100);
+        assertEquals(2, firstPage.getArtists().size());
+        assertEquals(firstPage.getTotal(), firstPage.getArtists().size() + rest.getArtists().size());
+    }
+
+    @Test
+    public void searchArtistPageEmptySearchPagesAllArtists() {
+        ArtistRepository repository = TestApplication.getArtistRepository();
+        ArtistSearchResult firstPage = repository.searchArtistPage("", "", "", 0, 0, 1, 0, 2);
+        assertEquals(2, firstPage.getArtists().size());
+        assertEquals(repository.getAllArtists().size(), firstPage.getTotal());
+    }
+
+    @Test
+    public void searchArtistFollowsFollowAndUnfollow() {
+        ArtistRepository repository = TestApplication.getArtistRepository();
+        repository.followArtist(9, 1).toCompletableFuture().join();
+        assertEquals(1, repository.searchArtist("Sloths", "", "", 1, 0, 1).size());
+
+        repository.unfollowArtist(9, 1).toCompletableFuture().join();
+        assertEquals(0, repository.searchArtist("Sloths", "", "", 1, 0, 1).size());
+    }
 }
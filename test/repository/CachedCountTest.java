@@ -0,0 +1,71 @@
+package repository;
+
+import controllers.TestApplication;
+import io.ebean.Ebean;
+import io.ebean.EbeanServer;
+import org.junit.Before;
+import org.junit.Test;
+import play.db.ebean.EbeanConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CachedCountTest {
+
+    private EbeanServer ebeanServer;
+
+    @Before
+    public void setUp() {
+        EbeanConfig ebeanConfig = TestApplication.getApplication().injector().instanceOf(EbeanConfig.class);
+        ebeanServer = Ebean.getServer(ebeanConfig.defaultServer());
+    }
+
+    /**
+     * Check a count is reused until invalidated, and invalidating it through one repository's handle is seen
+     * through every other handle on the same server
+     */
+    @Test
+    public void countIsSharedAndRecountedAfterInvalidate() {
+        AtomicInteger counted = new AtomicInteger();
+        CachedCount count = CachedCount.getInstance(ebeanServer, "test.shared", counted::incrementAndGet, 60000);
+        CachedCount sameCount = CachedCount.getInstance(ebeanServer, "test.shared", () -> -1, 60000);
+        assertSame(count, sameCount);
+
+        assertEquals(1, count.get());
+        assertEquals(1, sameCount.get());
+
+        sameCount.invalidate();
+        assertEquals(2, count.get());
+    }
+
+    /**
+     * Check a count which was running when the count was invalidated is not kept, as it may have missed the
+     * row written
+     */
+    @Test
+    public void countRunningDuringInvalidateIsNotKept() {
+        AtomicInteger counted = new AtomicInteger();
+        CachedCount[] count = new CachedCount[1];
+        count[0] = CachedCount.getInstance(ebeanServer, "test.racing", () -> {
+            if (counted.incrementAndGet() == 1) {
+                count[0].invalidate();
+            }
+            return counted.get();
+        }, 60000);
+        assertEquals(1, count[0].get());
+        assertEquals(2, count[0].get());
+        assertEquals(2, count[0].get());
+    }
+
+    /**
+     * Check a count older than its max age is recounted
+     */
+    @Test
+    public void oldCountIsRecounted() {
+        AtomicInteger counted = new AtomicInteger();
+        CachedCount count = CachedCount.getInstance(ebeanServer, "test.expiring", counted::incrementAndGet, -1);
+        assertEquals(1, count.get());
+        assertEquals(2, count.get());
+    }
+}
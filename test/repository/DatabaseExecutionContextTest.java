@@ -0,0 +1,52 @@
+package repository;
+
+import controllers.TestApplication;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseExecutionContextTest {
+
+    /**
+     * Other tests share the context, so only check the counters moved by at least the task run here
+     */
+    @Test
+    public void supplyRunsOnDatabaseDispatcherAndCountsWork() throws InterruptedException {
+        DatabaseExecutionContext executionContext = TestApplication.getApplication().injector()
+                .instanceOf(DatabaseExecutionContext.class);
+        long completedBefore = executionContext.getCompletedCount();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> threadName = executionContext.supply(() -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Thread.currentThread().getName();
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(executionContext.getActiveCount() >= 1);
+        release.countDown();
+
+        assertTrue(threadName.join().contains("database.dispatcher"));
+        // The result is handed back just before the task counts itself as finished
+        long deadline = System.currentTimeMillis() + 10000;
+        while (executionContext.getCompletedCount() == completedBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(executionContext.getCompletedCount() > completedBefore);
+    }
+
+    @Test
+    public void repositoriesShareOneContext() {
+        assertTrue(TestApplication.getApplication().injector().instanceOf(DatabaseExecutionContext.class)
+                == TestApplication.getApplication().injector().instanceOf(DatabaseExecutionContext.class));
+    }
+}
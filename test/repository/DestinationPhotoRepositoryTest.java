@@ -0,0 +1,37 @@
+package repository;
+
+import controllers.TestApplication;
+import models.DestinationPhoto;
+import models.Photo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DestinationPhotoRepositoryTest {
+
+    @Test
+    public void getPhotosForDestinationsSplitsOwnAndWorld() {
+        int photoId = TestApplication.getPhotoRepository().insert(
+                new Photo("photos/personalPhotos/tokyo.png", "image/png", 1, "tokyo.png")).toCompletableFuture().join();
+        DestinationPhotoRepository repository = TestApplication.getDestinationPhotoRepository();
+        int linkId = repository.insert(new DestinationPhoto(1, photoId, 1)).toCompletableFuture().join().get();
+
+        Map<Integer, DestinationPhotoRepository.DestinationPhotos> owner = repository.getPhotosForDestinations(1, Arrays.asList(1, 2));
+        assertEquals(2, owner.size());
+        assertTrue(owner.get(1).getOwnPhotos().stream().anyMatch(photo -> photo.getPhotoId() == photoId));
+        assertTrue(owner.get(1).getWorldPhotos().stream().noneMatch(photo -> photo.getPhotoId() == photoId));
+        assertTrue(owner.get(2).getOwnPhotos().stream().noneMatch(photo -> photo.getPhotoId() == photoId));
+
+        Map<Integer, DestinationPhotoRepository.DestinationPhotos> other = repository.getPhotosForDestinations(2, Arrays.asList(1, 2));
+        assertTrue(other.get(1).getWorldPhotos().stream().anyMatch(photo -> photo.getPhotoId() == photoId));
+        assertTrue(other.get(1).getOwnPhotos().stream().noneMatch(photo -> photo.getPhotoId() == photoId));
+
+        repository.delete(linkId).toCompletableFuture().join();
+        assertTrue(repository.getPhotosForDestinations(2, Arrays.asList(1)).get(1).getWorldPhotos().stream()
+                .noneMatch(photo -> photo.getPhotoId() == photoId));
+    }
+}
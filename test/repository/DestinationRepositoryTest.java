@@ -0,0 +1,125 @@
+package repository;
+
+import controllers.TestApplication;
+import io.ebean.Ebean;
+import io.ebean.SqlRow;
+import models.Destination;
+import models.DestinationAreaResult;
+import models.KeysetPage;
+import models.TravellerType;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class DestinationRepositoryTest {
+
+    @Test
+    public void getDestinationsInAreaOnlyShowsOwnPrivateDestinations() {
+        DestinationRepository repository = TestApplication.getDestinationRepository();
+        insertDestination(9400, 1, -40.5, -140.5, 1);
+        insertDestination(9401, 1, -40.6, -140.4, 0);
+        insertDestination(9402, 1, -45.0, -140.0, 1);
+
+        DestinationAreaResult otherUser = repository.getDestinationsInArea(-41, -141, -40, -140, 2, 10);
+        assertEquals(1, otherUser.getTotal());
+        assertEquals(Collections.singletonList(9400), destinationIds(otherUser.getDestinations()));
+
+        DestinationAreaResult owner = repository.getDestinationsInArea(-41, -141, -40, -140, 1, 1);
+        assertEquals(2, owner.getTotal());
+        assertEquals(Collections.singletonList(9400), destinationIds(owner.getDestinations()));
+
+        assertEquals(Arrays.asList(9400, 9402),
+                destinationIds(repository.getNearestDestinations(-40.5, -140.5, 2, 2)));
+    }
+
+    @Test
+    public void getDestinationsInAreaCrossesAntimeridian() {
+        DestinationRepository repository = TestApplication.getDestinationRepository();
+        insertDestination(9410, 1, -60.0, 179.5, 1);
+        insertDestination(9411, 1, -60.0, -179.5, 1);
+
+        assertEquals(Arrays.asList(9410, 9411),
+                destinationIds(repository.getDestinationsInArea(-61, 179, -59, -179, 2, 10).getDestinations()));
+        assertEquals(Arrays.asList(9411, 9410),
+                destinationIds(repository.getNearestDestinations(-60.0, -179.9, 2, 2)));
+    }
+
+    @Test
+    public void spatialIndexFollowsSoftDelete() {
+        DestinationRepository repository = TestApplication.getDestinationRepository();
+        insertDestination(9420, 1, -70.0, -100.0, 1);
+        assertEquals(1, repository.getDestinationsInArea(-71, -101, -69, -99, 2, 10).getTotal());
+
+        repository.setSoftDelete(9420, 1).toCompletableFuture().join();
+        assertEquals(0, repository.getDestinationsInArea(-71, -101, -69, -99, 2, 10).getTotal());
+        assertEquals(Collections.emptyList(), repository.getDestinationIdsNear(-70.0, -100.0, 100));
+    }
+
+    /**
+     * Check an update keeps the linking row of a traveller type it still has, and only swaps the ones that changed
+     */
+    @Test
+    public void updateOnlyWritesChangedTravellerTypes() {
+        DestinationRepository repository = TestApplication.getDestinationRepository();
+        insertDestination(9450, 1, -30.0, 150.0, 1);
+        Map<Integer, TravellerType> travellerTypes = new HashMap<>();
+        travellerTypes.put(1, new TravellerType(1, "Backpacker"));
+        travellerTypes.put(2, new TravellerType(2, "Groupie"));
+        repository.update(new Destination(9450, 1, "Mapped", "City", "Nowhere", "", -30.0, 150.0, 1,
+                travellerTypes), 9450).toCompletableFuture().join();
+        Map<Integer, Integer> before = travellerTypeLinks(9450);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), before.keySet());
+
+        travellerTypes.remove(1);
+        travellerTypes.put(3, new TravellerType(3, "Gap year"));
+        repository.update(new Destination(9450, 1, "Mapped", "City", "Nowhere", "", -30.0, 150.0, 1,
+                travellerTypes), 9450).toCompletableFuture().join();
+        Map<Integer, Integer> after = travellerTypeLinks(9450);
+        assertEquals(new HashSet<>(Arrays.asList(2, 3)), after.keySet());
+        assertEquals(before.get(2), after.get(2));
+    }
+
+    /**
+     * @return the id of each linking row of a destination keyed by its traveller type
+     */
+    @Test
+    public void publicDestinationPagesByCursorMatchOffsetPages() {
+        DestinationRepository repository = TestApplication.getDestinationRepository();
+        KeysetPage<Destination> firstPage = repository.getPublicDestinations((String) null);
+        assertEquals(destinationIds(repository.getPublicDestinations(0)), destinationIds(firstPage.getItems()));
+        if (firstPage.hasNext()) {
+            assertEquals(destinationIds(repository.getPublicDestinations(7)),
+                    destinationIds(repository.getPublicDestinations(firstPage.getNextCursor()).getItems()));
+        }
+    }
+
+    private Map<Integer, Integer> travellerTypeLinks(int destinationId) {
+        Map<Integer, Integer> links = new HashMap<>();
+        for (SqlRow row : Ebean.createSqlQuery("SELECT id, traveller_type_id FROM destination_traveller_type " +
+                "WHERE destination_id = ?").setParameter(1, destinationId).findList()) {
+            links.put(row.getInteger("traveller_type_id"), row.getInteger("id"));
+        }
+        return links;
+    }
+
+    /**
+     * Inserts a soft deleted destination then restores it through the repository so the spatial index sees it
+     */
+    static void insertDestination(int destinationId, int profileId, double latitude, double longitude, int visible) {
+        Ebean.createSqlUpdate("INSERT INTO destination (destination_id, profile_id, name, type, country, latitude, " +
+                "longitude, visible, soft_delete) VALUES (?, ?, 'Mapped', 'City', 'Nowhere', ?, ?, ?, 1)")
+                .setParameter(1, destinationId).setParameter(2, profileId).setParameter(3, latitude)
+                .setParameter(4, longitude).setParameter(5, visible).execute();
+        TestApplication.getDestinationRepository().setSoftDelete(destinationId, 0).toCompletableFuture().join();
+    }
+
+    private List<Integer> destinationIds(List<Destination> destinations) {
+        List<Integer> destinationIds = new ArrayList<>();
+        for (Destination destination : destinations) {
+            destinationIds.add(destination.getDestinationId());
+        }
+        return destinationIds;
+    }
+}
@@ -1,9 +1,14 @@
 package repository;
 
 import controllers.TestApplication;
+import io.ebean.Ebean;
+import models.EventFormData;
+import models.EventSearchResult;
 import models.Events;
 import org.junit.Test;
+import utility.QueryAccounting;
 
+import java.sql.Date;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
@@ -26,4 +31,135 @@ public class EventRepositoryTest {
         assertTrue(events.isEmpty());
     }
 
+    @Test
+    public void searchEventMatchesPartOfNameIgnoringCase() {
+        EventFormData search = historicSearch();
+        search.setEventName("burning");
+        EventSearchResult result = TestApplication.getEventRepository().searchEventFaceted(search, 0, 1);
+        assertEquals(6, result.getTotal());
+        for (Events event : result.getEvents()) {
+            assertTrue(event.getEventName().startsWith("Burning"));
+        }
+        assertEquals(4, result.getFacet("artist").get(1).intValue());
+        assertEquals(2, result.getFacet("artist").get(2).intValue());
+    }
+
+    @Test
+    public void searchEventMatchesTextInsideAWord() {
+        EventFormData search = historicSearch();
+        search.setEventName("URNIN");
+        assertEquals(6, TestApplication.getEventRepository().searchEventFaceted(search, 0, 1).getTotal());
+
+        search.setEventName("urnix");
+        assertEquals(0, TestApplication.getEventRepository().searchEventFaceted(search, 0, 1).getTotal());
+    }
+
+    @Test
+    public void searchEventPagesThroughMatches() {
+        EventFormData search = historicSearch();
+        search.setArtistName("1");
+        EventRepository repository = TestApplication.getEventRepository();
+        EventSearchResult firstPage = repository.searchEventFaceted(search, 0, 1);
+        EventSearchResult secondPage = repository.searchEventFaceted(search, 8, 1);
+        assertEquals(8, firstPage.getEvents().size());
+        assertEquals(firstPage.getTotal() - 8, secondPage.getEvents().size());
+        assertTrue(firstPage.getEvents().get(0).getStartDate().before(firstPage.getEvents().get(7).getStartDate())
+                || firstPage.getEvents().get(0).getStartDate().equals(firstPage.getEvents().get(7).getStartDate()));
+    }
+
+    @Test
+    public void searchIndexFollowsSoftDelete() {
+        EventRepository repository = TestApplication.getEventRepository();
+        Ebean.createSqlUpdate("INSERT INTO events (event_id, event_name, description, destination_id, start_date, " +
+                "end_date, age_restriction, soft_delete) VALUES (9200, 'Indexed Gig', 'description', 9, '2099-01-01', " +
+                "'2099-01-02', 0, 1)").execute();
+        EventFormData search = new EventFormData();
+        search.setEventName("Indexed Gig");
+
+        repository.setSoftDeleteId(9200, 0);
+        assertEquals(1, repository.searchEventFaceted(search, 0, 1).getTotal());
+
+        repository.setSoftDeleteId(9200, 1);
+        assertEquals(0, repository.searchEventFaceted(search, 0, 1).getTotal());
+    }
+
+    /**
+     * Events written around the repository are only found after the indexes are rebuilt
+     */
+    @Test
+    public void reloadTakesInEventsWrittenOverJdbc() {
+        EventRepository repository = TestApplication.getEventRepository();
+        Ebean.createSqlUpdate("INSERT INTO events (event_id, event_name, description, destination_id, start_date, " +
+                "end_date, age_restriction) VALUES (9210, 'Bulk Loaded Gig', 'description', 9, '2099-01-01', " +
+                "'2099-01-02', 0)").execute();
+        EventFormData search = new EventFormData();
+        search.setEventName("Bulk Loaded Gig");
+        assertEquals(0, repository.searchEventFaceted(search, 0, 1).getTotal());
+
+        TestApplication.getApplication().injector().instanceOf(ReferenceDataLoader.class).reload();
+        assertEquals(1, repository.searchEventFaceted(search, 0, 1).getTotal());
+    }
+
+    @Test
+    public void getEventsNearOrdersByDistance() {
+        DestinationRepositoryTest.insertDestination(9430, 1, -75.0, 60.0, 1);
+        DestinationRepositoryTest.insertDestination(9431, 1, -75.0, 61.0, 1);
+        insertEvent(9431, 9431);
+        insertEvent(9430, 9430);
+
+        List<Events> events = TestApplication.getEventRepository().getEventsNear(-75.0, 60.1, 100, 10);
+        assertEquals(2, events.size());
+        assertEquals(9430, events.get(0).getEventId());
+        assertEquals(9431, events.get(1).getEventId());
+        assertEquals(1, TestApplication.getEventRepository().getEventsNear(-75.0, 60.1, 10, 10).size());
+    }
+
+    @Test
+    public void insertAndUpdateWriteLinksAsOneBatchPerTable() {
+        EventRepository repository = TestApplication.getEventRepository();
+        DestinationRepositoryTest.insertDestination(9440, 1, -70.0, 60.0, 1);
+        Events event = new Events(0, "Batched Gig", "description", 9440, Date.valueOf("2099-01-01"),
+                Date.valueOf("2099-01-02"), 0);
+        event.setTypeForm("Gig");
+        event.setGenreForm("1,2,3");
+        event.setArtistForm("1,2,3,4,5,6");
+
+        QueryAccounting.Recorder insert = QueryAccounting.record("test.insertEvent",
+                () -> repository.insert(event).toCompletableFuture().join());
+        int eventId = event.getEventId();
+        assertTrue(insert.getSuspects().toString(), insert.getSuspects().isEmpty());
+        assertEquals(1, countLinks("event_type", eventId));
+        assertEquals(3, countLinks("event_genres", eventId));
+        assertEquals(6, countLinks("event_artists", eventId));
+
+        event.setGenreForm("3,4");
+        event.setArtistForm("6,7");
+        repository.update(eventId, event).toCompletableFuture().join();
+        assertEquals(1, countLinks("event_type", eventId));
+        assertEquals(2, countLinks("event_genres", eventId));
+        assertEquals(2, countLinks("event_artists", eventId));
+        assertEquals(1, Ebean.createSqlQuery("SELECT COUNT(*) AS links FROM event_artists WHERE event_id = ? " +
+                "AND artist_id = 7").setParameter(1, eventId).findOne().getInteger("links").intValue());
+    }
+
+    private int countLinks(String table, int eventId) {
+        return Ebean.createSqlQuery("SELECT COUNT(*) AS links FROM " + table + " WHERE event_id = ?")
+                .setParameter(1, eventId).findOne().getInteger("links");
+    }
+
+    private void insertEvent(int eventId, int destinationId) {
+        Ebean.createSqlUpdate("INSERT INTO events (event_id, event_name, description, destination_id, start_date, " +
+                "end_date, age_restriction) VALUES (?, 'Nearby Gig', 'description', ?, '2099-01-01', '2099-01-02', 0)")
+                .setParameter(1, eventId).setParameter(2, destinationId).execute();
+    }
+
+    /**
+     * The test events are all in the past, so include finished events
+     */
+    private EventFormData historicSearch() {
+        EventFormData search = new EventFormData();
+        search.setHistoric("1");
+        return search;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package repository;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InMemoryIndexTest {
+
+    /**
+     * Index over a set of ids standing in for a table
+     */
+    private static final class IdIndex extends InMemoryIndex<Integer> {
+        private final Set<Integer> ids = new HashSet<>();
+
+        @Override
+        protected void add(Integer id) {
+            ids.add(id);
+        }
+
+        @Override
+        protected void remove(int id) {
+            ids.remove(id);
+        }
+
+        @Override
+        protected void clear() {
+            ids.clear();
+        }
+
+        @Override
+        protected int count() {
+            return ids.size();
+        }
+
+        boolean contains(int id) {
+            return read(() -> ids.contains(id));
+        }
+    }
+
+    /**
+     * Check a search is answered while a fill is still waiting on the database
+     */
+    @Test
+    public void searchIsNotBlockedByFill() throws Exception {
+        IdIndex index = new IdIndex();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> fill = CompletableFuture.runAsync(() -> index.ensureLoaded(() -> {
+            reading.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Arrays.asList(1, 2, 3);
+        }));
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        assertEquals(0, CompletableFuture.supplyAsync(index::size).get(5, TimeUnit.SECONDS).intValue());
+
+        release.countDown();
+        fill.get(10, TimeUnit.SECONDS);
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Check a row changed while the index is being filled is not lost by swapping in what was read before it
+     */
+    @Test
+    public void changeDuringFillIsReadAgain() {
+        IdIndex index = new IdIndex();
+        Set<Integer> table = new HashSet<>(Arrays.asList(1, 2));
+        index.ensureLoaded(() -> {
+            List<Integer> read = new ArrayList<>(table);
+            if (!table.contains(3)) {
+                table.add(3);
+                index.refresh(Collections.singletonList(3), ids -> Collections.singletonList(3));
+            }
+            return read;
+        });
+        assertTrue(index.contains(3));
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Check a refresh which read its rows before a later refresh of the same rows does not overwrite it
+     */
+    @Test
+    public void olderRefreshIsReadAgain() {
+        IdIndex index = new IdIndex();
+        index.ensureLoaded(() -> Collections.singletonList(1));
+        Set<Integer> table = new HashSet<>(Collections.singletonList(1));
+        index.refresh(Collections.singletonList(1), ids -> {
+            List<Integer> read = new ArrayList<>(table);
+            if (table.contains(1)) {
+                table.remove(1);
+                index.refresh(Collections.singletonList(1), later -> new ArrayList<>(table));
+            }
+            return read;
+        });
+        assertFalse(index.contains(1));
+    }
+
+    /**
+     * Check changes to an index which has not been filled are left for the fill
+     */
+    @Test
+    public void refreshBeforeFillIsSkipped() {
+        IdIndex index = new IdIndex();
+        index.refresh(Collections.singletonList(1), ids -> {
+            fail("Rows read for an index which is not filled");
+            return Collections.emptyList();
+        });
+        assertEquals(0, index.size());
+    }
+}
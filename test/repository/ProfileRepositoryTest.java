@@ -0,0 +1,188 @@
+package repository;
+
+import controllers.TestApplication;
+import io.ebean.Ebean;
+import io.ebean.SqlRow;
+import models.*;
+import org.junit.Test;
+import org.mindrot.jbcrypt.BCrypt;
+import utility.QueryAccounting;
+
+import java.sql.Date;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfileRepositoryTest {
+
+    private static final Date YOUNGEST = Date.valueOf("2000-01-01");
+    private static final Date OLDEST = Date.valueOf("1900-01-01");
+
+    @Test
+    public void searchProfilesCombinesFiltersWithExactTotal() {
+        ProfileRepository repository = TestApplication.getProfileRepository();
+        insertTraveller(9300, "1990-01-01", "Female", 9300, "Searchlandish");
+        insertTraveller(9301, "1990-01-01", "Male", 9300, "Searchlandish");
+        insertTraveller(9302, "1980-05-05", "Female", 9300, "Searchlandish");
+
+        ProfileSearchResult all = repository.searchProfiles("Backpacker", YOUNGEST, OLDEST, "", "Searchlandish", 0);
+        assertEquals(3, all.getTotal());
+        assertEquals(Arrays.asList(9302, 9300, 9301), profileIds(all.getProfiles()));
+
+        ProfileSearchResult female = repository.searchProfiles("Backpacker", YOUNGEST, OLDEST, "Female", "Searchlandish", 0);
+        assertEquals(2, female.getTotal());
+        assertEquals(Arrays.asList(9302, 9300), profileIds(female.getProfiles()));
+
+        ProfileSearchResult youngest = repository.searchProfiles("", YOUNGEST, Date.valueOf("1985-01-01"), "", "Searchlandish", 0);
+        assertEquals(2, youngest.getTotal());
+
+        ProfileSearchResult pastTheEnd = repository.searchProfiles("", YOUNGEST, OLDEST, "", "Searchlandish", 12);
+        assertEquals(3, pastTheEnd.getTotal());
+        assertEquals(0, pastTheEnd.getProfiles().size());
+    }
+
+    @Test
+    public void searchProfilesFollowsSoftDelete() {
+        ProfileRepository repository = TestApplication.getProfileRepository();
+        insertTraveller(9310, "1995-03-03", "Male", 9310, "Softdeletish");
+
+        assertEquals(1, repository.searchProfiles("", YOUNGEST, OLDEST, "", "Softdeletish", 0).getTotal());
+
+        repository.setSoftDelete(9310, 1).toCompletableFuture().join();
+        assertEquals(0, repository.searchProfiles("", YOUNGEST, OLDEST, "", "Softdeletish", 0).getTotal());
+    }
+
+    @Test
+    public void insertAndUpdateWriteLinksAsOneBatchPerTable() {
+        ProfileRepository repository = TestApplication.getProfileRepository();
+        Map<Integer, PassportCountry> passports = new HashMap<>();
+        List<String> passportNames = Arrays.asList("New Zealand", "Fiji", "Batchland", "North Batchland",
+                "South Batchland", "Batch Islands");
+        for (int i = 0; i < passportNames.size(); i++) {
+            passports.put(i, new PassportCountry(i, passportNames.get(i)));
+        }
+        Map<Integer, Nationality> nationalities = new HashMap<>();
+        nationalities.put(1, new Nationality(1, "Batchlandish"));
+        nationalities.put(2, new Nationality(2, "Batchlandese"));
+        Map<Integer, TravellerType> travellerTypes = new HashMap<>();
+        travellerTypes.put(1, new TravellerType(1, "Backpacker"));
+        travellerTypes.put(2, new TravellerType(2, "Groupie"));
+        Profile profile = new Profile(null, "Batch", null, "Traveller", "batch@travel.com", YOUNGEST, passports,
+                "Female", null, nationalities, travellerTypes, new ArrayList<>());
+        profile.setPassword("password");
+
+        List<Optional<Integer>> inserted = new ArrayList<>();
+        QueryAccounting.Recorder insert = QueryAccounting.record("test.insertProfile",
+                () -> inserted.add(repository.insert(profile).toCompletableFuture().join()));
+        int profileId = inserted.get(0).get();
+        assertTrue(insert.getSuspects().toString(), insert.getSuspects().isEmpty());
+        assertEquals(6, countLinks("profile_passport_country", profileId));
+        assertEquals(2, countLinks("profile_nationality", profileId));
+        assertEquals(2, countLinks("profile_traveller_type", profileId));
+
+        passports.keySet().retainAll(Collections.singleton(2));
+        nationalities.remove(2);
+        travellerTypes.put(3, new TravellerType(3, "Gap year"));
+        repository.update(profile, profileId).toCompletableFuture().join();
+        assertEquals(1, countLinks("profile_passport_country", profileId));
+        assertEquals(1, countLinks("profile_nationality", profileId));
+        assertEquals(3, countLinks("profile_traveller_type", profileId));
+    }
+
+    @Test
+    public void insertStoresHashedPassword() {
+        ProfileRepository repository = TestApplication.getProfileRepository();
+        Profile profile = new Profile(null, "Hashed", null, "Traveller", "hashed@travel.com", YOUNGEST,
+                new HashMap<>(), "Female", null, new HashMap<>(), new HashMap<>(), new ArrayList<>());
+        profile.setPassword("password");
+        assertEquals("password", profile.getPassword());
+
+        repository.insert(profile).toCompletableFuture().join();
+        String hash = repository.findCredentials("hashed@travel.com").toCompletableFuture().join().get()
+                .getPasswordHash();
+        assertNotEquals("password", hash);
+        assertTrue(BCrypt.checkpw("password", hash));
+    }
+
+    @Test
+    public void updateLeavesUnchangedLinksAlone() {
+        ProfileRepository repository = TestApplication.getProfileRepository();
+        insertTraveller(9320, "1990-01-01", "Female", 9320, "Unchangedish");
+        Map<Integer, Nationality> nationalities = new HashMap<>();
+        nationalities.put(9320, new Nationality(9320, "Unchangedish"));
+        Map<Integer, TravellerType> travellerTypes = new HashMap<>();
+        travellerTypes.put(1, new TravellerType(1, "Backpacker"));
+        Profile profile = new Profile(9320, "Search", null, "Traveller", "9320@search.com", YOUNGEST,
+                new HashMap<>(), "Female", null, nationalities, travellerTypes, new ArrayList<>());
+        List<Integer> before = linkIds(9320);
+
+        repository.update(profile, 9320).toCompletableFuture().join();
+        assertEquals(before, linkIds(9320));
+
+        travellerTypes.put(2, new TravellerType(2, "Groupie"));
+        repository.update(profile, 9320).toCompletableFuture().join();
+        List<Integer> after = linkIds(9320);
+        assertEquals(3, after.size());
+        assertTrue(after.containsAll(before));
+    }
+
+    /**
+     * @return ids of the nationality and traveller type linking rows of a profile
+     */
+    private List<Integer> linkIds(int profileId) {
+        List<Integer> ids = new ArrayList<>();
+        for (SqlRow row : Ebean.createSqlQuery("SELECT profile_nationality_id AS id FROM profile_nationality " +
+                "WHERE profile = ? UNION ALL SELECT profile_traveller_type_id AS id FROM profile_traveller_type " +
+                "WHERE profile = ?").setParameter(1, profileId).setParameter(2, profileId).findList()) {
+            ids.add(row.getInteger("id"));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private int countLinks(String table, int profileId) {
+        return Ebean.createSqlQuery("SELECT COUNT(*) AS links FROM " + table + " WHERE profile = ?")
+                .setParameter(1, profileId).findOne().getInteger("links");
+    }
+
+    /**
+     * Inserts a soft deleted backpacker then restores it through the repository so the search index sees it
+     */
+    private void insertTraveller(int profileId, String birthDate, String gender, int nationalityId, String nationality) {
+        if (Ebean.createSqlQuery("SELECT nationality_id FROM nationality WHERE nationality_id = ?")
+                .setParameter(1, nationalityId).findOne() == null) {
+            Ebean.createSqlUpdate("INSERT INTO nationality (nationality_id, nationality_name) VALUES (?, ?)")
+                    .setParameter(1, nationalityId).setParameter(2, nationality).execute();
+        }
+        Ebean.createSqlUpdate("INSERT INTO profile (profile_id, first_name, last_name, email, password, birth_date, " +
+                "gender, soft_delete) VALUES (?, 'Search', 'Traveller', ?, 'password', ?, ?, 1)")
+                .setParameter(1, profileId).setParameter(2, profileId + "@search.com")
+                .setParameter(3, Date.valueOf(birthDate)).setParameter(4, gender).execute();
+        Ebean.createSqlUpdate("INSERT INTO profile_nationality (profile, nationality) VALUES (?, ?)")
+                .setParameter(1, profileId).setParameter(2, nationalityId).execute();
+        Ebean.createSqlUpdate("INSERT INTO profile_traveller_type (profile, traveller_type) VALUES (?, 1)")
+                .setParameter(1, profileId).execute();
+        TestApplication.getProfileRepository().setSoftDelete(profileId, 0).toCompletableFuture().join();
+    }
+
+    @Test
+    public void travellerPagesByCursorMatchOffsetPages() {
+        ProfileRepository repository = TestApplication.getProfileRepository();
+        KeysetPage<Profile> firstPage = repository.getAllTravellersPaginate((String) null);
+        assertEquals(profileIds(repository.getAllTravellersPaginate(0)), profileIds(firstPage.getItems()));
+        if (firstPage.hasNext()) {
+            assertEquals(profileIds(repository.getAllTravellersPaginate(12)),
+                    profileIds(repository.getAllTravellersPaginate(firstPage.getNextCursor()).getItems()));
+        }
+    }
+
+    private List<Integer> profileIds(List<Profile> profiles) {
+        List<Integer> profileIds = new ArrayList<>();
+        for (Profile profile : profiles) {
+            profileIds.add(profile.getProfileId());
+        }
+        return profileIds;
+    }
+}
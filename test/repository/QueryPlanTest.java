@@ -0,0 +1,160 @@
+package repository;
+
+import controllers.TestApplication;
+import io.ebean.Ebean;
+import io.ebean.SqlQuery;
+import io.ebean.SqlRow;
+import models.UndoStack;
+import org.junit.Before;
+import org.junit.Test;
+import utility.QueryAccounting;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs EXPLAIN on H2 for the statements the repositories run most, so a query which stops using its index,
+ * or an index dropped from the evolutions, fails here instead of turning into a full table scan in production.
+ * The statements are captured as each repository method runs them, so a change to the query is checked too.
+ */
+public class QueryPlanTest {
+
+    private EventRepository eventRepository;
+    private ArtistRepository artistRepository;
+    private DestinationRepository destinationRepository;
+    private ProfileRepository profileRepository;
+    private AttendEventRepository attendEventRepository;
+    private UndoStackRepository undoStackRepository;
+
+    @Before
+    public void setUp() {
+        eventRepository = TestApplication.getEventRepository();
+        artistRepository = TestApplication.getArtistRepository();
+        destinationRepository = TestApplication.getDestinationRepository();
+        profileRepository = TestApplication.getProfileRepository();
+        attendEventRepository = TestApplication.getApplication().injector().instanceOf(AttendEventRepository.class);
+        undoStackRepository = TestApplication.getUndoStackRepository();
+    }
+
+    @Test
+    public void upcomingEventsUseStartDateIndex() {
+        assertUsesIndex("events_soft_delete_start_date_index", "events",
+                () -> eventRepository.getPage((String) null));
+    }
+
+    @Test
+    public void eventsAtDestinationsUseDestinationIndex() {
+        assertUsesIndex("events_destination_soft_delete_index", "events",
+                () -> eventRepository.getEventsNear(17.68, 67.98, 10, 10));
+    }
+
+    @Test
+    public void artistPagesUseVerifiedIndex() {
+        assertUsesIndex("artist_verified_soft_delete_index", "artist",
+                () -> artistRepository.getPageArtists((String) null, 10, 1));
+    }
+
+    @Test
+    public void publicDestinationsUseVisibleIndex() {
+        assertUsesIndex("destination_visible_soft_delete_index", "destination",
+                () -> destinationRepository.getPublicDestinations(0));
+    }
+
+    @Test
+    public void profileDestinationsUseProfileIndex() {
+        assertUsesIndex("destination_profile_soft_delete_index", "destination",
+                () -> profileRepository.getDestinations(1, 0));
+    }
+
+    @Test
+    public void travellerPagesUseSoftDeleteIndex() {
+        assertUsesIndex("profile_soft_delete_index", "profile",
+                () -> profileRepository.getPage((String) null, 10));
+    }
+
+    @Test
+    public void loginUsesEmailIndex() {
+        assertUsesIndex(null, "profile",
+                () -> profileRepository.findCredentials("john@gmail.com").toCompletableFuture().join());
+    }
+
+    @Test
+    public void followLookupsUseFollowIndex() {
+        assertUsesIndex("follow_artist_profile_artist_index", "follow_artist",
+                () -> artistRepository.getFollowedArtistIds(1));
+        assertUsesIndex("follow_artist_profile_artist_index", "follow_artist",
+                () -> artistRepository.unfollowArtist(99999, 1).toCompletableFuture().join());
+    }
+
+    @Test
+    public void followedDestinationsUseFollowIndex() {
+        assertUsesIndex("follow_destination_profile_destination_index", "follow_destination",
+                () -> destinationRepository.getAllFollowedOrOwnedDestinations(1));
+    }
+
+    @Test
+    public void attendanceUsesAttendIndex() {
+        assertUsesIndex("attend_event_event_profile_index", "attend_event",
+                () -> attendEventRepository.getAttendEventId(1, 2));
+    }
+
+    @Test
+    public void undoStackUsesTimeAndProfileIndexes() {
+        assertUsesIndex("undo_stack_time_created_index", "undo_stack",
+                () -> undoStackRepository.purgeExpired(new Date(0), 500));
+        assertUsesIndex("undo_stack_profile_object_index", "undo_stack",
+                () -> undoStackRepository.removeItem(new UndoStack("profile", 99999, 99999))
+                        .toCompletableFuture().join());
+    }
+
+    /**
+     * Runs some repository work and EXPLAINs each statement it sent which reads or deletes from the given table.
+     * Fails if there is no such statement, if any of them scans a table in full, or if none of them use the given
+     * index. Lookups the work makes by primary key, such as filling in the rows of a page, are allowed alongside.
+     * @param index name of the index the statements should use, null if any index will do
+     * @param table the table the statements work on
+     * @param work the repository call
+     */
+    private static void assertUsesIndex(String index, String table, Runnable work) {
+        Pattern readsTable = Pattern.compile("\\bfrom\\s+" + table + "\\b", Pattern.CASE_INSENSITIVE);
+        List<QueryAccounting.Statement> statements = new ArrayList<>();
+        for (QueryAccounting.Statement statement : QueryAccounting.capture("test.queryPlan", work).getCaptured()) {
+            if (readsTable.matcher(statement.getSql()).find()) {
+                statements.add(statement);
+            }
+        }
+        assertFalse("No statement on " + table + " was run", statements.isEmpty());
+        StringBuilder plans = new StringBuilder();
+        for (QueryAccounting.Statement statement : statements) {
+            String plan = explain(statement);
+            assertFalse("Full table scan in\n" + plan, plan.contains(".tableScan"));
+            plans.append(plan).append('\n');
+        }
+        if (index != null) {
+            assertTrue(index + " not used in\n" + plans, plans.toString().contains(index.toUpperCase(Locale.ROOT)));
+        }
+    }
+
+    /**
+     * @param statement a captured statement
+     * @return the H2 plan of the statement with the values it was run with
+     */
+    private static String explain(QueryAccounting.Statement statement) {
+        SqlQuery explain = Ebean.getDefaultServer().createSqlQuery("EXPLAIN " + statement.getSql());
+        List<Object> parameters = statement.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            explain.setParameter(i + 1, parameters.get(i));
+        }
+        StringBuilder plan = new StringBuilder();
+        for (SqlRow row : explain.findList()) {
+            plan.append(row.getString("plan"));
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package repository;
+
+import controllers.TestApplication;
+import io.ebean.Ebean;
+import models.MusicGenre;
+import models.PassportCountry;
+import org.junit.Before;
+import org.junit.Test;
+import play.db.ebean.EbeanConfig;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class ReferenceDataCacheTest {
+
+    private ReferenceDataCache cache;
+
+    @Before
+    public void setUp() {
+        EbeanConfig ebeanConfig = TestApplication.getApplication().injector().instanceOf(EbeanConfig.class);
+        cache = ReferenceDataCache.getInstance(Ebean.getServer(ebeanConfig.defaultServer()));
+    }
+
+    @Test
+    public void getAllGenresReadsFromCache() {
+        TestApplication.getGenreRepository().getAllGenres();
+        long misses = cache.getGenres().getMisses();
+        long hits = cache.getGenres().getHits();
+
+        List<MusicGenre> genres = TestApplication.getGenreRepository().getAllGenres();
+
+        assertEquals(4, genres.size());
+        assertEquals("Rock", genres.get(0).getGenre());
+        assertEquals(misses, cache.getGenres().getMisses());
+        assertEquals(hits + 1, cache.getGenres().getHits());
+    }
+
+    @Test
+    public void getGenreIdByName() {
+        assertEquals(Integer.valueOf(4), TestApplication.getGenreRepository().getGenreIdByName("Indie"));
+        assertNull(TestApplication.getGenreRepository().getGenreIdByName("Not a genre"));
+    }
+
+    @Test
+    public void insertPassportCountryInvalidatesCache() {
+        PassportCountryRepository repository = TestApplication.getPassportCountryRepository();
+        assertFalse(repository.getPassportCountryId("Cachetopia").isPresent());
+
+        Optional<Integer> id = repository.insert(new PassportCountry("Cachetopia")).toCompletableFuture().join();
+        assertTrue(id.isPresent());
+        assertEquals(id, repository.getPassportCountryId("Cachetopia"));
+
+        repository.delete(id.get()).toCompletableFuture().join();
+        assertFalse(repository.getPassportCountryId("Cachetopia").isPresent());
+    }
+}
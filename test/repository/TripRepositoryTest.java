@@ -0,0 +1,67 @@
+package repository;
+
+import controllers.TestApplication;
+import models.KeysetPage;
+import models.Trip;
+import models.TripDestination;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TripRepositoryTest {
+
+    @Test
+    public void getTripHasDestinations() {
+        Trip trip = TestApplication.getTripRepository().getTrip(1);
+        assertEquals("Johnny Trip", trip.getName());
+        assertEquals(2, trip.getDestinations().size());
+        for (TripDestination tripDestination : trip.getDestinations()) {
+            assertNotNull(tripDestination.getDestination());
+            assertEquals(tripDestination.getDestinationId(), tripDestination.getDestination().getDestinationId());
+        }
+        assertFalse(trip.getOrderedDestinations().isEmpty());
+    }
+
+    @Test
+    public void getTripsKeepsRequestedOrder() {
+        List<Trip> trips = TestApplication.getTripRepository().getTrips(Arrays.asList(3, 1));
+        assertEquals(2, trips.size());
+        assertEquals(3, trips.get(0).getTripId());
+        assertEquals(1, trips.get(1).getTripId());
+    }
+
+    @Test
+    public void getPaginateTripCursorMatchesOffset() {
+        KeysetPage<Trip> first = TestApplication.getTripRepository().getPaginateTrip((String) null, 2);
+        assertFalse(first.hasPrevious());
+        assertTrue(first.hasNext());
+
+        KeysetPage<Trip> second = TestApplication.getTripRepository().getPaginateTrip(first.getNextCursor(), 2);
+        List<Trip> expected = TestApplication.getTripRepository().getPaginateTrip(2, 2);
+        assertEquals(expected.size(), second.getItems().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTripId(), second.getItems().get(i).getTripId());
+        }
+        assertTrue(second.hasPrevious());
+
+        KeysetPage<Trip> back = TestApplication.getTripRepository().getPaginateTrip(second.getPreviousCursor(), 2);
+        assertEquals(first.getItems().get(0).getTripId(), back.getItems().get(0).getTripId());
+        assertEquals(first.getItems().get(1).getTripId(), back.getItems().get(1).getTripId());
+        assertFalse(back.hasPrevious());
+    }
+
+    @Test
+    public void getPaginateTripInvalidCursorIsFirstPage() {
+        KeysetPage<Trip> page = TestApplication.getTripRepository().getPaginateTrip("not a cursor", 2);
+        assertEquals(TestApplication.getTripRepository().getPaginateTrip(0, 2).get(0).getTripId(),
+                page.getItems().get(0).getTripId());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getTripMissing() {
+        TestApplication.getTripRepository().getTrip(-1);
+    }
+}
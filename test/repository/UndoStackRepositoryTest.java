@@ -0,0 +1,40 @@
+package repository;
+
+import controllers.TestApplication;
+import io.ebean.Ebean;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UndoStackRepositoryTest {
+
+    private static final int DESTINATION_ID = 9100;
+
+    @Test
+    public void purgeExpiredHardDeletesSoftDeletedObjects() {
+        UndoStackRepository repository = TestApplication.getUndoStackRepository();
+        Ebean.createSqlUpdate("INSERT INTO destination (destination_id, profile_id, name, type, country, soft_delete) " +
+                "VALUES (?, 1, 'Reaped', 'Town', 'New Zealand', 1)").setParameter(1, DESTINATION_ID).execute();
+        addToStack("destination", DESTINATION_ID);
+        addToStack("event", 1);
+
+        assertEquals(0, repository.purgeExpired(Timestamp.valueOf("1999-12-31 00:00:00"), 1));
+
+        assertEquals(2, repository.purgeExpired(Timestamp.valueOf("2000-01-02 00:00:00"), 1));
+        assertTrue(repository.getUsersStack(1).isEmpty());
+        assertEquals(0, Ebean.createSqlQuery("SELECT COUNT(*) AS total FROM destination WHERE destination_id = ?")
+                .setParameter(1, DESTINATION_ID).findOne().getInteger("total").intValue());
+    }
+
+    /**
+     * Adds an item to the stack from long before anything in the test data, so only these items are expired
+     */
+    private void addToStack(String itemType, int objectId) {
+        Ebean.createSqlUpdate("INSERT INTO undo_stack (item_type, object_id, profile_id, time_created) " +
+                "VALUES (?, ?, 1, '2000-01-01 00:00:00')")
+                .setParameter(1, itemType).setParameter(2, objectId).execute();
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import utility.Country;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -76,4 +77,28 @@ public class CountryUtilityTest {
         Assert.assertEquals(testCountries, Country.getInstance().getUserOutdatedCountries(profile));
     }
 
-}
\ No newline at end of file
+
+    /**
+     * Check a country's name can be found by its three letter ISO code
+     */
+    @Test
+    public void getCountryNameByAlpha3Code() {
+        Assert.assertEquals("New Zealand", Country.getInstance().getCountryNameByCode("NZL"));
+        Assert.assertEquals("", Country.getInstance().getCountryNameByCode("XYZ"));
+    }
+
+
+    /**
+     * Check the catalogue is kept when a refresh source fails
+     */
+    @Test
+    public void refreshFromFailingSourceKeepsCatalogue() {
+        int size = Country.getInstance().getAllCountries().size();
+        Assert.assertFalse(Country.getInstance().refresh(() -> {
+            throw new IOException("offline");
+        }));
+        Assert.assertEquals(size, Country.getInstance().getAllCountries().size());
+        Assert.assertTrue(Country.getInstance().checkExists("New Zealand"));
+    }
+
+}
@@ -0,0 +1,53 @@
+package utilities;
+
+import controllers.TestApplication;
+import org.junit.Assert;
+import org.junit.Test;
+import utility.Metrics;
+
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+
+    private Metrics metrics() {
+        return TestApplication.getApplication().injector().instanceOf(Metrics.class);
+    }
+
+    /**
+     * Check recorded latencies come out as a cumulative histogram of the route
+     */
+    @Test
+    public void routeLatencyIsRenderedAsHistogram() {
+        Metrics.RouteLatency latency = metrics().routeLatency("MetricsTest.histogram");
+        latency.record(TimeUnit.MILLISECONDS.toNanos(3), false);
+        latency.record(TimeUnit.MILLISECONDS.toNanos(40), false);
+        latency.record(TimeUnit.SECONDS.toNanos(20), true);
+        Assert.assertEquals(3, latency.getCount());
+
+        String rendered = metrics().render();
+        String labels = "{route=\"MetricsTest.histogram\",le=";
+        Assert.assertTrue(rendered.contains("http_request_duration_seconds_bucket" + labels + "\"0.005\"} 1\n"));
+        Assert.assertTrue(rendered.contains("http_request_duration_seconds_bucket" + labels + "\"0.05\"} 2\n"));
+        Assert.assertTrue(rendered.contains("http_request_duration_seconds_bucket" + labels + "\"10.0\"} 2\n"));
+        Assert.assertTrue(rendered.contains("http_request_duration_seconds_bucket" + labels + "\"+Inf\"} 3\n"));
+        Assert.assertTrue(rendered.contains("http_request_duration_seconds_count{route=\"MetricsTest.histogram\"} 3\n"));
+        Assert.assertTrue(rendered.contains("http_request_errors_total{route=\"MetricsTest.histogram\"} 1\n"));
+    }
+
+    /**
+     * Check the pool, dispatcher, cache, index and JVM metrics are all served
+     */
+    @Test
+    public void registeredMetricsAreRendered() {
+        String rendered = metrics().render();
+        Assert.assertTrue(rendered.contains("soundbound_db_pool_connections{state=\"active\"}"));
+        Assert.assertTrue(rendered.contains("soundbound_db_dispatcher_queue_depth "));
+        Assert.assertTrue(rendered.contains("soundbound_cache_hits_total{cache=\"music_genre\"}"));
+        Assert.assertTrue(rendered.contains("soundbound_cache_misses_total{cache=\"photo_file\"}"));
+        Assert.assertTrue(rendered.contains("soundbound_search_index_documents{index=\"events\"}"));
+        Assert.assertTrue(rendered.contains("soundbound_pool_rejected_total{pool=\"password_hashing\"}"));
+        Assert.assertTrue(rendered.contains("soundbound_sql_statements_total "));
+        Assert.assertTrue(rendered.contains("jvm_memory_bytes_used{area=\"heap\"}"));
+        Assert.assertTrue(rendered.contains("# TYPE soundbound_cache_hits_total counter\n"));
+    }
+}
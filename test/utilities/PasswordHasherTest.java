@@ -0,0 +1,62 @@
+package utilities;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import play.api.inject.DefaultApplicationLifecycle;
+import play.inject.DelegateApplicationLifecycle;
+import utility.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher(int workers, int queueSize) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("passwordHashing.workers", workers);
+        config.put("passwordHashing.queueSize", queueSize);
+        return new PasswordHasher(ConfigFactory.parseMap(config),
+                new DelegateApplicationLifecycle(new DefaultApplicationLifecycle()));
+    }
+
+
+    /**
+     * Check a hashed password is accepted and a wrong one is not
+     */
+    @Test
+    public void hashThenCheck() {
+        PasswordHasher hasher = hasher(1, 4);
+        String hash = hasher.hash("secret").toCompletableFuture().join();
+        Assert.assertTrue(hasher.check("secret", hash).toCompletableFuture().join());
+        Assert.assertFalse(hasher.check("wrong", hash).toCompletableFuture().join());
+        Assert.assertEquals(3, hasher.getCompletedCount());
+    }
+
+
+    /**
+     * Check work is turned away once the single worker is busy and the queue is full
+     */
+    @Test
+    public void fullQueueRejects() {
+        PasswordHasher hasher = hasher(1, 1);
+        List<CompletableFuture<String>> hashes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            hashes.add(hasher.hash("secret" + i).toCompletableFuture());
+        }
+        Assert.assertTrue(hasher.getRejectedCount() >= 2);
+
+        CompletableFuture<String> last = hashes.get(3);
+        try {
+            last.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package utilities;
+
+import controllers.TestApplication;
+import org.junit.Assert;
+import org.junit.Test;
+import repository.DatabaseExecutionContext;
+import repository.ProfileRepository;
+import utility.QueryAccounting;
+
+import java.util.List;
+
+public class QueryAccountingTest {
+
+    /**
+     * Check statements run on the calling thread are counted against the recorded work, and a lookup run once
+     * per id is flagged with the repository method which ran it
+     */
+    @Test
+    public void repeatedLookupIsFlagged() {
+        ProfileRepository profileRepository = TestApplication.getProfileRepository();
+        QueryAccounting.Recorder recorder = QueryAccounting.record("test.repeatedLookup", () -> {
+            for (int i = 0; i < 6; i++) {
+                profileRepository.getProfileByProfileId(i % 2 + 1);
+            }
+        });
+        Assert.assertTrue(recorder.getStatements() >= 6);
+        Assert.assertTrue(recorder.getRows() >= 6);
+
+        List<QueryAccounting.Suspect> suspects = recorder.getSuspects();
+        Assert.assertFalse(suspects.isEmpty());
+        QueryAccounting.Suspect suspect = suspects.get(0);
+        Assert.assertTrue(suspect.getCount() >= 6);
+        Assert.assertFalse(suspect.getShape().matches(".*\\b[12]\\b.*"));
+        Assert.assertTrue(suspect.getCaller(), suspect.getCaller().startsWith("ProfileRepository."));
+    }
+
+    /**
+     * Check a single lookup is not flagged
+     */
+    @Test
+    public void singleLookupIsNotFlagged() {
+        ProfileRepository profileRepository = TestApplication.getProfileRepository();
+        QueryAccounting.Recorder recorder = QueryAccounting.record("test.singleLookup",
+                () -> profileRepository.getProfileByProfileId(1));
+        Assert.assertTrue(recorder.getStatements() > 0);
+        Assert.assertTrue(recorder.getSuspects().isEmpty());
+    }
+
+    /**
+     * Check work handed to the database execution context counts against the request which handed it over
+     */
+    @Test
+    public void databaseContextWorkIsAttributed() {
+        ProfileRepository profileRepository = TestApplication.getProfileRepository();
+        DatabaseExecutionContext executionContext = TestApplication.getApplication().injector()
+                .instanceOf(DatabaseExecutionContext.class);
+        QueryAccounting.Recorder recorder = QueryAccounting.record("test.databaseContext",
+                () -> executionContext.supply(() -> profileRepository.getProfileByProfileId(1)).join());
+        Assert.assertTrue(recorder.getStatements() > 0);
+    }
+
+    /**
+     * Check finished work is added to the totals of its route
+     */
+    @Test
+    public void finishAddsToRoute() {
+        ProfileRepository profileRepository = TestApplication.getProfileRepository();
+        QueryAccounting.Recorder recorder = QueryAccounting.record("test.finish",
+                () -> profileRepository.getProfileByProfileId(1));
+        QueryAccounting.finish(recorder);
+        QueryAccounting.RouteStats stats = QueryAccounting.getRouteStats().get("test.finish");
+        Assert.assertEquals(1, stats.getRequests());
+        Assert.assertEquals(recorder.getStatements(), stats.getStatements());
+        Assert.assertEquals(recorder.getStatements(), stats.getMaxStatements());
+    }
+}
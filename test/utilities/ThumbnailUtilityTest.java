@@ -0,0 +1,66 @@
+package utilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+import utility.Thumbnail;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+public class ThumbnailUtilityTest {
+
+
+    /**
+     * Check the small thumbnail is always square
+     */
+    @Test
+    public void resizeSmallIsSquare() {
+        BufferedImage image = new BufferedImage(1200, 600, BufferedImage.TYPE_INT_RGB);
+        BufferedImage small = Thumbnail.getInstance().resize(image, Thumbnail.Size.SMALL, BufferedImage.TYPE_INT_RGB);
+        Assert.assertEquals(100, small.getWidth());
+        Assert.assertEquals(100, small.getHeight());
+    }
+
+
+    /**
+     * Check the larger sizes keep the aspect ratio of the photo
+     */
+    @Test
+    public void resizeMediumKeepsAspectRatio() {
+        BufferedImage image = new BufferedImage(1200, 600, BufferedImage.TYPE_INT_RGB);
+        BufferedImage medium = Thumbnail.getInstance().resize(image, Thumbnail.Size.MEDIUM, BufferedImage.TYPE_INT_RGB);
+        Assert.assertEquals(320, medium.getWidth());
+        Assert.assertEquals(160, medium.getHeight());
+    }
+
+
+    /**
+     * Check photos smaller than a size are not scaled up
+     */
+    @Test
+    public void resizeLargeDoesNotUpscale() {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        BufferedImage large = Thumbnail.getInstance().resize(image, Thumbnail.Size.LARGE, BufferedImage.TYPE_INT_RGB);
+        Assert.assertEquals(300, large.getWidth());
+        Assert.assertEquals(200, large.getHeight());
+    }
+
+
+    /**
+     * Check large images are subsampled while decoding but stay big enough for the largest size
+     */
+    @Test
+    public void readSubsamplesLargeImages() throws IOException {
+        File file = File.createTempFile("thumbnail", ".png");
+        try {
+            ImageIO.write(new BufferedImage(4000, 2000, BufferedImage.TYPE_INT_RGB), "png", file);
+            BufferedImage decoded = Thumbnail.getInstance().read(file, 800);
+            Assert.assertTrue(decoded.getWidth() < 4000);
+            Assert.assertTrue(decoded.getWidth() >= 1600);
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+}